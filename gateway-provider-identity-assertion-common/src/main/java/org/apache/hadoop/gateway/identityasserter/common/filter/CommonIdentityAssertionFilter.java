@@ -29,15 +29,21 @@ import javax.servlet.http.HttpServletRequestWrapper;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.hadoop.gateway.identityasserter.common.filter.AbstractIdentityAssertionFilter;
 import org.apache.hadoop.gateway.security.principal.PrincipalMappingException;
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.GroupLookupService;
 import org.apache.hadoop.gateway.security.principal.SimplePrincipalMapper;
 
 import java.io.IOException;
 import java.security.AccessController;
+import java.util.Set;
 
 public class CommonIdentityAssertionFilter extends AbstractIdentityAssertionFilter {
   private static final String GROUP_PRINCIPAL_MAPPING = "group.principal.mapping";
   private static final String PRINCIPAL_MAPPING = "principal.mapping";
+  private static final String GROUP_LOOKUP = "group.lookup";
+  private static final String GATEWAY_GROUP_LOOKUP = "gateway";
   private SimplePrincipalMapper mapper = new SimplePrincipalMapper();
+  private GroupLookupService groupLookupService;
 
   /* (non-Javadoc)
    * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
@@ -59,6 +65,21 @@ public class CommonIdentityAssertionFilter extends AbstractIdentityAssertionFilt
         throw new ServletException("Unable to load principal mapping table.", e);
       }
     }
+    // group.lookup=gateway adds the groups found by the gateway wide group lookup service
+    String groupLookup = filterConfig.getInitParameter(GROUP_LOOKUP);
+    if (groupLookup == null || groupLookup.isEmpty()) {
+      groupLookup = filterConfig.getServletContext().getInitParameter(GROUP_LOOKUP);
+    }
+    if (GATEWAY_GROUP_LOOKUP.equalsIgnoreCase(groupLookup)) {
+      GatewayServices services = (GatewayServices) filterConfig.getServletContext()
+          .getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
+      if (services != null) {
+        GroupLookupService service = services.getService(GatewayServices.GROUP_LOOKUP_SERVICE);
+        if (service != null && service.isEnabled()) {
+          groupLookupService = service;
+        }
+      }
+    }
   }
 
   /* (non-Javadoc)
@@ -84,6 +105,8 @@ public class CommonIdentityAssertionFilter extends AbstractIdentityAssertionFilt
     String[] mappedGroups = mapGroupPrincipals(mappedPrincipalName, subject);
     String[] groups = mapGroupPrincipals(mappedPrincipalName, subject);
     groups = combineGroupMappings(mappedGroups, groups);
+    // groups from the gateway wide lookup are added to whatever the provider mapped
+    groups = combineGroupMappings(groups, lookupGroupPrincipals(mappedPrincipalName));
 
     HttpServletRequestWrapper wrapper = wrapHttpServletRequest(
         request, mappedPrincipalName);
@@ -120,6 +143,18 @@ public class CommonIdentityAssertionFilter extends AbstractIdentityAssertionFilt
     return mapper.mapGroupPrincipal(mappedPrincipalName);
   }
 
+  /**
+   * Returns the groups found by the gateway wide group lookup service when the
+   * filter is configured to use it.
+   */
+  protected String[] lookupGroupPrincipals(String mappedPrincipalName) {
+    if (groupLookupService == null) {
+      return null;
+    }
+    Set<String> groups = groupLookupService.getGroups(mappedPrincipalName);
+    return groups.toArray(new String[groups.size()]);
+  }
+
   protected String mapUserPrincipalBase(String principalName) {
     return mapper.mapUserPrincipal(principalName);
   }
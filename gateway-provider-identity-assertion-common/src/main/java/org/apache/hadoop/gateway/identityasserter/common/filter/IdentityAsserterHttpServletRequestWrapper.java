@@ -17,7 +17,6 @@
  */
 package org.apache.hadoop.gateway.identityasserter.common.filter;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.gateway.SpiGatewayMessages;
 import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
@@ -28,11 +27,14 @@ import org.apache.hadoop.gateway.util.HttpUtils;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.nio.charset.Charset;
 import java.security.Principal;
 import java.util.ArrayList;
@@ -52,6 +54,8 @@ private static SpiGatewayMessages log = MessagesFactory.get( SpiGatewayMessages.
   private static final String DOAS_PRINCIPAL_PARAM = "doAs";
   
   String username = null;
+  private String queryString = null;
+  private Map<String, List<String>> queryParams = null;
 
   public IdentityAsserterHttpServletRequestWrapper( HttpServletRequest request, String principal ) {
     super(request);
@@ -151,17 +155,30 @@ private static SpiGatewayMessages log = MessagesFactory.get( SpiGatewayMessages.
 
   private Map<String, List<String>> getParams()
       throws UnsupportedEncodingException {
-    return getParams( super.getQueryString() );
+    if (queryParams == null) {
+      queryParams = getParams( super.getQueryString() );
+    }
+    return queryParams;
   }
 
   @Override
   public String getQueryString() {
+    if (queryString == null) {
+      queryString = buildQueryString();
+    }
+    return queryString;
+  }
+
+  private String buildQueryString() {
     String q = null;
     Map<String, List<String>> params;
     try {
       params = getParams();
       if (params == null) {
         params = new HashMap<>();
+      } else {
+        // Copy so that scrubbing doesn't alter the cached parameters.
+        params = new HashMap<>(params);
       }
       ArrayList<String> al = new ArrayList<String>();
       al.add(username);
@@ -234,14 +251,8 @@ private static SpiGatewayMessages log = MessagesFactory.get( SpiGatewayMessages.
       if( encoding == null ) {
         encoding = Charset.defaultCharset().name();
       }
-      String body = IOUtils.toString( super.getInputStream(), encoding );
-      Map<String, List<String>> params = getParams( body );
-      if (params == null) {
-        params = new HashMap<>();
-      }
-      body = urlEncode( params, encoding );
-      // ASCII is OK here because the urlEncode about should have already escaped
-      return new ServletInputStreamWrapper( new ByteArrayInputStream( body.getBytes( "US-ASCII" ) ) );
+      // The form body is normalized one parameter at a time so that large posts are never fully buffered.
+      return new UrlEncodedFormInputStream( super.getInputStream(), encoding );
     } else {
       return super.getInputStream();
     }
@@ -269,15 +280,7 @@ private static SpiGatewayMessages log = MessagesFactory.get( SpiGatewayMessages.
               if( sb.length() > 0 ) {
                 sb.append( "&" );
               }
-              try {
-                sb.append( urlEncode( name, encoding ) );
-                if( value != null ) {
-                  sb.append("=");
-                  sb.append(urlEncode(value, encoding));
-                }
-              } catch( IllegalArgumentException e ) {
-                log.skippingUnencodableParameter( name, value, encoding, e );
-              }
+              appendEncodedParam( sb, name, value, encoding );
           }
         }
       }
@@ -285,17 +288,113 @@ private static SpiGatewayMessages log = MessagesFactory.get( SpiGatewayMessages.
     return sb.toString();
   }
 
-  private static class ServletInputStreamWrapper extends SynchronousServletInputStreamAdapter {
-
-    private InputStream stream;
+  private static void appendEncodedParam( StringBuilder sb, String name, String value, String encoding ) {
+    try {
+      sb.append( urlEncode( name, encoding ) );
+      if( value != null ) {
+        sb.append("=");
+        sb.append(urlEncode(value, encoding));
+      }
+    } catch( IllegalArgumentException e ) {
+      log.skippingUnencodableParameter( name, value, encoding, e );
+    }
+  }
 
-    private ServletInputStreamWrapper( InputStream stream ) {
-      this.stream = stream;
+  /**
+   * Re-encodes an application/x-www-form-urlencoded body one parameter at a time.
+   * Each parameter is decoded and encoded the same way as HttpUtils.splitQuery followed by urlEncode
+   * so only the largest single parameter is ever held in memory.
+   */
+  private static class UrlEncodedFormInputStream extends SynchronousServletInputStreamAdapter {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final InputStream stream;
+    private final String encoding;
+    private final ByteArrayOutputStream pair = new ByteArrayOutputStream();
+    private final StringBuilder builder = new StringBuilder();
+    private byte[] buffer = EMPTY;
+    private int index = 0;
+    private boolean first = true;
+    private boolean eof = false;
+
+    private UrlEncodedFormInputStream( InputStream stream, String encoding ) {
+      this.stream = new BufferedInputStream( stream );
+      this.encoding = encoding;
     }
 
     @Override
     public int read() throws IOException {
-      return stream.read();
+      if( !fill() ) {
+        return -1;
+      }
+      return buffer[ index++ ] & 0xFF;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException {
+      if( len == 0 ) {
+        return 0;
+      }
+      int count = 0;
+      while( count < len && fill() ) {
+        int n = Math.min( len - count, buffer.length - index );
+        System.arraycopy( buffer, index, b, off + count, n );
+        index += n;
+        count += n;
+      }
+      return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public boolean isFinished() {
+      return eof && index >= buffer.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+      stream.close();
+    }
+
+    private boolean fill() throws IOException {
+      while( index >= buffer.length ) {
+        if( eof ) {
+          return false;
+        }
+        pair.reset();
+        int b;
+        while( ( b = stream.read() ) != -1 && b != '&' ) {
+          pair.write( b );
+        }
+        if( b == -1 ) {
+          eof = true;
+        }
+        encodePair( pair.toString( encoding ) );
+      }
+      return true;
+    }
+
+    private void encodePair( String param ) throws UnsupportedEncodingException {
+      builder.setLength( 0 );
+      int idx = param.indexOf( '=' );
+      String name = idx > 0 ? URLDecoder.decode( param.substring( 0, idx ), "UTF-8" ) : param;
+      if( name.length() > 0 ) {
+        String value = idx > 0 && param.length() > idx + 1
+            ? URLDecoder.decode( param.substring( idx + 1 ), "UTF-8" ) : "";
+        if( !first ) {
+          builder.append( '&' );
+        }
+        int mark = builder.length();
+        appendEncodedParam( builder, name, value, encoding );
+        if( builder.length() > mark ) {
+          first = false;
+        } else {
+          builder.setLength( 0 );
+        }
+      }
+      // ASCII is OK here because the urlEncode above should have already escaped
+      buffer = builder.toString().getBytes( StandardCharsets.US_ASCII );
+      index = 0;
     }
 
   }
@@ -24,20 +24,26 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.Arrays;
+import java.util.HashSet;
 
 import javax.security.auth.Subject;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.hadoop.gateway.identityasserter.common.filter.CommonIdentityAssertionFilter;
 import org.apache.hadoop.gateway.security.GroupPrincipal;
 import org.apache.hadoop.gateway.security.PrimaryPrincipal;
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.GroupLookupService;
 import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
@@ -127,4 +133,89 @@ public class CommonIdentityAssertionFilterTest {
     assertTrue(mappedGroups[1], mappedGroups[1].equals("USERS") || mappedGroups[1].equals("ADMIN"));
   }
 
+  @Test
+  public void testGatewayGroupLookup() throws Exception {
+    GroupLookupService groupLookup = EasyMock.createNiceMock( GroupLookupService.class );
+    EasyMock.expect( groupLookup.isEnabled() ).andReturn( true ).anyTimes();
+    EasyMock.expect( groupLookup.getGroups( "larry" ) ).andReturn( new HashSet<>( Arrays.asList( "analysts" ) ) ).once();
+    GatewayServices services = EasyMock.createNiceMock( GatewayServices.class );
+    EasyMock.expect( services.getService( GatewayServices.GROUP_LOOKUP_SERVICE ) ).andReturn( groupLookup ).anyTimes();
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    EasyMock.expect( context.getAttribute( GatewayServices.GATEWAY_SERVICES_ATTRIBUTE ) ).andReturn( services ).anyTimes();
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.expect( config.getInitParameter( "group.lookup" ) ).andReturn( "gateway" ).anyTimes();
+    EasyMock.expect( config.getServletContext() ).andReturn( context ).anyTimes();
+    EasyMock.replay( groupLookup, services, context, config );
+
+    final String[][] assertedGroups = new String[1][];
+    final CommonIdentityAssertionFilter lookupFilter = new CommonIdentityAssertionFilter() {
+      @Override
+      protected void continueChainAsPrincipal( HttpServletRequestWrapper request, ServletResponse response,
+          FilterChain chain, String mappedPrincipalName, String[] groups ) {
+        assertedGroups[0] = groups;
+      }
+    };
+    lookupFilter.init( config );
+
+    final HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    final HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.replay( request, response );
+    Subject subject = new Subject();
+    subject.getPrincipals().add( new PrimaryPrincipal( "larry" ) );
+    Subject.doAs( subject, new PrivilegedExceptionAction<Object>() {
+      public Object run() throws Exception {
+        lookupFilter.doFilter( request, response, null );
+        return null;
+      }
+    } );
+    assertEquals( Arrays.asList( "analysts" ), Arrays.asList( assertedGroups[0] ) );
+    EasyMock.verify( groupLookup );
+  }
+
+  @Test
+  public void testGatewayGroupLookupKeepsProviderGroupMapping() throws Exception {
+    GroupLookupService groupLookup = EasyMock.createNiceMock( GroupLookupService.class );
+    EasyMock.expect( groupLookup.isEnabled() ).andReturn( true ).anyTimes();
+    EasyMock.expect( groupLookup.getGroups( "larry" ) ).andReturn( new HashSet<>( Arrays.asList( "analysts" ) ) ).once();
+    GatewayServices services = EasyMock.createNiceMock( GatewayServices.class );
+    EasyMock.expect( services.getService( GatewayServices.GROUP_LOOKUP_SERVICE ) ).andReturn( groupLookup ).anyTimes();
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    EasyMock.expect( context.getAttribute( GatewayServices.GATEWAY_SERVICES_ATTRIBUTE ) ).andReturn( services ).anyTimes();
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.expect( config.getInitParameter( "group.lookup" ) ).andReturn( "gateway" ).anyTimes();
+    EasyMock.expect( config.getServletContext() ).andReturn( context ).anyTimes();
+    EasyMock.replay( groupLookup, services, context, config );
+
+    // a provider such as the regex or concat asserter that maps groups itself
+    final String[][] assertedGroups = new String[1][];
+    final CommonIdentityAssertionFilter lookupFilter = new CommonIdentityAssertionFilter() {
+      @Override
+      public String[] mapGroupPrincipals( String mappedPrincipalName, Subject subject ) {
+        return new String[] { mappedPrincipalName + "-group" };
+      }
+
+      @Override
+      protected void continueChainAsPrincipal( HttpServletRequestWrapper request, ServletResponse response,
+          FilterChain chain, String mappedPrincipalName, String[] groups ) {
+        assertedGroups[0] = groups;
+      }
+    };
+    lookupFilter.init( config );
+
+    final HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    final HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.replay( request, response );
+    Subject subject = new Subject();
+    subject.getPrincipals().add( new PrimaryPrincipal( "larry" ) );
+    Subject.doAs( subject, new PrivilegedExceptionAction<Object>() {
+      public Object run() throws Exception {
+        lookupFilter.doFilter( request, response, null );
+        return null;
+      }
+    } );
+    assertTrue( Arrays.asList( assertedGroups[0] ).contains( "larry-group" ) );
+    assertTrue( Arrays.asList( assertedGroups[0] ).contains( "analysts" ) );
+    EasyMock.verify( groupLookup );
+  }
+
 }
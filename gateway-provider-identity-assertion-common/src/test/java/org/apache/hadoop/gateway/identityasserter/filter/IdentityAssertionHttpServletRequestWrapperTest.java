@@ -39,6 +39,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 
 @Category( { UnitTests.class, FastTests.class } )
 public class IdentityAssertionHttpServletRequestWrapperTest {
@@ -120,6 +121,47 @@ public class IdentityAssertionHttpServletRequestWrapperTest {
     assertThat( output, not( containsString( "input-user" ) ) );
   }
 
+  @Test
+  public void testFormBodyIsRewrittenInOrder() throws IOException {
+    String inputBody = "a=1&b=x+y&&c&d=%2Ftmp&a=2";
+
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setInputStream( new MockServletInputStream( new ByteArrayInputStream( inputBody.getBytes( "UTF-8" ) ) ) );
+    request.setCharacterEncoding( "UTF-8" );
+    request.setContentType( "application/x-www-form-urlencoded" );
+    request.setMethod("POST");
+
+    IdentityAsserterHttpServletRequestWrapper wrapper
+        = new IdentityAsserterHttpServletRequestWrapper( request, "output-user" );
+
+    String outputBody = IOUtils.toString( wrapper.getInputStream(), wrapper.getCharacterEncoding() );
+    assertThat( outputBody, is( "a=1&b=x+y&c=&d=%2Ftmp&a=2" ) );
+  }
+
+  @Test
+  public void testLargeFormBody() throws IOException {
+    StringBuilder input = new StringBuilder();
+    for( int i = 0; i < 10000; i++ ) {
+      if( i > 0 ) {
+        input.append( '&' );
+      }
+      input.append( "arg" ).append( i ).append( "=%2Ftmp%2Fvalue" ).append( i );
+    }
+    String inputBody = input.toString();
+
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setInputStream( new MockServletInputStream( new ByteArrayInputStream( inputBody.getBytes( "UTF-8" ) ) ) );
+    request.setCharacterEncoding( "UTF-8" );
+    request.setContentType( "application/x-www-form-urlencoded" );
+    request.setMethod("POST");
+
+    IdentityAsserterHttpServletRequestWrapper wrapper
+        = new IdentityAsserterHttpServletRequestWrapper( request, "output-user" );
+
+    String outputBody = IOUtils.toString( wrapper.getInputStream(), wrapper.getCharacterEncoding() );
+    assertThat( outputBody, is( inputBody ) );
+  }
+
   @Test
   public void testIngoreNonFormBody() throws IOException {
     String inputBody = "user.name=input-user&jar=%2Ftmp%2FGatewayWebHdfsFuncTest%2FtestJavaMapReduceViaWebHCat%2Fhadoop-examples.jar&class=org.apache.org.apache.hadoop.examples.WordCount&arg=%2Ftmp%2FGatewayWebHdfsFuncTest%2FtestJavaMapReduceViaTempleton%2Finput&arg=%2Ftmp%2FGatewayWebHdfsFuncTest%2FtestJavaMapReduceViaTempleton%2Foutput";
@@ -245,6 +287,21 @@ public class IdentityAssertionHttpServletRequestWrapperTest {
     assertThat( output, containsString( "param2=abc" ) );
   }
 
+  @Test
+  public void testQueryStringIsCached() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setQueryString( "op=LISTSTATUS&user.name=jack" );
+
+    IdentityAsserterHttpServletRequestWrapper wrapper
+        = new IdentityAsserterHttpServletRequestWrapper( request, "output-user" );
+
+    String output = wrapper.getQueryString();
+    assertThat( output, containsString( "user.name=output-user" ) );
+    assertThat( output, not( containsString( "jack" ) ) );
+    assertThat( wrapper.getQueryString(), sameInstance( output ) );
+    assertThat( wrapper.getParameterValues( "user.name" )[0], is( "jack" ) );
+  }
+
   @Test
   public void testUrlEncode() {
     String s;
@@ -21,8 +21,15 @@ import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 
+import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.filter.rewrite.i18n.UrlRewriteMessages;
+import org.apache.hadoop.gateway.filter.rewrite.impl.UrlRewriteStaticAssetCache;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.metrics.MetricsService;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -54,6 +61,13 @@ public class UrlRewriteServletContextListener implements ServletContextListener
     UrlRewriteProcessor processor = new UrlRewriteProcessor();
     processor.initialize( environment, descriptor );
     event.getServletContext().setAttribute( PROCESSOR_ATTRIBUTE_NAME, processor );
+    GatewayConfig config = (GatewayConfig)context.getAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE );
+    if( config != null && config.isStaticAssetCacheEnabled() ) {
+      UrlRewriteStaticAssetCache assetCache = new UrlRewriteStaticAssetCache( config.getStaticAssetCacheMaxSize() );
+      assetCache.registerMetrics( SharedMetricRegistries.getOrCreate( MetricsService.METRIC_REGISTRY_NAME ),
+          getAssetCacheMetricsPrefix( context ) );
+      context.setAttribute( UrlRewriteStaticAssetCache.ATTRIBUTE_NAME, assetCache );
+    }
   }
 
   @Override
@@ -61,11 +75,21 @@ public class UrlRewriteServletContextListener implements ServletContextListener
     UrlRewriteProcessor processor =
         (UrlRewriteProcessor)event.getServletContext().getAttribute( PROCESSOR_ATTRIBUTE_NAME );
     event.getServletContext().removeAttribute( PROCESSOR_ATTRIBUTE_NAME );
+    if( event.getServletContext().getAttribute( UrlRewriteStaticAssetCache.ATTRIBUTE_NAME ) != null ) {
+      UrlRewriteStaticAssetCache.unregisterMetrics( SharedMetricRegistries.getOrCreate( MetricsService.METRIC_REGISTRY_NAME ),
+          getAssetCacheMetricsPrefix( event.getServletContext() ) );
+      event.getServletContext().removeAttribute( UrlRewriteStaticAssetCache.ATTRIBUTE_NAME );
+    }
     if( processor != null ) {
       processor.destroy();
     }
   }
 
+  private static String getAssetCacheMetricsPrefix( ServletContext context ) {
+    String cluster = (String)context.getAttribute( GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE );
+    return MetricRegistry.name( "rewrite.asset.cache", cluster == null ? "default" : cluster );
+  }
+
   public static UrlRewriter getUrlRewriter( ServletContext context ) {
     return ((UrlRewriteProcessor)context.getAttribute( PROCESSOR_ATTRIBUTE_NAME ));
   }
@@ -58,6 +58,23 @@ public abstract class UrlRewriteStreamFilterFactory {
     return filteredStream;
   }
 
+  /**
+   * Determines if a filter that can actually modify the content is registered for the type.
+   * The catch all filters registered without a type never modify the content.
+   */
+  public static boolean hasFilter( MimeType type, String name ) {
+    MimeType copy = new MimeType();
+    if( type != null ) {
+      try {
+        copy = new MimeType( type.getBaseType() );
+      } catch( MimeTypeParseException e ) {
+        throw new IllegalArgumentException( type.toString(), e );
+      }
+    }
+    Map<String,UrlRewriteStreamFilter> nameMap = getNameMap( copy );
+    return nameMap != null && nameMap != MAP.get( null ) && getFilter( nameMap, name ) != null;
+  }
+
   private static Map<String,Map<String,UrlRewriteStreamFilter>> loadFactories() {
     Map<String,Map<String,UrlRewriteStreamFilter>> typeMap = new HashMap<>();
     ServiceLoader<UrlRewriteStreamFilter> filters = ServiceLoader.load( UrlRewriteStreamFilter.class );
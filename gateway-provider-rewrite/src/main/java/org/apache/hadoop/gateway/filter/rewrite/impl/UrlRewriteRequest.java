@@ -220,17 +220,14 @@ public class UrlRewriteRequest extends GatewayRequestWrapper implements Resolver
   @Override
   public ServletInputStream getInputStream() throws IOException {
     ServletInputStream input = super.getInputStream();
-    if( getContentLength() != 0 ) {
-      MimeType mimeType = getMimeType();
-      UrlRewriteFilterContentDescriptor filterContentConfig = getRewriteFilterConfig( bodyFilterName, mimeType );
-      if (filterContentConfig != null) {
-        String asType = filterContentConfig.asType();
-        if ( asType != null && asType.trim().length() > 0 ) {
-          mimeType = MimeTypes.create(asType, getCharacterEncoding());
-        }
+    if( super.getContentLength() != 0 ) {
+      UrlRewriteFilterContentDescriptor filterContentConfig = getRewriteFilterConfig( bodyFilterName, getMimeType() );
+      MimeType mimeType = getBodyMimeType( filterContentConfig );
+      // Bodies without a stream filter for their type are passed through untouched.
+      if( UrlRewriteStreamFilterFactory.hasFilter( mimeType, null ) ) {
+        InputStream stream = UrlRewriteStreamFilterFactory.create( mimeType, null, input, rewriter, this, UrlRewriter.Direction.IN, filterContentConfig );
+        input = new UrlRewriteRequestStream( stream );
       }
-      InputStream stream = UrlRewriteStreamFilterFactory.create( mimeType, null, input, rewriter, this, UrlRewriter.Direction.IN, filterContentConfig );
-      input = new UrlRewriteRequestStream( stream );
     }
     return input;
   }
@@ -243,13 +240,39 @@ public class UrlRewriteRequest extends GatewayRequestWrapper implements Resolver
   @Override
   public int getContentLength() {
     // The rewrite might change the content length so return the default of -1 to indicate the length is unknown.
+    // The length is only preserved when the body won't be filtered at all.
     int contentLength = super.getContentLength();
-    if( contentLength > 0 ) {
+    if( contentLength > 0 && isBodyFiltered() ) {
       contentLength = -1;
     }
     return contentLength;
   }
 
+  @Override
+  public long getContentLengthLong() {
+    long contentLength = super.getContentLengthLong();
+    if( contentLength > 0 && isBodyFiltered() ) {
+      contentLength = -1;
+    }
+    return contentLength;
+  }
+
+  private boolean isBodyFiltered() {
+    UrlRewriteFilterContentDescriptor filterContentConfig = getRewriteFilterConfig( bodyFilterName, getMimeType() );
+    return UrlRewriteStreamFilterFactory.hasFilter( getBodyMimeType( filterContentConfig ), null );
+  }
+
+  private MimeType getBodyMimeType( UrlRewriteFilterContentDescriptor filterContentConfig ) {
+    MimeType mimeType = getMimeType();
+    if( filterContentConfig != null ) {
+      String asType = filterContentConfig.asType();
+      if( asType != null && asType.trim().length() > 0 ) {
+        mimeType = MimeTypes.create( asType, getCharacterEncoding() );
+      }
+    }
+    return mimeType;
+  }
+
   private UrlRewriteFilterContentDescriptor getRewriteFilterConfig( String filterName, MimeType mimeType ) {
     UrlRewriteFilterContentDescriptor filterContentConfig = null;
     UrlRewriteRulesDescriptor rewriteConfig = rewriter.getConfig();
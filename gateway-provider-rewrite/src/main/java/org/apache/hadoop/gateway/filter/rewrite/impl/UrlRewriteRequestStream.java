@@ -22,7 +22,6 @@ import java.io.InputStream;
 
 import org.apache.hadoop.gateway.servlet.SynchronousServletInputStreamAdapter;
 
-//TODO: This needs to be coded much more efficiently!
 public class UrlRewriteRequestStream extends SynchronousServletInputStreamAdapter {
 
   private InputStream stream;
@@ -36,4 +35,19 @@ public class UrlRewriteRequestStream extends SynchronousServletInputStreamAdapte
     return stream.read();
   }
 
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    return stream.read( b, off, len );
+  }
+
+  @Override
+  public int available() throws IOException {
+    return stream.available();
+  }
+
+  @Override
+  public void close() throws IOException {
+    stream.close();
+  }
+
 }
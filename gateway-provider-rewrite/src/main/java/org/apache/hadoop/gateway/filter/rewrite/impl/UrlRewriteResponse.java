@@ -26,6 +26,9 @@ import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteStreamFilterFactor
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriter;
 import org.apache.hadoop.gateway.filter.rewrite.i18n.UrlRewriteMessages;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.security.SubjectUtils;
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.LocalHostNameService;
 import org.apache.hadoop.gateway.util.MimeTypes;
 import org.apache.hadoop.gateway.util.Urls;
 import org.apache.hadoop.gateway.util.urltemplate.Params;
@@ -40,6 +43,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -91,6 +96,11 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
   private String xForwardedHostname;
   private String xForwardedPort;
   private String xForwardedScheme;
+  private UrlRewriteStaticAssetCache assetCache;
+  private int status = SC_OK;
+  private String contentEncoding;
+  private String validator;
+  private boolean cacheable = true;
 
   public UrlRewriteResponse( FilterConfig config, HttpServletRequest request, HttpServletResponse response )
       throws IOException {
@@ -105,6 +115,7 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
     this.headersFilterName = config.getInitParameter( UrlRewriteServletFilter.RESPONSE_HEADERS_FILTER_PARAM );
     this.headersFilterConfig = getRewriteFilterConfig( rewriter.getConfig(), headersFilterName, UrlRewriteServletFilter.HEADERS_MIME_TYPE );
     this.cookiesFilterName = config.getInitParameter( UrlRewriteServletFilter.RESPONSE_COOKIES_FILTER_PARAM );
+    this.assetCache = (UrlRewriteStaticAssetCache)config.getServletContext().getAttribute( UrlRewriteStaticAssetCache.ATTRIBUTE_NAME );
   }
 
   protected boolean ignoreHeader( String name ) {
@@ -124,9 +135,43 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
     return value;
   }
 
+  @Override
+  public void setStatus( int sc ) {
+    status = sc;
+    super.setStatus( sc );
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public void setStatus( int sc, String sm ) {
+    status = sc;
+    super.setStatus( sc, sm );
+  }
+
+  // Remember the headers that determine whether and how a static asset response can be cached.
+  private void inspectHeader( String name, String value ) {
+    if( assetCache != null && name != null && value != null ) {
+      if( "ETag".equalsIgnoreCase( name ) ) {
+        validator = "etag:" + value;
+      } else if( "Last-Modified".equalsIgnoreCase( name ) && validator == null ) {
+        validator = "modified:" + value;
+      } else if( "Content-Encoding".equalsIgnoreCase( name ) ) {
+        contentEncoding = value;
+      } else if( "Cache-Control".equalsIgnoreCase( name ) ) {
+        String lower = value.toLowerCase();
+        if( lower.contains( "no-store" ) || lower.contains( "private" ) ) {
+          cacheable = false;
+        }
+      } else if( "Vary".equalsIgnoreCase( name ) && !UrlRewriteStaticAssetCache.isCacheableVary( value ) ) {
+        cacheable = false;
+      }
+    }
+  }
+
   // Ignore the Content-Length from the dispatch respond since the respond body may be rewritten.
   @Override
   public void setHeader( String name, String value ) {
+    inspectHeader( name, value );
     if( !ignoreHeader( name) ) {
       value = rewriteValue( value, pickFirstRuleWithEqualsIgnoreCasePathMatch( headersFilterConfig, name ) );
       super.setHeader( name, value );
@@ -136,6 +181,7 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
   // Ignore the Content-Length from the dispatch respond since the respond body may be rewritten.
   @Override
   public void addHeader( String name, String value ) {
+    inspectHeader( name, value );
     if( !ignoreHeader( name ) ) {
       String rule = pickFirstRuleWithEqualsIgnoreCasePathMatch( headersFilterConfig, name );
       value = rewriteValue( value, rule );
@@ -150,6 +196,19 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
 
   @Override
   public void streamResponse( InputStream input, OutputStream output ) throws IOException {
+    String cacheKey = getAssetCacheKey();
+    CachingOutputStream cachingOutput = null;
+    if( cacheKey != null ) {
+      byte[] cached = assetCache.get( cacheKey );
+      if( cached != null ) {
+        // The backend asset is unchanged so the previously rewritten bytes can be used as is.
+        output.write( cached );
+        output.close();
+        return;
+      }
+      cachingOutput = new CachingOutputStream( output, assetCache.getMaxEntrySize() );
+      output = cachingOutput;
+    }
     InputStream inStream;
     OutputStream outStream;
     boolean isGzip = false;
@@ -183,6 +242,33 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
     IOUtils.copyLarge( filteredInput, outStream, new byte[STREAM_BUFFER_SIZE] );
     //KNOX-685: outStream.flush();
     outStream.close();
+    if( cachingOutput != null && cachingOutput.isComplete() ) {
+      assetCache.put( cacheKey, cachingOutput.toByteArray() );
+    }
+  }
+
+  // Only successful GETs of static assets that the backend can validate are cached.
+  // The gateway URL and the effective principal are part of the key because rewrite rules can use
+  // them, for example through $username.
+  private String getAssetCacheKey() {
+    if( assetCache == null || !cacheable || validator == null || status != SC_OK
+        || !"GET".equalsIgnoreCase( request.getMethod() )
+        || !UrlRewriteStaticAssetCache.isStaticAsset( request.getRequestURI() ) ) {
+      return null;
+    }
+    StringBuilder key = new StringBuilder( 256 );
+    key.append( request.getRequestURL() );
+    String query = request.getQueryString();
+    if( query != null ) {
+      key.append( '?' ).append( query );
+    }
+    key.append( '\n' ).append( validator );
+    key.append( '\n' ).append( contentEncoding );
+    key.append( '\n' ).append( getContentType() );
+    key.append( '\n' ).append( bodyFilterName );
+    key.append( '\n' ).append( getGatewayParam( "url" ) );
+    key.append( '\n' ).append( SubjectUtils.getCurrentEffectivePrincipalName() );
+    return key.toString();
   }
 
   //TODO: Need to buffer the output here and when it is closed, rewrite it and then write the result to the stream.
@@ -217,11 +303,15 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
   }
 
   // KNOX-464: Doing this because Jetty only returns the string version of the IP address for request.getLocalName().
-  // Hopefully the local hostname will be cached so this will not be a significant performance hit.
+  // The resolved name is taken from the LocalHostNameService when available so that no lookup is done per request.
   // Previously this was an inline request.getServerName() but this ended up mixing the hostname from the Host header
   // and the local port which was making load balancer configuration difficult if not impossible.
   private String getRequestLocalHostName() {
     String hostName = request.getLocalName();
+    LocalHostNameService hostNameService = getLocalHostNameService();
+    if( hostNameService != null ) {
+      return hostNameService.getHostName( hostName );
+    }
     try {
       hostName = InetAddress.getByName( hostName ).getHostName();
     } catch( UnknownHostException e ) {
@@ -230,6 +320,14 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
     return hostName;
   }
 
+  private LocalHostNameService getLocalHostNameService() {
+    GatewayServices services = (GatewayServices)config.getServletContext().getAttribute( GatewayServices.GATEWAY_SERVICES_ATTRIBUTE );
+    if( services != null ) {
+      return services.getService( GatewayServices.LOCAL_HOSTNAME_SERVICE );
+    }
+    return null;
+  }
+
   private String getGatewayParam( String name ) {
     if( "url".equals( name ) ) {
       if( xForwardedPort == null ) {
@@ -327,4 +425,56 @@ public class UrlRewriteResponse extends GatewayResponseWrapper implements Params
     }
   }
 
+  // Passes everything through to the real output while keeping a copy, up to a limit, for the asset cache.
+  private static class CachingOutputStream extends FilterOutputStream {
+
+    private final long limit;
+    private ByteArrayOutputStream copy = new ByteArrayOutputStream( STREAM_BUFFER_SIZE );
+    private boolean closed = false;
+
+    private CachingOutputStream( OutputStream output, long limit ) {
+      super( output );
+      this.limit = limit;
+    }
+
+    @Override
+    public void write( int b ) throws IOException {
+      out.write( b );
+      if( copy != null ) {
+        copy.write( b );
+        checkLimit();
+      }
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len ) throws IOException {
+      out.write( b, off, len );
+      if( copy != null ) {
+        copy.write( b, off, len );
+        checkLimit();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      super.close();
+      closed = true;
+    }
+
+    private void checkLimit() {
+      if( copy.size() > limit ) {
+        copy = null;
+      }
+    }
+
+    boolean isComplete() {
+      return closed && copy != null;
+    }
+
+    byte[] toByteArray() {
+      return copy.toByteArray();
+    }
+
+  }
+
 }
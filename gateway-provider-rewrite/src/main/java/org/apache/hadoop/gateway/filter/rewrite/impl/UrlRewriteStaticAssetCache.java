@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.filter.rewrite.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * A size bounded LRU cache of fully rewritten (and possibly compressed) response bodies for static UI assets.
+ * One instance exists per deployed topology so entries never outlive the rewrite rules that produced them.
+ * Entries are keyed by the gateway request URL, which the topology's rules map to a single backend URL,
+ * the backend validator (ETag or Last-Modified), the gateway URL and the effective principal used when
+ * rewriting, so a changed asset on the backend results in a new entry and no user is served content
+ * rewritten for another.
+ */
+public class UrlRewriteStaticAssetCache {
+
+  public static final String ATTRIBUTE_NAME = UrlRewriteStaticAssetCache.class.getName();
+
+  private static final String[] STATIC_ASSET_EXTENSIONS = { ".js", ".css", ".html", ".htm" };
+
+  // The content encoding is part of the key so varying on it doesn't prevent caching.
+  private static final String[] CACHEABLE_VARY_HEADERS = { "Accept-Encoding" };
+
+  private static final String[] METRICS = { "hits", "misses", "size", "entries" };
+
+  private final long maxSize;
+  private final long maxEntrySize;
+  private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>( 64, 0.75f, true );
+  private long size = 0;
+  private long hits = 0;
+  private long misses = 0;
+
+  public UrlRewriteStaticAssetCache( long maxSize ) {
+    this.maxSize = maxSize;
+    // Don't let a single asset take more than an eighth of the cache.
+    this.maxEntrySize = maxSize / 8;
+  }
+
+  public static boolean isStaticAsset( String path ) {
+    if( path != null ) {
+      String lower = path.toLowerCase();
+      for( String extension : STATIC_ASSET_EXTENSIONS ) {
+        if( lower.endsWith( extension ) ) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Determines if a response with the Vary header value can be cached.  Only headers that are
+   * already part of the cache key are allowed.
+   */
+  public static boolean isCacheableVary( String value ) {
+    for( String header : value.split( "," ) ) {
+      header = header.trim();
+      if( !header.isEmpty() && !isCacheableVaryHeader( header ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isCacheableVaryHeader( String header ) {
+    for( String allowed : CACHEABLE_VARY_HEADERS ) {
+      if( allowed.equalsIgnoreCase( header ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public long getMaxEntrySize() {
+    return maxEntrySize;
+  }
+
+  public synchronized byte[] get( String key ) {
+    byte[] value = entries.get( key );
+    if( value == null ) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return value;
+  }
+
+  public synchronized void put( String key, byte[] value ) {
+    if( value == null || value.length > maxEntrySize ) {
+      return;
+    }
+    byte[] previous = entries.put( key, value );
+    if( previous != null ) {
+      size -= previous.length;
+    }
+    size += value.length;
+    Iterator<Map.Entry<String, byte[]>> iterator = entries.entrySet().iterator();
+    while( size > maxSize && iterator.hasNext() ) {
+      size -= iterator.next().getValue().length;
+      iterator.remove();
+    }
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    size = 0;
+  }
+
+  public synchronized long getSize() {
+    return size;
+  }
+
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Publishes the counters of the cache as gauges named <tt>&lt;prefix&gt;.hits</tt>, <tt>misses</tt>,
+   * <tt>size</tt> and <tt>entries</tt>, replacing those of a previous cache with the same prefix.
+   */
+  public void registerMetrics( MetricRegistry registry, String prefix ) {
+    unregisterMetrics( registry, prefix );
+    registry.register( MetricRegistry.name( prefix, "hits" ), new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return getHitCount();
+      }
+    } );
+    registry.register( MetricRegistry.name( prefix, "misses" ), new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return getMissCount();
+      }
+    } );
+    registry.register( MetricRegistry.name( prefix, "size" ), new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return getSize();
+      }
+    } );
+    registry.register( MetricRegistry.name( prefix, "entries" ), new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return getEntryCount();
+      }
+    } );
+  }
+
+  public static void unregisterMetrics( MetricRegistry registry, String prefix ) {
+    for( String metric : METRICS ) {
+      registry.remove( MetricRegistry.name( prefix, metric ) );
+    }
+  }
+
+}
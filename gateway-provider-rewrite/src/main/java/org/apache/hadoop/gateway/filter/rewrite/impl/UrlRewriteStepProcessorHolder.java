@@ -35,11 +35,21 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
 
   private static final UrlRewriteMessages LOG = MessagesFactory.get( UrlRewriteMessages.class );
 
+  private static final UrlRewriteStepProcessorHolder[] NO_STEPS = new UrlRewriteStepProcessorHolder[ 0 ];
+  private static final int[] NO_SEGMENTS = new int[ 0 ];
+
   private boolean isCondition;
   private UrlRewriteStepDescriptor descriptor;
   private UrlRewriteStepProcessor processor;
   private List<UrlRewriteStepProcessorHolder> childProcessors;
 
+  // The child steps compiled at initialization time so that processing is a simple loop.
+  // The steps are grouped into segments of one or more conditions followed by one or more actions.
+  // For segment n the conditions are [segments[3n], segments[3n+1]) and the actions are [segments[3n+1], segments[3n+2]).
+  private UrlRewriteStepFlow flow;
+  private UrlRewriteStepProcessorHolder[] steps = NO_STEPS;
+  private int[] segments = NO_SEGMENTS;
+
   @Override
   public String getType() {
     return "system";
@@ -80,6 +90,32 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
           childProcessors.add( stepProcessor );
         }
       }
+      flow = flowDescriptor.flow();
+      if( flow == null ) {
+        flow = UrlRewriteStepFlow.AND;
+      }
+    }
+    compile();
+  }
+
+  private void compile() {
+    steps = childProcessors.toArray( NO_STEPS );
+    List<Integer> bounds = new ArrayList<>();
+    int i = 0;
+    while( i < steps.length ) {
+      bounds.add( i );
+      while( i < steps.length && steps[ i ].isCondition() ) {
+        i++;
+      }
+      bounds.add( i );
+      while( i < steps.length && steps[ i ].isAction() ) {
+        i++;
+      }
+      bounds.add( i );
+    }
+    segments = new int[ bounds.size() ];
+    for( int j = 0; j < segments.length; j++ ) {
+      segments[ j ] = bounds.get( j );
     }
   }
 
@@ -99,14 +135,7 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
     // If initialization failed then fail processing
     if( processor != null ) {
       status = processor.process( context );
-      if( UrlRewriteStepStatus.SUCCESS == status &&
-          descriptor instanceof UrlRewriteFlowDescriptor &&
-          !childProcessors.isEmpty() ) {
-        UrlRewriteFlowDescriptor flowDescriptor = (UrlRewriteFlowDescriptor)descriptor;
-        UrlRewriteStepFlow flow = flowDescriptor.flow();
-        if( flow == null ) {
-          flow = UrlRewriteStepFlow.AND;
-        }
+      if( UrlRewriteStepStatus.SUCCESS == status && isCondition && steps.length > 0 ) {
         switch( flow ) {
           case ALL:
             return processAllFlow( context );
@@ -121,18 +150,15 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
   }
 
   private UrlRewriteStepStatus processAllFlow( UrlRewriteContext context ) throws Exception {
-    UrlRewriteStepProcessorState state = new UrlRewriteStepProcessorState( childProcessors.iterator() );
-    UrlRewriteStepStatus stepStatus = UrlRewriteStepStatus.SUCCESS;
-    UrlRewriteStepProcessorHolder step;
-    while( state.hasNext() ) {
-      while( state.hasNextCondition() ) {
-        step = state.nextCondition( stepStatus );
-        stepStatus = step.process( context );
+    UrlRewriteStepStatus stepStatus;
+    for( int s = 0; s < segments.length; s += 3 ) {
+      for( int i = segments[ s ]; i < segments[ s + 1 ]; i++ ) {
+        stepStatus = steps[ i ].process( context );
         if( stepStatus == UrlRewriteStepStatus.FINISHED ) {
           return stepStatus;
         }
       }
-      stepStatus = processActions( context, state );
+      stepStatus = processActions( context, segments[ s + 1 ], segments[ s + 2 ] );
       if( stepStatus == UrlRewriteStepStatus.FINISHED ) {
         return stepStatus;
       }
@@ -142,18 +168,15 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
 
   // All conditions proceeding a set of one or more actions must succeed for the actions to be executed.
   private UrlRewriteStepStatus processAndFlow( UrlRewriteContext context ) throws Exception {
-    UrlRewriteStepProcessorState state = new UrlRewriteStepProcessorState( childProcessors.iterator() );
-    UrlRewriteStepStatus stepStatus = UrlRewriteStepStatus.SUCCESS;
-    UrlRewriteStepProcessorHolder step;
-    while( state.hasNext() ) {
-      while( state.hasNextCondition() ) {
-        step = state.nextCondition( stepStatus );
-        stepStatus = step.process( context );
+    UrlRewriteStepStatus stepStatus;
+    for( int s = 0; s < segments.length; s += 3 ) {
+      for( int i = segments[ s ]; i < segments[ s + 1 ]; i++ ) {
+        stepStatus = steps[ i ].process( context );
         if( !( stepStatus == UrlRewriteStepStatus.SUCCESS ) ) {
           return stepStatus;
         }
       }
-      stepStatus = processActions( context, state );
+      stepStatus = processActions( context, segments[ s + 1 ], segments[ s + 2 ] );
       if( !( stepStatus == UrlRewriteStepStatus.SUCCESS ) ) {
         return stepStatus;
       }
@@ -163,25 +186,18 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
 
   // At least one condition proceeding a set of one or more actions must succedd for the actions to be executed.
   private UrlRewriteStepStatus processOrFlow( UrlRewriteContext context ) throws Exception {
-    UrlRewriteStepProcessorState state = new UrlRewriteStepProcessorState( childProcessors.iterator() );
-    UrlRewriteStepStatus status = UrlRewriteStepStatus.SUCCESS;
-    UrlRewriteStepProcessorHolder step;
-    while( state.hasNext() ) {
-      UrlRewriteStepStatus flowStatus = UrlRewriteStepStatus.FAILURE;
-      while( state.hasNextCondition() ) {
-        step = state.nextCondition( status );
-        if( flowStatus == UrlRewriteStepStatus.FAILURE ) {
-          status = step.process( context );
-          switch( status ) {
-            case SUCCESS:
-              flowStatus = UrlRewriteStepStatus.SUCCESS;
-              continue;
-            case FINISHED:
-              return status;
-          }
+    UrlRewriteStepStatus status;
+    for( int s = 0; s < segments.length; s += 3 ) {
+      for( int i = segments[ s ]; i < segments[ s + 1 ]; i++ ) {
+        status = steps[ i ].process( context );
+        if( status == UrlRewriteStepStatus.SUCCESS ) {
+          // The remaining conditions of this segment are skipped.
+          break;
+        } else if( status == UrlRewriteStepStatus.FINISHED ) {
+          return status;
         }
       }
-      status = processActions( context, state );
+      status = processActions( context, segments[ s + 1 ], segments[ s + 2 ] );
       if( status != UrlRewriteStepStatus.SUCCESS ) {
         return status;
       }
@@ -189,24 +205,19 @@ public class UrlRewriteStepProcessorHolder implements UrlRewriteStepProcessor {
     return UrlRewriteStepStatus.SUCCESS;
   }
 
-  private UrlRewriteStepStatus processActions( UrlRewriteContext context, UrlRewriteStepProcessorState state )
+  private UrlRewriteStepStatus processActions( UrlRewriteContext context, int from, int to )
       throws Exception {
-    UrlRewriteStepStatus flowStatus = UrlRewriteStepStatus.SUCCESS;
-    while( state.hasNextAction() ) {
-      if( flowStatus == UrlRewriteStepStatus.SUCCESS ) {
-        UrlRewriteStepStatus stepStatus = UrlRewriteStepStatus.SUCCESS;
-        UrlRewriteStepProcessorHolder step = state.nextAction( stepStatus );
-        stepStatus = step.process( context );
-        switch( stepStatus ) {
-          case FAILURE:
-            flowStatus = UrlRewriteStepStatus.FAILURE;
-            continue;
-          case FINISHED:
-            return stepStatus;
-        }
+    for( int i = from; i < to; i++ ) {
+      UrlRewriteStepStatus stepStatus = steps[ i ].process( context );
+      switch( stepStatus ) {
+        case FAILURE:
+          // The remaining actions of this segment are skipped.
+          return UrlRewriteStepStatus.FAILURE;
+        case FINISHED:
+          return stepStatus;
       }
     }
-    return flowStatus;
+    return UrlRewriteStepStatus.SUCCESS;
   }
 
   @Override
@@ -17,6 +17,7 @@
  */
 package org.apache.hadoop.gateway.filter.rewrite.impl.json;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
@@ -36,7 +37,10 @@ import org.apache.hadoop.gateway.filter.rewrite.i18n.UrlRewriteMessages;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.util.JsonPath;
 
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.util.List;
@@ -55,10 +59,11 @@ class JsonFilterReader extends Reader {
   private JsonGenerator generator;
   private ObjectMapper mapper;
 
-  private Reader reader;
+  private Closeable input;
   private int offset;
   private StringWriter writer;
   private StringBuffer buffer;
+  private ByteBuffer bytes;
   private Stack<Level> stack;
   private Level bufferingLevel;
   private UrlRewriteFilterBufferDescriptor bufferingConfig;
@@ -66,7 +71,7 @@ class JsonFilterReader extends Reader {
 
 
   public JsonFilterReader( Reader reader, UrlRewriteFilterContentDescriptor config ) throws IOException {
-    this.reader = reader;
+    this.input = reader;
     factory = new JsonFactory();
     mapper = new ObjectMapper();
     parser = factory.createParser( reader );
@@ -80,6 +85,23 @@ class JsonFilterReader extends Reader {
     this.config = config;
   }
 
+  // Byte oriented variant used for UTF-8 content.  The parser decodes the raw bytes directly and the
+  // generator encodes straight back to UTF-8 so the content never passes through a Reader/Writer pair.
+  // Only readBytes may be used on an instance created this way.
+  JsonFilterReader( InputStream stream, UrlRewriteFilterContentDescriptor config ) throws IOException {
+    this.input = stream;
+    factory = new JsonFactory();
+    mapper = new ObjectMapper();
+    parser = factory.createParser( stream );
+    bytes = new ByteBuffer();
+    offset = 0;
+    generator = factory.createGenerator( bytes, JsonEncoding.UTF8 );
+    stack = new Stack<Level>();
+    bufferingLevel = null;
+    bufferingConfig = null;
+    this.config = config;
+  }
+
   @Override
   public int read( char[] destBuffer, int destOffset, int destCount ) throws IOException {
     int count = 0;
@@ -108,6 +130,32 @@ class JsonFilterReader extends Reader {
     return count;
   }
 
+  int readBytes( byte[] destBuffer, int destOffset, int destCount ) throws IOException {
+    int count = 0;
+    int available = bytes.size() - offset;
+
+    // Some tokens (e.g. field names or buffered nodes) don't produce output so keep going until some is available.
+    while( available == 0 ) {
+      JsonToken token = parser.nextToken();
+      if( token == null ) {
+        return -1;
+      } else {
+        processCurrentToken();
+        available = bytes.size() - offset;
+      }
+    }
+
+    count = Math.min( destCount, available );
+    System.arraycopy( bytes.array(), offset, destBuffer, destOffset, count );
+    offset += count;
+    if( offset == bytes.size() ) {
+      offset = 0;
+      bytes.reset();
+    }
+
+    return count;
+  }
+
   private void processCurrentToken() throws IOException {
     switch( parser.getCurrentToken() ) {
       case START_OBJECT:
@@ -596,9 +644,17 @@ class JsonFilterReader extends Reader {
   @Override
   public void close() throws IOException {
     generator.close();
-    writer.close();
+    if( writer != null ) {
+      writer.close();
+    }
     parser.close();
-    reader.close();
+    input.close();
+  }
+
+  private static class ByteBuffer extends ByteArrayOutputStream {
+    private byte[] array() {
+      return buf;
+    }
   }
 
   private static class Level {
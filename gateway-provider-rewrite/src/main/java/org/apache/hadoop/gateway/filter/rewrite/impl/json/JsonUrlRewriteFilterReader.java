@@ -26,6 +26,7 @@ import org.apache.hadoop.gateway.util.urltemplate.Resolver;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.net.URISyntaxException;
 
@@ -50,6 +51,19 @@ public class JsonUrlRewriteFilterReader extends JsonFilterReader {
     this.direction = direction;
   }
 
+  JsonUrlRewriteFilterReader(
+      InputStream stream,
+      UrlRewriter rewriter,
+      Resolver resolver,
+      UrlRewriter.Direction direction,
+      UrlRewriteFilterContentDescriptor config )
+          throws IOException {
+    super( stream, config );
+    this.resolver = resolver;
+    this.rewriter = rewriter;
+    this.direction = direction;
+  }
+
   protected String filterValueString( String name, String value, String rule ) {
     try {
       Template input = Parser.parseLiteral( value );
@@ -51,9 +51,17 @@ public class JsonUrlRewriteStreamFilter implements UrlRewriteStreamFilter {
       UrlRewriter.Direction direction,
       UrlRewriteFilterContentDescriptor config )
           throws IOException {
+    if( isUtf8( encoding ) ) {
+      return new JsonFilterInputStream(
+          new JsonUrlRewriteFilterReader( stream, rewriter, resolver, direction, config ) );
+    }
     return new ReaderInputStream(
         new JsonUrlRewriteFilterReader(
             new InputStreamReader( stream, encoding ), rewriter, resolver, direction, config ), encoding );
   }
 
+  private static boolean isUtf8( String encoding ) {
+    return "UTF-8".equalsIgnoreCase( encoding ) || "UTF8".equalsIgnoreCase( encoding );
+  }
+
 }
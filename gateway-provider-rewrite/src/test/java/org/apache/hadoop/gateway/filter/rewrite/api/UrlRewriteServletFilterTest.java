@@ -268,6 +268,66 @@ public class UrlRewriteServletFilterTest {
     assertThat( response.getStatus(), is( 200 ) );
   }
 
+  @Test
+  public void testInboundLargeJsonBodyRewrite() throws Exception {
+    setUp( null );
+
+    StringBuilder input = new StringBuilder( "[" );
+    StringBuilder output = new StringBuilder( "[" );
+    for( int i = 0; i < 2000; i++ ) {
+      if( i > 0 ) {
+        input.append( ',' );
+        output.append( ',' );
+      }
+      input.append( "{\"name\":\"n\u00e4me-" ).append( i ).append( "\",\"url\":\"http://mock-host:1/test-input-path\"}" );
+      output.append( "{\"name\":\"n\u00e4me-" ).append( i ).append( "\",\"url\":\"http://mock-host:1/test-output-path-1\"}" );
+    }
+    input.append( "]" );
+    output.append( "]" );
+
+    interaction.expect()
+        .method( "PUT" )
+        .requestUrl( "http://mock-host:1/test-output-path-1" )
+        .content( output.toString(), Charset.forName( "UTF-8" ) );
+    interaction.respond()
+        .status( 200 );
+    interactions.add( interaction );
+    request.setMethod( "PUT" );
+    request.setURI( "/test-input-path" );
+    request.setHeader( "Host", "mock-host:1" );
+    request.setHeader( "Content-Type", "application/json; charset=UTF-8" );
+    request.setContent( input.toString().getBytes( "UTF-8" ) );
+
+    response = TestUtils.execute( server, request );
+
+    assertThat( response.getStatus(), is( 200 ) );
+  }
+
+  @Test
+  public void testInboundUnfilteredBodyPreservesContentLength() throws Exception {
+    setUp( null );
+
+    String input = "http://mock-host:1/test-input-path";
+
+    interaction.expect()
+        .method( "PUT" )
+        .requestUrl( "http://mock-host:1/test-output-path-1" )
+        .contentLength( input.length() )
+        .content( input, Charset.forName( "UTF-8" ) );
+    interaction.respond()
+        .status( 200 );
+    interactions.add( interaction );
+    request.setMethod( "PUT" );
+    request.setURI( "/test-input-path" );
+    request.setHeader( "Host", "mock-host:1" );
+    request.setHeader( "Content-Type", "application/octet-stream" );
+    request.setContent( input );
+
+    response = TestUtils.execute( server, request );
+
+    assertThat( response.getStatus(), is( 200 ) );
+  }
+
   @Test
   public void testInboundXmlBodyRewrite() throws Exception {
     setUp( null );
@@ -21,26 +21,35 @@ import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteProcessor;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteServletContextListener;
 import org.apache.hadoop.gateway.filter.rewrite.api.UrlRewriteServletFilter;
+import org.apache.hadoop.gateway.security.PrimaryPrincipal;
 import org.easymock.EasyMock;
 import org.junit.Test;
 
+import com.codahale.metrics.MetricRegistry;
+
 import javax.activation.MimeTypeParseException;
+import javax.security.auth.Subject;
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.security.PrivilegedExceptionAction;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsCollectionContaining.hasItems;
 
@@ -168,4 +177,116 @@ public class UrlRewriteResponseTest {
       outputFile.delete();
     }
   }
+
+  @Test
+  public void testStaticAssetCache() throws Exception {
+    UrlRewriteStaticAssetCache cache = new UrlRewriteStaticAssetCache( 1024 * 1024 );
+
+    assertThat( streamStaticAsset( cache, "/ui/app.js", "\"v1\"", "original" ), is( "original" ) );
+    assertThat( cache.getEntryCount(), is( 1 ) );
+
+    // Same asset and validator is served from the cache without reading the backend body.
+    assertThat( streamStaticAsset( cache, "/ui/app.js", "\"v1\"", "ignored" ), is( "original" ) );
+    assertThat( cache.getHitCount(), is( 1L ) );
+
+    // A new validator from the backend results in a new entry.
+    assertThat( streamStaticAsset( cache, "/ui/app.js", "\"v2\"", "changed" ), is( "changed" ) );
+    assertThat( cache.getEntryCount(), is( 2 ) );
+
+    // Dynamic content and responses without a validator are never cached.
+    assertThat( streamStaticAsset( cache, "/ws/v1/cluster", "\"v1\"", "dynamic" ), is( "dynamic" ) );
+    assertThat( streamStaticAsset( cache, "/ui/other.js", null, "unvalidated" ), is( "unvalidated" ) );
+    assertThat( cache.getEntryCount(), is( 2 ) );
+  }
+
+  @Test
+  public void testStaticAssetCacheIsPerPrincipal() throws Exception {
+    UrlRewriteStaticAssetCache cache = new UrlRewriteStaticAssetCache( 1024 * 1024 );
+
+    assertThat( streamStaticAsset( cache, "alice", "/ui/app.js", "\"v1\"", null, "alice's" ), is( "alice's" ) );
+    assertThat( streamStaticAsset( cache, "alice", "/ui/app.js", "\"v1\"", null, "ignored" ), is( "alice's" ) );
+
+    // Rewrite rules may use $username so bob never gets the bytes rewritten for alice.
+    assertThat( streamStaticAsset( cache, "bob", "/ui/app.js", "\"v1\"", null, "bob's" ), is( "bob's" ) );
+    assertThat( streamStaticAsset( cache, "bob", "/ui/app.js", "\"v1\"", null, "ignored" ), is( "bob's" ) );
+    assertThat( cache.getEntryCount(), is( 2 ) );
+    assertThat( cache.getHitCount(), is( 2L ) );
+  }
+
+  @Test
+  public void testStaticAssetCacheVary() throws Exception {
+    UrlRewriteStaticAssetCache cache = new UrlRewriteStaticAssetCache( 1024 * 1024 );
+
+    streamStaticAsset( cache, "alice", "/ui/a.js", "\"v1\"", "Accept-Encoding", "a" );
+    assertThat( cache.getEntryCount(), is( 1 ) );
+    streamStaticAsset( cache, "alice", "/ui/b.js", "\"v1\"", "Cookie", "b" );
+    streamStaticAsset( cache, "alice", "/ui/c.js", "\"v1\"", "Accept-Encoding, Authorization", "c" );
+    streamStaticAsset( cache, "alice", "/ui/d.js", "\"v1\"", "*", "d" );
+    assertThat( cache.getEntryCount(), is( 1 ) );
+  }
+
+  @Test
+  public void testStaticAssetCacheMetrics() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    UrlRewriteStaticAssetCache cache = new UrlRewriteStaticAssetCache( 1024 * 1024 );
+    cache.registerMetrics( registry, "rewrite.asset.cache.sandbox" );
+    streamStaticAsset( cache, "/ui/app.js", "\"v1\"", "original" );
+    streamStaticAsset( cache, "/ui/app.js", "\"v1\"", "ignored" );
+    assertThat( registry.getGauges().get( "rewrite.asset.cache.sandbox.hits" ).getValue(), is( (Object)1L ) );
+    assertThat( registry.getGauges().get( "rewrite.asset.cache.sandbox.misses" ).getValue(), is( (Object)1L ) );
+    assertThat( registry.getGauges().get( "rewrite.asset.cache.sandbox.entries" ).getValue(), is( (Object)1 ) );
+    assertThat( registry.getGauges().get( "rewrite.asset.cache.sandbox.size" ), notNullValue() );
+    UrlRewriteStaticAssetCache.unregisterMetrics( registry, "rewrite.asset.cache.sandbox" );
+    assertThat( registry.getGauges().get( "rewrite.asset.cache.sandbox.hits" ), nullValue() );
+  }
+
+  private String streamStaticAsset( final UrlRewriteStaticAssetCache cache, String user, final String path,
+      final String etag, final String vary, final String content ) throws Exception {
+    Subject subject = new Subject();
+    subject.getPrincipals().add( new PrimaryPrincipal( user ) );
+    return Subject.doAs( subject, new PrivilegedExceptionAction<String>() {
+      @Override
+      public String run() throws Exception {
+        return streamStaticAsset( cache, path, etag, vary, content );
+      }
+    } );
+  }
+
+  private String streamStaticAsset( UrlRewriteStaticAssetCache cache, String path, String etag, String content ) throws IOException {
+    return streamStaticAsset( cache, path, etag, null, content );
+  }
+
+  private String streamStaticAsset( UrlRewriteStaticAssetCache cache, String path, String etag, String vary, String content ) throws IOException {
+    UrlRewriteProcessor rewriter = EasyMock.createNiceMock( UrlRewriteProcessor.class );
+    EasyMock.expect( rewriter.getConfig() ).andReturn( null ).anyTimes();
+
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    EasyMock.expect( context.getAttribute( UrlRewriteServletContextListener.PROCESSOR_ATTRIBUTE_NAME ) ).andReturn( rewriter ).anyTimes();
+    EasyMock.expect( context.getAttribute( UrlRewriteStaticAssetCache.ATTRIBUTE_NAME ) ).andReturn( cache ).anyTimes();
+
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.expect( config.getInitParameter( UrlRewriteServletFilter.RESPONSE_BODY_FILTER_PARAM ) ).andReturn( "test-filter" ).anyTimes();
+    EasyMock.expect( config.getServletContext() ).andReturn( context ).anyTimes();
+
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    EasyMock.expect( request.getMethod() ).andReturn( "GET" ).anyTimes();
+    EasyMock.expect( request.getRequestURI() ).andReturn( "http://backend:8088" + path ).anyTimes();
+    EasyMock.expect( request.getRequestURL() ).andReturn( new StringBuffer( "http://backend:8088" + path ) ).anyTimes();
+    EasyMock.expect( request.getHeader( "X-Forwarded-Host" ) ).andReturn( "gateway-host:8443" ).anyTimes();
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+
+    EasyMock.replay( rewriter, context, config, request, response );
+
+    UrlRewriteResponse rewriteResponse = new UrlRewriteResponse( config, request, response );
+    rewriteResponse.setStatus( HttpServletResponse.SC_OK );
+    if( etag != null ) {
+      rewriteResponse.addHeader( "ETag", etag );
+    }
+    if( vary != null ) {
+      rewriteResponse.addHeader( "Vary", vary );
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    rewriteResponse.streamResponse( new ByteArrayInputStream( content.getBytes( "UTF-8" ) ), output );
+    return output.toString( "UTF-8" );
+  }
 }
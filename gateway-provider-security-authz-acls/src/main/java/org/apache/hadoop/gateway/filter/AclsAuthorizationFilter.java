@@ -37,14 +37,14 @@ import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.security.GroupPrincipal;
 import org.apache.hadoop.gateway.security.ImpersonatedPrincipal;
 import org.apache.hadoop.gateway.security.PrimaryPrincipal;
-import org.apache.hadoop.gateway.util.IpAddressValidator;
 import org.apache.hadoop.gateway.util.urltemplate.Template;
 
 import java.io.IOException;
 import java.security.AccessController;
 import java.security.Principal;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 public class AclsAuthorizationFilter implements Filter {
   private static AclsAuthorizationMessages log = MessagesFactory.get( AclsAuthorizationMessages.class );
@@ -54,6 +54,7 @@ public class AclsAuthorizationFilter implements Filter {
   private String resourceRole = null;
   private String aclProcessingMode = null;
   private AclParser parser = new AclParser();
+  private AclsAuthorizationPolicy policy;
 
   
   @Override
@@ -70,6 +71,7 @@ public class AclsAuthorizationFilter implements Filter {
     log.aclProcessingMode(aclProcessingMode);
     String acls = getInitParameter(filterConfig, resourceRole + ".acl");
     parser.parseAcls(resourceRole, acls);
+    policy = new AclsAuthorizationPolicy(parser, aclProcessingMode);
   }
 
   private String getInitParameter(FilterConfig filterConfig, String paramName) {
@@ -100,7 +102,7 @@ public class AclsAuthorizationFilter implements Filter {
     
     // before enforcing acls check whether there are no acls defined 
     // which would mean that there are no restrictions
-    if (parser.users.size() == 0 && parser.groups.size() == 0 && parser.ipv.getIPAddresses().size() == 0) {
+    if (policy.isUnrestricted()) {
       return true;
     }
 
@@ -114,91 +116,27 @@ public class AclsAuthorizationFilter implements Filter {
     Object[] impersonations = subject.getPrincipals(ImpersonatedPrincipal.class).toArray();
     if (impersonations.length > 0) {
       log.impersonatedPrincipal(((Principal)impersonations[0]).getName());
-      userAccess = checkUserAcls((Principal)impersonations[0]);
+      userAccess = policy.checkUser(((Principal)impersonations[0]).getName());
       log.impersonatedPrincipalHasAccess(userAccess);
     }
     else {
-      userAccess = checkUserAcls(primaryPrincipal);
+      userAccess = policy.checkUser(primaryPrincipal.getName());
       log.primaryPrincipalHasAccess(userAccess);
     }
-    Object[] groups = subject.getPrincipals(GroupPrincipal.class).toArray();
-    if (groups.length > 0) {
-//      System.out.println("GroupPrincipal: " + ((Principal)groups[0]).getName());
-      groupAccess = checkGroupAcls(groups);
-      log.groupPrincipalHasAccess(groupAccess);
+    Set<GroupPrincipal> groupPrincipals = subject.getPrincipals(GroupPrincipal.class);
+    List<String> groups = new ArrayList<>(groupPrincipals.size());
+    for (GroupPrincipal group : groupPrincipals) {
+      groups.add(group.getName());
     }
-    else {
-      // if we have no groups in the subject then make
-      // it true if there is an anyGroup acl
-      // for AND mode and acls like *;*;127.0.0.* we need to
-      // make it pass
-      if (parser.anyGroup && "AND".equals(aclProcessingMode)) {
-        groupAccess = true;
-      }
+    groupAccess = policy.checkGroups(groups);
+    if (!groups.isEmpty()) {
+      log.groupPrincipalHasAccess(groupAccess);
     }
     log.remoteIPAddress(req.getRemoteAddr());
-    ipAddrAccess = checkRemoteIpAcls(req.getRemoteAddr());
+    ipAddrAccess = policy.checkRemoteIp(req.getRemoteAddr());
     log.remoteIPAddressHasAccess(ipAddrAccess);
     
-    if ("OR".equals(aclProcessingMode)) {
-      // need to interpret '*' as excluded for OR semantics
-      // to make sense and not grant access to everyone by mistake.
-      // exclusion in OR is equivalent to denied
-      // so, let's set each one that contains '*' to false.
-      if (parser.anyUser) userAccess = false;
-      if (parser.anyGroup) groupAccess = false;
-      if (parser.ipv.allowsAnyIP()) ipAddrAccess = false;
-      
-      return (userAccess || groupAccess || ipAddrAccess);
-    }
-    else if ("AND".equals(aclProcessingMode)) {
-      return (userAccess && groupAccess && ipAddrAccess);
-    }
-    return false;
-  }
-
-  private boolean checkRemoteIpAcls(String remoteAddr) {
-    boolean allowed = false;
-    if (remoteAddr == null) {
-      return false;
-    }
-    allowed = parser.ipv.validateIpAddress(remoteAddr);
-    return allowed;
-  }
-
-  private boolean checkUserAcls(Principal user) {
-    boolean allowed = false;
-    if (user == null) {
-      return false;
-    }
-    if (parser.anyUser) {
-      allowed = true;
-    }
-    else {
-      if (parser.users.contains(user.getName())) {
-        allowed = true;
-      }
-    }
-    return allowed;
-  }
-
-  private boolean checkGroupAcls(Object[] userGroups) {
-    boolean allowed = false;
-    if (userGroups == null) {
-      return false;
-    }
-    if (parser.anyGroup) {
-      allowed = true;
-    }
-    else {
-      for (int i = 0; i < userGroups.length; i++) {
-        if (parser.groups.contains(((Principal)userGroups[i]).getName())) {
-          allowed = true;
-          break;
-        }
-      }
-    }
-    return allowed;
+    return policy.isAuthorized(userAccess, groupAccess, ipAddrAccess);
   }
 
   private void sendForbidden(HttpServletResponse res) {
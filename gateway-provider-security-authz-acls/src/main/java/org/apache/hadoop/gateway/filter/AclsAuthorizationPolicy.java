@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.filter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.gateway.util.IpAddressValidator;
+
+/**
+ * The ACLs of a resource role compiled once when the filter is initialized.
+ * Users and groups are held in hash sets and IP addresses in a prefix trie so
+ * the cost of a check doesn't grow with the size of the ACLs, and the effect
+ * of the processing mode on '*' entries is decided up front.
+ */
+public class AclsAuthorizationPolicy {
+
+  private static final String AND = "AND";
+  private static final String OR = "OR";
+
+  private final boolean unrestricted;
+  private final boolean and;
+  private final boolean or;
+  private final boolean anyUser;
+  private final boolean anyGroup;
+  private final boolean anyIp;
+  private final Set<String> users;
+  private final Set<String> groups;
+  private final IpAddressValidator ipv;
+
+  public AclsAuthorizationPolicy(AclParser parser, String aclProcessingMode) {
+    unrestricted = parser.users.isEmpty() && parser.groups.isEmpty() && parser.ipv.getIPAddresses().isEmpty();
+    and = AND.equals(aclProcessingMode);
+    or = OR.equals(aclProcessingMode);
+    anyUser = parser.anyUser;
+    anyGroup = parser.anyGroup;
+    anyIp = parser.ipv.allowsAnyIP();
+    users = Collections.unmodifiableSet(new HashSet<String>(parser.users));
+    groups = Collections.unmodifiableSet(new HashSet<String>(parser.groups));
+    ipv = parser.ipv;
+  }
+
+  /**
+   * There are no ACLs so every request is allowed.
+   */
+  public boolean isUnrestricted() {
+    return unrestricted;
+  }
+
+  /**
+   * In OR mode '*' is interpreted as excluded so that it doesn't grant access
+   * to everyone by mistake; in AND mode it matches everything.
+   */
+  public boolean checkUser(String user) {
+    if (user == null) {
+      return false;
+    }
+    return anyUser ? and : users.contains(user);
+  }
+
+  /**
+   * With no groups in the subject an anyGroup ACL still passes in AND mode
+   * so that ACLs like *;*;127.0.0.* work.
+   */
+  public boolean checkGroups(Collection<String> userGroups) {
+    if (anyGroup) {
+      return and;
+    }
+    for (String group : userGroups) {
+      if (groups.contains(group)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean checkRemoteIp(String remoteAddr) {
+    if (remoteAddr == null) {
+      return false;
+    }
+    return anyIp ? and : ipv.validateIpAddress(remoteAddr);
+  }
+
+  public boolean isAuthorized(boolean userAccess, boolean groupAccess, boolean ipAddrAccess) {
+    if (or) {
+      return userAccess || groupAccess || ipAddrAccess;
+    } else if (and) {
+      return userAccess && groupAccess && ipAddrAccess;
+    }
+    return false;
+  }
+
+}
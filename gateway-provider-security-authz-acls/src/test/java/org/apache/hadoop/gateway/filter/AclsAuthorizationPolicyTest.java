@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.filter;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class AclsAuthorizationPolicyTest {
+
+  private static AclsAuthorizationPolicy policy(String acls, String mode) throws Exception {
+    AclParser parser = new AclParser();
+    parser.parseAcls("test", acls);
+    return new AclsAuthorizationPolicy(parser, mode);
+  }
+
+  @Test
+  public void testNoAcls() throws Exception {
+    assertTrue(policy(null, "AND").isUnrestricted());
+    assertFalse(policy("*;*;*", "AND").isUnrestricted());
+  }
+
+  @Test
+  public void testAndMode() throws Exception {
+    AclsAuthorizationPolicy p = policy("guest,admin;*;10.0.0.0/8,192.168.1.*", "AND");
+    assertTrue(p.checkUser("guest"));
+    assertFalse(p.checkUser("bob"));
+    // '*' matches any group, even when the subject has none.
+    assertTrue(p.checkGroups(Collections.<String>emptyList()));
+    assertTrue(p.checkRemoteIp("10.20.30.40"));
+    assertTrue(p.checkRemoteIp("192.168.1.5"));
+    assertFalse(p.checkRemoteIp("192.168.2.5"));
+    assertFalse(p.checkRemoteIp(null));
+    assertTrue(p.isAuthorized(true, true, true));
+    assertFalse(p.isAuthorized(true, false, true));
+  }
+
+  @Test
+  public void testOrMode() throws Exception {
+    AclsAuthorizationPolicy p = policy("*;admins,ops;*", "OR");
+    // '*' is treated as excluded in OR mode.
+    assertFalse(p.checkUser("guest"));
+    assertFalse(p.checkRemoteIp("127.0.0.1"));
+    assertTrue(p.checkGroups(Arrays.asList("users", "ops")));
+    assertFalse(p.checkGroups(Arrays.asList("users")));
+    assertFalse(p.checkGroups(Collections.<String>emptyList()));
+    assertTrue(p.isAuthorized(false, true, false));
+    assertFalse(p.isAuthorized(false, false, false));
+  }
+
+  @Test
+  public void testUnknownModeDenies() throws Exception {
+    AclsAuthorizationPolicy p = policy("guest;*;*", "and");
+    assertFalse(p.isAuthorized(true, true, true));
+  }
+
+  @Test
+  public void testLargeAcls() throws Exception {
+    StringBuilder users = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      users.append("user").append(i).append(',');
+    }
+    AclsAuthorizationPolicy p = policy(users + "guest;*;*", "AND");
+    assertTrue(p.checkUser("guest"));
+    assertTrue(p.checkUser("user9999"));
+    assertFalse(p.checkUser("user10000"));
+  }
+
+}
@@ -20,6 +20,7 @@ package org.apache.hadoop.gateway.hadoopauth;
 import org.apache.hadoop.gateway.i18n.messages.Message;
 import org.apache.hadoop.gateway.i18n.messages.MessageLevel;
 import org.apache.hadoop.gateway.i18n.messages.Messages;
+import org.apache.hadoop.gateway.i18n.messages.StackTrace;
 
 @Messages(logger="org.apache.hadoop.gateway.provider.global.hadoopauth")
 public interface HadoopAuthMessages {
@@ -29,5 +30,11 @@ public interface HadoopAuthMessages {
   
   @Message( level = MessageLevel.DEBUG, text = "Hadoop Authentication Asserted Principal: {0}" )
   void hadoopAuthAssertedPrincipal(String name);
+
+  @Message( level = MessageLevel.INFO, text = "Signing Hadoop Authentication cookies with the secret of alias: {0}" )
+  void usingSignatureSecretAlias(String alias);
+
+  @Message( level = MessageLevel.WARN, text = "Unable to read the Hadoop Authentication signature secret of alias {0}: {1}" )
+  void unableToReadSignatureSecret(String alias, @StackTrace( level = MessageLevel.DEBUG ) Exception e);
   
 }
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.hadoopauth.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.security.AliasService;
+import org.apache.hadoop.gateway.services.security.AliasServiceException;
+import org.apache.hadoop.security.authentication.util.SignerSecretProvider;
+
+/**
+ * Signs the hadoop.auth cookies with a secret kept in the gateway's alias store, for the
+ * topology or else for the gateway. Giving every gateway instance the same alias lets a
+ * cookie issued by one instance be accepted by the others, so a client that fails over
+ * between gateways doesn't have to negotiate Kerberos authentication again.
+ */
+public class AliasSignerSecretProvider extends SignerSecretProvider {
+
+  /**
+   * The alias of the secret, relative to the configuration prefix of the filter.
+   */
+  public static final String SIGNATURE_SECRET_ALIAS = "signature.secret.alias";
+  public static final String DEFAULT_SIGNATURE_SECRET_ALIAS = "hadoop.auth.signature.secret";
+
+  private byte[] secret;
+  private byte[][] secrets;
+
+  @Override
+  public void init( Properties config, ServletContext servletContext, long tokenValidity ) throws Exception {
+    String alias = config.getProperty( SIGNATURE_SECRET_ALIAS, DEFAULT_SIGNATURE_SECRET_ALIAS );
+    char[] value = getSecret( servletContext, alias );
+    if( value == null ) {
+      throw new ServletException( "No signature secret has been configured with alias " + alias );
+    }
+    secret = new String( value ).getBytes( StandardCharsets.UTF_8 );
+    secrets = new byte[][] { secret };
+  }
+
+  @Override
+  public byte[] getCurrentSecret() {
+    return secret;
+  }
+
+  @Override
+  public byte[][] getAllSecrets() {
+    return secrets;
+  }
+
+  /**
+   * Returns the secret with the given alias or null if there is no such secret.
+   */
+  static char[] getSecret( ServletContext servletContext, String alias ) throws AliasServiceException {
+    GatewayServices services = servletContext == null ? null :
+        (GatewayServices)servletContext.getAttribute( GatewayServices.GATEWAY_SERVICES_ATTRIBUTE );
+    AliasService aliasService = services == null ? null :
+        (AliasService)services.getService( GatewayServices.ALIAS_SERVICE );
+    if( aliasService == null ) {
+      return null;
+    }
+    char[] value = null;
+    String cluster = (String)servletContext.getAttribute( GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE );
+    if( cluster != null ) {
+      value = aliasService.getPasswordFromAliasForCluster( cluster, alias );
+    }
+    if( value == null ) {
+      value = aliasService.getPasswordFromAliasForGateway( alias );
+    }
+    return value == null || value.length == 0 ? null : value;
+  }
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.hadoopauth.filter;
+
+import org.apache.hadoop.gateway.util.BoundedCache;
+import org.apache.hadoop.security.authentication.server.AuthenticationToken;
+
+/**
+ * A bounded cache of the authentication tokens carried by hadoop.auth cookies whose signature
+ * has already been verified, keyed by the signed cookie value. Entries never outlive the token's
+ * expiration time or the configured maximum time to live, whichever comes first, and the least
+ * recently used token is dropped when the cache is full.
+ */
+public class AuthenticationTokenCache {
+
+  /**
+   * The maximum number of tokens to retain.  A value of 0 disables the cache.
+   */
+  public static final String CACHE_SIZE_PARAM = "hadoopauth.token.cache.size";
+  public static final int DEFAULT_CACHE_SIZE = 10000;
+
+  /**
+   * The maximum number of milliseconds a token is retained, regardless of its expiration.
+   */
+  public static final String CACHE_TTL_PARAM = "hadoopauth.token.cache.ttl";
+  public static final long DEFAULT_CACHE_TTL = 300000L;
+
+  private final int maxSize;
+  private final long maxTtl;
+  private final BoundedCache<String,AuthenticationToken> entries;
+
+  public AuthenticationTokenCache( int maxSize, long maxTtl ) {
+    this.maxSize = maxSize;
+    this.maxTtl = maxTtl;
+    this.entries = new BoundedCache<>( Math.max( 1, maxSize ), maxTtl );
+  }
+
+  public boolean isEnabled() {
+    return maxSize > 0 && maxTtl > 0;
+  }
+
+  /**
+   * Returns the token previously verified for the signed cookie value, or null if there is
+   * none or it has expired.
+   */
+  public AuthenticationToken get( String signedToken ) {
+    if( !isEnabled() ) {
+      return null;
+    }
+    return entries.get( signedToken );
+  }
+
+  /**
+   * Records the token verified for the signed cookie value. Tokens that have already
+   * expired are not recorded.
+   */
+  public void put( String signedToken, AuthenticationToken token ) {
+    if( !isEnabled() ) {
+      return;
+    }
+    long expires = token.getExpires() > 0 ? token.getExpires() : BoundedCache.NEVER;
+    entries.put( signedToken, token, expires );
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Removes all of the entries that have expired.
+   */
+  public void purge() {
+    entries.purge();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return entries.getHitCount();
+  }
+
+  public long getMissCount() {
+    return entries.getMissCount();
+  }
+
+}
@@ -17,14 +17,32 @@
  */
 package org.apache.hadoop.gateway.hadoopauth.filter;
 
+import java.io.IOException;
 import java.util.Enumeration;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
+import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
 
 import org.apache.hadoop.gateway.hadoopauth.HadoopAuthMessages;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.metrics.impl.DefaultMetricsService;
+import org.apache.hadoop.gateway.services.security.AliasServiceException;
+import org.apache.hadoop.security.authentication.client.AuthenticatedURL;
+import org.apache.hadoop.security.authentication.client.AuthenticationException;
+import org.apache.hadoop.security.authentication.server.AuthenticationToken;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
 /*
  * see http://hadoop.apache.org/docs/current/hadoop-auth/Configuration.html
@@ -43,13 +61,125 @@ import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
  * hadoop.auth.config.cookie.path=PATH (default: null)
  * hadoop.auth.config.kerberos.principal=HTTP/localhost@LOCALHOST (default: null)
  * hadoop.auth.config.kerberos.keytab=/etc/knox/conf/knox.service.keytab (default: null)
+ *
+ * Knox additions:
+ *
+ * hadoop.auth.config.signature.secret.alias=ALIAS (default: hadoop.auth.signature.secret)
+ *   when no signature.secret.file or signer.secret.provider is configured and the alias
+ *   exists the cookies are signed with its secret, see AliasSignerSecretProvider
+ * hadoopauth.token.cache.size=ENTRIES (default: 10000, 0 disables the cache)
+ * hadoopauth.token.cache.ttl=MILLISECONDS (default: 300000)
+ *   verified hadoop.auth cookies are cached so that their signature isn't checked on
+ *   every request, see AuthenticationTokenCache
+ *
+ * The hadoopauth.<topology>.* metrics time the authentication of the requests and count
+ * the failed authentications and the SPNEGO challenges sent.
  */
 
 public class HadoopAuthFilter extends 
     org.apache.hadoop.security.authentication.server.AuthenticationFilter {
   
   private static HadoopAuthMessages log = MessagesFactory.get( HadoopAuthMessages.class );
-  
+
+  static final String METRICS_PREFIX = "hadoopauth";
+
+  private AuthenticationTokenCache tokenCache;
+  private Timer authentications;
+  private Meter failures;
+  private Meter challenges;
+
+  @Override
+  public void init(FilterConfig filterConfig) throws ServletException {
+    tokenCache = createTokenCache(filterConfig);
+    ServletContext context = filterConfig.getServletContext();
+    String cluster = context == null ? null : (String) context.getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE);
+    MetricRegistry registry = DefaultMetricsService.getMetricRegistry();
+    String prefix = MetricRegistry.name(METRICS_PREFIX, cluster == null ? "default" : cluster);
+    authentications = registry.timer(MetricRegistry.name(prefix, "authentications"));
+    failures = registry.meter(MetricRegistry.name(prefix, "failures"));
+    challenges = registry.meter(MetricRegistry.name(prefix, "challenges"));
+    super.init(filterConfig);
+  }
+
+  static AuthenticationTokenCache createTokenCache(FilterConfig filterConfig) {
+    int size = AuthenticationTokenCache.DEFAULT_CACHE_SIZE;
+    String value = filterConfig.getInitParameter(AuthenticationTokenCache.CACHE_SIZE_PARAM);
+    if (value != null) {
+      size = Integer.parseInt(value.trim());
+    }
+    long ttl = AuthenticationTokenCache.DEFAULT_CACHE_TTL;
+    value = filterConfig.getInitParameter(AuthenticationTokenCache.CACHE_TTL_PARAM);
+    if (value != null) {
+      ttl = Long.parseLong(value.trim());
+    }
+    return new AuthenticationTokenCache(size, ttl);
+  }
+
+  @Override
+  public void doFilter(ServletRequest request, ServletResponse response, final FilterChain filterChain)
+      throws IOException, ServletException {
+    final long start = System.nanoTime();
+    final boolean[] authenticated = new boolean[1];
+    super.doFilter(request, response, new FilterChain() {
+      @Override
+      public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+        authenticated[0] = true;
+        authentications.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        filterChain.doFilter(request, response);
+      }
+    });
+    if (!authenticated[0]) {
+      if (((HttpServletRequest) request).getHeader("Authorization") == null) {
+        challenges.mark();
+      } else {
+        failures.mark();
+      }
+    }
+  }
+
+  /**
+   * Returns the token of the request's hadoop.auth cookie, skipping the verification of its
+   * signature when the same cookie has been verified before.
+   */
+  @Override
+  protected AuthenticationToken getToken(HttpServletRequest request) throws IOException, AuthenticationException {
+    String signedToken = null;
+    if (tokenCache != null && tokenCache.isEnabled()) {
+      Cookie[] cookies = request.getCookies();
+      if (cookies != null) {
+        for (Cookie cookie : cookies) {
+          if (AuthenticatedURL.AUTH_COOKIE.equals(cookie.getName())) {
+            signedToken = cookie.getValue();
+            break;
+          }
+        }
+      }
+      if (signedToken != null) {
+        AuthenticationToken token = tokenCache.get(signedToken);
+        if (token != null) {
+          return token;
+        }
+      }
+    }
+    AuthenticationToken token = super.getToken(request);
+    if (token != null && signedToken != null) {
+      tokenCache.put(signedToken, token);
+    }
+    return token;
+  }
+
+  AuthenticationTokenCache getTokenCache() {
+    return tokenCache;
+  }
+
+  @Override
+  public void destroy() {
+    if (tokenCache != null) {
+      tokenCache.clear();
+    }
+    super.destroy();
+  }
+
   @Override
   protected Properties getConfiguration(String configPrefix, FilterConfig filterConfig) throws ServletException {
     Properties props = new Properties();
@@ -62,6 +192,18 @@ public class HadoopAuthFilter extends
         props.put(name.substring(configPrefix.length()), value);
       }
     }
+    if (!props.containsKey(SIGNER_SECRET_PROVIDER) && !props.containsKey(SIGNATURE_SECRET_FILE)) {
+      String alias = props.getProperty(AliasSignerSecretProvider.SIGNATURE_SECRET_ALIAS,
+          AliasSignerSecretProvider.DEFAULT_SIGNATURE_SECRET_ALIAS);
+      try {
+        if (AliasSignerSecretProvider.getSecret(filterConfig.getServletContext(), alias) != null) {
+          log.usingSignatureSecretAlias(alias);
+          props.put(SIGNER_SECRET_PROVIDER, AliasSignerSecretProvider.class.getName());
+        }
+      } catch (AliasServiceException e) {
+        log.unableToReadSignatureSecret(alias, e);
+      }
+    }
     return props;
   }
   
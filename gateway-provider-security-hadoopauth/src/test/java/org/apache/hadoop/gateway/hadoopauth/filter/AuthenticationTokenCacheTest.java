@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.hadoopauth.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.security.authentication.server.AuthenticationToken;
+import org.junit.Test;
+
+public class AuthenticationTokenCacheTest {
+
+  private static AuthenticationToken createToken(String user, long expires) {
+    AuthenticationToken token = new AuthenticationToken(user, user, "simple");
+    token.setExpires(expires);
+    return token;
+  }
+
+  @Test
+  public void testTokenIsCached() {
+    AuthenticationTokenCache cache = new AuthenticationTokenCache(10, 60000);
+    AuthenticationToken token = createToken("alice", System.currentTimeMillis() + 60000);
+    assertNull(cache.get("signed-alice"));
+    cache.put("signed-alice", token);
+    assertSame(token, cache.get("signed-alice"));
+    assertNull(cache.get("signed-bob"));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void testExpiredTokenIsNotCached() throws Exception {
+    AuthenticationTokenCache cache = new AuthenticationTokenCache(10, 60000);
+    cache.put("signed-alice", createToken("alice", System.currentTimeMillis() - 1000));
+    assertEquals(0, cache.size());
+
+    cache.put("signed-bob", createToken("bob", System.currentTimeMillis() + 100));
+    assertEquals(1, cache.size());
+    Thread.sleep(200);
+    assertNull(cache.get("signed-bob"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testTimeToLiveBoundsEntries() throws Exception {
+    AuthenticationTokenCache cache = new AuthenticationTokenCache(10, 100);
+    cache.put("signed-alice", createToken("alice", System.currentTimeMillis() + 60000));
+    assertTrue(cache.get("signed-alice") != null);
+    Thread.sleep(200);
+    assertNull(cache.get("signed-alice"));
+  }
+
+  @Test
+  public void testCacheIsBounded() {
+    AuthenticationTokenCache cache = new AuthenticationTokenCache(10, 60000);
+    long expires = System.currentTimeMillis() + 60000;
+    for (int i = 0; i < 100; i++) {
+      cache.put("signed-" + i, createToken("user" + i, expires));
+      assertTrue(cache.size() <= 10);
+    }
+  }
+
+  @Test
+  public void testLeastRecentlyUsedTokenIsDropped() {
+    AuthenticationTokenCache cache = new AuthenticationTokenCache(2, 60000);
+    long expires = System.currentTimeMillis() + 60000;
+    AuthenticationToken alice = createToken("alice", expires);
+    cache.put("signed-alice", alice);
+    cache.put("signed-bob", createToken("bob", expires));
+    assertSame(alice, cache.get("signed-alice"));
+    cache.put("signed-carol", createToken("carol", expires));
+    assertSame(alice, cache.get("signed-alice"));
+    assertNull(cache.get("signed-bob"));
+  }
+
+  @Test
+  public void testDisabledCache() {
+    AuthenticationTokenCache cache = new AuthenticationTokenCache(0, 60000);
+    assertFalse(cache.isEnabled());
+    cache.put("signed-alice", createToken("alice", System.currentTimeMillis() + 60000));
+    assertNull(cache.get("signed-alice"));
+    assertEquals(0, cache.size());
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.hadoopauth.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.security.AliasService;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class HadoopAuthFilterTest {
+
+  private static HadoopAuthFilter createFilter(char[] secret) throws Exception {
+    AliasService aliasService = EasyMock.createNiceMock(AliasService.class);
+    EasyMock.expect(aliasService.getPasswordFromAliasForCluster("sandbox",
+        AliasSignerSecretProvider.DEFAULT_SIGNATURE_SECRET_ALIAS)).andReturn(secret).anyTimes();
+    GatewayServices services = EasyMock.createNiceMock(GatewayServices.class);
+    EasyMock.expect(services.getService(GatewayServices.ALIAS_SERVICE)).andReturn(aliasService).anyTimes();
+    ServletContext context = EasyMock.createNiceMock(ServletContext.class);
+    EasyMock.expect(context.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE)).andReturn(services).anyTimes();
+    EasyMock.expect(context.getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE)).andReturn("sandbox").anyTimes();
+
+    final Map<String, String> params = new HashMap<>();
+    params.put("config.prefix", "hadoop.auth.config");
+    params.put("hadoop.auth.config.type", "simple");
+    params.put("hadoop.auth.config.simple.anonymous.allowed", "false");
+    FilterConfig filterConfig = EasyMock.createNiceMock(FilterConfig.class);
+    EasyMock.expect(filterConfig.getServletContext()).andReturn(context).anyTimes();
+    EasyMock.expect(filterConfig.getInitParameterNames())
+        .andReturn(Collections.enumeration(params.keySet())).anyTimes();
+    for (Map.Entry<String, String> param : params.entrySet()) {
+      EasyMock.expect(filterConfig.getInitParameter(param.getKey())).andReturn(param.getValue()).anyTimes();
+    }
+    EasyMock.replay(aliasService, services, context, filterConfig);
+
+    HadoopAuthFilter filter = new HadoopAuthFilter();
+    filter.init(filterConfig);
+    return filter;
+  }
+
+  private static HttpServletRequest createRequest(String queryString, Cookie cookie) {
+    HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    EasyMock.expect(request.getQueryString()).andReturn(queryString).anyTimes();
+    EasyMock.expect(request.getRequestURL()).andReturn(new StringBuffer("http://localhost/gateway/sandbox")).anyTimes();
+    EasyMock.expect(request.getScheme()).andReturn("http").anyTimes();
+    EasyMock.expect(request.getCookies()).andReturn(cookie == null ? null : new Cookie[] { cookie }).anyTimes();
+    EasyMock.replay(request);
+    return request;
+  }
+
+  private static HttpServletResponse createResponse() {
+    HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.replay(response);
+    return response;
+  }
+
+  private static class TestFilterChain implements FilterChain {
+    String remoteUser;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response) {
+      remoteUser = ((HttpServletRequest) request).getRemoteUser();
+    }
+  }
+
+  @Test
+  public void testCookieIsAcceptedByAnotherInstance() throws Exception {
+    char[] secret = "shared-secret".toCharArray();
+    HadoopAuthFilter issuer = createFilter(secret);
+
+    HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    Capture<String> setCookie = EasyMock.newCapture();
+    response.addHeader(EasyMock.eq("Set-Cookie"), EasyMock.capture(setCookie));
+    EasyMock.expectLastCall().anyTimes();
+    EasyMock.replay(response);
+    TestFilterChain chain = new TestFilterChain();
+    issuer.doFilter(createRequest("user.name=alice", null), response, chain);
+    assertEquals("alice", chain.remoteUser);
+    String header = setCookie.getValue();
+    Cookie cookie = new Cookie("hadoop.auth", header.substring(header.indexOf('"') + 1, header.lastIndexOf('"')));
+    issuer.destroy();
+
+    // Another gateway with the same alias accepts the cookie, twice verifying it only once.
+    HadoopAuthFilter other = createFilter(secret);
+    chain = new TestFilterChain();
+    other.doFilter(createRequest(null, cookie), createResponse(), chain);
+    assertEquals("alice", chain.remoteUser);
+    chain = new TestFilterChain();
+    other.doFilter(createRequest(null, cookie), createResponse(), chain);
+    assertEquals("alice", chain.remoteUser);
+    assertEquals(1, other.getTokenCache().getHitCount());
+    assertEquals(1, other.getTokenCache().size());
+    other.destroy();
+
+    // A gateway with another secret doesn't.
+    HadoopAuthFilter stranger = createFilter("other-secret".toCharArray());
+    chain = new TestFilterChain();
+    stranger.doFilter(createRequest(null, cookie), createResponse(), chain);
+    assertEquals(null, chain.remoteUser);
+    assertEquals(0, stranger.getTokenCache().size());
+    stranger.destroy();
+  }
+
+  @Test
+  public void testRandomSecretWithoutAlias() throws Exception {
+    HadoopAuthFilter filter = createFilter(null);
+    assertNotNull(filter.getTokenCache());
+    assertTrue(filter.getTokenCache().isEnabled());
+    filter.destroy();
+  }
+}
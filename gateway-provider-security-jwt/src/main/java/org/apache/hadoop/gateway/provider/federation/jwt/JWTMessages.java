@@ -34,6 +34,9 @@ public interface JWTMessages {
   @Message( level = MessageLevel.INFO, text = "Access token has expired; a new one must be acquired." )
   void tokenHasExpired();
 
+  @Message( level = MessageLevel.INFO, text = "Access token has been revoked." )
+  void tokenHasBeenRevoked();
+
   @Message( level = MessageLevel.INFO, text = "The NotBefore check failed." )
   void notBeforeCheckFailed();
 
@@ -57,4 +60,13 @@ public interface JWTMessages {
 
   @Message( level = MessageLevel.DEBUG, text = "Audience claim has been validated." )
   void jwtAudienceValidated();
+
+  @Message( level = MessageLevel.DEBUG, text = "Token signed with key id {0} that is not in the key set {1}." )
+  void unknownKeyId(String kid, String location);
+
+  @Message( level = MessageLevel.DEBUG, text = "Loaded {0} keys from the key set {1}." )
+  void loadedJWKS(int count, String location);
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to load the key set {0}: {1}" )
+  void failedToLoadJWKS(String location, @StackTrace( level = MessageLevel.DEBUG) Exception e);
 }
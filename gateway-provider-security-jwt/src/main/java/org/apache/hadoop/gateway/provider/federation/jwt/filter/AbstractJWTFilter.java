@@ -22,7 +22,6 @@ import java.security.Principal;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.security.interfaces.RSAPublicKey;
-import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
@@ -56,10 +55,9 @@ import org.apache.hadoop.gateway.security.PrimaryPrincipal;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.security.token.JWTokenAuthority;
 import org.apache.hadoop.gateway.services.security.token.TokenServiceException;
+import org.apache.hadoop.gateway.services.security.token.TokenStateService;
 import org.apache.hadoop.gateway.services.security.token.impl.JWT;
 
-import com.nimbusds.jose.JWSHeader;
-
 /**
  *
  */
@@ -87,6 +85,9 @@ public abstract class AbstractJWTFilter implements Filter {
   protected List<String> audiences;
   protected JWTokenAuthority authority;
   protected RSAPublicKey publicKey = null;
+  protected VerifiedTokenCache verifiedTokens;
+  protected JWKSKeyResolver keyResolver;
+  protected TokenStateService tokenStateService;
   private String expectedIssuer;
   private String expectedSigAlg;
 
@@ -107,8 +108,53 @@ public abstract class AbstractJWTFilter implements Filter {
       GatewayServices services = (GatewayServices) context.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
       if (services != null) {
         authority = (JWTokenAuthority) services.getService(GatewayServices.TOKEN_SERVICE);
+        tokenStateService = (TokenStateService) services.getService(GatewayServices.TOKEN_STATE_SERVICE);
       }
     }
+    verifiedTokens = createVerifiedTokenCache(filterConfig);
+    keyResolver = createKeyResolver(filterConfig);
+    if (keyResolver != null) {
+      keyResolver.start();
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (keyResolver != null) {
+      keyResolver.stop();
+    }
+  }
+
+  static VerifiedTokenCache createVerifiedTokenCache(FilterConfig filterConfig) {
+    int size = VerifiedTokenCache.DEFAULT_CACHE_SIZE;
+    String value = filterConfig.getInitParameter(VerifiedTokenCache.CACHE_SIZE_PARAM);
+    if (value != null) {
+      size = Integer.parseInt(value.trim());
+    }
+    long ttl = VerifiedTokenCache.DEFAULT_CACHE_TTL;
+    value = filterConfig.getInitParameter(VerifiedTokenCache.CACHE_TTL_PARAM);
+    if (value != null) {
+      ttl = Long.parseLong(value.trim());
+    }
+    return new VerifiedTokenCache(size, ttl);
+  }
+
+  static JWKSKeyResolver createKeyResolver(FilterConfig filterConfig) {
+    String location = filterConfig.getInitParameter(JWKSKeyResolver.JWKS_URL_PARAM);
+    if (location == null || location.trim().isEmpty()) {
+      return null;
+    }
+    long refreshInterval = JWKSKeyResolver.DEFAULT_REFRESH_INTERVAL;
+    String value = filterConfig.getInitParameter(JWKSKeyResolver.REFRESH_INTERVAL_PARAM);
+    if (value != null) {
+      refreshInterval = Long.parseLong(value.trim());
+    }
+    long unknownKeyIdTtl = JWKSKeyResolver.DEFAULT_UNKNOWN_KID_TTL;
+    value = filterConfig.getInitParameter(JWKSKeyResolver.UNKNOWN_KID_TTL_PARAM);
+    if (value != null) {
+      unknownKeyIdTtl = Long.parseLong(value.trim());
+    }
+    return new JWKSKeyResolver(location.trim(), refreshInterval, unknownKeyIdTtl);
   }
 
   protected void configureExpectedParameters(FilterConfig filterConfig) {
@@ -145,8 +191,10 @@ public abstract class AbstractJWTFilter implements Filter {
     // if there is no expiration date then the lifecycle is tied entirely to
     // the cookie validity - otherwise ensure that the current time is before
     // the designated expiration time
+    // the time comes from the verified token cache so that both agree on it
     Date expires = jwtToken.getExpiresDate();
-    return (expires == null || expires != null && new Date().before(expires));
+    long now = verifiedTokens == null ? System.currentTimeMillis() : verifiedTokens.currentTimeMillis();
+    return (expires == null || expires != null && new Date(now).before(expires));
   }
 
   /**
@@ -242,29 +290,22 @@ public abstract class AbstractJWTFilter implements Filter {
   protected boolean validateToken(HttpServletRequest request, HttpServletResponse response,
       FilterChain chain, JWT token)
       throws IOException, ServletException {
-    boolean verified = false;
-    try {
-      if (publicKey == null) {
-        verified = authority.verifyToken(token);
+    // The signature check is by far the most expensive part of the validation so
+    // tokens that have already been verified by this filter skip it.
+    boolean verified = verifiedTokens != null && verifiedTokens.isVerified(token);
+    if (!verified) {
+      verified = verifyTokenSignature(token);
+      if (verified && verifiedTokens != null) {
+        verifiedTokens.verified(token);
       }
-      else {
-        verified = authority.verifyToken(token, publicKey);
-      }
-    } catch (TokenServiceException e) {
-      log.unableToVerifyToken(e);
     }
 
-    // Check received signature algorithm
-    if (verified) {
-      try {
-        String receivedSigAlg = JWSHeader.parse(token.getHeader()).getAlgorithm().getName();
-        if (!receivedSigAlg.equals(expectedSigAlg)) {
-          verified = false;
-        }
-      } catch (ParseException e) {
-        log.unableToVerifyToken(e);
-        verified = false;
-      }
+    // Revocation is checked on every request, even for tokens whose signature has been
+    // cached as verified.
+    if (verified && tokenStateService != null && tokenStateService.isRevoked(token)) {
+      log.tokenHasBeenRevoked();
+      handleValidationError(request, response, HttpServletResponse.SC_UNAUTHORIZED, null);
+      return false;
     }
 
     if (verified) {
@@ -309,6 +350,33 @@ public abstract class AbstractJWTFilter implements Filter {
     return false;
   }
 
+  private boolean verifyTokenSignature(JWT token) {
+    boolean verified = false;
+    try {
+      if (keyResolver != null) {
+        RSAPublicKey key = keyResolver.getKey(token);
+        verified = key != null && authority.verifyToken(token, key);
+      }
+      else if (publicKey == null) {
+        verified = authority.verifyToken(token);
+      }
+      else {
+        verified = authority.verifyToken(token, publicKey);
+      }
+    } catch (TokenServiceException e) {
+      log.unableToVerifyToken(e);
+    }
+
+    // Check received signature algorithm
+    if (verified) {
+      String receivedSigAlg = token.getSignatureAlgorithm();
+      if (!expectedSigAlg.equals(receivedSigAlg)) {
+        verified = false;
+      }
+    }
+    return verified;
+  }
+
   protected abstract void handleValidationError(HttpServletRequest request, HttpServletResponse response, int status,
                                                 String error) throws IOException;
 
@@ -48,11 +48,13 @@ public class AccessTokenFederationFilter implements Filter {
   private static final String BEARER = "Bearer ";
   
   private JWTokenAuthority authority;
-  
+  private VerifiedTokenCache verifiedTokens;
+
   @Override
   public void init( FilterConfig filterConfig ) throws ServletException {
     GatewayServices services = (GatewayServices) filterConfig.getServletContext().getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
     authority = (JWTokenAuthority) services.getService(GatewayServices.TOKEN_SERVICE);
+    verifiedTokens = AbstractJWTFilter.createVerifiedTokenCache(filterConfig);
   }
 
   public void destroy() {
@@ -71,11 +73,16 @@ public class AccessTokenFederationFilter implements Filter {
         throw new ServletException("ParseException encountered while processing the JWT token: ", e);
       }
 
-      boolean verified = false;
-      try {
-        verified = authority.verifyToken(token);
-      } catch (TokenServiceException e) {
-        log.unableToVerifyToken(e);
+      boolean verified = verifiedTokens.isVerified(token);
+      if (!verified) {
+        try {
+          verified = authority.verifyToken(token);
+        } catch (TokenServiceException e) {
+          log.unableToVerifyToken(e);
+        }
+        if (verified) {
+          verifiedTokens.verified(token);
+        }
       }
       if (verified) {
         long expires = Long.parseLong(token.getExpires());
@@ -0,0 +1,232 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.provider.federation.jwt.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.security.interfaces.RSAPublicKey;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.provider.federation.jwt.JWTMessages;
+import org.apache.hadoop.gateway.services.security.token.impl.JWT;
+import org.apache.hadoop.gateway.util.BoundedCache;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+
+/**
+ * Resolves the key that verifies a token from the JSON Web Key Set published by its issuer,
+ * selecting the key by the "kid" header of the token.
+ * <p>
+ * The key set is loaded from a file or URL when the resolver is started and then refreshed
+ * in the background, so resolving a key is a map lookup that never reads the key set. A token
+ * signed with a key id that is not in the key set triggers an early background refresh, which
+ * lets the issuer rotate its keys without waiting for the next scheduled refresh. Unknown key
+ * ids are remembered for a while, up to a bounded number of them, so that repeated requests with
+ * such a token neither log nor refresh again.
+ */
+public class JWKSKeyResolver {
+  private static JWTMessages log = MessagesFactory.get( JWTMessages.class );
+
+  /**
+   * The file or URL of the JSON Web Key Set of the token issuer.
+   */
+  public static final String JWKS_URL_PARAM = "jwt.jwks.url";
+
+  /**
+   * The number of milliseconds between scheduled refreshes of the key set.
+   */
+  public static final String REFRESH_INTERVAL_PARAM = "jwt.jwks.refresh.interval";
+  public static final long DEFAULT_REFRESH_INTERVAL = 900000L;
+
+  /**
+   * The number of milliseconds a key id that is not in the key set is remembered as unknown.
+   * The key set is not refreshed for unknown key ids more often than this.
+   */
+  public static final String UNKNOWN_KID_TTL_PARAM = "jwt.jwks.unknown.kid.ttl";
+  public static final long DEFAULT_UNKNOWN_KID_TTL = 60000L;
+
+  static final int MAX_UNKNOWN_KIDS = 1000;
+
+  private static final int CONNECT_TIMEOUT = 10000;
+  private static final int READ_TIMEOUT = 10000;
+  private static final int SIZE_LIMIT = 512 * 1024;
+
+  private final String location;
+  private final long refreshInterval;
+  private final long unknownKeyIdTtl;
+  private final BoundedCache<String, Boolean> unknownKeyIds = new BoundedCache<>( MAX_UNKNOWN_KIDS, 0 );
+  private final AtomicBoolean refreshPending = new AtomicBoolean();
+  private volatile Keys keys = Keys.EMPTY;
+  private volatile long lastRefresh;
+  private long lastModified;
+  private ScheduledExecutorService executor;
+
+  public JWKSKeyResolver( String location, long refreshInterval, long unknownKeyIdTtl ) {
+    this.location = location;
+    this.refreshInterval = refreshInterval;
+    this.unknownKeyIdTtl = unknownKeyIdTtl;
+  }
+
+  /**
+   * Loads the key set and schedules its refresh.
+   */
+  public synchronized void start() {
+    refresh();
+    executor = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+      @Override
+      public Thread newThread( Runnable runnable ) {
+        Thread thread = new Thread( runnable, "jwks-refresher" );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+    if( refreshInterval > 0 ) {
+      executor.scheduleWithFixedDelay( new Runnable() {
+        @Override
+        public void run() {
+          refresh();
+        }
+      }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS );
+    }
+  }
+
+  public synchronized void stop() {
+    if( executor != null ) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Returns the key identified by the "kid" header of the token or, for a token without one,
+   * the only key of the key set. Returns null when there is no such key.
+   */
+  public RSAPublicKey getKey( JWT token ) {
+    Keys current = keys;
+    String kid = token.getKeyId();
+    if( kid == null ) {
+      return current.defaultKey;
+    }
+    RSAPublicKey key = current.keysById.get( kid );
+    if( key == null ) {
+      unknownKeyId( kid );
+    }
+    return key;
+  }
+
+  private void unknownKeyId( String kid ) {
+    if( unknownKeyIds.get( kid ) != null ) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    unknownKeyIds.put( kid, Boolean.TRUE, now + unknownKeyIdTtl );
+    log.unknownKeyId( kid, location );
+    if( now - lastRefresh >= unknownKeyIdTtl ) {
+      requestRefresh();
+    }
+  }
+
+  private synchronized void requestRefresh() {
+    if( executor != null && refreshPending.compareAndSet( false, true ) ) {
+      executor.execute( new Runnable() {
+        @Override
+        public void run() {
+          refreshPending.set( false );
+          refresh();
+        }
+      } );
+    }
+  }
+
+  /**
+   * Reloads the key set, keeping the current keys when it cannot be loaded.
+   */
+  boolean refresh() {
+    lastRefresh = System.currentTimeMillis();
+    try {
+      JWKSet set;
+      String lower = location.toLowerCase();
+      if( !lower.startsWith( "http://" ) && !lower.startsWith( "https://" ) ) {
+        File file = lower.startsWith( "file:" ) ? new File( URI.create( location ) ) : new File( location );
+        long modified = file.lastModified();
+        if( modified != 0 && modified == lastModified ) {
+          return true;
+        }
+        set = JWKSet.load( file );
+        lastModified = modified;
+      } else {
+        set = JWKSet.load( new URL( location ), CONNECT_TIMEOUT, READ_TIMEOUT, SIZE_LIMIT );
+      }
+      keys = new Keys( set );
+      unknownKeyIds.clear();
+      log.loadedJWKS( keys.keysById.size(), location );
+      return true;
+    } catch( IOException | ParseException | JOSEException | IllegalArgumentException e ) {
+      log.failedToLoadJWKS( location, e );
+      return false;
+    }
+  }
+
+  /**
+   * The RSA signature verification keys of a key set.
+   */
+  private static class Keys {
+    static final Keys EMPTY = new Keys();
+
+    final Map<String, RSAPublicKey> keysById;
+    final RSAPublicKey defaultKey;
+
+    private Keys() {
+      keysById = Collections.emptyMap();
+      defaultKey = null;
+    }
+
+    Keys( JWKSet set ) throws JOSEException {
+      Map<String, RSAPublicKey> byId = new HashMap<>();
+      RSAPublicKey key = null;
+      int count = 0;
+      for( JWK jwk : set.getKeys() ) {
+        if( jwk instanceof RSAKey && !KeyUse.ENCRYPTION.equals( jwk.getKeyUse() ) ) {
+          key = ( (RSAKey)jwk ).toRSAPublicKey();
+          count++;
+          if( jwk.getKeyID() != null ) {
+            byId.put( jwk.getKeyID(), key );
+          }
+        }
+      }
+      keysById = Collections.unmodifiableMap( byId );
+      defaultKey = count == 1 ? key : null;
+    }
+  }
+
+}
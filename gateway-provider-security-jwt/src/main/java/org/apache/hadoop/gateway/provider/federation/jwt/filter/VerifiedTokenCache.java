@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.provider.federation.jwt.filter;
+
+import java.time.Clock;
+import java.util.Date;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.hadoop.gateway.services.security.token.impl.JWT;
+import org.apache.hadoop.gateway.util.BoundedCache;
+
+/**
+ * A bounded cache of tokens whose signature has already been verified by a filter.
+ * Entries are keyed by a SHA-256 digest of the serialized token and never outlive the
+ * token's expiration time or the configured maximum time to live, whichever comes first.
+ * Only the outcome of the signature (and signature algorithm) check is cached; claims such
+ * as the issuer, audience, expiration and not before time are still checked on every request.
+ */
+public class VerifiedTokenCache {
+
+  /**
+   * The maximum number of verified tokens to retain.  A value of 0 disables the cache.
+   */
+  public static final String CACHE_SIZE_PARAM = "jwt.verified.token.cache.size";
+  public static final int DEFAULT_CACHE_SIZE = 10000;
+
+  /**
+   * The maximum number of milliseconds a verified token is retained, regardless of its expiration.
+   */
+  public static final String CACHE_TTL_PARAM = "jwt.verified.token.cache.ttl";
+  public static final long DEFAULT_CACHE_TTL = 300000L;
+
+  private final boolean enabled;
+  private final BoundedCache<String,Boolean> entries;
+
+  public VerifiedTokenCache( int maxSize, long maxTtl ) {
+    this( maxSize, maxTtl, Clock.systemUTC() );
+  }
+
+  public VerifiedTokenCache( int maxSize, long maxTtl, Clock clock ) {
+    this.enabled = maxSize > 0 && maxTtl > 0;
+    this.entries = new BoundedCache<>( maxSize, maxTtl, 0, clock );
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the current time of the cache's clock in milliseconds.
+   */
+  public long currentTimeMillis() {
+    return entries.currentTimeMillis();
+  }
+
+  /**
+   * Determines if the token was previously verified and that verification is still current.
+   */
+  public boolean isVerified( JWT token ) {
+    return enabled && entries.get( getKey( token ) ) != null;
+  }
+
+  /**
+   * Records that the token's signature has been successfully verified.
+   * Tokens that have already expired are not recorded.
+   */
+  public void verified( JWT token ) {
+    if( !enabled ) {
+      return;
+    }
+    Date exp = token.getExpiresDate();
+    entries.put( getKey( token ), Boolean.TRUE, exp == null ? BoundedCache.NEVER : exp.getTime() );
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Removes all of the entries that have expired.
+   */
+  public void purge() {
+    entries.purge();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return entries.getHitCount();
+  }
+
+  public long getMissCount() {
+    return entries.getMissCount();
+  }
+
+  private static String getKey( JWT token ) {
+    return DigestUtils.sha256Hex( token.toString() );
+  }
+
+}
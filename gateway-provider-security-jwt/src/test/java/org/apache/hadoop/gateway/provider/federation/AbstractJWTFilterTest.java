@@ -19,8 +19,11 @@ package org.apache.hadoop.gateway.provider.federation;
 
 import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.security.AccessController;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
@@ -28,15 +31,26 @@ import java.security.NoSuchAlgorithmException;
 import java.security.Principal;
 import java.security.PublicKey;
 import java.security.cert.Certificate;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.Map;
+import java.util.UUID;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Properties;
 import java.util.Date;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.security.auth.Subject;
 import javax.servlet.FilterChain;
@@ -50,11 +64,16 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.hadoop.gateway.provider.federation.jwt.filter.AbstractJWTFilter;
+import org.apache.hadoop.gateway.provider.federation.jwt.filter.JWKSKeyResolver;
 import org.apache.hadoop.gateway.provider.federation.jwt.filter.SSOCookieFederationFilter;
+import org.apache.hadoop.gateway.provider.federation.jwt.filter.VerifiedTokenCache;
+import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.security.PrimaryPrincipal;
+import org.apache.hadoop.gateway.services.ServiceLifecycleException;
 import org.apache.hadoop.gateway.services.security.impl.X509CertificateUtil;
 import org.apache.hadoop.gateway.services.security.token.JWTokenAuthority;
 import org.apache.hadoop.gateway.services.security.token.TokenServiceException;
+import org.apache.hadoop.gateway.services.security.token.TokenStateService;
 import org.apache.hadoop.gateway.services.security.token.impl.JWT;
 import org.easymock.EasyMock;
 import org.junit.After;
@@ -63,8 +82,13 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.nimbusds.jose.*;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
 import com.nimbusds.jose.crypto.RSASSASigner;
 import com.nimbusds.jose.crypto.RSASSAVerifier;
 
@@ -73,6 +97,7 @@ public abstract class AbstractJWTFilterTest  {
   private static final String dnTemplate = "CN={0},OU=Test,O=Hadoop,L=Test,ST=Test,C=US";
 
   protected AbstractJWTFilter handler = null;
+  protected TestJWTokenAuthority tokenService = null;
   protected static RSAPublicKey publicKey = null;
   protected static RSAPrivateKey privateKey = null;
   protected static String pem = null;
@@ -81,6 +106,8 @@ public abstract class AbstractJWTFilterTest  {
   protected abstract void setGarbledTokenOnRequest(HttpServletRequest request, SignedJWT jwt);
   protected abstract String getAudienceProperty();
   protected abstract String getVerificationPemProperty();
+  protected abstract void setTokenStateService(TokenStateService tokenStateService);
+  protected abstract void setVerifiedTokenCache(VerifiedTokenCache cache);
 
   private static String buildDistinguishedName(String hostname) {
     MessageFormat headerFormatter = new MessageFormat(dnTemplate);
@@ -622,6 +649,34 @@ public abstract class AbstractJWTFilterTest  {
     }
   }
 
+  @Test
+  public void testES256SignatureAlgorithm() throws Exception {
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance("EC");
+    kpg.initialize(256);
+    KeyPair ecKeyPair = kpg.generateKeyPair();
+    tokenService.setVerifyingKey(ecKeyPair.getPublic());
+
+    JWTClaimsSet claims = new JWTClaimsSet.Builder()
+        .issuer(AbstractJWTFilter.JWT_DEFAULT_ISSUER)
+        .subject("alice")
+        .expirationTime(new Date(new Date().getTime() + 5000))
+        .build();
+    SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.ES256), claims);
+    jwt.sign(new ECDSASigner((ECPrivateKey) ecKeyPair.getPrivate()));
+
+    // The token is rejected unless ES256 is the expected signature algorithm.
+    handler.init(new TestFilterConfig(getProperties()));
+    Assert.assertFalse(doFilterWithToken(jwt).doFilterCalled);
+
+    Properties props = getProperties();
+    props.put(AbstractJWTFilter.JWT_EXPECTED_SIGALG, "ES256");
+    handler.init(new TestFilterConfig(props));
+    TestFilterChain chain = doFilterWithToken(jwt);
+    Assert.assertTrue("doFilterCalled should not be false.", chain.doFilterCalled);
+    Set<PrimaryPrincipal> principals = chain.subject.getPrincipals(PrimaryPrincipal.class);
+    Assert.assertEquals("Not the expected principal", "alice", ((Principal)principals.toArray()[0]).getName());
+  }
+
   @Test
   public void testInvalidSignatureAlgorithm() throws Exception {
     try {
@@ -682,6 +737,152 @@ public abstract class AbstractJWTFilterTest  {
     }
   }
 
+  @Test
+  public void testVerifiedTokenIsCached() throws Exception {
+    Properties props = getProperties();
+    handler.init(new TestFilterConfig(props));
+
+    SignedJWT jwt = getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER, "alice",
+                           new Date(new Date().getTime() + 60000), privateKey);
+
+    for (int i = 0; i < 3; i++) {
+      TestFilterChain chain = doFilterWithToken(jwt);
+      Assert.assertTrue("doFilterCalled should not be false.", chain.doFilterCalled);
+    }
+    Assert.assertEquals(1, tokenService.verifyCount.get());
+
+    // A different token must still be verified.
+    SignedJWT other = getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER, "bob",
+                             new Date(new Date().getTime() + 60000), privateKey);
+    TestFilterChain chain = doFilterWithToken(other);
+    Assert.assertTrue("doFilterCalled should not be false.", chain.doFilterCalled);
+    Assert.assertEquals(2, tokenService.verifyCount.get());
+  }
+
+  @Test
+  public void testCachedTokenStillExpires() throws Exception {
+    Properties props = getProperties();
+    handler.init(new TestFilterConfig(props));
+
+    VerifiedTokenCacheTest.TestClock clock = new VerifiedTokenCacheTest.TestClock();
+    setVerifiedTokenCache(new VerifiedTokenCache(VerifiedTokenCache.DEFAULT_CACHE_SIZE,
+                                                 VerifiedTokenCache.DEFAULT_CACHE_TTL, clock));
+
+    SignedJWT jwt = getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER, "alice",
+                           new Date(clock.millis() + 1000), privateKey);
+    Assert.assertTrue(doFilterWithToken(jwt).doFilterCalled);
+    Assert.assertTrue(doFilterWithToken(jwt).doFilterCalled);
+    Assert.assertEquals(1, tokenService.verifyCount.get());
+
+    clock.advance(1500);
+    Assert.assertFalse(doFilterWithToken(jwt).doFilterCalled);
+  }
+
+  @Test
+  public void testConcurrentVerificationOfCachedToken() throws Exception {
+    Properties props = getProperties();
+    handler.init(new TestFilterConfig(props));
+
+    final SignedJWT jwt = getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER, "alice",
+                                 new Date(new Date().getTime() + 60000), privateKey);
+    // Prime the cache.
+    Assert.assertTrue(doFilterWithToken(jwt).doFilterCalled);
+
+    int threads = 8;
+    final int requests = 250;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<Integer>> results = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      results.add(executor.submit(() -> {
+        int passed = 0;
+        for (int i = 0; i < requests; i++) {
+          if (doFilterWithToken(jwt).doFilterCalled) {
+            passed++;
+          }
+        }
+        return passed;
+      }));
+    }
+    for (Future<Integer> result : results) {
+      Assert.assertEquals(requests, result.get().intValue());
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    // Only the priming request should have reached the signature verification.
+    Assert.assertEquals(1, tokenService.verifyCount.get());
+  }
+
+  @Test
+  public void testRevokedJWT() throws Exception {
+    Properties props = getProperties();
+    handler.init(new TestFilterConfig(props));
+    TestTokenStateService tokenStateService = new TestTokenStateService();
+    setTokenStateService(tokenStateService);
+
+    SignedJWT jwt = getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER, "alice",
+                           new Date(new Date().getTime() + 60000), privateKey);
+    SignedJWT other = getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER, "alice",
+                             new Date(new Date().getTime() + 60000), privateKey);
+    Assert.assertTrue(doFilterWithToken(jwt).doFilterCalled);
+    Assert.assertTrue(doFilterWithToken(other).doFilterCalled);
+
+    // The token's signature is cached as verified by now, it must still be rejected.
+    tokenStateService.revokeToken(jwt.getJWTClaimsSet().getJWTID());
+    Assert.assertFalse(doFilterWithToken(jwt).doFilterCalled);
+    Assert.assertTrue(doFilterWithToken(other).doFilterCalled);
+  }
+
+  @Test
+  public void testVerificationKeyIsSelectedByKid() throws Exception {
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+    kpg.initialize(1024);
+    KeyPair otherKeyPair = kpg.generateKeyPair();
+    RSAPrivateKey otherPrivateKey = (RSAPrivateKey) otherKeyPair.getPrivate();
+
+    JWKSet keySet = new JWKSet(Arrays.<JWK>asList(
+        new RSAKey.Builder(publicKey).keyID("key1").build(),
+        new RSAKey.Builder((RSAPublicKey) otherKeyPair.getPublic()).keyID("key2").build()));
+    File jwks = File.createTempFile("jwks", ".json");
+    jwks.deleteOnExit();
+    Files.write(jwks.toPath(), keySet.toString().getBytes(StandardCharsets.UTF_8));
+
+    Properties props = getProperties();
+    props.put(JWKSKeyResolver.JWKS_URL_PARAM, jwks.getAbsolutePath());
+    handler.init(new TestFilterConfig(props));
+    try {
+      Date expires = new Date(new Date().getTime() + 60000);
+      Assert.assertTrue(doFilterWithToken(getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER, "alice", "bar",
+          expires, new Date(), privateKey, "RS256", "key1")).doFilterCalled);
+      Assert.assertTrue(doFilterWithToken(getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER, "alice", "bar",
+          expires, new Date(), otherPrivateKey, "RS256", "key2")).doFilterCalled);
+
+      // Signed with a key other than the one named by the kid.
+      Assert.assertFalse(doFilterWithToken(getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER, "alice", "bar",
+          expires, new Date(), privateKey, "RS256", "key2")).doFilterCalled);
+      // A kid that is not in the key set, or none with several keys to choose from.
+      Assert.assertFalse(doFilterWithToken(getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER, "alice", "bar",
+          expires, new Date(), privateKey, "RS256", "key3")).doFilterCalled);
+      Assert.assertFalse(doFilterWithToken(getJWT(AbstractJWTFilter.JWT_DEFAULT_ISSUER, "alice", "bar",
+          expires, new Date(), privateKey, "RS256", null)).doFilterCalled);
+    } finally {
+      jwks.delete();
+    }
+  }
+
+  private TestFilterChain doFilterWithToken(SignedJWT jwt) throws Exception {
+    HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    setTokenOnRequest(request, jwt);
+    EasyMock.expect(request.getRequestURL()).andReturn(
+        new StringBuffer(SERVICE_URL)).anyTimes();
+    HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.replay(request);
+
+    TestFilterChain chain = new TestFilterChain();
+    handler.doFilter(request, response, chain);
+    return chain;
+  }
+
   protected Properties getProperties() {
     Properties props = new Properties();
     props.setProperty(
@@ -704,6 +905,12 @@ public abstract class AbstractJWTFilterTest  {
   protected SignedJWT getJWT(String issuer, String sub, String aud, Date expires, Date nbf, RSAPrivateKey privateKey,
                              String signatureAlgorithm)
       throws Exception {
+    return getJWT(issuer, sub, aud, expires, nbf, privateKey, signatureAlgorithm, null);
+  }
+
+  protected SignedJWT getJWT(String issuer, String sub, String aud, Date expires, Date nbf, RSAPrivateKey privateKey,
+                             String signatureAlgorithm, String kid)
+      throws Exception {
     List<String> audiences = new ArrayList<String>();
     if (aud != null) {
       audiences.add(aud);
@@ -716,9 +923,10 @@ public abstract class AbstractJWTFilterTest  {
     .expirationTime(expires)
     .notBeforeTime(nbf)
     .claim("scope", "openid")
+    .jwtID(UUID.randomUUID().toString())
     .build();
 
-    JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.parse(signatureAlgorithm)).build();
+    JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.parse(signatureAlgorithm)).keyID(kid).build();
 
     SignedJWT signedJWT = new SignedJWT(header, claims);
     JWSSigner signer = new RSASSASigner(privateKey);
@@ -774,11 +982,16 @@ public abstract class AbstractJWTFilterTest  {
   protected static class TestJWTokenAuthority implements JWTokenAuthority {
 
     private PublicKey verifyingKey;
+    AtomicInteger verifyCount = new AtomicInteger();
 
     public TestJWTokenAuthority(PublicKey verifyingKey) {
       this.verifyingKey = verifyingKey;
     }
 
+    public void setVerifyingKey(PublicKey verifyingKey) {
+      this.verifyingKey = verifyingKey;
+    }
+
     /* (non-Javadoc)
      * @see org.apache.hadoop.gateway.services.security.token.JWTokenAuthority#issueToken(javax.security.auth.Subject, java.lang.String)
      */
@@ -813,7 +1026,17 @@ public abstract class AbstractJWTFilterTest  {
      */
     @Override
     public boolean verifyToken(JWT token) throws TokenServiceException {
-      JWSVerifier verifier = new RSASSAVerifier((RSAPublicKey) verifyingKey);
+      verifyCount.incrementAndGet();
+      JWSVerifier verifier;
+      if (verifyingKey instanceof ECPublicKey) {
+        try {
+          verifier = new ECDSAVerifier((ECPublicKey) verifyingKey);
+        } catch (JOSEException e) {
+          throw new TokenServiceException(e);
+        }
+      } else {
+        verifier = new RSASSAVerifier((RSAPublicKey) verifyingKey);
+      }
       return token.verify(verifier);
     }
 
@@ -844,12 +1067,53 @@ public abstract class AbstractJWTFilterTest  {
 
     @Override
     public boolean verifyToken(JWT token, RSAPublicKey publicKey) throws TokenServiceException {
+      verifyCount.incrementAndGet();
       JWSVerifier verifier = new RSASSAVerifier(publicKey);
       return token.verify(verifier);
     }
 
   }
 
+  protected static class TestTokenStateService implements TokenStateService {
+    private final Set<String> revoked = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void init(GatewayConfig config, Map<String, String> options) throws ServiceLifecycleException {
+    }
+
+    @Override
+    public void start() throws ServiceLifecycleException {
+    }
+
+    @Override
+    public void stop() throws ServiceLifecycleException {
+    }
+
+    @Override
+    public void addToken(String tokenId, String subject, long expires) {
+    }
+
+    @Override
+    public boolean revokeToken(String tokenId) {
+      return revoked.add(tokenId);
+    }
+
+    @Override
+    public boolean revokeToken(JWT token) {
+      return revoked.add(token.getClaim(JWT.JWT_ID));
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId) {
+      return revoked.contains(tokenId);
+    }
+
+    @Override
+    public boolean isRevoked(JWT token) {
+      return !revoked.isEmpty() && revoked.contains(token.getClaim(JWT.JWT_ID));
+    }
+  }
+
   protected static class TestFilterChain implements FilterChain {
     boolean doFilterCalled = false;
     Subject subject = null;
@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.provider.federation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.gateway.provider.federation.jwt.filter.JWKSKeyResolver;
+import org.apache.hadoop.gateway.services.security.token.impl.JWTToken;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+
+public class JWKSKeyResolverTest {
+
+  private static RSAPublicKey key1;
+  private static RSAPublicKey key2;
+
+  private File jwks;
+
+  @BeforeClass
+  public static void generateKeys() throws Exception {
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+    kpg.initialize(1024);
+    key1 = (RSAPublicKey) kpg.generateKeyPair().getPublic();
+    key2 = (RSAPublicKey) kpg.generateKeyPair().getPublic();
+  }
+
+  @Before
+  public void createKeySetFile() throws Exception {
+    jwks = File.createTempFile("jwks", ".json");
+  }
+
+  @After
+  public void deleteKeySetFile() {
+    jwks.delete();
+  }
+
+  private void writeKeySet(JWK... keys) throws Exception {
+    List<JWK> list = new ArrayList<>();
+    for (JWK key : keys) {
+      list.add(key);
+    }
+    long modified = jwks.lastModified();
+    Files.write(jwks.toPath(), new JWKSet(list).toString().getBytes(StandardCharsets.UTF_8));
+    // Make sure the change is noticed on file systems with a coarse modification time.
+    jwks.setLastModified(modified + 2000);
+  }
+
+  private static JWTToken createToken(String kid) {
+    String[] claims = new String[4];
+    claims[0] = "KNOXSSO";
+    claims[1] = "alice";
+    claims[2] = null;
+    claims[3] = Long.toString(System.currentTimeMillis() + 60000);
+    return new JWTToken("RS256", claims, null, kid);
+  }
+
+  @Test
+  public void testKeyIsSelectedByKid() throws Exception {
+    writeKeySet(new RSAKey.Builder(key1).keyID("key1").build(),
+        new RSAKey.Builder(key2).keyID("key2").build(),
+        new RSAKey.Builder(key2).keyID("enc").keyUse(KeyUse.ENCRYPTION).build());
+    JWKSKeyResolver resolver = new JWKSKeyResolver(jwks.getAbsolutePath(), 0, 60000);
+    resolver.start();
+    try {
+      assertEquals(key1, resolver.getKey(createToken("key1")));
+      assertEquals(key2, resolver.getKey(createToken("key2")));
+      assertNull(resolver.getKey(createToken("enc")));
+      assertNull(resolver.getKey(createToken("key3")));
+      // Without a kid the key is ambiguous.
+      assertNull(resolver.getKey(createToken(null)));
+    } finally {
+      resolver.stop();
+    }
+  }
+
+  @Test
+  public void testTokenWithoutKidUsesTheOnlyKey() throws Exception {
+    writeKeySet(new RSAKey.Builder(key1).build());
+    JWKSKeyResolver resolver = new JWKSKeyResolver(jwks.toURI().toString(), 0, 60000);
+    resolver.start();
+    try {
+      assertEquals(key1, resolver.getKey(createToken(null)));
+    } finally {
+      resolver.stop();
+    }
+  }
+
+  @Test
+  public void testRotatedKeyIsPickedUp() throws Exception {
+    writeKeySet(new RSAKey.Builder(key1).keyID("key1").build());
+    JWKSKeyResolver resolver = new JWKSKeyResolver(jwks.getAbsolutePath(), 0, 0);
+    resolver.start();
+    try {
+      assertNull(resolver.getKey(createToken("key2")));
+
+      writeKeySet(new RSAKey.Builder(key1).keyID("key1").build(),
+          new RSAKey.Builder(key2).keyID("key2").build());
+      // The unknown kid triggers a refresh in the background.
+      RSAPublicKey key = resolver.getKey(createToken("key2"));
+      for (int i = 0; key == null && i < 100; i++) {
+        Thread.sleep(50);
+        key = resolver.getKey(createToken("key2"));
+      }
+      assertEquals(key2, key);
+      assertEquals(key1, resolver.getKey(createToken("key1")));
+    } finally {
+      resolver.stop();
+    }
+  }
+
+  @Test
+  public void testUnreadableKeySet() throws Exception {
+    JWKSKeyResolver resolver = new JWKSKeyResolver(new File(jwks.getParentFile(), "missing-" + jwks.getName()).getAbsolutePath(), 0, 60000);
+    resolver.start();
+    try {
+      assertNull(resolver.getKey(createToken("key1")));
+    } finally {
+      resolver.stop();
+    }
+  }
+}
@@ -22,7 +22,9 @@ import java.security.NoSuchAlgorithmException;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.hadoop.gateway.provider.federation.jwt.filter.JWTFederationFilter;
+import org.apache.hadoop.gateway.provider.federation.jwt.filter.VerifiedTokenCache;
 import org.apache.hadoop.gateway.services.security.token.JWTokenAuthority;
+import org.apache.hadoop.gateway.services.security.token.TokenStateService;
 import org.easymock.EasyMock;
 import org.junit.Before;
 
@@ -33,7 +35,8 @@ public class JWTFederationFilterTest extends AbstractJWTFilterTest {
     @Before
     public void setup() throws Exception, NoSuchAlgorithmException {
       handler = new TestJWTFederationFilter();
-      ((TestJWTFederationFilter) handler).setTokenService(new TestJWTokenAuthority(publicKey));
+      tokenService = new TestJWTokenAuthority(publicKey);
+      ((TestJWTFederationFilter) handler).setTokenService(tokenService);
     }
 
     protected void setTokenOnRequest(HttpServletRequest request, SignedJWT jwt) {
@@ -56,6 +59,14 @@ public class JWTFederationFilterTest extends AbstractJWTFilterTest {
         authority = ts;
       }
 
+      public void setTokenStateService(TokenStateService tss) {
+        tokenStateService = tss;
+      }
+
+      public void setVerifiedTokenCache(VerifiedTokenCache cache) {
+        verifiedTokens = cache;
+      }
+
     }
 
     @Override
@@ -63,4 +74,14 @@ public class JWTFederationFilterTest extends AbstractJWTFilterTest {
       return TestJWTFederationFilter.TOKEN_VERIFICATION_PEM;
     };
 
+    @Override
+    protected void setTokenStateService(TokenStateService tokenStateService) {
+      ((TestJWTFederationFilter) handler).setTokenStateService(tokenStateService);
+    }
+
+    @Override
+    protected void setVerifiedTokenCache(VerifiedTokenCache cache) {
+      ((TestJWTFederationFilter) handler).setVerifiedTokenCache(cache);
+    }
+
 }
@@ -32,8 +32,10 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.hadoop.gateway.provider.federation.jwt.filter.AbstractJWTFilter;
 import org.apache.hadoop.gateway.provider.federation.jwt.filter.SSOCookieFederationFilter;
+import org.apache.hadoop.gateway.provider.federation.jwt.filter.VerifiedTokenCache;
 import org.apache.hadoop.gateway.security.PrimaryPrincipal;
 import org.apache.hadoop.gateway.services.security.token.JWTokenAuthority;
+import org.apache.hadoop.gateway.services.security.token.TokenStateService;
 import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Before;
@@ -47,7 +49,8 @@ public class SSOCookieProviderTest extends AbstractJWTFilterTest {
   @Before
   public void setup() throws Exception, NoSuchAlgorithmException {
     handler = new TestSSOCookieFederationProvider();
-    ((TestSSOCookieFederationProvider) handler).setTokenService(new TestJWTokenAuthority(publicKey));
+    tokenService = new TestJWTokenAuthority(publicKey);
+    ((TestSSOCookieFederationProvider) handler).setTokenService(tokenService);
   }
 
   protected void setTokenOnRequest(HttpServletRequest request, SignedJWT jwt) {
@@ -149,6 +152,16 @@ public class SSOCookieProviderTest extends AbstractJWTFilterTest {
     return SSOCookieFederationFilter.SSO_VERIFICATION_PEM;
   };
 
+  @Override
+  protected void setTokenStateService(TokenStateService tokenStateService) {
+    ((TestSSOCookieFederationProvider) handler).setTokenStateService(tokenStateService);
+  }
+
+  @Override
+  protected void setVerifiedTokenCache(VerifiedTokenCache cache) {
+    ((TestSSOCookieFederationProvider) handler).setVerifiedTokenCache(cache);
+  }
+
   private static class TestSSOCookieFederationProvider extends SSOCookieFederationFilter {
     public String testConstructLoginURL(HttpServletRequest req) {
       return constructLoginURL(req);
@@ -157,6 +170,14 @@ public class SSOCookieProviderTest extends AbstractJWTFilterTest {
     public void setTokenService(JWTokenAuthority ts) {
       authority = ts;
     }
+
+    public void setTokenStateService(TokenStateService tss) {
+      tokenStateService = tss;
+    }
+
+    public void setVerifiedTokenCache(VerifiedTokenCache cache) {
+      verifiedTokens = cache;
+    }
   };
 
 }
@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.provider.federation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.apache.hadoop.gateway.provider.federation.jwt.filter.VerifiedTokenCache;
+import org.apache.hadoop.gateway.services.security.token.impl.JWTToken;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.nimbusds.jose.crypto.RSASSASigner;
+
+public class VerifiedTokenCacheTest {
+
+  private static RSAPrivateKey privateKey;
+
+  // JWT expiration times are in whole seconds so the clock starts on a second.
+  static class TestClock extends Clock {
+    private long millis = 1500000000000L;
+
+    void advance(long delta) {
+      millis += delta;
+    }
+
+    @Override
+    public long millis() {
+      return millis;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+  }
+
+  @BeforeClass
+  public static void generateKey() throws Exception {
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+    kpg.initialize(1024);
+    privateKey = (RSAPrivateKey) kpg.generateKeyPair().getPrivate();
+  }
+
+  private static JWTToken createToken(String subject, long expires) {
+    String[] claims = new String[4];
+    claims[0] = "KNOXSSO";
+    claims[1] = subject;
+    claims[2] = null;
+    claims[3] = expires < 0 ? null : Long.toString(expires);
+    JWTToken token = new JWTToken("RS256", claims);
+    token.sign(new RSASSASigner(privateKey));
+    return token;
+  }
+
+  @Test
+  public void testVerifiedTokenIsCached() {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, 60000);
+    JWTToken token = createToken("alice", System.currentTimeMillis() + 60000);
+    assertFalse(cache.isVerified(token));
+    cache.verified(token);
+    assertTrue(cache.isVerified(token));
+    assertFalse(cache.isVerified(createToken("bob", System.currentTimeMillis() + 60000)));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void testExpiredTokenIsNotCached() {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, 60000);
+    JWTToken token = createToken("alice", System.currentTimeMillis() - 1000);
+    cache.verified(token);
+    assertFalse(cache.isVerified(token));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testEntryDoesNotOutliveToken() {
+    TestClock clock = new TestClock();
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, 60000, clock);
+    JWTToken token = createToken("alice", clock.millis() + 5000);
+    cache.verified(token);
+    clock.advance(4999);
+    assertTrue(cache.isVerified(token));
+    clock.advance(1);
+    assertFalse(cache.isVerified(token));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testEntryDoesNotOutliveMaxTtl() {
+    TestClock clock = new TestClock();
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, 100, clock);
+    JWTToken token = createToken("alice", -1);
+    cache.verified(token);
+    clock.advance(99);
+    assertTrue(cache.isVerified(token));
+    clock.advance(1);
+    assertFalse(cache.isVerified(token));
+  }
+
+  @Test
+  public void testCacheIsBounded() {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10, 60000);
+    long expires = System.currentTimeMillis() + 60000;
+    for (int i = 0; i < 100; i++) {
+      cache.verified(createToken("user" + i, expires));
+    }
+    assertTrue(cache.size() <= 10);
+    JWTToken token = createToken("alice", expires);
+    cache.verified(token);
+    assertTrue(cache.isVerified(token));
+  }
+
+  @Test
+  public void testDisabledCache() {
+    VerifiedTokenCache cache = new VerifiedTokenCache(0, 60000);
+    JWTToken token = createToken("alice", System.currentTimeMillis() + 60000);
+    cache.verified(token);
+    assertFalse(cache.isVerified(token));
+  }
+
+}
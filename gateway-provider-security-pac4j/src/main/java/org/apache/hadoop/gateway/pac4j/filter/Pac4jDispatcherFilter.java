@@ -99,8 +99,9 @@ public class Pac4jDispatcherFilter implements Filter {
       log.cryptoServiceAndAliasServiceAndClusterNameRequired();
       throw new ServletException("The crypto service, alias service and cluster name are required.");
     }
+    final char[] sessionPassword;
     try {
-      aliasService.getPasswordFromAliasForCluster(clusterName, KnoxSessionStore.PAC4J_PASSWORD, true);
+      sessionPassword = aliasService.getPasswordFromAliasForCluster(clusterName, KnoxSessionStore.PAC4J_PASSWORD, true);
     } catch (AliasServiceException e) {
       log.unableToGenerateAPasswordForEncryption(e);
       throw new ServletException("Unable to generate a password for encryption.");
@@ -158,7 +159,7 @@ public class Pac4jDispatcherFilter implements Filter {
     securityFilter.setConfig(config);
 
     final String domainSuffix = filterConfig.getInitParameter(PAC4J_COOKIE_DOMAIN_SUFFIX_PARAM);
-    config.setSessionStore(new KnoxSessionStore(cryptoService, clusterName, domainSuffix));
+    config.setSessionStore(new KnoxSessionStore(domainSuffix, sessionPassword));
     ConfigSingleton.setConfig(config);
   }
 
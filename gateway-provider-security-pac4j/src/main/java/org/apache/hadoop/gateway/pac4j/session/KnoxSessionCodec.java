@@ -0,0 +1,496 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.pac4j.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.core.profile.Color;
+
+import com.github.scribejava.core.model.OAuth1RequestToken;
+import com.nimbusds.oauth2.sdk.Scope;
+import com.nimbusds.oauth2.sdk.token.AccessToken;
+import com.nimbusds.oauth2.sdk.token.AccessTokenType;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import com.nimbusds.oauth2.sdk.token.TypelessAccessToken;
+
+/**
+ * Versioned binary encoding of the values pac4j keeps in its session, encrypted with AES-GCM.
+ * <p>
+ * Strings, numbers, dates, collections, user profiles and the other types pac4j keeps in its
+ * session, such as profile attribute values, the assertion dates of SAML profiles, the OAuth
+ * tokens of OpenID Connect profiles and OAuth 1.0 request tokens, are written field by field.  Values of any other type are rejected; Java serialization is never used, so decoding
+ * a value can't instantiate arbitrary classes.  The key is derived once from the cluster's pac4j
+ * password and the name of the session entry is authenticated with its value so that a
+ * value can't be replayed under another name.
+ * <pre>
+ * value   = version iv AES-GCM(flags data)
+ * flags   = bit 0 set when data is deflated
+ * </pre>
+ */
+public class KnoxSessionCodec {
+
+  static final byte VERSION = 1;
+
+  private static final String PBE_ALGORITHM = "PBKDF2WithHmacSHA256";
+  private static final byte[] KEY_SALT = "knox.pac4j.session".getBytes( StandardCharsets.UTF_8 );
+  private static final int KEY_ITERATIONS = 65536;
+  private static final int KEY_LENGTH = 128;
+  private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+  private static final int IV_LENGTH = 12;
+  private static final int TAG_LENGTH = 128;
+
+  private static final int FLAG_DEFLATED = 1;
+  private static final int DEFLATE_THRESHOLD = 256;
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte BOOLEAN = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte DOUBLE = 5;
+  private static final byte DATE = 6;
+  private static final byte LIST = 7;
+  private static final byte SET = 8;
+  private static final byte MAP = 9;
+  private static final byte PROFILE = 10;
+  // 11 was the Java serialized form, which is no longer read
+  private static final byte LOCALE = 12;
+  private static final byte URI = 13;
+  private static final byte ENUM = 14;
+  private static final byte COLOR = 15;
+  private static final byte OAUTH1_REQUEST_TOKEN = 16;
+  private static final byte DATE_TIME = 17;
+  private static final byte ACCESS_TOKEN = 18;
+  private static final byte REFRESH_TOKEN = 19;
+
+  private static final ThreadLocal<Cipher> CIPHER = new ThreadLocal<>();
+  private static final ThreadLocal<SecureRandom> RANDOM = new ThreadLocal<SecureRandom>() {
+    @Override
+    protected SecureRandom initialValue() {
+      return new SecureRandom();
+    }
+  };
+
+  private final SecretKey key;
+
+  public KnoxSessionCodec( char[] password ) throws GeneralSecurityException {
+    SecretKeyFactory factory = SecretKeyFactory.getInstance( PBE_ALGORITHM );
+    byte[] encoded = factory.generateSecret( new PBEKeySpec( password, KEY_SALT, KEY_ITERATIONS, KEY_LENGTH ) ).getEncoded();
+    this.key = new SecretKeySpec( encoded, "AES" );
+  }
+
+  /**
+   * Determines if the decoded bytes of a cookie were written by this codec rather than
+   * the Java serialization based format used before.
+   */
+  private static boolean isEncoded( byte[] bytes ) {
+    return bytes != null && bytes.length > IV_LENGTH + 1 && bytes[ 0 ] == VERSION;
+  }
+
+  public String encode( String name, Object value ) throws IOException, GeneralSecurityException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream( buffer );
+    writeValue( out, value );
+    out.flush();
+    byte[] data = buffer.toByteArray();
+
+    int flags = 0;
+    if( data.length > DEFLATE_THRESHOLD ) {
+      byte[] deflated = deflate( data );
+      if( deflated.length < data.length ) {
+        data = deflated;
+        flags |= FLAG_DEFLATED;
+      }
+    }
+    byte[] plain = new byte[ data.length + 1 ];
+    plain[ 0 ] = (byte)flags;
+    System.arraycopy( data, 0, plain, 1, data.length );
+
+    byte[] iv = new byte[ IV_LENGTH ];
+    RANDOM.get().nextBytes( iv );
+    Cipher cipher = getCipher();
+    cipher.init( Cipher.ENCRYPT_MODE, key, new GCMParameterSpec( TAG_LENGTH, iv ) );
+    cipher.updateAAD( associatedData( name ) );
+    byte[] encrypted = cipher.doFinal( plain );
+
+    ByteBuffer result = ByteBuffer.allocate( 1 + IV_LENGTH + encrypted.length );
+    result.put( VERSION ).put( iv ).put( encrypted );
+    return Base64.encodeBase64URLSafeString( result.array() );
+  }
+
+  public Object decode( String name, String value ) throws IOException, GeneralSecurityException {
+    return decode( name, Base64.decodeBase64( value ) );
+  }
+
+  Object decode( String name, byte[] bytes ) throws IOException, GeneralSecurityException {
+    if( !isEncoded( bytes ) ) {
+      throw new IOException( "Unsupported session value version" );
+    }
+    Cipher cipher = getCipher();
+    cipher.init( Cipher.DECRYPT_MODE, key, new GCMParameterSpec( TAG_LENGTH, bytes, 1, IV_LENGTH ) );
+    cipher.updateAAD( associatedData( name ) );
+    byte[] plain = cipher.doFinal( bytes, 1 + IV_LENGTH, bytes.length - 1 - IV_LENGTH );
+    if( plain.length == 0 ) {
+      throw new IOException( "Empty session value" );
+    }
+
+    byte[] data = new byte[ plain.length - 1 ];
+    System.arraycopy( plain, 1, data, 0, data.length );
+    if( ( plain[ 0 ] & FLAG_DEFLATED ) != 0 ) {
+      data = inflate( data );
+    }
+    return readValue( new DataInputStream( new ByteArrayInputStream( data ) ) );
+  }
+
+  private void writeValue( DataOutputStream out, Object value ) throws IOException {
+    if( value == null ) {
+      out.writeByte( NULL );
+    } else if( value instanceof String ) {
+      out.writeByte( STRING );
+      writeString( out, (String)value );
+    } else if( value instanceof Boolean ) {
+      out.writeByte( BOOLEAN );
+      out.writeBoolean( (Boolean)value );
+    } else if( value instanceof Integer ) {
+      out.writeByte( INTEGER );
+      out.writeInt( (Integer)value );
+    } else if( value instanceof Long ) {
+      out.writeByte( LONG );
+      out.writeLong( (Long)value );
+    } else if( value instanceof Double ) {
+      out.writeByte( DOUBLE );
+      out.writeDouble( (Double)value );
+    } else if( value instanceof Date ) {
+      out.writeByte( DATE );
+      out.writeLong( ((Date)value).getTime() );
+    } else if( value instanceof List ) {
+      out.writeByte( LIST );
+      writeCollection( out, (List<?>)value );
+    } else if( value instanceof Set ) {
+      out.writeByte( SET );
+      writeCollection( out, (Set<?>)value );
+    } else if( value instanceof Map ) {
+      out.writeByte( MAP );
+      writeMap( out, (Map<?,?>)value );
+    } else if( value instanceof UserProfile ) {
+      out.writeByte( PROFILE );
+      writeProfile( out, (UserProfile)value );
+    } else if( value instanceof Locale ) {
+      out.writeByte( LOCALE );
+      writeString( out, ((Locale)value).toLanguageTag() );
+    } else if( value instanceof java.net.URI ) {
+      out.writeByte( URI );
+      writeString( out, value.toString() );
+    } else if( value instanceof Enum ) {
+      out.writeByte( ENUM );
+      writeString( out, ((Enum<?>)value).getDeclaringClass().getName() );
+      writeString( out, ((Enum<?>)value).name() );
+    } else if( value.getClass() == Color.class ) {
+      Color color = (Color)value;
+      out.writeByte( COLOR );
+      out.writeInt( color.getRed() );
+      out.writeInt( color.getGreen() );
+      out.writeInt( color.getBlue() );
+    } else if( value.getClass() == OAuth1RequestToken.class ) {
+      OAuth1RequestToken token = (OAuth1RequestToken)value;
+      out.writeByte( OAUTH1_REQUEST_TOKEN );
+      writeValue( out, token.getToken() );
+      writeValue( out, token.getTokenSecret() );
+      out.writeBoolean( token.isOauthCallbackConfirmed() );
+      writeValue( out, token.getRawResponse() );
+    } else if( value instanceof DateTime ) {
+      DateTime dateTime = (DateTime)value;
+      out.writeByte( DATE_TIME );
+      out.writeLong( dateTime.getMillis() );
+      writeString( out, dateTime.getZone().getID() );
+    } else if( value instanceof BearerAccessToken || value instanceof TypelessAccessToken ) {
+      AccessToken token = (AccessToken)value;
+      out.writeByte( ACCESS_TOKEN );
+      writeString( out, token.getType().getValue() );
+      writeString( out, token.getValue() );
+      out.writeLong( token.getLifetime() );
+      writeValue( out, token.getScope() == null ? null : token.getScope().toString() );
+    } else if( value instanceof RefreshToken ) {
+      out.writeByte( REFRESH_TOKEN );
+      writeString( out, ((RefreshToken)value).getValue() );
+    } else {
+      throw new IOException( "Cannot encode session value of type " + value.getClass().getName() );
+    }
+  }
+
+  private Object readValue( DataInputStream in ) throws IOException {
+    byte tag = in.readByte();
+    switch( tag ) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString( in );
+      case BOOLEAN:
+        return in.readBoolean();
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case DOUBLE:
+        return in.readDouble();
+      case DATE:
+        return new Date( in.readLong() );
+      case LIST:
+        return readCollection( in, new ArrayList<Object>() );
+      case SET:
+        return readCollection( in, new LinkedHashSet<Object>() );
+      case MAP:
+        return readMap( in );
+      case PROFILE:
+        return readProfile( in );
+      case LOCALE:
+        return Locale.forLanguageTag( readString( in ) );
+      case URI:
+        try {
+          return new java.net.URI( readString( in ) );
+        } catch( java.net.URISyntaxException e ) {
+          throw new IOException( e );
+        }
+      case ENUM:
+        return readEnum( in );
+      case COLOR:
+        return new Color( in.readInt(), in.readInt(), in.readInt() );
+      case OAUTH1_REQUEST_TOKEN:
+        return new OAuth1RequestToken( (String)readValue( in ), (String)readValue( in ), in.readBoolean(), (String)readValue( in ) );
+      case DATE_TIME:
+        return readDateTime( in );
+      case ACCESS_TOKEN:
+        return readAccessToken( in );
+      case REFRESH_TOKEN:
+        return new RefreshToken( readString( in ) );
+      default:
+        throw new IOException( "Unknown session value type " + tag );
+    }
+  }
+
+  @SuppressWarnings( { "unchecked", "rawtypes" } )
+  private static Enum<?> readEnum( DataInputStream in ) throws IOException {
+    String className = readString( in );
+    String name = readString( in );
+    try {
+      Class<?> type = Class.forName( className, false, KnoxSessionCodec.class.getClassLoader() );
+      if( !type.isEnum() ) {
+        throw new IOException( "Not an enum: " + className );
+      }
+      return Enum.valueOf( (Class<? extends Enum>)type, name );
+    } catch( ClassNotFoundException | IllegalArgumentException e ) {
+      throw new IOException( "Cannot read enum " + className + "." + name, e );
+    }
+  }
+
+  private static DateTime readDateTime( DataInputStream in ) throws IOException {
+    long millis = in.readLong();
+    String zone = readString( in );
+    try {
+      return new DateTime( millis, DateTimeZone.forID( zone ) );
+    } catch( IllegalArgumentException e ) {
+      throw new IOException( "Cannot read date time in zone " + zone, e );
+    }
+  }
+
+  private AccessToken readAccessToken( DataInputStream in ) throws IOException {
+    String type = readString( in );
+    String value = readString( in );
+    long lifetime = in.readLong();
+    String scope = (String)readValue( in );
+    if( AccessTokenType.BEARER.getValue().equals( type ) ) {
+      return new BearerAccessToken( value, lifetime, Scope.parse( scope ) );
+    } else if( AccessTokenType.UNKNOWN.getValue().equals( type ) ) {
+      return new TypelessAccessToken( value );
+    } else {
+      throw new IOException( "Unsupported access token type " + type );
+    }
+  }
+
+  private void writeCollection( DataOutputStream out, Collection<?> values ) throws IOException {
+    out.writeInt( values.size() );
+    for( Object value : values ) {
+      writeValue( out, value );
+    }
+  }
+
+  private <C extends Collection<Object>> C readCollection( DataInputStream in, C values ) throws IOException {
+    int size = in.readInt();
+    for( int i = 0; i < size; i++ ) {
+      values.add( readValue( in ) );
+    }
+    return values;
+  }
+
+  private void writeMap( DataOutputStream out, Map<?,?> map ) throws IOException {
+    out.writeInt( map.size() );
+    for( Map.Entry<?,?> entry : map.entrySet() ) {
+      writeValue( out, entry.getKey() );
+      writeValue( out, entry.getValue() );
+    }
+  }
+
+  private Map<Object,Object> readMap( DataInputStream in ) throws IOException {
+    int size = in.readInt();
+    Map<Object,Object> map = new LinkedHashMap<>();
+    for( int i = 0; i < size; i++ ) {
+      Object key = readValue( in );
+      map.put( key, readValue( in ) );
+    }
+    return map;
+  }
+
+  private void writeProfile( DataOutputStream out, UserProfile profile ) throws IOException {
+    writeString( out, profile.getClass().getName() );
+    writeValue( out, profile.getId() );
+    writeValue( out, profile.getClientName() );
+    writeValue( out, profile.getLinkedId() );
+    out.writeBoolean( profile.isRemembered() );
+    writeCollection( out, profile.getRoles() );
+    writeCollection( out, profile.getPermissions() );
+    writeMap( out, profile.getAttributes() );
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private UserProfile readProfile( DataInputStream in ) throws IOException {
+    String className = readString( in );
+    UserProfile profile;
+    try {
+      Class<?> type = Class.forName( className, false, UserProfile.class.getClassLoader() );
+      if( !UserProfile.class.isAssignableFrom( type ) ) {
+        throw new IOException( "Not a user profile: " + className );
+      }
+      profile = (UserProfile)type.newInstance();
+    } catch( ReflectiveOperationException e ) {
+      throw new IOException( "Cannot create user profile " + className, e );
+    }
+    profile.setId( readValue( in ) );
+    profile.setClientName( (String)readValue( in ) );
+    profile.setLinkedId( (String)readValue( in ) );
+    profile.setRemembered( in.readBoolean() );
+    for( Object role : readCollection( in, new ArrayList<Object>() ) ) {
+      profile.addRole( (String)role );
+    }
+    for( Object permission : readCollection( in, new ArrayList<Object>() ) ) {
+      profile.addPermission( (String)permission );
+    }
+    for( Map.Entry<Object,Object> attribute : readMap( in ).entrySet() ) {
+      profile.addAttribute( (String)attribute.getKey(), attribute.getValue() );
+    }
+    return profile;
+  }
+
+  private static void writeString( DataOutputStream out, String value ) throws IOException {
+    byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+    out.writeInt( bytes.length );
+    out.write( bytes );
+  }
+
+  private static String readString( DataInputStream in ) throws IOException {
+    byte[] bytes = new byte[ in.readInt() ];
+    in.readFully( bytes );
+    return new String( bytes, StandardCharsets.UTF_8 );
+  }
+
+  private static byte[] associatedData( String name ) {
+    byte[] bytes = name.getBytes( StandardCharsets.UTF_8 );
+    byte[] data = new byte[ bytes.length + 1 ];
+    data[ 0 ] = VERSION;
+    System.arraycopy( bytes, 0, data, 1, bytes.length );
+    return data;
+  }
+
+  private static byte[] deflate( byte[] data ) {
+    Deflater deflater = new Deflater( Deflater.BEST_COMPRESSION );
+    try {
+      deflater.setInput( data );
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream( data.length );
+      byte[] buffer = new byte[ 1024 ];
+      while( !deflater.finished() ) {
+        out.write( buffer, 0, deflater.deflate( buffer ) );
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate( byte[] data ) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput( data );
+      ByteArrayOutputStream out = new ByteArrayOutputStream( data.length * 2 );
+      byte[] buffer = new byte[ 1024 ];
+      while( !inflater.finished() ) {
+        int count = inflater.inflate( buffer );
+        if( count == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) ) {
+          throw new IOException( "Truncated session value" );
+        }
+        out.write( buffer, 0, count );
+      }
+      return out.toByteArray();
+    } catch( DataFormatException e ) {
+      throw new IOException( e );
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static Cipher getCipher() throws GeneralSecurityException {
+    Cipher cipher = CIPHER.get();
+    if( cipher == null ) {
+      cipher = Cipher.getInstance( TRANSFORMATION );
+      CIPHER.set( cipher );
+    }
+    return cipher;
+  }
+
+}
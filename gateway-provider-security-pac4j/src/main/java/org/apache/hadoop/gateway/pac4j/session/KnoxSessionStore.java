@@ -18,24 +18,24 @@
 package org.apache.hadoop.gateway.pac4j.session;
 
 import org.apache.commons.codec.binary.Base64;
-import org.apache.hadoop.gateway.services.security.CryptoService;
-import org.apache.hadoop.gateway.services.security.EncryptionResult;
 import org.apache.hadoop.gateway.util.Urls;
 import org.pac4j.core.context.ContextHelper;
 import org.pac4j.core.context.Cookie;
 import org.pac4j.core.context.WebContext;
 import org.pac4j.core.context.session.SessionStore;
 import org.pac4j.core.exception.TechnicalException;
-import org.pac4j.core.util.JavaSerializationHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.Serializable;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.util.Map;
 
 /**
  * Specific session store where data are saved into cookies (and not in memory).
- * Each data is encrypted and base64 encoded before being saved as a cookie (for security reasons).
+ * Each data is encoded with the {@link KnoxSessionCodec}, which encrypts and authenticates it,
+ * before being saved as a cookie (for security reasons).  Cookies in any other format, such as
+ * the Java serialization based format used before, are ignored.
  *
  * @since 0.8.0
  */
@@ -47,18 +47,16 @@ public class KnoxSessionStore implements SessionStore {
 
     public static final String PAC4J_SESSION_PREFIX = "pac4j.session.";
 
-    private final JavaSerializationHelper javaSerializationHelper;
-
-    private final CryptoService cryptoService;
-
-    private final String clusterName;
+    private final KnoxSessionCodec codec;
 
     private final String domainSuffix;
 
-    public KnoxSessionStore(final CryptoService cryptoService, final String clusterName, final String domainSuffix) {
-        javaSerializationHelper = new JavaSerializationHelper();
-        this.cryptoService = cryptoService;
-        this.clusterName = clusterName;
+    public KnoxSessionStore(final String domainSuffix, final char[] password) {
+        try {
+            codec = new KnoxSessionCodec(password);
+        } catch (final GeneralSecurityException e) {
+            throw new TechnicalException(e);
+        }
         this.domainSuffix = domainSuffix;
     }
 
@@ -66,17 +64,12 @@ public class KnoxSessionStore implements SessionStore {
         return null;
     }
 
-    private Serializable decryptBase64(final String v) {
+    private Object decode(final String key, final String v) {
         if (v != null && v.length() > 0) {
-            byte[] bytes = Base64.decodeBase64(v);
-            EncryptionResult result = EncryptionResult.fromByteArray(bytes);
-            byte[] clear = cryptoService.decryptForCluster(this.clusterName,
-                    PAC4J_PASSWORD,
-                    result.cipher,
-                    result.iv,
-                    result.salt);
-            if (clear != null) {
-                return javaSerializationHelper.unserializeFromBytes(clear);
+            try {
+                return codec.decode(key, Base64.decodeBase64(v));
+            } catch (final IOException | GeneralSecurityException e) {
+                logger.debug("Ignoring session value that cannot be decoded: {}", key, e);
             }
         }
         return null;
@@ -86,26 +79,28 @@ public class KnoxSessionStore implements SessionStore {
         final Cookie cookie = ContextHelper.getCookie(context, PAC4J_SESSION_PREFIX + key);
         Object value = null;
         if (cookie != null) {
-            value = decryptBase64(cookie.getValue());
+            value = decode(key, cookie.getValue());
         }
         logger.debug("Get from session: {} = {}", key, value);
         return value;
     }
 
-    private String encryptBase64(final Object o) {
+    private String encode(final String key, final Object o) {
         if (o == null || o.equals("")
             || (o instanceof Map<?,?> && ((Map<?,?>)o).isEmpty())) {
             return null;
         } else {
-            final byte[] bytes = javaSerializationHelper.serializeToBytes((Serializable) o);
-            EncryptionResult result = cryptoService.encryptForCluster(this.clusterName, PAC4J_PASSWORD, bytes);
-            return Base64.encodeBase64String(result.toByteAray());
+            try {
+                return codec.encode(key, o);
+            } catch (final IOException | GeneralSecurityException e) {
+                throw new TechnicalException(e);
+            }
         }
     }
 
     public void set(WebContext context, String key, Object value) {
         logger.debug("Save in session: {} = {}", key, value);
-        final Cookie cookie = new Cookie(PAC4J_SESSION_PREFIX + key, encryptBase64(value));
+        final Cookie cookie = new Cookie(PAC4J_SESSION_PREFIX + key, encode(key, value));
         try {
             String domain = Urls.getDomainName(context.getFullRequestURL(), this.domainSuffix);
             if (domain == null) {
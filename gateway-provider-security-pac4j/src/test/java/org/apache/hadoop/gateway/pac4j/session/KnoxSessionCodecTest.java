@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.pac4j.session;
+
+import java.net.URI;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.crypto.AEADBadTagException;
+
+import org.apache.commons.codec.binary.Base64;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+import org.pac4j.core.profile.Color;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.profile.Gender;
+import org.pac4j.core.util.JavaSerializationHelper;
+import org.pac4j.oidc.profile.OidcProfile;
+import org.pac4j.saml.profile.SAML2Profile;
+
+import com.github.scribejava.core.model.OAuth1RequestToken;
+import com.nimbusds.oauth2.sdk.Scope;
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import com.nimbusds.oauth2.sdk.token.TypelessAccessToken;
+
+import static org.junit.Assert.*;
+
+public class KnoxSessionCodecTest {
+
+  private static final char[] PASSWORD = "pwdfortest".toCharArray();
+
+  @Test
+  public void testStringRoundTrip() throws Exception {
+    KnoxSessionCodec codec = new KnoxSessionCodec( PASSWORD );
+    String encoded = codec.encode( "pac4jRequestedUrl", "https://localhost:8443/gateway/sandbox/webhdfs/v1/tmp?op=LISTSTATUS" );
+    assertEquals( "https://localhost:8443/gateway/sandbox/webhdfs/v1/tmp?op=LISTSTATUS",
+        new KnoxSessionCodec( PASSWORD ).decode( "pac4jRequestedUrl", encoded ) );
+    assertFalse( encoded.equals( codec.encode( "pac4jRequestedUrl", "https://localhost:8443/gateway/sandbox/webhdfs/v1/tmp?op=LISTSTATUS" ) ) );
+  }
+
+  @Test
+  public void testProfilesRoundTrip() throws Exception {
+    CommonProfile profile = new CommonProfile();
+    profile.setId( "alice" );
+    profile.setClientName( "SAML2Client" );
+    profile.setRemembered( true );
+    profile.addRole( "admin" );
+    profile.addPermission( "read" );
+    profile.addAttribute( "email", "alice@example.com" );
+    profile.addAttribute( "groups", Arrays.asList( "analyst", "admin" ) );
+    profile.addAttribute( "authTime", new Date( 1000L ) );
+    profile.addAttribute( "count", 3 );
+    Map<String,CommonProfile> profiles = new LinkedHashMap<>();
+    profiles.put( "SAML2Client", profile );
+
+    KnoxSessionCodec codec = new KnoxSessionCodec( PASSWORD );
+    String encoded = codec.encode( "pac4jUserProfiles", profiles );
+    Map<?,?> decoded = (Map<?,?>)codec.decode( "pac4jUserProfiles", encoded );
+
+    CommonProfile copy = (CommonProfile)decoded.get( "SAML2Client" );
+    assertEquals( "alice", copy.getId() );
+    assertEquals( "SAML2Client", copy.getClientName() );
+    assertTrue( copy.isRemembered() );
+    assertEquals( profile.getRoles(), copy.getRoles() );
+    assertEquals( profile.getPermissions(), copy.getPermissions() );
+    assertEquals( "alice@example.com", copy.getEmail() );
+    assertEquals( Arrays.asList( "analyst", "admin" ), copy.getAttribute( "groups" ) );
+    assertEquals( new Date( 1000L ), copy.getAttribute( "authTime" ) );
+    assertEquals( 3, copy.getAttribute( "count" ) );
+
+    // The field by field encoding is smaller than the Java serialized form, even before encryption.
+    byte[] serialized = new JavaSerializationHelper().serializeToBytes( (java.io.Serializable)profiles );
+    assertTrue( Base64.decodeBase64( encoded ).length < serialized.length );
+  }
+
+  @Test
+  public void testAttributeTypesRoundTrip() throws Exception {
+    CommonProfile profile = new CommonProfile();
+    profile.setId( "alice" );
+    profile.addAttribute( "locale", Locale.CANADA_FRENCH );
+    profile.addAttribute( "profile_url", new URI( "https://example.com/alice" ) );
+    profile.addAttribute( "gender", Gender.FEMALE );
+    profile.addAttribute( "color", new Color( 1, 2, 3 ) );
+
+    KnoxSessionCodec codec = new KnoxSessionCodec( PASSWORD );
+    CommonProfile copy = (CommonProfile)codec.decode( "profile", codec.encode( "profile", profile ) );
+    assertEquals( Locale.CANADA_FRENCH, copy.getAttribute( "locale" ) );
+    assertEquals( new URI( "https://example.com/alice" ), copy.getAttribute( "profile_url" ) );
+    assertEquals( Gender.FEMALE, copy.getAttribute( "gender" ) );
+    assertEquals( "010203", copy.getAttribute( "color" ).toString() );
+
+    OAuth1RequestToken token = new OAuth1RequestToken( "token", "secret", true, "raw" );
+    OAuth1RequestToken tokenCopy = (OAuth1RequestToken)codec.decode( "requestToken", codec.encode( "requestToken", token ) );
+    assertEquals( token, tokenCopy );
+    assertEquals( "raw", tokenCopy.getRawResponse() );
+  }
+
+  @Test
+  public void testSAML2ProfileRoundTrip() throws Exception {
+    SAML2Profile profile = new SAML2Profile();
+    profile.setId( "alice" );
+    profile.setClientName( "SAML2Client" );
+    profile.addAttribute( "sessionindex", "_4e9ac7d5" );
+    profile.addAttribute( "notBefore", new DateTime( 1000L, DateTimeZone.UTC ) );
+    profile.addAttribute( "notOnOrAfter", new DateTime( 2000L, DateTimeZone.forID( "Europe/Paris" ) ) );
+    profile.addAttribute( "issued", new Timestamp( 3000L ) );
+    Map<String,CommonProfile> profiles = new LinkedHashMap<>();
+    profiles.put( "SAML2Client", profile );
+
+    KnoxSessionCodec codec = new KnoxSessionCodec( PASSWORD );
+    Map<?,?> decoded = (Map<?,?>)codec.decode( "pac4jUserProfiles", codec.encode( "pac4jUserProfiles", profiles ) );
+
+    SAML2Profile copy = (SAML2Profile)decoded.get( "SAML2Client" );
+    assertEquals( "alice", copy.getId() );
+    assertEquals( "_4e9ac7d5", copy.getSessionIndex() );
+    assertEquals( new DateTime( 1000L, DateTimeZone.UTC ), copy.getNotBefore() );
+    assertEquals( new DateTime( 2000L, DateTimeZone.forID( "Europe/Paris" ) ), copy.getNotOnOrAfter() );
+    assertEquals( new Date( 3000L ), copy.getAttribute( "issued" ) );
+  }
+
+  @Test
+  public void testOidcProfileRoundTrip() throws Exception {
+    OidcProfile profile = new OidcProfile();
+    profile.setId( "alice" );
+    profile.setClientName( "OidcClient" );
+    profile.setAccessToken( new BearerAccessToken( "access", 3600L, new Scope( "openid", "profile" ) ) );
+    profile.setRefreshToken( new RefreshToken( "refresh" ) );
+    profile.setIdTokenString( "header.payload.signature" );
+    profile.addAttribute( "picture", new URI( "https://example.com/alice.png" ) );
+    profile.addAttribute( "updated_at", new Date( 1000L ) );
+    Map<String,CommonProfile> profiles = new LinkedHashMap<>();
+    profiles.put( "OidcClient", profile );
+
+    KnoxSessionCodec codec = new KnoxSessionCodec( PASSWORD );
+    Map<?,?> decoded = (Map<?,?>)codec.decode( "pac4jUserProfiles", codec.encode( "pac4jUserProfiles", profiles ) );
+
+    OidcProfile copy = (OidcProfile)decoded.get( "OidcClient" );
+    assertEquals( "alice", copy.getId() );
+    assertEquals( profile.getAccessToken(), copy.getAccessToken() );
+    assertEquals( 3600L, copy.getAccessToken().getLifetime() );
+    assertEquals( new Scope( "openid", "profile" ), copy.getAccessToken().getScope() );
+    assertEquals( new RefreshToken( "refresh" ), copy.getRefreshToken() );
+    assertEquals( "header.payload.signature", copy.getIdTokenString() );
+    assertEquals( new URI( "https://example.com/alice.png" ), copy.getPictureUrl() );
+    assertEquals( new Date( 1000L ), copy.getUpdatedAt() );
+
+    profile.setAccessToken( new TypelessAccessToken( "typeless" ) );
+    copy = (OidcProfile)codec.decode( "profile", codec.encode( "profile", profile ) );
+    assertEquals( new TypelessAccessToken( "typeless" ), copy.getAccessToken() );
+  }
+
+  @Test
+  public void testLargeValuesAreDeflated() throws Exception {
+    StringBuilder value = new StringBuilder();
+    for( int i = 0; i < 200; i++ ) {
+      value.append( "attribute-value-" );
+    }
+    KnoxSessionCodec codec = new KnoxSessionCodec( PASSWORD );
+    String encoded = codec.encode( "key", value.toString() );
+    assertTrue( Base64.decodeBase64( encoded ).length < value.length() / 4 );
+    assertEquals( value.toString(), codec.decode( "key", encoded ) );
+  }
+
+  @Test
+  public void testValuesAreAuthenticated() throws Exception {
+    KnoxSessionCodec codec = new KnoxSessionCodec( PASSWORD );
+    String encoded = codec.encode( "pac4jRequestedUrl", "https://localhost:8443/" );
+
+    // A value can't be replayed under another name.
+    try {
+      codec.decode( "pac4jUserProfiles", encoded );
+      fail( "Expected AEADBadTagException" );
+    } catch( AEADBadTagException e ) {
+      // Expected.
+    }
+
+    byte[] bytes = Base64.decodeBase64( encoded );
+    bytes[ bytes.length - 1 ] ^= 1;
+    try {
+      codec.decode( "pac4jRequestedUrl", Base64.encodeBase64URLSafeString( bytes ) );
+      fail( "Expected AEADBadTagException" );
+    } catch( AEADBadTagException e ) {
+      // Expected.
+    }
+
+    try {
+      new KnoxSessionCodec( "otherpassword".toCharArray() ).decode( "pac4jRequestedUrl", encoded );
+      fail( "Expected AEADBadTagException" );
+    } catch( AEADBadTagException e ) {
+      // Expected.
+    }
+  }
+
+}
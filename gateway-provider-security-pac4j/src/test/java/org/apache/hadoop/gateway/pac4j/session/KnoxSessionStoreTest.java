@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.pac4j.session;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.hadoop.gateway.services.security.EncryptionResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.pac4j.core.context.Cookie;
+import org.pac4j.core.context.WebContext;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class KnoxSessionStoreTest {
+
+  private static final char[] PASSWORD = "pwdfortest".toCharArray();
+
+  private static boolean deserialized;
+
+  static class Canary implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException {
+      deserialized = true;
+      in.defaultReadObject();
+    }
+  }
+
+  @Before
+  public void setUp() {
+    deserialized = false;
+  }
+
+  @Test
+  public void testCodecCookieIsRead() throws Exception {
+    KnoxSessionStore store = new KnoxSessionStore( null, PASSWORD );
+    String value = new KnoxSessionCodec( PASSWORD ).encode( "pac4jRequestedUrl", "https://localhost:8443/" );
+    assertEquals( "https://localhost:8443/", store.get( context( "pac4jRequestedUrl", value ), "pac4jRequestedUrl" ) );
+  }
+
+  @Test
+  public void testLegacyCookieIsNotDeserialized() throws Exception {
+    byte[] legacy = new EncryptionResult( new byte[ 8 ], new byte[ 16 ], serializedCanary() ).toByteAray();
+    KnoxSessionStore store = new KnoxSessionStore( null, PASSWORD );
+    assertNull( store.get( context( "pac4jUserProfiles", Base64.encodeBase64String( legacy ) ), "pac4jUserProfiles" ) );
+    assertFalse( deserialized );
+  }
+
+  @Test
+  public void testForgedCookieIsNotDeserialized() throws Exception {
+    byte[] canary = serializedCanary();
+    byte[] forged = new byte[ 1 + 12 + canary.length ];
+    forged[ 0 ] = KnoxSessionCodec.VERSION;
+    System.arraycopy( canary, 0, forged, 13, canary.length );
+    KnoxSessionStore store = new KnoxSessionStore( null, PASSWORD );
+    assertNull( store.get( context( "pac4jUserProfiles", Base64.encodeBase64URLSafeString( forged ) ), "pac4jUserProfiles" ) );
+    assertFalse( deserialized );
+  }
+
+  @Test
+  public void testArbitrarySerializableValuesAreNotEncoded() throws Exception {
+    try {
+      new KnoxSessionCodec( PASSWORD ).encode( "key", Arrays.asList( new Canary() ) );
+      fail( "Expected IOException" );
+    } catch( IOException e ) {
+      // Expected.
+    }
+  }
+
+  private static WebContext context( String key, String value ) {
+    WebContext context = mock( WebContext.class );
+    when( context.getRequestCookies() ).thenReturn(
+        Collections.singletonList( new Cookie( KnoxSessionStore.PAC4J_SESSION_PREFIX + key, value ) ) );
+    return context;
+  }
+
+  private static byte[] serializedCanary() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try( ObjectOutputStream out = new ObjectOutputStream( bytes ) ) {
+      out.writeObject( new Canary() );
+    }
+    return bytes.toByteArray();
+  }
+
+}
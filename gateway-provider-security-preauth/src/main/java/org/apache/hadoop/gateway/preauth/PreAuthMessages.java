@@ -21,6 +21,21 @@ import org.apache.hadoop.gateway.i18n.messages.Message;
 import org.apache.hadoop.gateway.i18n.messages.MessageLevel;
 import org.apache.hadoop.gateway.i18n.messages.Messages;
 
-@Messages(logger="org.apache.hadoop.gateway.provider.global.csrf")
+@Messages(logger="org.apache.hadoop.gateway.provider.federation.preauth")
 public interface PreAuthMessages {
+
+  @Message(level = MessageLevel.DEBUG, text = "Missing the pre-authentication signature header {0}.")
+  void missingPreAuthSignature(String header);
+
+  @Message(level = MessageLevel.WARN, text = "Invalid pre-authentication signature.")
+  void invalidPreAuthSignature();
+
+  @Message(level = MessageLevel.WARN, text = "Expired pre-authentication signature with timestamp {0}.")
+  void expiredPreAuthSignature(long timestamp);
+
+  @Message(level = MessageLevel.ERROR, text = "No pre-authentication signature secret has been configured with alias {0}.")
+  void missingPreAuthSecret(String alias);
+
+  @Message(level = MessageLevel.ERROR, text = "Invalid pre-authentication signature skew {0} for {1}, expected a non-negative number of milliseconds.")
+  void invalidPreAuthMaxSkew(String skew, String param);
 }
@@ -0,0 +1,236 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.preauth.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.preauth.PreAuthMessages;
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.security.AliasService;
+import org.apache.hadoop.gateway.services.security.AliasServiceException;
+
+/**
+ * Validates that the asserted identity was signed by the trusted proxy with a secret shared
+ * with the gateway.
+ * <p>
+ * The proxy sends a signature header whose value is {@code <timestamp>:<signature>}, where the
+ * timestamp is the time of signing in milliseconds since the epoch and the signature is the
+ * Base64 encoded HMAC-SHA256 of the principal header value and the timestamp separated by a
+ * newline. When a group header is configured its value is appended to the signed content
+ * after another newline, so that the groups can't be changed either. The signature must be
+ * no older than the maximum skew.
+ * <p>
+ * The secret is read from the alias service, for the topology or else for the gateway, and
+ * kept for a minute so that a rotated secret is picked up without a redeployment.
+ */
+public class HmacValidator implements PreAuthValidator {
+  private static PreAuthMessages log = MessagesFactory.get(PreAuthMessages.class);
+
+  public static final String HMAC_VALIDATION_METHOD_VALUE = "preauth.hmac.validation";
+
+  public static final String SIGNATURE_HEADER_PARAM = "preauth.hmac.header";
+  public static final String DEFAULT_SIGNATURE_HEADER = "X-PreAuth-Signature";
+
+  public static final String SECRET_ALIAS_PARAM = "preauth.hmac.secret.alias";
+  public static final String DEFAULT_SECRET_ALIAS = "preauth.hmac.secret";
+
+  public static final String MAX_SKEW_PARAM = "preauth.hmac.max.skew";
+  public static final long DEFAULT_MAX_SKEW = 300000L;
+
+  static final String DEFAULT_PRINCIPAL_HEADER = "SM_USER";
+  static final String HMAC_ALGORITHM = "HmacSHA256";
+  static final long KEY_REFRESH_INTERVAL = 60000L;
+
+  private static final ThreadLocal<Mac> MAC = new ThreadLocal<Mac>() {
+    @Override
+    protected Mac initialValue() {
+      try {
+        return Mac.getInstance(HMAC_ALGORITHM);
+      } catch(GeneralSecurityException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  };
+
+  private final ConcurrentMap<String, CachedKey> keys = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Long> maxSkews = new ConcurrentHashMap<>();
+
+  public HmacValidator() {
+  }
+
+  /**
+   * @param httpRequest
+   * @param filterConfig
+   * @return true if validated, otherwise false
+   * @throws PreAuthValidationException
+   */
+  @Override
+  public boolean validate(HttpServletRequest httpRequest, FilterConfig filterConfig)
+      throws PreAuthValidationException {
+    String signatureHeader = getParam(filterConfig, SIGNATURE_HEADER_PARAM, DEFAULT_SIGNATURE_HEADER);
+    String value = httpRequest.getHeader(signatureHeader);
+    if(value == null) {
+      log.missingPreAuthSignature(signatureHeader);
+      return false;
+    }
+    int separator = value.indexOf(':');
+    long timestamp;
+    byte[] signature;
+    try {
+      timestamp = Long.parseLong(value.substring(0, Math.max(separator, 0)).trim());
+      signature = Base64.getDecoder().decode(value.substring(separator + 1).trim());
+    } catch(IllegalArgumentException e) {
+      log.invalidPreAuthSignature();
+      return false;
+    }
+
+    if(Math.abs(System.currentTimeMillis() - timestamp) > getMaxSkew(filterConfig)) {
+      log.expiredPreAuthSignature(timestamp);
+      return false;
+    }
+
+    String principal = httpRequest.getHeader(getParam(filterConfig,
+        HeaderPreAuthFederationFilter.CUSTOM_HEADER_PARAM, DEFAULT_PRINCIPAL_HEADER));
+    StringBuilder content = new StringBuilder();
+    content.append(principal == null ? "" : principal).append('\n').append(timestamp);
+    String groupHeader = filterConfig.getInitParameter(HeaderPreAuthFederationFilter.CUSTOM_GROUP_HEADER_PARAM);
+    if(groupHeader != null) {
+      String groups = httpRequest.getHeader(groupHeader);
+      content.append('\n').append(groups == null ? "" : groups);
+    }
+
+    Mac mac = MAC.get();
+    try {
+      mac.init(getKey(filterConfig));
+    } catch(GeneralSecurityException e) {
+      throw new PreAuthValidationException("Unable to initialize the signature verification", e);
+    }
+    byte[] expected = mac.doFinal(content.toString().getBytes(StandardCharsets.UTF_8));
+    if(!MessageDigest.isEqual(expected, signature)) {
+      log.invalidPreAuthSignature();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * The configured maximum skew is parsed the first time it is read and kept, so a malformed
+   * value is reported once rather than on every request. It still fails each validation.
+   */
+  private long getMaxSkew(FilterConfig filterConfig) throws PreAuthValidationException {
+    String skew = filterConfig.getInitParameter(MAX_SKEW_PARAM);
+    if(skew == null) {
+      return DEFAULT_MAX_SKEW;
+    }
+    Long maxSkew = maxSkews.get(skew);
+    if(maxSkew == null) {
+      try {
+        maxSkew = Long.parseLong(skew.trim());
+      } catch(NumberFormatException e) {
+        maxSkew = -1L;
+      }
+      if(maxSkew < 0) {
+        log.invalidPreAuthMaxSkew(skew, MAX_SKEW_PARAM);
+      }
+      maxSkews.put(skew, maxSkew);
+    }
+    if(maxSkew < 0) {
+      throw new PreAuthValidationException("Invalid value " + skew + " for " + MAX_SKEW_PARAM
+          + ", expected a non-negative number of milliseconds");
+    }
+    return maxSkew;
+  }
+
+  private SecretKeySpec getKey(FilterConfig filterConfig) throws PreAuthValidationException {
+    ServletContext context = filterConfig.getServletContext();
+    String cluster = context == null ? null : (String)context.getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE);
+    String alias = getParam(filterConfig, SECRET_ALIAS_PARAM, DEFAULT_SECRET_ALIAS);
+    String cacheKey = cluster + "/" + alias;
+    long now = System.currentTimeMillis();
+    CachedKey cached = keys.get(cacheKey);
+    if(cached == null || now - cached.loaded >= KEY_REFRESH_INTERVAL) {
+      cached = new CachedKey(loadSecret(context, cluster, alias), now);
+      keys.put(cacheKey, cached);
+    }
+    return cached.key;
+  }
+
+  private static SecretKeySpec loadSecret(ServletContext context, String cluster, String alias)
+      throws PreAuthValidationException {
+    GatewayServices services = context == null ? null :
+        (GatewayServices)context.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
+    AliasService aliasService = services == null ? null :
+        (AliasService)services.getService(GatewayServices.ALIAS_SERVICE);
+    if(aliasService == null) {
+      throw new PreAuthValidationException("The alias service is not available");
+    }
+    char[] secret = null;
+    try {
+      if(cluster != null) {
+        secret = aliasService.getPasswordFromAliasForCluster(cluster, alias);
+      }
+      if(secret == null) {
+        secret = aliasService.getPasswordFromAliasForGateway(alias);
+      }
+    } catch(AliasServiceException e) {
+      throw new PreAuthValidationException("Unable to read the signature secret", e);
+    }
+    if(secret == null || secret.length == 0) {
+      log.missingPreAuthSecret(alias);
+      throw new PreAuthValidationException("No signature secret has been configured with alias " + alias);
+    }
+    return new SecretKeySpec(new String(secret).getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+  }
+
+  private static String getParam(FilterConfig filterConfig, String name, String defaultValue) {
+    String value = filterConfig.getInitParameter(name);
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * Return unique validator name
+   *
+   * @return name of validator
+   */
+  @Override
+  public String getName() {
+    return HMAC_VALIDATION_METHOD_VALUE;
+  }
+
+  private static class CachedKey {
+    final SecretKeySpec key;
+    final long loaded;
+
+    CachedKey(SecretKeySpec key, long loaded) {
+      this.key = key;
+      this.loaded = loaded;
+    }
+  }
+}
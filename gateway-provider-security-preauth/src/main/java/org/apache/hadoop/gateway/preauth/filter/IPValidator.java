@@ -17,6 +17,9 @@
  */
 package org.apache.hadoop.gateway.preauth.filter;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import javax.servlet.FilterConfig;
 import javax.servlet.http.HttpServletRequest;
 
@@ -29,6 +32,14 @@ public class IPValidator implements PreAuthValidator {
   public static final String IP_ADDRESSES_PARAM = "preauth.ip.addresses";
   public static final String IP_VALIDATION_METHOD_VALUE = "preauth.ip.validation";
 
+  private static final IpAddressValidator ANY_IP = new IpAddressValidator(null);
+
+  /**
+   * The validators compiled from each configured address list, so that a request is only
+   * looked up in the address trie rather than the list being parsed again.
+   */
+  private final ConcurrentMap<String, IpAddressValidator> ipValidators = new ConcurrentHashMap<>();
+
   public IPValidator() {
   }
 
@@ -42,7 +53,17 @@ public class IPValidator implements PreAuthValidator {
   public boolean validate(HttpServletRequest httpRequest, FilterConfig filterConfig)
       throws PreAuthValidationException {
     String ipParam = filterConfig.getInitParameter(IP_ADDRESSES_PARAM);
-    IpAddressValidator ipv = new IpAddressValidator(ipParam);
+    IpAddressValidator ipv = ANY_IP;
+    if (ipParam != null) {
+      ipv = ipValidators.get(ipParam);
+      if (ipv == null) {
+        ipv = new IpAddressValidator(ipParam);
+        IpAddressValidator existing = ipValidators.putIfAbsent(ipParam, ipv);
+        if (existing != null) {
+          ipv = existing;
+        }
+      }
+    }
     return ipv.validateIpAddress(httpRequest.getRemoteAddr());
   }
 
@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.provider.federation;
+
+import org.apache.hadoop.gateway.preauth.filter.HeaderPreAuthFederationFilter;
+import org.apache.hadoop.gateway.preauth.filter.HmacValidator;
+import org.apache.hadoop.gateway.preauth.filter.IPValidator;
+import org.apache.hadoop.gateway.preauth.filter.PreAuthService;
+import org.apache.hadoop.gateway.preauth.filter.PreAuthValidationException;
+import org.apache.hadoop.gateway.preauth.filter.PreAuthValidator;
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.security.AliasService;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HmacValidatorTest extends org.junit.Assert {
+
+  private static final String SECRET = "preauth-secret";
+
+  private FilterConfig filterConfig;
+
+  @Before
+  public void setup() throws Exception {
+    AliasService aliasService = mock(AliasService.class);
+    when(aliasService.getPasswordFromAliasForCluster("sandbox", HmacValidator.DEFAULT_SECRET_ALIAS))
+        .thenReturn(SECRET.toCharArray());
+    GatewayServices services = mock(GatewayServices.class);
+    when(services.getService(GatewayServices.ALIAS_SERVICE)).thenReturn(aliasService);
+    ServletContext context = mock(ServletContext.class);
+    when(context.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE)).thenReturn(services);
+    when(context.getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE)).thenReturn("sandbox");
+    filterConfig = mock(FilterConfig.class);
+    when(filterConfig.getServletContext()).thenReturn(context);
+  }
+
+  private static String sign(String content) throws Exception {
+    Mac mac = Mac.getInstance("HmacSHA256");
+    mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+    return Base64.getEncoder().encodeToString(mac.doFinal(content.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static HttpServletRequest createRequest(String principal, String signature) {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getHeader("SM_USER")).thenReturn(principal);
+    when(request.getHeader(HmacValidator.DEFAULT_SIGNATURE_HEADER)).thenReturn(signature);
+    return request;
+  }
+
+  @Test
+  public void testName() {
+    assertEquals(new HmacValidator().getName(), HmacValidator.HMAC_VALIDATION_METHOD_VALUE);
+    assertNotNull(PreAuthService.getValidatorMap().get(HmacValidator.HMAC_VALIDATION_METHOD_VALUE));
+  }
+
+  @Test
+  public void testSignedPrincipal() throws Exception {
+    HmacValidator validator = new HmacValidator();
+    long now = System.currentTimeMillis();
+    String signature = now + ":" + sign("alice\n" + now);
+    assertTrue(validator.validate(createRequest("alice", signature), filterConfig));
+    // The signature doesn't hold for another principal.
+    assertFalse(validator.validate(createRequest("bob", signature), filterConfig));
+  }
+
+  @Test
+  public void testMissingOrMalformedSignature() throws Exception {
+    HmacValidator validator = new HmacValidator();
+    long now = System.currentTimeMillis();
+    assertFalse(validator.validate(createRequest("alice", null), filterConfig));
+    assertFalse(validator.validate(createRequest("alice", sign("alice\n" + now)), filterConfig));
+    assertFalse(validator.validate(createRequest("alice", now + ":not base64!"), filterConfig));
+    assertFalse(validator.validate(createRequest("alice", now + ":" + sign("alice\n" + (now + 1))), filterConfig));
+  }
+
+  @Test
+  public void testExpiredSignature() throws Exception {
+    HmacValidator validator = new HmacValidator();
+    long then = System.currentTimeMillis() - HmacValidator.DEFAULT_MAX_SKEW - 1000;
+    assertFalse(validator.validate(createRequest("alice", then + ":" + sign("alice\n" + then)), filterConfig));
+
+    when(filterConfig.getInitParameter(HmacValidator.MAX_SKEW_PARAM)).thenReturn("600000");
+    assertTrue(validator.validate(createRequest("alice", then + ":" + sign("alice\n" + then)), filterConfig));
+  }
+
+  @Test
+  public void testSignedGroups() throws Exception {
+    when(filterConfig.getInitParameter("preauth.custom.group.header")).thenReturn("SM_GROUPS");
+    HmacValidator validator = new HmacValidator();
+    long now = System.currentTimeMillis();
+    String signature = now + ":" + sign("alice\n" + now + "\nusers,admins");
+
+    HttpServletRequest request = createRequest("alice", signature);
+    when(request.getHeader("SM_GROUPS")).thenReturn("users,admins");
+    assertTrue(validator.validate(request, filterConfig));
+
+    request = createRequest("alice", signature);
+    when(request.getHeader("SM_GROUPS")).thenReturn("users,admins,root");
+    assertFalse(validator.validate(request, filterConfig));
+  }
+
+  @Test
+  public void testInvalidMaxSkew() throws Exception {
+    HmacValidator validator = new HmacValidator();
+    long now = System.currentTimeMillis();
+    for(String skew : new String[] {"five minutes", "-1"}) {
+      when(filterConfig.getInitParameter(HmacValidator.MAX_SKEW_PARAM)).thenReturn(skew);
+      // The value is only parsed once, every later request is refused in the same way.
+      for(int i = 0; i < 2; i++) {
+        try {
+          validator.validate(createRequest("alice", now + ":" + sign("alice\n" + now)), filterConfig);
+          fail("Expected a PreAuthValidationException for skew " + skew);
+        } catch(PreAuthValidationException e) {
+          assertTrue(e.getMessage().contains(HmacValidator.MAX_SKEW_PARAM));
+        }
+      }
+    }
+  }
+
+  @Test(expected = PreAuthValidationException.class)
+  public void testMissingSecret() throws Exception {
+    when(filterConfig.getInitParameter(HmacValidator.SECRET_ALIAS_PARAM)).thenReturn("unknown.alias");
+    long now = System.currentTimeMillis();
+    new HmacValidator().validate(createRequest("alice", now + ":" + sign("alice\n" + now)), filterConfig);
+  }
+
+  @Test
+  public void testTrustedProxyChain() throws Exception {
+    when(filterConfig.getInitParameter(PreAuthService.VALIDATION_METHOD_PARAM))
+        .thenReturn(IPValidator.IP_VALIDATION_METHOD_VALUE + "," + HmacValidator.HMAC_VALIDATION_METHOD_VALUE);
+    when(filterConfig.getInitParameter(IPValidator.IP_ADDRESSES_PARAM)).thenReturn("10.1.0.0/16");
+    HeaderPreAuthFederationFilter filter = new HeaderPreAuthFederationFilter();
+    filter.init(filterConfig);
+    List<PreAuthValidator> validators = filter.getValidators();
+    assertEquals(validators.size(), 2);
+
+    long now = System.currentTimeMillis();
+    HttpServletRequest request = createRequest("alice", now + ":" + sign("alice\n" + now));
+    when(request.getRemoteAddr()).thenReturn("10.1.23.42");
+    assertTrue(PreAuthService.validate(request, filterConfig, validators));
+
+    when(request.getRemoteAddr()).thenReturn("10.2.23.42");
+    assertFalse(PreAuthService.validate(request, filterConfig, validators));
+  }
+}
@@ -56,5 +56,28 @@ public class IPValidatorTest extends org.junit.Assert {
     assertFalse(ipv.validate(request, filterConfig));
   }
 
+  @Test
+  public void testIPAddressRanges() throws PreAuthValidationException {
+    IPValidator ipv = new IPValidator();
+    final HttpServletRequest request = mock(HttpServletRequest.class);
+    final FilterConfig filterConfig = mock(FilterConfig.class);
+    when(filterConfig.getInitParameter(IPValidator.IP_ADDRESSES_PARAM)).thenReturn("10.1.0.0/16,192.168.*");
+    when(request.getRemoteAddr()).thenReturn("10.1.23.42");
+    assertTrue(ipv.validate(request, filterConfig));
+    when(request.getRemoteAddr()).thenReturn("192.168.1.1");
+    assertTrue(ipv.validate(request, filterConfig));
+    when(request.getRemoteAddr()).thenReturn("10.2.23.42");
+    assertFalse(ipv.validate(request, filterConfig));
+
+    // Another configuration sharing the validator has its own addresses.
+    final FilterConfig otherConfig = mock(FilterConfig.class);
+    when(otherConfig.getInitParameter(IPValidator.IP_ADDRESSES_PARAM)).thenReturn("10.2.0.0/16");
+    assertTrue(ipv.validate(request, otherConfig));
+    assertFalse(ipv.validate(request, filterConfig));
+
+    // No addresses allows any address.
+    assertTrue(ipv.validate(request, mock(FilterConfig.class)));
+  }
+
 
 }
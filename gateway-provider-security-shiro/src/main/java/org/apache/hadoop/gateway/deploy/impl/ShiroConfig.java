@@ -17,6 +17,9 @@
  */
 package org.apache.hadoop.gateway.deploy.impl;
 
+import org.apache.hadoop.gateway.shirorealm.DisabledRememberMeManager;
+import org.apache.hadoop.gateway.shirorealm.KnoxCacheManager;
+import org.apache.hadoop.gateway.shirorealm.KnoxLdapRealm;
 import org.apache.hadoop.gateway.topology.Provider;
 
 import java.util.LinkedHashMap;
@@ -24,11 +27,18 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 public class ShiroConfig {
-  
+
+  static final String SESSION_MODE = "sessionMode";
+  static final String STATELESS_SESSION_MODE = "stateless";
+  private static final String MAIN_SECTION = "main";
+  private static final String URLS_SECTION = "urls";
+  private static final String NO_SESSION_CREATION_FILTER = "noSessionCreation";
+
   private Map<String, Map<String, String>> sections = new LinkedHashMap<String, Map<String, String>>();
  
   public ShiroConfig(Provider provider, String clusterName) {
     Map<String, String> params = provider.getParams();
+    boolean stateless = isStateless(provider);
     String name = null;
     String sectionName = null;
     String value = null;
@@ -42,11 +52,53 @@ public class ShiroConfig {
           String baseName = name.substring(0, name.lastIndexOf("."));
           addNameValueToSection(baseName + ".clusterName", clusterName, sectionName);
           addNameValueToSection(name, "S" + value.substring(1), sectionName);
+        } else if (stateless && URLS_SECTION.equals(sectionName)) {
+          addNameValueToSection(name, noSessionCreation(value), sectionName);
         } else {
           addNameValueToSection(name, value, sectionName);
+          // Cache managers are namespaced by topology unless configured otherwise.
+          if (KnoxCacheManager.class.getName().equals(value)
+              && !params.containsKey(entry.getKey() + ".clusterName")) {
+            addNameValueToSection(name + ".clusterName", clusterName, sectionName);
+          }
+          // Without a session every request is authenticated so the bind results are cached.
+          if (stateless && KnoxLdapRealm.class.getName().equals(value)
+              && !params.containsKey(entry.getKey() + ".authenticationResultCacheEnabled")) {
+            addNameValueToSection(name + ".authenticationResultCacheEnabled", "true", sectionName);
+          }
         }
       }
     }
+    if (stateless) {
+      // Neither the subject nor a remember me cookie are kept between requests.
+      addDefaultToSection(params, "securityManager.subjectDAO.sessionStorageEvaluator.sessionStorageEnabled", "false", MAIN_SECTION);
+      addDefaultToSection(params, "rememberMeManager", DisabledRememberMeManager.class.getName(), MAIN_SECTION);
+      addDefaultToSection(params, "securityManager.rememberMeManager", "$rememberMeManager", MAIN_SECTION);
+    }
+  }
+
+  /**
+   * Determines if the provider is configured to authenticate every request without
+   * creating HTTP sessions or remember me cookies.
+   */
+  static boolean isStateless(Provider provider) {
+    String mode = provider.getParams().get(SESSION_MODE);
+    return mode != null && STATELESS_SESSION_MODE.equalsIgnoreCase(mode.trim());
+  }
+
+  private static String noSessionCreation(String filters) {
+    for (String filter : filters.split(",")) {
+      if (NO_SESSION_CREATION_FILTER.equals(filter.trim())) {
+        return filters;
+      }
+    }
+    return NO_SESSION_CREATION_FILTER + ", " + filters;
+  }
+
+  private void addDefaultToSection(Map<String, String> params, String name, String value, String sectionName) {
+    if (!params.containsKey(sectionName + "." + name)) {
+      addNameValueToSection(name, value, sectionName);
+    }
   }
 
   private void addNameValueToSection(String name, String value, String sectionName) {
@@ -68,21 +68,23 @@ public class ShiroDeploymentContributor extends ProviderDeploymentContributorBas
     // add servletContextListener
     context.getWebAppDescriptor().createListener().listenerClass( LISTENER_CLASSNAME );
 
-    // add session timeout
-    int st = DEFAULT_SESSION_TIMEOUT;
-    SessionConfigType<WebAppDescriptor> sessionConfig = context.getWebAppDescriptor().createSessionConfig();
-    Map<String, String> params = provider.getParams();
-    String sts = params.get( SESSION_TIMEOUT );
-    if( sts != null && sts.trim().length() != 0 ) {
-      st = Integer.parseInt( sts.trim() );
+    // add session timeout, stateless topologies never create a session
+    if( !ShiroConfig.isStateless( provider ) ) {
+      int st = DEFAULT_SESSION_TIMEOUT;
+      SessionConfigType<WebAppDescriptor> sessionConfig = context.getWebAppDescriptor().createSessionConfig();
+      Map<String, String> params = provider.getParams();
+      String sts = params.get( SESSION_TIMEOUT );
+      if( sts != null && sts.trim().length() != 0 ) {
+        st = Integer.parseInt( sts.trim() );
+      }
+      if( st <= 0 ) {
+        // user default session timeout
+        st = DEFAULT_SESSION_TIMEOUT;
+      }
+      sessionConfig.sessionTimeout( st );
+      sessionConfig.getOrCreateCookieConfig().httpOnly( true );
+      sessionConfig.getOrCreateCookieConfig().secure( true );
     }
-    if( st <= 0 ) {
-      // user default session timeout
-      st = DEFAULT_SESSION_TIMEOUT;
-    }
-    sessionConfig.sessionTimeout( st );
-    sessionConfig.getOrCreateCookieConfig().httpOnly( true );
-    sessionConfig.getOrCreateCookieConfig().secure( true );
 
     String clusterName = context.getTopology().getName();
     ShiroConfig config = new ShiroConfig( provider, clusterName );
@@ -40,7 +40,9 @@ import org.apache.hadoop.gateway.audit.api.ResourceType;
 import org.apache.hadoop.gateway.audit.log4j.audit.AuditConstants;
 import org.apache.hadoop.gateway.security.GroupPrincipal;
 import org.apache.hadoop.gateway.security.PrimaryPrincipal;
+import org.apache.hadoop.gateway.shirorealm.UnixUserPrincipal;
 import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.session.Session;
 import org.apache.shiro.subject.Subject;
 
 public class ShiroSubjectIdentityAdapter implements Filter {
@@ -109,8 +111,10 @@ public class ShiroSubjectIdentityAdapter implements Filter {
 
       Set<String> userGroups = null;
       // map ldap groups saved in session to Java Subject GroupPrincipal(s)
-      if (SecurityUtils.getSubject().getSession().getAttribute(SUBJECT_USER_GROUPS) != null) {
-        userGroups = (Set<String>)SecurityUtils.getSubject().getSession().getAttribute(SUBJECT_USER_GROUPS);
+      // the session isn't created here so that stateless topologies don't get one
+      Session session = SecurityUtils.getSubject().getSession(false);
+      if (session != null && session.getAttribute(SUBJECT_USER_GROUPS) != null) {
+        userGroups = (Set<String>)session.getAttribute(SUBJECT_USER_GROUPS);
       } else { // KnoxLdapRealm case
         if(  shiroSubject.getPrincipal() instanceof String ) { 
            userGroups = new HashSet<>(shiroSubject.getPrincipals().asSet());
@@ -122,7 +126,11 @@ public class ShiroSubjectIdentityAdapter implements Filter {
                                                // In the case of LDAP the userGroup may have already Principal
                                                // added to the list of groups, so it is not needed.
            for( Principal shiroPrincipal: shiroPrincipals ) {
-                userGroups.add(shiroPrincipal.toString() );
+                if( shiroPrincipal instanceof UnixUserPrincipal ) {
+                  userGroups.addAll(((UnixUserPrincipal)shiroPrincipal).getUnixUser().getGroups());
+                } else {
+                  userGroups.add(shiroPrincipal.toString() );
+                }
            }
         }
       }
@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.shirorealm;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.mgt.RememberMeManager;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.subject.SubjectContext;
+
+/**
+ * A {@link RememberMeManager} that never remembers an identity.  Unlike the default cookie
+ * based manager it doesn't write a cookie to forget the identity after every login, which
+ * is used by stateless topologies where each request is authenticated.
+ */
+public class DisabledRememberMeManager implements RememberMeManager {
+
+  @Override
+  public PrincipalCollection getRememberedPrincipals( SubjectContext subjectContext ) {
+    return null;
+  }
+
+  @Override
+  public void forgetIdentity( SubjectContext subjectContext ) {
+  }
+
+  @Override
+  public void onSuccessfulLogin( Subject subject, AuthenticationToken token, AuthenticationInfo info ) {
+  }
+
+  @Override
+  public void onFailedLogin( Subject subject, AuthenticationToken token, AuthenticationException ae ) {
+  }
+
+  @Override
+  public void onLogout( Subject subject ) {
+  }
+
+}
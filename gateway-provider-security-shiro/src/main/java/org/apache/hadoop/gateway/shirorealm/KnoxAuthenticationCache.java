@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.shirorealm;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.hadoop.gateway.util.BoundedCache;
+
+/**
+ * A short lived cache of successful authentications so that clients sending the same
+ * credentials on every request don't cause a directory bind per request.
+ * <p>
+ * Credentials are never stored.  Each entry holds an HMAC-SHA256 of the principal and
+ * credentials keyed with a random secret generated when the cache is created, so the
+ * entries can't be used to recover or brute force the credentials without that secret.
+ * Entries are removed when a bind for the same principal fails.
+ */
+public class KnoxAuthenticationCache {
+
+  private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+  private final SecretKeySpec key;
+  private final BoundedCache<String,byte[]> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public KnoxAuthenticationCache( int maxSize, long ttl ) {
+    this.entries = new BoundedCache<>( maxSize, ttl );
+    byte[] secret = new byte[ 32 ];
+    new SecureRandom().nextBytes( secret );
+    this.key = new SecretKeySpec( secret, HMAC_ALGORITHM );
+  }
+
+  /**
+   * Determines if the principal was recently authenticated with the same credentials.
+   */
+  public boolean isAuthenticated( String principal, byte[] credentials ) {
+    if( principal == null || credentials == null || credentials.length == 0 ) {
+      return false;
+    }
+    byte[] digest = entries.get( principal );
+    if( digest != null && MessageDigest.isEqual( digest, digest( principal, credentials ) ) ) {
+      hits.incrementAndGet();
+      return true;
+    }
+    misses.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Records that the principal was successfully authenticated with the credentials.
+   */
+  public void authenticated( String principal, byte[] credentials ) {
+    if( principal == null || credentials == null || credentials.length == 0 ) {
+      return;
+    }
+    entries.put( principal, digest( principal, credentials ) );
+  }
+
+  public void invalidate( String principal ) {
+    entries.remove( principal );
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  private byte[] digest( String principal, byte[] credentials ) {
+    try {
+      Mac mac = Mac.getInstance( HMAC_ALGORITHM );
+      mac.init( key );
+      mac.update( principal.getBytes( StandardCharsets.UTF_8 ) );
+      mac.update( (byte)0 );
+      return mac.doFinal( credentials );
+    } catch( GeneralSecurityException e ) {
+      throw new IllegalStateException( e );
+    }
+  }
+
+}
@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.shirorealm;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.gateway.util.BoundedCache;
+import org.apache.shiro.cache.Cache;
+
+/**
+ * A bounded Shiro cache backed by a {@link BoundedCache}.
+ * <p>
+ * Entries expire a fixed time after they were added (time to live) and after they have
+ * not been read for a while (time to idle); a value of zero or less disables either check.
+ * Once the cache holds the maximum number of entries the least recently used entry is dropped.
+ */
+public class KnoxCache<K,V> implements Cache<K,V> {
+
+  public static final String[] METRICS = { "size", "hits", "misses", "evictions", "expirations" };
+
+  private final String name;
+  private final BoundedCache<K,V> entries;
+
+  public KnoxCache( String name, int maxEntries, long timeToLive, long timeToIdle ) {
+    this.name = name;
+    this.entries = new BoundedCache<>( Math.max( 1, maxEntries ), timeToLive, timeToIdle );
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getMaxEntries() {
+    return entries.getMaxSize();
+  }
+
+  public long getTimeToLive() {
+    return entries.getTimeToLive();
+  }
+
+  public long getTimeToIdle() {
+    return entries.getTimeToIdle();
+  }
+
+  @Override
+  public V get( K key ) {
+    return key == null ? null : entries.get( key );
+  }
+
+  @Override
+  public V put( K key, V value ) {
+    return key == null ? null : entries.put( key, value );
+  }
+
+  @Override
+  public V remove( K key ) {
+    return key == null ? null : entries.remove( key );
+  }
+
+  @Override
+  public void clear() {
+    entries.clear();
+  }
+
+  @Override
+  public int size() {
+    return entries.size();
+  }
+
+  @Override
+  public Set<K> keys() {
+    return entries.keys();
+  }
+
+  @Override
+  public Collection<V> values() {
+    return entries.values();
+  }
+
+  public long getHitCount() {
+    return entries.getHitCount();
+  }
+
+  public long getMissCount() {
+    return entries.getMissCount();
+  }
+
+  public long getEvictionCount() {
+    return entries.getEvictionCount();
+  }
+
+  public long getExpirationCount() {
+    return entries.getExpirationCount();
+  }
+
+  /**
+   * Returns the value of one of the {@link #METRICS}, or null if there is no such metric.
+   */
+  public Number getMetric( String metric ) {
+    switch( metric ) {
+      case "size":
+        return size();
+      case "hits":
+        return getHitCount();
+      case "misses":
+        return getMissCount();
+      case "evictions":
+        return getEvictionCount();
+      case "expirations":
+        return getExpirationCount();
+      default:
+        return null;
+    }
+  }
+
+  public Map<String,Number> getMetrics() {
+    Map<String,Number> metrics = new LinkedHashMap<>();
+    for( String metric : METRICS ) {
+      metrics.put( metric, getMetric( metric ) );
+    }
+    return metrics;
+  }
+
+  @Override
+  public String toString() {
+    return "KnoxCache [" + name + "]";
+  }
+
+}
@@ -6,9 +6,9 @@
  * to you under the Apache License, Version 2.0 (the
  * "License"); you may not use this file except in compliance
  * with the License.  You may obtain a copy of the License at
- * <p>
- * http://www.apache.org/licenses/LICENSE-2.0
- * <p>
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -17,11 +17,201 @@
  */
 package org.apache.hadoop.gateway.shirorealm;
 
-import org.apache.shiro.cache.ehcache.EhCacheManager;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.metrics.impl.DefaultMetricsService;
+import org.apache.hadoop.gateway.shirorealm.impl.i18n.KnoxShiroMessages;
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.cache.CacheException;
+import org.apache.shiro.cache.CacheManager;
+import org.apache.shiro.util.Destroyable;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Shiro cache manager creating bounded {@link KnoxCache} instances.
+ * <p>
+ * Each topology gets its own manager and the caches it creates are published to the gateway
+ * metrics registry as <tt>shiro.cache.&lt;topology&gt;.&lt;cache&gt;.&lt;metric&gt;</tt>.
+ * The limits apply to every cache and can be overridden for individual caches with a comma
+ * separated list of <tt>cache:value</tt> pairs, where the cache is either the full cache name
+ * or its last segment, such as <tt>authorizationCache</tt>.  Times are in milliseconds and a
+ * time of zero disables the check.
+ * <pre>
+ * main.cacheManager=org.apache.hadoop.gateway.shirorealm.KnoxCacheManager
+ * main.cacheManager.maxEntries=10000
+ * main.cacheManager.timeToLive=120000
+ * main.cacheManager.timeToIdle=120000
+ * main.cacheManager.cacheMaxEntries=authenticationCache:1000
+ * main.cacheManager.cacheTimeToLive=authorizationCache:600000
+ * main.securityManager.cacheManager=$cacheManager
+ * </pre>
+ */
+public class KnoxCacheManager implements CacheManager, Destroyable {
+
+  private static final KnoxShiroMessages LOG = MessagesFactory.get( KnoxShiroMessages.class );
+
+  private static final String METRICS_PREFIX = "shiro.cache";
+
+  private String clusterName = "";
+  private int maxEntries = 10000;
+  private long timeToLive = 120000;
+  private long timeToIdle = 120000;
+  private Map<String,Long> cacheMaxEntries = Collections.emptyMap();
+  private Map<String,Long> cacheTimeToLive = Collections.emptyMap();
+  private Map<String,Long> cacheTimeToIdle = Collections.emptyMap();
+
+  private final ConcurrentMap<String,KnoxCache<?,?>> caches = new ConcurrentHashMap<>();
+
+  @Override
+  @SuppressWarnings( "unchecked" )
+  public <K,V> Cache<K,V> getCache( String name ) throws CacheException {
+    if( name == null || name.trim().isEmpty() ) {
+      throw new IllegalArgumentException( "Cache name cannot be null or empty." );
+    }
+    KnoxCache<?,?> cache = caches.get( name );
+    if( cache == null ) {
+      KnoxCache<?,?> created = new KnoxCache<>( name,
+          (int)setting( cacheMaxEntries, name, maxEntries ),
+          setting( cacheTimeToLive, name, timeToLive ),
+          setting( cacheTimeToIdle, name, timeToIdle ) );
+      cache = caches.putIfAbsent( name, created );
+      if( cache == null ) {
+        cache = created;
+        registerMetrics( created );
+      }
+    }
+    return (Cache<K,V>)cache;
+  }
+
+  /**
+   * Returns the counters of the caches created by this manager, keyed by cache name.
+   */
+  public Map<String,Map<String,Number>> getCacheMetrics() {
+    Map<String,Map<String,Number>> metrics = new LinkedHashMap<>();
+    for( KnoxCache<?,?> cache : caches.values() ) {
+      metrics.put( cache.getName(), cache.getMetrics() );
+    }
+    return metrics;
+  }
+
+  @Override
+  public void destroy() {
+    MetricRegistry registry = DefaultMetricsService.getMetricRegistry();
+    for( KnoxCache<?,?> cache : caches.values() ) {
+      for( String metric : KnoxCache.METRICS ) {
+        registry.remove( metricName( cache, metric ) );
+      }
+      cache.clear();
+    }
+    caches.clear();
+  }
+
+  public String getClusterName() {
+    return clusterName;
+  }
+
+  public void setClusterName( String clusterName ) {
+    if( clusterName != null ) {
+      this.clusterName = clusterName.trim();
+    }
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public void setMaxEntries( int maxEntries ) {
+    this.maxEntries = maxEntries;
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  public void setTimeToLive( long timeToLive ) {
+    this.timeToLive = timeToLive;
+  }
+
+  public long getTimeToIdle() {
+    return timeToIdle;
+  }
+
+  public void setTimeToIdle( long timeToIdle ) {
+    this.timeToIdle = timeToIdle;
+  }
+
+  public void setCacheMaxEntries( String cacheMaxEntries ) {
+    this.cacheMaxEntries = parseSettings( cacheMaxEntries );
+  }
+
+  public void setCacheTimeToLive( String cacheTimeToLive ) {
+    this.cacheTimeToLive = parseSettings( cacheTimeToLive );
+  }
+
+  public void setCacheTimeToIdle( String cacheTimeToIdle ) {
+    this.cacheTimeToIdle = parseSettings( cacheTimeToIdle );
+  }
+
+  /**
+   * Accepted so that topologies written for the former EhCache based manager still load.
+   *
+   * @deprecated the ehcache configuration file is ignored, use the limits of this manager or
+   * set main.cacheManager to org.apache.shiro.cache.ehcache.EhCacheManager
+   */
+  @Deprecated
+  public void setCacheManagerConfigFile( String cacheManagerConfigFile ) {
+    LOG.ignoredCacheManagerConfigFile( cacheManagerConfigFile );
+  }
+
+  private void registerMetrics( final KnoxCache<?,?> cache ) {
+    MetricRegistry registry = DefaultMetricsService.getMetricRegistry();
+    for( final String metric : KnoxCache.METRICS ) {
+      String name = metricName( cache, metric );
+      registry.remove( name );
+      registry.register( name, new Gauge<Number>() {
+        @Override
+        public Number getValue() {
+          return cache.getMetric( metric );
+        }
+      } );
+    }
+  }
+
+  private String metricName( KnoxCache<?,?> cache, String metric ) {
+    return MetricRegistry.name( METRICS_PREFIX, clusterName.isEmpty() ? "default" : clusterName, cache.getName(), metric );
+  }
 
-public class KnoxCacheManager extends EhCacheManager {
+  private static long setting( Map<String,Long> overrides, String cacheName, long defaultValue ) {
+    Long value = overrides.get( cacheName );
+    if( value == null ) {
+      value = overrides.get( cacheName.substring( cacheName.lastIndexOf( '.' ) + 1 ) );
+    }
+    return value == null ? defaultValue : value;
+  }
 
-  public KnoxCacheManager() {
-    setCacheManager(net.sf.ehcache.CacheManager.create());
+  private static Map<String,Long> parseSettings( String settings ) {
+    Map<String,Long> map = new LinkedHashMap<>();
+    if( settings != null ) {
+      for( String setting : settings.split( "," ) ) {
+        setting = setting.trim();
+        if( setting.isEmpty() ) {
+          continue;
+        }
+        int colon = setting.lastIndexOf( ':' );
+        if( colon <= 0 ) {
+          throw new IllegalArgumentException( "Invalid cache setting, expected cache:value: " + setting );
+        }
+        map.put( setting.substring( 0, colon ).trim(), Long.parseLong( setting.substring( colon + 1 ).trim() ) );
+      }
+    }
+    return map;
   }
+
 }
@@ -18,7 +18,10 @@
  */
 package org.apache.hadoop.gateway.shirorealm;
 
+import java.util.Arrays;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.naming.Context;
 import javax.naming.NamingException;
@@ -31,9 +34,14 @@ import org.apache.hadoop.gateway.config.impl.GatewayConfigImpl;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.security.AliasService;
+import org.apache.hadoop.gateway.services.metrics.impl.DefaultMetricsService;
 import org.apache.hadoop.gateway.services.security.AliasServiceException;
 import org.apache.hadoop.gateway.util.KnoxCLI;
 import org.apache.shiro.realm.ldap.JndiLdapContextFactory;
+import org.apache.shiro.util.Destroyable;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 
 /**
  * An extension of {@link JndiLdapContextFactory} that allows a different authentication mechanism
@@ -41,15 +49,39 @@ import org.apache.shiro.realm.ldap.JndiLdapContextFactory;
  * compared to regular authentication.
  * 
  * <p>
+ * Connections may optionally be pooled by the factory itself, see {@link KnoxLdapContextPool}.
+ * The system connections used for lookups and the connections used to bind users are kept
+ * in separate pools.
+ * <pre>
+ * main.ldapRealm.contextFactory.connectionPoolEnabled=true
+ * main.ldapRealm.contextFactory.connectionPoolMinSize=2
+ * main.ldapRealm.contextFactory.connectionPoolMaxSize=20
+ * main.ldapRealm.contextFactory.connectionPoolIdleTimeout=300000
+ * main.ldapRealm.contextFactory.connectionPoolMaxWait=5000
+ * main.ldapRealm.contextFactory.connectionPoolHealthCheckInterval=60000
+ * main.ldapRealm.contextFactory.connectionPoolTestOnBorrow=false
+ * </pre>
+ * <p>
  * See {@link IsisLdapRealm} for typical configuration within <tt>shiro.ini</tt>.
  */
-public class KnoxLdapContextFactory extends JndiLdapContextFactory {
+public class KnoxLdapContextFactory extends JndiLdapContextFactory implements Destroyable {
 
     private static GatewayMessages LOG = MessagesFactory.get( GatewayMessages.class );
   
     private String systemAuthenticationMechanism = "simple";
     private String clusterName = "";
 
+    private boolean connectionPoolEnabled = false;
+    private int connectionPoolMinSize = 0;
+    private int connectionPoolMaxSize = 20;
+    private long connectionPoolIdleTimeout = 300000;
+    private long connectionPoolMaxWait = 5000;
+    private long connectionPoolHealthCheckInterval = 60000;
+    private boolean connectionPoolTestOnBorrow = false;
+
+    private KnoxLdapContextPool systemPool;
+    private KnoxLdapContextPool userPool;
+
     public KnoxLdapContextFactory() {
       setAuthenticationMechanism("simple");
     }
@@ -57,10 +89,101 @@ public class KnoxLdapContextFactory extends JndiLdapContextFactory {
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Override
     protected LdapContext createLdapContext(Hashtable env) throws NamingException {
-        if(getSystemUsername() != null && getSystemUsername().equals(env.get(Context.SECURITY_PRINCIPAL))) {
+        boolean system = isSystemPrincipal(env);
+        if(system) {
             env.put(Context.SECURITY_AUTHENTICATION, getSystemAuthenticationMechanism());
         }
-        return super.createLdapContext(env);
+        if(!isConnectionPoolEnabled()) {
+            return super.createLdapContext(env);
+        }
+        // The JDK pool can't be combined with re-binding connections so only one pool is used.
+        env.remove(SUN_CONNECTION_POOLING_PROPERTY);
+        // Only connections bound with the configured system credentials may skip the re-bind.
+        boolean systemBind = system && getSystemPassword() != null
+            && getSystemPassword().equals(env.get(Context.SECURITY_CREDENTIALS));
+        return getPool(systemBind).borrow(env);
+    }
+
+    private boolean isSystemPrincipal(Hashtable<?,?> env) {
+        return getSystemUsername() != null && getSystemUsername().equals(env.get(Context.SECURITY_PRINCIPAL));
+    }
+
+    synchronized KnoxLdapContextPool getPool(boolean system) {
+        KnoxLdapContextPool pool = system ? systemPool : userPool;
+        if (pool == null) {
+            String name = (clusterName.isEmpty() ? "ldap" : clusterName) + (system ? ".system" : ".user");
+            KnoxLdapContextPool.ContextSource source = new KnoxLdapContextPool.ContextSource() {
+                @Override
+                public LdapContext createContext(Hashtable<?,?> environment) throws NamingException {
+                    return KnoxLdapContextFactory.super.createLdapContext(new Hashtable<>(environment));
+                }
+            };
+            pool = new KnoxLdapContextPool(name, source, connectionPoolMinSize, connectionPoolMaxSize,
+                connectionPoolIdleTimeout, connectionPoolMaxWait, connectionPoolTestOnBorrow, !system);
+            pool.startMaintenance(connectionPoolHealthCheckInterval);
+            registerMetrics(pool, system);
+            if (system) {
+                systemPool = pool;
+            } else {
+                userPool = pool;
+            }
+        }
+        return pool;
+    }
+
+    // The gauges are named ldap.connection.pool.<topology>.<system|user>.<metric> and are removed when
+    // the factory is destroyed so that a redeployed topology doesn't keep the old pool reachable.
+    private void registerMetrics(final KnoxLdapContextPool pool, boolean system) {
+        MetricRegistry registry = DefaultMetricsService.getMetricRegistry();
+        for (final String metric : KnoxLdapContextPool.METRICS) {
+            String name = metricName(system, metric);
+            registry.remove(name);
+            registry.register(name, new Gauge<Number>() {
+                @Override
+                public Number getValue() {
+                    return pool.getMetric(metric);
+                }
+            });
+        }
+    }
+
+    private void unregisterMetrics(boolean system) {
+        MetricRegistry registry = DefaultMetricsService.getMetricRegistry();
+        for (String metric : KnoxLdapContextPool.METRICS) {
+            registry.remove(metricName(system, metric));
+        }
+    }
+
+    String metricName(boolean system, String metric) {
+        return MetricRegistry.name("ldap.connection.pool", clusterName.isEmpty() ? "default" : clusterName,
+            system ? "system" : "user", metric);
+    }
+
+    /**
+     * Returns the counters of the system and user bind connection pools, keyed by pool name.
+     */
+    public synchronized Map<String,Map<String,Number>> getConnectionPoolMetrics() {
+        Map<String,Map<String,Number>> metrics = new LinkedHashMap<>();
+        for (KnoxLdapContextPool pool : Arrays.asList(systemPool, userPool)) {
+            if (pool != null) {
+                metrics.put(pool.getName(), pool.getMetrics());
+            }
+        }
+        return metrics;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (systemPool != null) {
+            unregisterMetrics(true);
+            systemPool.close();
+        }
+        if (userPool != null) {
+            unregisterMetrics(false);
+            userPool.close();
+        }
+        systemPool = null;
+        userPool = null;
     }
 
     public String getSystemAuthenticationMechanism() {
@@ -115,6 +238,62 @@ public class KnoxLdapContextFactory extends JndiLdapContextFactory {
       }
     }
     
+    public boolean isConnectionPoolEnabled() {
+      return connectionPoolEnabled;
+    }
+
+    public void setConnectionPoolEnabled(boolean connectionPoolEnabled) {
+      this.connectionPoolEnabled = connectionPoolEnabled;
+    }
+
+    public int getConnectionPoolMinSize() {
+      return connectionPoolMinSize;
+    }
+
+    public void setConnectionPoolMinSize(int connectionPoolMinSize) {
+      this.connectionPoolMinSize = connectionPoolMinSize;
+    }
+
+    public int getConnectionPoolMaxSize() {
+      return connectionPoolMaxSize;
+    }
+
+    public void setConnectionPoolMaxSize(int connectionPoolMaxSize) {
+      this.connectionPoolMaxSize = connectionPoolMaxSize;
+    }
+
+    public long getConnectionPoolIdleTimeout() {
+      return connectionPoolIdleTimeout;
+    }
+
+    public void setConnectionPoolIdleTimeout(long connectionPoolIdleTimeout) {
+      this.connectionPoolIdleTimeout = connectionPoolIdleTimeout;
+    }
+
+    public long getConnectionPoolMaxWait() {
+      return connectionPoolMaxWait;
+    }
+
+    public void setConnectionPoolMaxWait(long connectionPoolMaxWait) {
+      this.connectionPoolMaxWait = connectionPoolMaxWait;
+    }
+
+    public long getConnectionPoolHealthCheckInterval() {
+      return connectionPoolHealthCheckInterval;
+    }
+
+    public void setConnectionPoolHealthCheckInterval(long connectionPoolHealthCheckInterval) {
+      this.connectionPoolHealthCheckInterval = connectionPoolHealthCheckInterval;
+    }
+
+    public boolean isConnectionPoolTestOnBorrow() {
+      return connectionPoolTestOnBorrow;
+    }
+
+    public void setConnectionPoolTestOnBorrow(boolean connectionPoolTestOnBorrow) {
+      this.connectionPoolTestOnBorrow = connectionPoolTestOnBorrow;
+    }
+
     public String getClusterName() {
       return clusterName;
     }
@@ -0,0 +1,523 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.shirorealm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.ldap.LdapContext;
+
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.shirorealm.impl.i18n.KnoxShiroMessages;
+
+/**
+ * A bounded pool of LDAP connections.
+ * <p>
+ * Contexts handed out by the pool are proxies whose close() method returns the underlying
+ * connection to the pool, after which the proxy can't be used anymore.  Request controls and any environment changes made through the
+ * proxy are reverted before the connection is reused.  Connections that fail with a
+ * communication error are discarded instead of being returned.
+ * <p>
+ * For user bind pools a reused connection is re-authenticated with the new credentials
+ * on the same connection (an LDAPv3 re-bind) so logins don't each open a new connection.
+ */
+public class KnoxLdapContextPool {
+
+  private static final KnoxShiroMessages LOG = MessagesFactory.get( KnoxShiroMessages.class );
+
+  private static final String[] HEALTH_CHECK_ATTRIBUTES = new String[]{ "supportedLDAPVersion" };
+
+  /**
+   * The names of the counters published by {@link #getMetrics()}.
+   */
+  public static final String[] METRICS = {
+      "active", "idle", "created", "destroyed", "borrowed", "waits", "exhausted", "healthCheckFailures" };
+
+  private static ScheduledExecutorService maintenanceExecutor;
+
+  /**
+   * Creates a new physical connection for the supplied environment.
+   */
+  public interface ContextSource {
+    LdapContext createContext( Hashtable<?,?> environment ) throws NamingException;
+  }
+
+  private final String name;
+  private final ContextSource source;
+  private final int minSize;
+  private final int maxSize;
+  private final long idleTimeout;
+  private final long maxWait;
+  private final boolean testOnBorrow;
+  private final boolean rebind;
+
+  private final Object lock = new Object();
+  private final Deque<Entry> idle = new ArrayDeque<>();
+  private int total = 0;
+  private boolean closed = false;
+  private Hashtable<?,?> fillEnvironment = null;
+  private ScheduledFuture<?> maintenance = null;
+
+  private final AtomicLong created = new AtomicLong();
+  private final AtomicLong destroyed = new AtomicLong();
+  private final AtomicLong borrowed = new AtomicLong();
+  private final AtomicLong waited = new AtomicLong();
+  private final AtomicLong exhausted = new AtomicLong();
+  private final AtomicLong healthCheckFailures = new AtomicLong();
+
+  /**
+   * @param name the name used for logging and metrics
+   * @param source creates new connections
+   * @param minSize the number of idle connections the maintenance task keeps available; only honored when not rebinding
+   * @param maxSize the maximum number of connections, idle or in use
+   * @param idleTimeout milliseconds after which an idle connection is closed, 0 to never close idle connections
+   * @param maxWait milliseconds to wait for a connection when the pool is exhausted
+   * @param testOnBorrow whether idle connections are checked before being handed out
+   * @param rebind whether reused connections must be re-authenticated with the borrower's credentials
+   */
+  public KnoxLdapContextPool( String name, ContextSource source, int minSize, int maxSize, long idleTimeout,
+                              long maxWait, boolean testOnBorrow, boolean rebind ) {
+    this.name = name;
+    this.source = source;
+    this.maxSize = Math.max( 1, maxSize );
+    this.minSize = rebind ? 0 : Math.max( 0, Math.min( minSize, this.maxSize ) );
+    this.idleTimeout = idleTimeout;
+    this.maxWait = maxWait;
+    this.testOnBorrow = testOnBorrow;
+    this.rebind = rebind;
+  }
+
+  /**
+   * Starts the background task that evicts idle connections, checks the health of the remaining
+   * idle connections and tops the pool back up to its minimum size.
+   *
+   * @param interval the number of milliseconds between runs
+   */
+  public void startMaintenance( long interval ) {
+    if( interval > 0 ) {
+      synchronized( lock ) {
+        if( maintenance == null && !closed ) {
+          maintenance = getMaintenanceExecutor().scheduleWithFixedDelay( new Runnable() {
+            @Override
+            public void run() {
+              maintain();
+            }
+          }, interval, interval, TimeUnit.MILLISECONDS );
+        }
+      }
+    }
+  }
+
+  public LdapContext borrow( Hashtable<?,?> environment ) throws NamingException {
+    long deadline = System.currentTimeMillis() + maxWait;
+    while( true ) {
+      Entry entry = null;
+      synchronized( lock ) {
+        if( closed ) {
+          throw new ServiceUnavailableException( "LDAP connection pool " + name + " is closed." );
+        }
+        boolean counted = false;
+        while( idle.isEmpty() && total >= maxSize ) {
+          long remaining = deadline - System.currentTimeMillis();
+          if( remaining <= 0 ) {
+            exhausted.incrementAndGet();
+            LOG.ldapConnectionPoolExhausted( name, maxSize );
+            throw new ServiceUnavailableException( "LDAP connection pool " + name + " exhausted." );
+          }
+          if( !counted ) {
+            waited.incrementAndGet();
+            counted = true;
+          }
+          try {
+            lock.wait( remaining );
+          } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException( "Interrupted waiting for LDAP connection pool " + name + "." );
+          }
+        }
+        if( !idle.isEmpty() ) {
+          entry = idle.pollLast();
+        } else {
+          total++;
+          if( !rebind && fillEnvironment == null ) {
+            fillEnvironment = environment;
+          }
+        }
+      }
+
+      if( entry == null ) {
+        try {
+          entry = new Entry( source.createContext( environment ) );
+          created.incrementAndGet();
+        } catch( NamingException | RuntimeException e ) {
+          synchronized( lock ) {
+            total--;
+            lock.notifyAll();
+          }
+          throw e;
+        }
+      } else {
+        if( isExpired( entry, System.currentTimeMillis() ) || ( testOnBorrow && !isHealthy( entry ) ) ) {
+          destroy( entry );
+          continue;
+        }
+        if( rebind ) {
+          try {
+            rebind( entry.context, environment );
+          } catch( NamingException | RuntimeException e ) {
+            // Whatever state a failed bind leaves the connection in it isn't reused.
+            destroy( entry );
+            throw e;
+          }
+        }
+      }
+      borrowed.incrementAndGet();
+      return entry.lend();
+    }
+  }
+
+  private void rebind( LdapContext context, Hashtable<?,?> environment ) throws NamingException {
+    for( String key : new String[]{ Context.SECURITY_AUTHENTICATION, Context.SECURITY_PRINCIPAL, Context.SECURITY_CREDENTIALS } ) {
+      Object value = environment.get( key );
+      if( value == null ) {
+        context.removeFromEnvironment( key );
+      } else {
+        context.addToEnvironment( key, value );
+      }
+    }
+    context.reconnect( null );
+  }
+
+  private void release( Entry entry, boolean broken ) {
+    if( !broken ) {
+      try {
+        entry.reset();
+      } catch( NamingException | RuntimeException e ) {
+        broken = true;
+      }
+    }
+    boolean keep;
+    synchronized( lock ) {
+      keep = !broken && !closed;
+      if( keep ) {
+        entry.lastUsed = System.currentTimeMillis();
+        idle.addLast( entry );
+        lock.notifyAll();
+      }
+    }
+    if( !keep ) {
+      destroy( entry );
+    }
+  }
+
+  private void destroy( Entry entry ) {
+    try {
+      entry.context.close();
+    } catch( NamingException | RuntimeException e ) {
+      LOG.failedToCloseLdapConnection( name, e );
+    }
+    destroyed.incrementAndGet();
+    synchronized( lock ) {
+      total--;
+      lock.notifyAll();
+    }
+  }
+
+  private boolean isExpired( Entry entry, long now ) {
+    return idleTimeout > 0 && now - entry.lastUsed > idleTimeout;
+  }
+
+  private boolean isHealthy( Entry entry ) {
+    try {
+      entry.context.getAttributes( "", HEALTH_CHECK_ATTRIBUTES );
+      return true;
+    } catch( NamingException | RuntimeException e ) {
+      healthCheckFailures.incrementAndGet();
+      LOG.ldapConnectionFailedHealthCheck( name, e );
+      return false;
+    }
+  }
+
+  void maintain() {
+    List<Entry> candidates = new ArrayList<>();
+    int keep;
+    synchronized( lock ) {
+      if( closed ) {
+        return;
+      }
+      candidates.addAll( idle );
+      idle.clear();
+      keep = minSize;
+    }
+    long now = System.currentTimeMillis();
+    // The most recently used connections are at the end so the oldest are evicted first.
+    int remaining = candidates.size();
+    for( Entry entry : candidates ) {
+      boolean evict = isExpired( entry, now ) && remaining > keep;
+      if( evict || !isHealthy( entry ) ) {
+        destroy( entry );
+      } else {
+        synchronized( lock ) {
+          idle.addLast( entry );
+          lock.notifyAll();
+        }
+      }
+      remaining--;
+    }
+    fill();
+  }
+
+  private void fill() {
+    while( true ) {
+      Hashtable<?,?> environment;
+      synchronized( lock ) {
+        if( closed || fillEnvironment == null || total >= minSize ) {
+          return;
+        }
+        environment = fillEnvironment;
+        total++;
+      }
+      Entry entry;
+      try {
+        entry = new Entry( source.createContext( environment ) );
+        created.incrementAndGet();
+      } catch( NamingException | RuntimeException e ) {
+        synchronized( lock ) {
+          total--;
+        }
+        LOG.failedToFillLdapConnectionPool( name, e );
+        return;
+      }
+      release( entry, false );
+    }
+  }
+
+  public void close() {
+    List<Entry> entries;
+    synchronized( lock ) {
+      closed = true;
+      if( maintenance != null ) {
+        maintenance.cancel( false );
+        maintenance = null;
+      }
+      entries = new ArrayList<>( idle );
+      idle.clear();
+      lock.notifyAll();
+    }
+    for( Entry entry : entries ) {
+      destroy( entry );
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getActiveCount() {
+    synchronized( lock ) {
+      return total - idle.size();
+    }
+  }
+
+  public int getIdleCount() {
+    synchronized( lock ) {
+      return idle.size();
+    }
+  }
+
+  public long getCreatedCount() {
+    return created.get();
+  }
+
+  public long getDestroyedCount() {
+    return destroyed.get();
+  }
+
+  public long getBorrowedCount() {
+    return borrowed.get();
+  }
+
+  public long getWaitCount() {
+    return waited.get();
+  }
+
+  public long getExhaustedCount() {
+    return exhausted.get();
+  }
+
+  public long getHealthCheckFailureCount() {
+    return healthCheckFailures.get();
+  }
+
+  /**
+   * Returns the value of one of the {@link #METRICS}, or null if there is no such metric.
+   */
+  public Number getMetric( String metric ) {
+    switch( metric ) {
+      case "active":
+        return getActiveCount();
+      case "idle":
+        return getIdleCount();
+      case "created":
+        return getCreatedCount();
+      case "destroyed":
+        return getDestroyedCount();
+      case "borrowed":
+        return getBorrowedCount();
+      case "waits":
+        return getWaitCount();
+      case "exhausted":
+        return getExhaustedCount();
+      case "healthCheckFailures":
+        return getHealthCheckFailureCount();
+      default:
+        return null;
+    }
+  }
+
+  public Map<String,Number> getMetrics() {
+    Map<String,Number> metrics = new LinkedHashMap<>();
+    for( String metric : METRICS ) {
+      metrics.put( metric, getMetric( metric ) );
+    }
+    return metrics;
+  }
+
+  private static synchronized ScheduledExecutorService getMaintenanceExecutor() {
+    if( maintenanceExecutor == null ) {
+      maintenanceExecutor = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+        @Override
+        public Thread newThread( Runnable r ) {
+          Thread thread = new Thread( r, "knox-ldap-pool-maintenance" );
+          thread.setDaemon( true );
+          return thread;
+        }
+      } );
+    }
+    return maintenanceExecutor;
+  }
+
+  private class Entry {
+
+    private final LdapContext context;
+    private final Map<String,Object> changedEnvironment = new HashMap<>();
+    private long lastUsed = System.currentTimeMillis();
+    private boolean broken = false;
+
+    private Entry( LdapContext context ) {
+      this.context = context;
+    }
+
+    private LdapContext lend() {
+      broken = false;
+      return (LdapContext)Proxy.newProxyInstance(
+          KnoxLdapContextPool.class.getClassLoader(), new Class<?>[]{ LdapContext.class }, new Lease( this ) );
+    }
+
+    private void reset() throws NamingException {
+      context.setRequestControls( null );
+      for( Map.Entry<String,Object> original : changedEnvironment.entrySet() ) {
+        if( original.getValue() == null ) {
+          context.removeFromEnvironment( original.getKey() );
+        } else {
+          context.addToEnvironment( original.getKey(), original.getValue() );
+        }
+      }
+      changedEnvironment.clear();
+    }
+  }
+
+  /**
+   * Handles the calls made through the proxy of one loan of a connection.  Once the proxy has
+   * been closed the connection may have been lent to someone else, so the proxy refuses any
+   * further use and closing it again does nothing.
+   */
+  private class Lease implements InvocationHandler {
+
+    private final Entry entry;
+    private boolean closed = false;
+
+    private Lease( Entry entry ) {
+      this.entry = entry;
+    }
+
+    @Override
+    public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+      String methodName = method.getName();
+      if( method.getDeclaringClass() == Object.class ) {
+        if( "equals".equals( methodName ) ) {
+          return proxy == args[0];
+        } else if( "hashCode".equals( methodName ) ) {
+          return System.identityHashCode( proxy );
+        } else if( "toString".equals( methodName ) ) {
+          return "Pooled" + entry.context.toString();
+        }
+      }
+      if( "close".equals( methodName ) && method.getParameterTypes().length == 0 ) {
+        boolean returning;
+        synchronized( this ) {
+          returning = !closed;
+          closed = true;
+        }
+        if( returning ) {
+          release( entry, entry.broken );
+        }
+        return null;
+      }
+      synchronized( this ) {
+        if( closed ) {
+          throw new NamingException( "LDAP context is closed." );
+        }
+      }
+      if( ( "addToEnvironment".equals( methodName ) || "removeFromEnvironment".equals( methodName ) )
+          && args != null && args.length > 0 && !entry.changedEnvironment.containsKey( args[0] ) ) {
+        entry.changedEnvironment.put( (String)args[0], entry.context.getEnvironment().get( args[0] ) );
+      }
+      try {
+        return method.invoke( entry.context, args );
+      } catch( InvocationTargetException e ) {
+        Throwable cause = e.getCause();
+        if( cause instanceof CommunicationException || cause instanceof ServiceUnavailableException ) {
+          entry.broken = true;
+        }
+        throw cause;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.shirorealm;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.NamingException;
+
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.shirorealm.impl.i18n.KnoxShiroMessages;
+import org.apache.hadoop.gateway.util.BoundedCache;
+
+/**
+ * A cache of the LDAP group memberships of users, keyed by user DN.
+ * <p>
+ * Entries younger than the refresh time are served as is.  Entries older than the refresh time but
+ * younger than the time to live are still served but are reloaded in the background so that known
+ * users don't wait on group searches.  Entries older than the time to live are reloaded before being
+ * returned, unless the directory can't be reached in which case the stale entry continues to be served
+ * for up to the maximum stale time.
+ */
+public class KnoxLdapGroupCache {
+
+  private static final KnoxShiroMessages LOG = MessagesFactory.get( KnoxShiroMessages.class );
+
+  /**
+   * Looks up the group memberships of a user in the directory.
+   */
+  public interface Loader {
+    Membership load( String userDn ) throws NamingException;
+  }
+
+  public static class Membership {
+
+    private final Set<String> roleNames;
+    private final Set<String> groupNames;
+
+    public Membership( Set<String> roleNames, Set<String> groupNames ) {
+      this.roleNames = Collections.unmodifiableSet( roleNames );
+      this.groupNames = Collections.unmodifiableSet( groupNames );
+    }
+
+    public Set<String> getRoleNames() {
+      return roleNames;
+    }
+
+    public Set<String> getGroupNames() {
+      return groupNames;
+    }
+  }
+
+  private final long ttl;
+  private final long refreshAfter;
+  private final long maxStale;
+  private final Executor executor;
+  // Entries are dropped once they can no longer be served, even as stale entries.
+  private final BoundedCache<String,Entry> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong refreshes = new AtomicLong();
+  private final AtomicLong staleHits = new AtomicLong();
+
+  /**
+   * @param maxSize the maximum number of users to retain
+   * @param ttl milliseconds after which an entry must be reloaded before it is used
+   * @param refreshAfter milliseconds after which an entry is reloaded in the background
+   * @param maxStale milliseconds past the time to live an entry is still served when the directory is unavailable
+   * @param executor runs the background reloads
+   */
+  public KnoxLdapGroupCache( int maxSize, long ttl, long refreshAfter, long maxStale, Executor executor ) {
+    this.ttl = ttl;
+    this.refreshAfter = Math.min( refreshAfter, ttl );
+    this.maxStale = Math.max( 0, maxStale );
+    this.executor = executor;
+    this.entries = new BoundedCache<>( maxSize, ttl + this.maxStale );
+  }
+
+  public Membership get( final String userDn, final Loader loader ) throws NamingException {
+    long now = System.currentTimeMillis();
+    final Entry entry = entries.get( userDn );
+    if( entry != null ) {
+      long age = now - entry.loaded;
+      if( age < ttl ) {
+        hits.incrementAndGet();
+        if( age >= refreshAfter ) {
+          refresh( userDn, entry, loader );
+        }
+        return entry.membership;
+      }
+    }
+    misses.incrementAndGet();
+    try {
+      return load( userDn, loader );
+    } catch( NamingException | RuntimeException e ) {
+      if( entry != null && now - entry.loaded < ttl + maxStale ) {
+        staleHits.incrementAndGet();
+        LOG.servingStaleLdapGroups( userDn, e );
+        return entry.membership;
+      }
+      throw e;
+    }
+  }
+
+  private Membership load( String userDn, Loader loader ) throws NamingException {
+    long loaded = System.currentTimeMillis();
+    Membership membership = loader.load( userDn );
+    entries.put( userDn, new Entry( membership, loaded ) );
+    return membership;
+  }
+
+  private void refresh( final String userDn, final Entry entry, final Loader loader ) {
+    if( entry.refreshing.compareAndSet( false, true ) ) {
+      try {
+        executor.execute( new Runnable() {
+          @Override
+          public void run() {
+            try {
+              load( userDn, loader );
+              refreshes.incrementAndGet();
+            } catch( NamingException | RuntimeException e ) {
+              LOG.failedToRefreshLdapGroups( userDn, e );
+              entry.refreshing.set( false );
+            }
+          }
+        } );
+      } catch( RejectedExecutionException e ) {
+        entry.refreshing.set( false );
+      }
+    }
+  }
+
+  public void invalidate( String userDn ) {
+    entries.remove( userDn );
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public long getRefreshCount() {
+    return refreshes.get();
+  }
+
+  public long getStaleHitCount() {
+    return staleHits.get();
+  }
+
+  private static class Entry {
+    private final Membership membership;
+    private final long loaded;
+    private final AtomicBoolean refreshing = new AtomicBoolean( false );
+
+    private Entry( Membership membership, long loaded ) {
+      this.membership = membership;
+      this.loaded = loaded;
+    }
+  }
+
+}
@@ -30,6 +30,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -65,6 +68,7 @@ import org.apache.shiro.authc.SimpleAuthenticationInfo;
 import org.apache.shiro.authc.credential.HashedCredentialsMatcher;
 import org.apache.shiro.authz.AuthorizationInfo;
 import org.apache.shiro.authz.SimpleAuthorizationInfo;
+import org.apache.shiro.codec.CodecSupport;
 import org.apache.shiro.crypto.hash.DefaultHashService;
 import org.apache.shiro.crypto.hash.Hash;
 import org.apache.shiro.crypto.hash.HashRequest;
@@ -74,6 +78,8 @@ import org.apache.shiro.realm.ldap.LdapContextFactory;
 import org.apache.shiro.realm.ldap.LdapUtils;
 import org.apache.shiro.subject.MutablePrincipalCollection;
 import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.support.DisabledSessionException;
+import org.apache.shiro.util.Destroyable;
 import org.apache.shiro.util.StringUtils;
 
 /**
@@ -82,7 +88,8 @@ import org.apache.shiro.util.StringUtils;
  * This implementation is heavily based on org.apache.isis.security.shiro.IsisLdapRealm.
  * 
  * This implementation saves looked up ldap groups in Shiro Session to make them
- * easy to be looked up outside of this object
+ * easy to be looked up outside of this object.  When session creation is disabled
+ * the groups are only added to the subject's principals.
  * 
  * <p>
  * Sample config for <tt>shiro.ini</tt>:
@@ -120,11 +127,26 @@ import org.apache.shiro.util.StringUtils;
  *    self-install_role = *:ToDoItemsFixturesService:install:* ; \
  *    admin_role = *
  * 
+ * # optional cache of group memberships, refreshed in the background after
+ * # groupCacheRefreshAfter and served for up to groupCacheMaxStale past the ttl
+ * # when the directory can't be reached
+ * ldapRealm.groupCacheEnabled=true
+ * ldapRealm.groupCacheTtl=600000
+ * ldapRealm.groupCacheRefreshAfter=300000
+ * ldapRealm.groupCacheMaxStale=3600000
+ * ldapRealm.groupSearchPageSize=100
+ * 
+ * # optional short lived cache of successful binds for clients that send
+ * # basic credentials on every request, only an HMAC of the credentials is kept
+ * ldapRealm.authenticationResultCacheEnabled=true
+ * ldapRealm.authenticationResultCacheTtl=60000
+ * ldapRealm.authenticationResultCacheMaxSize=1000
+ * 
  * securityManager.realms = $ldapRealm
  * 
  * </pre>
  */
-public class KnoxLdapRealm extends JndiLdapRealm {
+public class KnoxLdapRealm extends JndiLdapRealm implements Destroyable {
 
     private static GatewayMessages LOG = MessagesFactory.get( GatewayMessages.class );
     KnoxShiroMessages ShiroLog = MessagesFactory.get( KnoxShiroMessages.class );
@@ -188,6 +210,22 @@ public class KnoxLdapRealm extends JndiLdapRealm {
 
     private HashService hashService = new DefaultHashService();
 
+    private int groupSearchPageSize = 100;
+
+    private boolean groupCacheEnabled = false;
+    private int groupCacheMaxSize = 10000;
+    private long groupCacheTtl = 600000;
+    private long groupCacheRefreshAfter = 300000;
+    private long groupCacheMaxStale = 3600000;
+    private int groupCacheRefreshThreads = 2;
+    private KnoxLdapGroupCache groupCache;
+    private ExecutorService groupCacheExecutor;
+
+    private boolean authenticationResultCacheEnabled = false;
+    private int authenticationResultCacheMaxSize = 1000;
+    private long authenticationResultCacheTtl = 60000;
+    private KnoxAuthenticationCache authenticationResultCache;
+
     public KnoxLdapRealm() {
       HashedCredentialsMatcher credentialsMatcher = new HashedCredentialsMatcher(HASHING_ALGORITHM);
       setCredentialsMatcher(credentialsMatcher);
@@ -196,9 +234,25 @@ public class KnoxLdapRealm extends JndiLdapRealm {
   @Override
   //KNOX-534 overriding this method to be able to audit authentication exceptions
   protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws org.apache.shiro.authc.AuthenticationException {
+    KnoxAuthenticationCache cache = getAuthenticationResultCache();
+    String principal = token.getPrincipal() == null ? null : token.getPrincipal().toString();
+    byte[] credentials = null;
+    if (cache != null) {
+      credentials = credentialBytes(token.getCredentials());
+      if (cache.isAuthenticated(principal, credentials)) {
+        return createHashedAuthenticationInfo(token);
+      }
+    }
     try {
-      return super.doGetAuthenticationInfo(token);
+      AuthenticationInfo info = super.doGetAuthenticationInfo(token);
+      if (cache != null) {
+        cache.authenticated(principal, credentials);
+      }
+      return info;
     } catch ( org.apache.shiro.authc.AuthenticationException e ) {
+      if (cache != null) {
+        cache.invalidate(principal);
+      }
       auditor.audit( Action.AUTHENTICATION , token.getPrincipal().toString(), ResourceType.PRINCIPAL, ActionOutcome.FAILURE, e.getMessage() );
       ShiroLog.failedLoginInfo(token);
       ShiroLog.failedLoginStackTrace(e);
@@ -208,6 +262,17 @@ public class KnoxLdapRealm extends JndiLdapRealm {
     }
   }
 
+  private static byte[] credentialBytes(Object credentials) {
+    if (credentials instanceof char[]) {
+      return CodecSupport.toBytes((char[]) credentials);
+    } else if (credentials instanceof String) {
+      return CodecSupport.toBytes((String) credentials);
+    } else if (credentials instanceof byte[]) {
+      return (byte[]) credentials;
+    }
+    return null;
+  }
+
   /**
      * Get groups from LDAP.
      * 
@@ -238,36 +303,72 @@ public class KnoxLdapRealm extends JndiLdapRealm {
         final LdapContextFactory ldapContextFactory) throws NamingException {
         final String username = (String) getAvailablePrincipal(principals);
 
-        LdapContext systemLdapCtx = null;
+        String userDn;
+        if (userSearchAttributeName == null || userSearchAttributeName.isEmpty()) {
+          // memberAttributeValuePrefix and memberAttributeValueSuffix were computed from memberAttributeValueTemplate
+          userDn = memberAttributeValuePrefix + username + memberAttributeValueSuffix;
+        } else {
+          userDn = getUserDn(username);
+        }
+
+        KnoxLdapGroupCache.Loader loader = new KnoxLdapGroupCache.Loader() {
+          @Override
+          public KnoxLdapGroupCache.Membership load(String userDn) throws NamingException {
+            return searchGroups(userDn, ldapContextFactory);
+          }
+        };
+        KnoxLdapGroupCache.Membership membership;
         try {
-            systemLdapCtx = ldapContextFactory.getSystemLdapContext();
-            return rolesFor(principals, username, systemLdapCtx, ldapContextFactory);
+            KnoxLdapGroupCache cache = getGroupCache();
+            membership = cache != null ? cache.get(userDn, loader) : loader.load(userDn);
         } catch (AuthenticationException e) {
           LOG.failedToGetSystemLdapConnection(e);
           return Collections.emptySet();
-        } finally {
-            LdapUtils.closeContext(systemLdapCtx);
         }
+        return rolesFor(principals, username, membership);
+    }
+
+    private Set<String> rolesFor(PrincipalCollection principals, final String userName,
+        final KnoxLdapGroupCache.Membership membership) {
+      final Set<String> roleNames = new HashSet<>(membership.getRoleNames());
+      final Set<String> groupNames = new HashSet<>(membership.getGroupNames());
+
+      // save role names and group names in session so that they can be easily looked up outside of this object
+      setSessionAttribute(SUBJECT_USER_ROLES, roleNames);
+      setSessionAttribute(SUBJECT_USER_GROUPS, groupNames);
+      if (!groupNames.isEmpty() && (principals instanceof MutablePrincipalCollection)) {
+        ((MutablePrincipalCollection)principals).addAll(groupNames, getName());
+      }
+      LOG.lookedUpUserRoles(roleNames, userName);
+
+      return roleNames;
     }
 
-    private Set<String> rolesFor(PrincipalCollection principals, final String userName, final LdapContext ldapCtx,
+    // Session creation is disabled in stateless mode, the groups are then only kept in the principals.
+    private static void setSessionAttribute(String key, Object value) {
+      try {
+        SecurityUtils.getSubject().getSession().setAttribute(key, value);
+      } catch (DisabledSessionException e) {
+        // No session to save to.
+      }
+    }
+
+    /**
+     * Searches the directory for the groups the user is a member of.  This may run on the
+     * group cache's refresh thread so it must not depend on the current subject.
+     */
+    KnoxLdapGroupCache.Membership searchGroups(final String userDn,
         final LdapContextFactory ldapContextFactory) throws NamingException {
       final Set<String> roleNames = new HashSet<>();
       final Set<String> groupNames = new HashSet<>();
 
-      String userDn;
-      if (userSearchAttributeName == null || userSearchAttributeName.isEmpty()) {
-        // memberAttributeValuePrefix and memberAttributeValueSuffix were computed from memberAttributeValueTemplate
-        userDn = memberAttributeValuePrefix + userName + memberAttributeValueSuffix;
-      } else {
-        userDn = getUserDn(userName);
-      }
-
+      LdapContext ldapCtx = null;
       // Activate paged results
-      int pageSize = 100;
+      int pageSize = getGroupSearchPageSize();
       int numResults = 0;
       byte[] cookie = null;
       try {
+        ldapCtx = ldapContextFactory.getSystemLdapContext();
         ldapCtx.addToEnvironment(Context.REFERRAL, "ignore");
 
         ldapCtx.setRequestControls(new Control[]{new PagedResultsControl(pageSize, Control.NONCRITICAL)});
@@ -277,6 +378,7 @@ public class KnoxLdapRealm extends JndiLdapRealm {
           //       -b dc=hadoop,dc=apache,dc=org -s sub '(objectclass=*)'
 
           NamingEnumeration<SearchResult> searchResultEnum = null;
+          cookie = null;
           try {
             searchResultEnum = ldapCtx.search(
                 getGroupSearchBase(),
@@ -308,7 +410,9 @@ public class KnoxLdapRealm extends JndiLdapRealm {
           }
 
           // Re-activate paged results
-          ldapCtx.setRequestControls(new Control[]{new PagedResultsControl(pageSize, cookie, Control.CRITICAL)});
+          if (cookie != null) {
+            ldapCtx.setRequestControls(new Control[]{new PagedResultsControl(pageSize, cookie, Control.CRITICAL)});
+          }
         } while (cookie != null);
       } catch (SizeLimitExceededException e) {
         LOG.sizeLimitExceededOnlyRetrieved(numResults);
@@ -316,17 +420,11 @@ public class KnoxLdapRealm extends JndiLdapRealm {
       } catch(IOException e) {
         LOG.unableToSetupPagedResults();
 //        System.out.println("Unabled to setup paged results");
+      } finally {
+        LdapUtils.closeContext(ldapCtx);
       }
 
-      // save role names and group names in session so that they can be easily looked up outside of this object
-      SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_ROLES, roleNames);
-      SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_GROUPS, groupNames);
-      if (!groupNames.isEmpty() && (principals instanceof MutablePrincipalCollection)) {
-        ((MutablePrincipalCollection)principals).addAll(groupNames, getName());
-      }
-      LOG.lookedUpUserRoles(roleNames, userName);
-
-      return roleNames;
+      return new KnoxLdapGroupCache.Membership(roleNames, groupNames);
     }
 
   private void addRoleIfMember(final String userDn, final SearchResult group,
@@ -495,6 +593,131 @@ public class KnoxLdapRealm extends JndiLdapRealm {
       this.authorizationEnabled = authorizationEnabled;
     }
 
+    public int getGroupSearchPageSize() {
+      return groupSearchPageSize;
+    }
+
+    public void setGroupSearchPageSize(int groupSearchPageSize) {
+      this.groupSearchPageSize = groupSearchPageSize;
+    }
+
+    public boolean isGroupCacheEnabled() {
+      return groupCacheEnabled;
+    }
+
+    public void setGroupCacheEnabled(boolean groupCacheEnabled) {
+      this.groupCacheEnabled = groupCacheEnabled;
+    }
+
+    public int getGroupCacheMaxSize() {
+      return groupCacheMaxSize;
+    }
+
+    public void setGroupCacheMaxSize(int groupCacheMaxSize) {
+      this.groupCacheMaxSize = groupCacheMaxSize;
+    }
+
+    public long getGroupCacheTtl() {
+      return groupCacheTtl;
+    }
+
+    public void setGroupCacheTtl(long groupCacheTtl) {
+      this.groupCacheTtl = groupCacheTtl;
+    }
+
+    public long getGroupCacheRefreshAfter() {
+      return groupCacheRefreshAfter;
+    }
+
+    public void setGroupCacheRefreshAfter(long groupCacheRefreshAfter) {
+      this.groupCacheRefreshAfter = groupCacheRefreshAfter;
+    }
+
+    public long getGroupCacheMaxStale() {
+      return groupCacheMaxStale;
+    }
+
+    public void setGroupCacheMaxStale(long groupCacheMaxStale) {
+      this.groupCacheMaxStale = groupCacheMaxStale;
+    }
+
+    public int getGroupCacheRefreshThreads() {
+      return groupCacheRefreshThreads;
+    }
+
+    public void setGroupCacheRefreshThreads(int groupCacheRefreshThreads) {
+      this.groupCacheRefreshThreads = groupCacheRefreshThreads;
+    }
+
+    synchronized KnoxLdapGroupCache getGroupCache() {
+      if (groupCache == null && groupCacheEnabled && groupCacheTtl > 0) {
+        final String threadName = "knox-ldap-group-refresh-" + getName();
+        groupCacheExecutor = Executors.newFixedThreadPool(Math.max(1, groupCacheRefreshThreads),
+            new ThreadFactory() {
+              @Override
+              public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+        groupCache = new KnoxLdapGroupCache(groupCacheMaxSize, groupCacheTtl, groupCacheRefreshAfter,
+            groupCacheMaxStale, groupCacheExecutor);
+      }
+      return groupCache;
+    }
+
+    /**
+     * Stops the group refresh threads so that a redeployed topology doesn't leave them, and through
+     * them this realm and its class loader, behind.
+     */
+    @Override
+    public synchronized void destroy() {
+      if (groupCacheExecutor != null) {
+        groupCacheExecutor.shutdownNow();
+        groupCacheExecutor = null;
+      }
+      if (groupCache != null) {
+        groupCache.clear();
+        groupCache = null;
+      }
+      if (authenticationResultCache != null) {
+        authenticationResultCache.clear();
+        authenticationResultCache = null;
+      }
+    }
+
+    public boolean isAuthenticationResultCacheEnabled() {
+      return authenticationResultCacheEnabled;
+    }
+
+    public void setAuthenticationResultCacheEnabled(boolean authenticationResultCacheEnabled) {
+      this.authenticationResultCacheEnabled = authenticationResultCacheEnabled;
+    }
+
+    public int getAuthenticationResultCacheMaxSize() {
+      return authenticationResultCacheMaxSize;
+    }
+
+    public void setAuthenticationResultCacheMaxSize(int authenticationResultCacheMaxSize) {
+      this.authenticationResultCacheMaxSize = authenticationResultCacheMaxSize;
+    }
+
+    public long getAuthenticationResultCacheTtl() {
+      return authenticationResultCacheTtl;
+    }
+
+    public void setAuthenticationResultCacheTtl(long authenticationResultCacheTtl) {
+      this.authenticationResultCacheTtl = authenticationResultCacheTtl;
+    }
+
+    synchronized KnoxAuthenticationCache getAuthenticationResultCache() {
+      if (authenticationResultCache == null && authenticationResultCacheEnabled && authenticationResultCacheTtl > 0) {
+        authenticationResultCache = new KnoxAuthenticationCache(authenticationResultCacheMaxSize, authenticationResultCacheTtl);
+      }
+      return authenticationResultCache;
+    }
+
     public String getUserSearchAttributeName() {
         return userSearchAttributeName;
     }
@@ -747,6 +970,10 @@ public class KnoxLdapRealm extends JndiLdapRealm {
 
     @Override
     protected AuthenticationInfo createAuthenticationInfo(AuthenticationToken token, Object ldapPrincipal, Object ldapCredentials, LdapContext ldapContext) throws NamingException {
+      return createHashedAuthenticationInfo(token);
+    }
+
+    private AuthenticationInfo createHashedAuthenticationInfo(AuthenticationToken token) {
       HashRequest.Builder builder = new HashRequest.Builder();
       Hash credentialsHash = hashService.computeHash(builder.setSource(token.getCredentials()).setAlgorithmName(HASHING_ALGORITHM).build());
       return new SimpleAuthenticationInfo(token.getPrincipal(), credentialsHash.toHex(), credentialsHash.getSalt(), getName());
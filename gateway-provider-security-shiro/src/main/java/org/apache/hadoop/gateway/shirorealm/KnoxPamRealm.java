@@ -42,6 +42,7 @@ import org.apache.shiro.authz.AuthorizationInfo;
 import org.apache.shiro.authz.SimpleAuthorizationInfo;
 import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.support.DisabledSessionException;
 import org.apache.shiro.authc.credential.HashedCredentialsMatcher;
 import org.apache.shiro.crypto.hash.*;
 import org.jvnet.libpam.PAM;
@@ -113,8 +114,12 @@ public class KnoxPamRealm extends AuthorizingRealm {
     if (user != null) {
       roles.addAll(user.getUnixUser().getGroups());
     }
-    SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_ROLES, roles);
-    SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_GROUPS, roles);
+    try {
+      SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_ROLES, roles);
+      SecurityUtils.getSubject().getSession().setAttribute(SUBJECT_USER_GROUPS, roles);
+    } catch (DisabledSessionException e) {
+      // Session creation is disabled in stateless mode, the groups are read from the principal.
+    }
 
     /* Coverity Scan CID 1361682 */
     String userName = null;
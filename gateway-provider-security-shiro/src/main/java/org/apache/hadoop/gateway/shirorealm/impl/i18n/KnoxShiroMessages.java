@@ -41,4 +41,25 @@ public interface KnoxShiroMessages {
   @Message(level = MessageLevel.INFO, text = "Successfully logged in: {0}, {1}")
   void successfulLoginAttempt(Subject subject, AuthenticationToken authToken);
 
+  @Message(level = MessageLevel.WARN, text = "LDAP connection pool {0} exhausted, all {1} connections are in use.")
+  void ldapConnectionPoolExhausted(String pool, int maxSize);
+
+  @Message(level = MessageLevel.DEBUG, text = "Discarding LDAP connection from pool {0} that failed a health check: {1}")
+  void ldapConnectionFailedHealthCheck(String pool, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.DEBUG, text = "Failed to close LDAP connection from pool {0}: {1}")
+  void failedToCloseLdapConnection(String pool, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.WARN, text = "Failed to pre-populate LDAP connection pool {0}: {1}")
+  void failedToFillLdapConnectionPool(String pool, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.WARN, text = "Failed to look up groups of {0}, using cached groups: {1}")
+  void servingStaleLdapGroups(String userDn, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.WARN, text = "Failed to refresh cached groups of {0}: {1}")
+  void failedToRefreshLdapGroups(String userDn, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.WARN, text = "Ignoring cache manager configuration file {0}, KnoxCacheManager is configured with maxEntries, timeToLive and timeToIdle")
+  void ignoredCacheManagerConfigFile(String file);
+
 }
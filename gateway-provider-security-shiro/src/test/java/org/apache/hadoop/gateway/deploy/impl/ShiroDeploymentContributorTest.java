@@ -24,8 +24,14 @@ import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.security.AliasService;
 import org.apache.hadoop.gateway.services.security.CryptoService;
 import org.apache.hadoop.gateway.services.security.impl.DefaultCryptoService;
+import org.apache.hadoop.gateway.shirorealm.DisabledRememberMeManager;
 import org.apache.hadoop.gateway.topology.Provider;
 import org.apache.hadoop.gateway.topology.Topology;
+import org.apache.shiro.config.Ini;
+import org.apache.shiro.mgt.DefaultSessionStorageEvaluator;
+import org.apache.shiro.mgt.DefaultSubjectDAO;
+import org.apache.shiro.web.config.WebIniSecurityManagerFactory;
+import org.apache.shiro.web.mgt.DefaultWebSecurityManager;
 import org.easymock.EasyMock;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.asset.StringAsset;
@@ -38,10 +44,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.ServiceLoader;
 
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.fail;
@@ -105,4 +113,83 @@ public class ShiroDeploymentContributorTest {
     assertThat( context.getWebAppDescriptor().getOrCreateSessionConfig().getOrCreateCookieConfig().isSecure(), is( true ) );
   }
 
+  @Test
+  public void testCacheManagerIsNamespacedByTopology() throws IOException {
+    WebArchive webArchive = ShrinkWrap.create( WebArchive.class, "test-archive" );
+
+    Map<String,String> providerParams = new HashMap<>();
+    providerParams.put( "main.cacheManager", "org.apache.hadoop.gateway.shirorealm.KnoxCacheManager" );
+    providerParams.put( "main.securityManager.cacheManager", "$cacheManager" );
+    Provider provider = new Provider();
+    provider.setEnabled( true );
+    provider.setName( "shiro" );
+    provider.setParams( providerParams );
+
+    Topology topology = new Topology();
+    topology.setName( "Sample" );
+
+    DeploymentContext context = EasyMock.createNiceMock( DeploymentContext.class );
+    EasyMock.expect( context.getWebArchive() ).andReturn( webArchive ).anyTimes();
+    EasyMock.expect( context.getWebAppDescriptor() ).andReturn( Descriptors.create( WebAppDescriptor.class ) ).anyTimes();
+    EasyMock.expect( context.getTopology() ).andReturn( topology ).anyTimes();
+    EasyMock.replay( context );
+
+    new ShiroDeploymentContributor().contributeProvider( context, provider );
+
+    InputStream ini = webArchive.get( "WEB-INF/shiro.ini" ).getAsset().openStream();
+    try {
+      assertThat( IOUtils.toString( ini ), containsString( "cacheManager.clusterName=Sample\n" ) );
+    } finally {
+      ini.close();
+    }
+  }
+
+  @Test
+  public void testStatelessDeployment() throws IOException {
+    WebArchive webArchive = ShrinkWrap.create( WebArchive.class, "test-archive" );
+
+    Map<String,String> providerParams = new LinkedHashMap<>();
+    providerParams.put( "sessionMode", "stateless" );
+    providerParams.put( "main.ldapRealm", "org.apache.hadoop.gateway.shirorealm.KnoxLdapRealm" );
+    providerParams.put( "main.ldapRealm.userDnTemplate", "uid={0},ou=people,dc=hadoop,dc=apache,dc=org" );
+    providerParams.put( "urls./**", "authcBasic" );
+    Provider provider = new Provider();
+    provider.setEnabled( true );
+    provider.setName( "shiro" );
+    provider.setParams( providerParams );
+
+    Topology topology = new Topology();
+    topology.setName( "Sample" );
+
+    WebAppDescriptor descriptor = Descriptors.create( WebAppDescriptor.class );
+    DeploymentContext context = EasyMock.createNiceMock( DeploymentContext.class );
+    EasyMock.expect( context.getWebArchive() ).andReturn( webArchive ).anyTimes();
+    EasyMock.expect( context.getWebAppDescriptor() ).andReturn( descriptor ).anyTimes();
+    EasyMock.expect( context.getTopology() ).andReturn( topology ).anyTimes();
+    EasyMock.replay( context );
+
+    new ShiroDeploymentContributor().contributeProvider( context, provider );
+
+    assertThat( descriptor.getAllSessionConfig().isEmpty(), is( true ) );
+
+    String config;
+    InputStream ini = webArchive.get( "WEB-INF/shiro.ini" ).getAsset().openStream();
+    try {
+      config = IOUtils.toString( ini );
+    } finally {
+      ini.close();
+    }
+    assertThat( config, containsString( "/**=noSessionCreation, authcBasic\n" ) );
+    assertThat( config, containsString( "ldapRealm.authenticationResultCacheEnabled=true\n" ) );
+
+    Ini shiroIni = new Ini();
+    shiroIni.load( config );
+    DefaultWebSecurityManager securityManager =
+        (DefaultWebSecurityManager)new WebIniSecurityManagerFactory( shiroIni ).getInstance();
+    assertThat( securityManager.getRememberMeManager(), instanceOf( DisabledRememberMeManager.class ) );
+    DefaultSubjectDAO subjectDAO = (DefaultSubjectDAO)securityManager.getSubjectDAO();
+    assertThat( ((DefaultSessionStorageEvaluator)subjectDAO.getSessionStorageEvaluator()).isSessionStorageEnabled(), is( false ) );
+    securityManager.destroy();
+  }
+
 }
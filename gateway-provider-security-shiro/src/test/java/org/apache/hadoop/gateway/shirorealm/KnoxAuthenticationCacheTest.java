@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.gateway.shirorealm;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.naming.ldap.LdapContext;
+
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.realm.ldap.LdapContextFactory;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KnoxAuthenticationCacheTest {
+
+  private static byte[] bytes( String s ) {
+    return s.getBytes( StandardCharsets.UTF_8 );
+  }
+
+  @Test
+  public void testCachedAuthentication() {
+    KnoxAuthenticationCache cache = new KnoxAuthenticationCache( 10, 60000 );
+    assertFalse( cache.isAuthenticated( "guest", bytes( "guest-password" ) ) );
+    cache.authenticated( "guest", bytes( "guest-password" ) );
+    assertTrue( cache.isAuthenticated( "guest", bytes( "guest-password" ) ) );
+    assertFalse( cache.isAuthenticated( "guest", bytes( "other-password" ) ) );
+    assertFalse( cache.isAuthenticated( "other", bytes( "guest-password" ) ) );
+    assertEquals( 1, cache.getHitCount() );
+    assertEquals( 3, cache.getMissCount() );
+
+    cache.invalidate( "guest" );
+    assertFalse( cache.isAuthenticated( "guest", bytes( "guest-password" ) ) );
+  }
+
+  @Test
+  public void testEmptyCredentialsAreNotCached() {
+    KnoxAuthenticationCache cache = new KnoxAuthenticationCache( 10, 60000 );
+    cache.authenticated( "guest", new byte[ 0 ] );
+    cache.authenticated( "guest", null );
+    assertEquals( 0, cache.size() );
+    assertFalse( cache.isAuthenticated( "guest", new byte[ 0 ] ) );
+  }
+
+  @Test
+  public void testExpiryAndMaxSize() throws Exception {
+    KnoxAuthenticationCache cache = new KnoxAuthenticationCache( 10, 1 );
+    cache.authenticated( "guest", bytes( "guest-password" ) );
+    Thread.sleep( 5 );
+    assertFalse( cache.isAuthenticated( "guest", bytes( "guest-password" ) ) );
+    assertEquals( 0, cache.size() );
+
+    cache = new KnoxAuthenticationCache( 10, 60000 );
+    for( int i = 0; i < 25; i++ ) {
+      cache.authenticated( "user" + i, bytes( "password" ) );
+    }
+    assertTrue( cache.size() <= 10 );
+  }
+
+  @Test
+  public void testRealmSkipsBindForCachedCredentials() throws Exception {
+    LdapContext context = EasyMock.createNiceMock( LdapContext.class );
+    LdapContextFactory factory = EasyMock.createMock( LdapContextFactory.class );
+    EasyMock.expect( factory.getLdapContext( EasyMock.eq( (Object)"guest" ), EasyMock.anyObject() ) ).andReturn( context ).times( 1 );
+    EasyMock.expect( factory.getLdapContext( EasyMock.eq( (Object)"guest" ), EasyMock.anyObject() ) )
+        .andThrow( new javax.naming.AuthenticationException() ).times( 1 );
+    EasyMock.expect( factory.getLdapContext( EasyMock.eq( (Object)"guest" ), EasyMock.anyObject() ) ).andReturn( context ).times( 1 );
+    EasyMock.replay( context, factory );
+
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    realm.setContextFactory( factory );
+    realm.setAuthenticationResultCacheEnabled( true );
+
+    assertNotNull( realm.getAuthenticationInfo( new UsernamePasswordToken( "guest", "guest-password" ) ) );
+    assertNotNull( realm.getAuthenticationInfo( new UsernamePasswordToken( "guest", "guest-password" ) ) );
+    try {
+      realm.getAuthenticationInfo( new UsernamePasswordToken( "guest", "wrong-password" ) );
+      fail( "Expected the bind to fail." );
+    } catch( AuthenticationException e ) {
+      // Expected.
+    }
+    // The failed bind invalidates the cached authentication.
+    assertNotNull( realm.getAuthenticationInfo( new UsernamePasswordToken( "guest", "guest-password" ) ) );
+    EasyMock.verify( factory );
+  }
+
+}
@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.shirorealm;
+
+import org.apache.hadoop.gateway.services.metrics.impl.DefaultMetricsService;
+import org.apache.shiro.cache.Cache;
+import org.apache.shiro.config.ReflectionBuilder;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class KnoxCacheManagerTest {
+
+  @Test
+  public void testCacheLimitsAndOverrides() {
+    KnoxCacheManager manager = new KnoxCacheManager();
+    manager.setMaxEntries( 100 );
+    manager.setTimeToLive( 1000 );
+    manager.setTimeToIdle( 0 );
+    manager.setCacheMaxEntries( "authenticationCache:10" );
+    manager.setCacheTimeToIdle( "org.example.Realm_0.authorizationCache:500" );
+
+    KnoxCache<?,?> authc = (KnoxCache<?,?>)manager.getCache( "org.example.Realm_0.authenticationCache" );
+    assertEquals( 10, authc.getMaxEntries() );
+    assertEquals( 1000, authc.getTimeToLive() );
+    assertEquals( 0, authc.getTimeToIdle() );
+
+    KnoxCache<?,?> authz = (KnoxCache<?,?>)manager.getCache( "org.example.Realm_0.authorizationCache" );
+    assertEquals( 100, authz.getMaxEntries() );
+    assertEquals( 500, authz.getTimeToIdle() );
+
+    assertSame( authc, manager.getCache( "org.example.Realm_0.authenticationCache" ) );
+    manager.destroy();
+  }
+
+  @Test
+  public void testEhCacheConfigFileIsIgnored() {
+    Map<String,String> ini = new LinkedHashMap<>();
+    ini.put( "cacheManager", KnoxCacheManager.class.getName() );
+    ini.put( "cacheManager.cacheManagerConfigFile", "classpath:ehcache.xml" );
+    ini.put( "cacheManager.maxEntries", "50" );
+    Map<String,?> objects = new ReflectionBuilder().buildObjects( ini );
+
+    KnoxCacheManager manager = (KnoxCacheManager)objects.get( "cacheManager" );
+    assertEquals( 50, manager.getMaxEntries() );
+    assertNotNull( manager.getCache( "authenticationCache" ) );
+    manager.destroy();
+  }
+
+  @Test
+  public void testInvalidOverride() {
+    KnoxCacheManager manager = new KnoxCacheManager();
+    try {
+      manager.setCacheMaxEntries( "authenticationCache" );
+      fail( "Expected IllegalArgumentException" );
+    } catch( IllegalArgumentException e ) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testHitsMissesAndEvictions() {
+    KnoxCache<String,String> cache = new KnoxCache<>( "test", 10, 0, 0 );
+    assertNull( cache.get( "missing" ) );
+    cache.put( "key", "value" );
+    assertEquals( "value", cache.get( "key" ) );
+    assertEquals( 1, cache.getHitCount() );
+    assertEquals( 1, cache.getMissCount() );
+
+    for( int i = 0; i < 25; i++ ) {
+      cache.put( "key" + i, "value" );
+    }
+    assertTrue( cache.size() <= 10 );
+    assertTrue( cache.getEvictionCount() > 0 );
+
+    assertEquals( "value", cache.put( "key24", "other" ) );
+    assertEquals( "other", cache.remove( "key24" ) );
+    cache.clear();
+    assertEquals( 0, cache.size() );
+  }
+
+  @Test
+  public void testExpiry() throws Exception {
+    KnoxCache<String,String> live = new KnoxCache<>( "live", 10, 1, 0 );
+    live.put( "key", "value" );
+    Thread.sleep( 5 );
+    assertNull( live.get( "key" ) );
+    assertEquals( 1, live.getExpirationCount() );
+    assertEquals( 0, live.size() );
+
+    KnoxCache<String,String> idle = new KnoxCache<>( "idle", 10, 0, 50 );
+    idle.put( "read", "value" );
+    idle.put( "unread", "value" );
+    for( int i = 0; i < 4; i++ ) {
+      Thread.sleep( 20 );
+      assertEquals( "value", idle.get( "read" ) );
+    }
+    assertTrue( idle.keys().contains( "read" ) );
+    assertFalse( idle.keys().contains( "unread" ) );
+    assertEquals( 1, idle.values().size() );
+  }
+
+  @Test
+  public void testMetricsArePublishedPerTopology() {
+    KnoxCacheManager manager = new KnoxCacheManager();
+    manager.setClusterName( "sandbox" );
+    Cache<String,String> cache = manager.getCache( "authorizationCache" );
+    cache.get( "missing" );
+
+    String name = "shiro.cache.sandbox.authorizationCache.misses";
+    assertEquals( 1L, DefaultMetricsService.getMetricRegistry().getGauges().get( name ).getValue() );
+    assertEquals( 1L, manager.getCacheMetrics().get( "authorizationCache" ).get( "misses" ) );
+
+    manager.destroy();
+    assertFalse( DefaultMetricsService.getMetricRegistry().getGauges().containsKey( name ) );
+  }
+
+}
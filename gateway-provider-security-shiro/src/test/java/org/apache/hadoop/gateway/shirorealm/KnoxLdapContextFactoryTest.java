@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.shirorealm;
+
+import org.apache.hadoop.gateway.services.metrics.impl.DefaultMetricsService;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import static org.junit.Assert.*;
+
+public class KnoxLdapContextFactoryTest {
+
+  @Test
+  public void testPoolMetricsAreRemovedOnDestroy() {
+    MetricRegistry registry = DefaultMetricsService.getMetricRegistry();
+    KnoxLdapContextFactory factory = new KnoxLdapContextFactory();
+    factory.setClusterName( "sandbox" );
+    factory.setConnectionPoolEnabled( true );
+    KnoxLdapContextPool pool = factory.getPool( true );
+    factory.getPool( false );
+
+    assertEquals( "ldap.connection.pool.sandbox.system.active", factory.metricName( true, "active" ) );
+    for( String metric : KnoxLdapContextPool.METRICS ) {
+      assertNotNull( registry.getGauges().get( factory.metricName( true, metric ) ) );
+      assertNotNull( registry.getGauges().get( factory.metricName( false, metric ) ) );
+    }
+    assertEquals( 0L, registry.getGauges().get( factory.metricName( true, "created" ) ).getValue() );
+    assertEquals( pool.getMetrics().keySet().size(), KnoxLdapContextPool.METRICS.length );
+
+    factory.destroy();
+    for( String metric : KnoxLdapContextPool.METRICS ) {
+      assertNull( registry.getGauges().get( factory.metricName( true, metric ) ) );
+      assertNull( registry.getGauges().get( factory.metricName( false, metric ) ) );
+    }
+  }
+
+}
@@ -0,0 +1,221 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.gateway.shirorealm;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
+import javax.naming.AuthenticationException;
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KnoxLdapContextPoolTest {
+
+  private static class MockSource implements KnoxLdapContextPool.ContextSource {
+    List<LdapContext> contexts = new ArrayList<>();
+    @Override
+    public LdapContext createContext( Hashtable<?,?> environment ) throws NamingException {
+      LdapContext context = EasyMock.createNiceMock( LdapContext.class );
+      EasyMock.expect( context.getEnvironment() ).andReturn( new Hashtable<>() ).anyTimes();
+      EasyMock.expect( context.getAttributes( EasyMock.eq( "" ), EasyMock.<String[]>anyObject() ) )
+          .andReturn( new BasicAttributes() ).anyTimes();
+      EasyMock.replay( context );
+      contexts.add( context );
+      return context;
+    }
+  }
+
+  private static Hashtable<String,Object> env( String principal, String credentials ) {
+    Hashtable<String,Object> env = new Hashtable<>();
+    env.put( Context.SECURITY_PRINCIPAL, principal );
+    env.put( Context.SECURITY_CREDENTIALS, credentials );
+    env.put( Context.SECURITY_AUTHENTICATION, "simple" );
+    return env;
+  }
+
+  @Test
+  public void testConnectionIsReused() throws Exception {
+    MockSource source = new MockSource();
+    KnoxLdapContextPool pool = new KnoxLdapContextPool( "test", source, 0, 2, 0, 100, false, false );
+
+    LdapContext first = pool.borrow( env( "system", "secret" ) );
+    assertEquals( 1, pool.getActiveCount() );
+    first.close();
+    assertEquals( 0, pool.getActiveCount() );
+    assertEquals( 1, pool.getIdleCount() );
+
+    // Closing twice must not return the connection twice.
+    first.close();
+    assertEquals( 1, pool.getIdleCount() );
+
+    LdapContext second = pool.borrow( env( "system", "secret" ) );
+    second.close();
+    assertEquals( 1, source.contexts.size() );
+    assertEquals( 2, pool.getBorrowedCount() );
+    assertEquals( 1, pool.getCreatedCount() );
+    pool.close();
+    assertEquals( 1, pool.getDestroyedCount() );
+  }
+
+  @Test
+  public void testClosedContextCannotBeUsed() throws Exception {
+    MockSource source = new MockSource();
+    KnoxLdapContextPool pool = new KnoxLdapContextPool( "test", source, 0, 1, 0, 100, false, false );
+
+    LdapContext first = pool.borrow( env( "system", "secret" ) );
+    first.close();
+    // The connection is now lent to someone else.
+    LdapContext second = pool.borrow( env( "system", "secret" ) );
+    assertEquals( 1, source.contexts.size() );
+    try {
+      first.getAttributes( "cn=test" );
+      fail( "Expected the closed context to be refused." );
+    } catch( NamingException e ) {
+      // Expected.
+    }
+    first.close();
+    assertEquals( 1, pool.getActiveCount() );
+    assertEquals( 0, pool.getIdleCount() );
+
+    assertNotNull( second.getEnvironment() );
+    second.close();
+    assertEquals( 1, pool.getIdleCount() );
+    pool.close();
+  }
+
+  @Test
+  public void testExhaustedPool() throws Exception {
+    KnoxLdapContextPool pool = new KnoxLdapContextPool( "test", new MockSource(), 0, 1, 0, 50, false, false );
+    LdapContext context = pool.borrow( env( "system", "secret" ) );
+    try {
+      pool.borrow( env( "system", "secret" ) );
+      fail( "Expected the pool to be exhausted." );
+    } catch( ServiceUnavailableException e ) {
+      // Expected.
+    }
+    assertEquals( 1, pool.getExhaustedCount() );
+    assertEquals( 1, pool.getWaitCount() );
+    context.close();
+    pool.borrow( env( "system", "secret" ) ).close();
+    pool.close();
+  }
+
+  @Test
+  public void testBrokenConnectionIsDiscarded() throws Exception {
+    KnoxLdapContextPool.ContextSource source = new KnoxLdapContextPool.ContextSource() {
+      @Override
+      public LdapContext createContext( Hashtable<?,?> environment ) throws NamingException {
+        LdapContext context = EasyMock.createNiceMock( LdapContext.class );
+        EasyMock.expect( context.getAttributes( "cn=test" ) ).andThrow( new CommunicationException() );
+        EasyMock.replay( context );
+        return context;
+      }
+    };
+    KnoxLdapContextPool pool = new KnoxLdapContextPool( "test", source, 0, 2, 0, 100, false, false );
+    LdapContext context = pool.borrow( env( "system", "secret" ) );
+    try {
+      context.getAttributes( "cn=test" );
+      fail( "Expected a communication failure." );
+    } catch( CommunicationException e ) {
+      // Expected.
+    }
+    context.close();
+    assertEquals( 0, pool.getIdleCount() );
+    assertEquals( 0, pool.getActiveCount() );
+    assertEquals( 1, pool.getDestroyedCount() );
+    pool.close();
+  }
+
+  @Test
+  public void testReusedConnectionIsRebound() throws Exception {
+    final LdapContext context = EasyMock.createStrictMock( LdapContext.class );
+    context.setRequestControls( null );
+    EasyMock.expect( context.addToEnvironment( Context.SECURITY_AUTHENTICATION, "simple" ) ).andReturn( null );
+    EasyMock.expect( context.addToEnvironment( Context.SECURITY_PRINCIPAL, "uid=bob" ) ).andReturn( null );
+    EasyMock.expect( context.addToEnvironment( Context.SECURITY_CREDENTIALS, "bob-password" ) ).andReturn( null );
+    context.reconnect( EasyMock.<Control[]>isNull() );
+    context.setRequestControls( null );
+    EasyMock.replay( context );
+
+    KnoxLdapContextPool pool = new KnoxLdapContextPool( "test", new KnoxLdapContextPool.ContextSource() {
+      @Override
+      public LdapContext createContext( Hashtable<?,?> environment ) {
+        return context;
+      }
+    }, 0, 1, 0, 100, false, true );
+    pool.borrow( env( "uid=alice", "alice-password" ) ).close();
+    pool.borrow( env( "uid=bob", "bob-password" ) ).close();
+    EasyMock.verify( context );
+  }
+
+  @Test
+  public void testFailedRebindDiscardsConnection() throws Exception {
+    final LdapContext context = EasyMock.createNiceMock( LdapContext.class );
+    context.reconnect( EasyMock.<Control[]>isNull() );
+    EasyMock.expectLastCall().andThrow( new AuthenticationException() );
+    context.close();
+    EasyMock.expectLastCall().once();
+    EasyMock.replay( context );
+
+    KnoxLdapContextPool pool = new KnoxLdapContextPool( "test", new KnoxLdapContextPool.ContextSource() {
+      @Override
+      public LdapContext createContext( Hashtable<?,?> environment ) {
+        return context;
+      }
+    }, 0, 1, 0, 100, false, true );
+    pool.borrow( env( "uid=alice", "alice-password" ) ).close();
+    try {
+      pool.borrow( env( "uid=alice", "wrong" ) );
+      fail( "Expected the bind to fail." );
+    } catch( AuthenticationException e ) {
+      // Expected.
+    }
+    assertEquals( 0, pool.getIdleCount() );
+    assertEquals( 0, pool.getActiveCount() );
+    EasyMock.verify( context );
+  }
+
+  @Test
+  public void testMaintenanceEvictsIdleAndFills() throws Exception {
+    MockSource source = new MockSource();
+    KnoxLdapContextPool pool = new KnoxLdapContextPool( "test", source, 1, 3, 1, 100, false, false );
+    LdapContext a = pool.borrow( env( "system", "secret" ) );
+    LdapContext b = pool.borrow( env( "system", "secret" ) );
+    a.close();
+    b.close();
+    assertEquals( 2, pool.getIdleCount() );
+    Thread.sleep( 10 );
+    pool.maintain();
+    assertEquals( 1, pool.getIdleCount() );
+    assertEquals( 1, pool.getDestroyedCount() );
+    pool.close();
+  }
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.gateway.shirorealm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.CommunicationException;
+import javax.naming.NamingException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KnoxLdapGroupCacheTest {
+
+  private static class QueuedExecutor implements Executor {
+    List<Runnable> tasks = new ArrayList<>();
+    @Override
+    public void execute( Runnable command ) {
+      tasks.add( command );
+    }
+    void runAll() {
+      List<Runnable> run = new ArrayList<>( tasks );
+      tasks.clear();
+      for( Runnable task : run ) {
+        task.run();
+      }
+    }
+  }
+
+  private static class CountingLoader implements KnoxLdapGroupCache.Loader {
+    AtomicInteger count = new AtomicInteger();
+    volatile boolean fail = false;
+    @Override
+    public KnoxLdapGroupCache.Membership load( String userDn ) throws NamingException {
+      if( fail ) {
+        throw new CommunicationException( "Directory unavailable" );
+      }
+      String group = "group" + count.incrementAndGet();
+      return new KnoxLdapGroupCache.Membership( Collections.singleton( group ), Collections.singleton( group ) );
+    }
+  }
+
+  @Test
+  public void testCachedMembership() throws Exception {
+    QueuedExecutor executor = new QueuedExecutor();
+    KnoxLdapGroupCache cache = new KnoxLdapGroupCache( 10, 60000, 30000, 0, executor );
+    CountingLoader loader = new CountingLoader();
+
+    assertEquals( Collections.singleton( "group1" ), cache.get( "uid=guest", loader ).getGroupNames() );
+    assertEquals( Collections.singleton( "group1" ), cache.get( "uid=guest", loader ).getGroupNames() );
+    assertEquals( 1, loader.count.get() );
+    assertEquals( 1, cache.getHitCount() );
+    assertEquals( 1, cache.getMissCount() );
+    assertTrue( executor.tasks.isEmpty() );
+
+    cache.get( "uid=other", loader );
+    assertEquals( 2, loader.count.get() );
+    assertEquals( 2, cache.size() );
+  }
+
+  @Test
+  public void testRefreshAhead() throws Exception {
+    QueuedExecutor executor = new QueuedExecutor();
+    KnoxLdapGroupCache cache = new KnoxLdapGroupCache( 10, 60000, 0, 0, executor );
+    CountingLoader loader = new CountingLoader();
+
+    cache.get( "uid=guest", loader );
+    // The stale but unexpired entry is returned immediately and reloaded in the background once.
+    assertEquals( Collections.singleton( "group1" ), cache.get( "uid=guest", loader ).getRoleNames() );
+    assertEquals( Collections.singleton( "group1" ), cache.get( "uid=guest", loader ).getRoleNames() );
+    assertEquals( 1, executor.tasks.size() );
+    executor.runAll();
+    assertEquals( 1, cache.getRefreshCount() );
+    assertEquals( Collections.singleton( "group2" ), cache.get( "uid=guest", loader ).getRoleNames() );
+  }
+
+  @Test
+  public void testServeStaleOnFailure() throws Exception {
+    QueuedExecutor executor = new QueuedExecutor();
+    KnoxLdapGroupCache cache = new KnoxLdapGroupCache( 10, 1, 1, 60000, executor );
+    CountingLoader loader = new CountingLoader();
+
+    cache.get( "uid=guest", loader );
+    Thread.sleep( 5 );
+    loader.fail = true;
+    assertEquals( Collections.singleton( "group1" ), cache.get( "uid=guest", loader ).getGroupNames() );
+    assertEquals( 1, cache.getStaleHitCount() );
+
+    try {
+      cache.get( "uid=unknown", loader );
+      fail( "Expected the lookup to fail." );
+    } catch( CommunicationException e ) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testNoStaleBeyondMaxStale() throws Exception {
+    KnoxLdapGroupCache cache = new KnoxLdapGroupCache( 10, 1, 1, 0, new QueuedExecutor() );
+    CountingLoader loader = new CountingLoader();
+    cache.get( "uid=guest", loader );
+    Thread.sleep( 5 );
+    loader.fail = true;
+    try {
+      cache.get( "uid=guest", loader );
+      fail( "Expected the lookup to fail." );
+    } catch( CommunicationException e ) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testMaxSize() throws Exception {
+    KnoxLdapGroupCache cache = new KnoxLdapGroupCache( 10, 60000, 60000, 0, new QueuedExecutor() );
+    CountingLoader loader = new CountingLoader();
+    for( int i = 0; i < 25; i++ ) {
+      cache.get( "uid=user" + i, loader );
+    }
+    assertTrue( cache.size() <= 10 );
+  }
+
+}
@@ -19,6 +19,12 @@
 
 package org.apache.hadoop.gateway.shirorealm;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.naming.NamingException;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -100,5 +106,42 @@ public class KnoxLdapRealmTest {
     realm.setSearchBase("dc=knox,dc=example,dc=com");
     assertEquals(realm.getGroupSearchBase(), "dc=knox,dc=example,dc=com");
   }
-  
+
+  @Test
+  public void destroyStopsGroupRefreshThreads() throws Exception {
+    KnoxLdapRealm realm = new KnoxLdapRealm();
+    realm.setName("lifecycle-test");
+    realm.setGroupCacheEnabled(true);
+    realm.setGroupCacheRefreshAfter(0);
+    KnoxLdapGroupCache cache = realm.getGroupCache();
+    KnoxLdapGroupCache.Loader loader = new KnoxLdapGroupCache.Loader() {
+      @Override
+      public KnoxLdapGroupCache.Membership load(String userDn) throws NamingException {
+        return new KnoxLdapGroupCache.Membership(Collections.<String>emptySet(), Collections.<String>emptySet());
+      }
+    };
+    // The second lookup is a hit old enough to be refreshed in the background.
+    cache.get("uid=guest", loader);
+    cache.get("uid=guest", loader);
+    assertFalse(refreshThreads(realm).isEmpty());
+
+    realm.destroy();
+    for (Thread thread : refreshThreads(realm)) {
+      thread.join(10000);
+      assertFalse(thread.isAlive());
+    }
+    assertNotSame(cache, realm.getGroupCache());
+    realm.destroy();
+  }
+
+  private static Set<Thread> refreshThreads(KnoxLdapRealm realm) {
+    Set<Thread> threads = new HashSet<>();
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals("knox-ldap-group-refresh-" + realm.getName())) {
+        threads.add(thread);
+      }
+    }
+    return threads;
+  }
+
 }
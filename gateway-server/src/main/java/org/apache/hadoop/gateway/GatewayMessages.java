@@ -550,4 +550,34 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.DEBUG, text = "Removed descriptor {0} reference to provider configuration {1}." )
   void removedProviderConfigurationReference(String descriptorName, String providerConfigurationName);
 
+  @Message( level = MessageLevel.DEBUG, text = "Resolved local address {0} to host name {1}." )
+  void resolvedLocalHostName(String address, String hostName);
+
+  @Message( level = MessageLevel.WARN, text = "Failed to enumerate the local network interfaces: {0}" )
+  void failedToEnumerateNetworkInterfaces(@StackTrace( level = MessageLevel.DEBUG ) Exception e);
+
+  @Message( level = MessageLevel.INFO, text = "Loaded token signing key {0} with key id {1}." )
+  void loadedTokenSigningKey(String alias, String kid);
+
+  @Message( level = MessageLevel.WARN, text = "Failed to reload the token signing key, the previous key remains in use: {0}" )
+  void failedToReloadTokenSigningKey(@StackTrace( level = MessageLevel.DEBUG ) Exception e);
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to load the token HMAC secret, HMAC signed tokens cannot be issued or verified: {0}" )
+  void failedToLoadTokenHmacSecret(@StackTrace( level = MessageLevel.DEBUG ) Exception e);
+
+  @Message( level = MessageLevel.INFO, text = "Using the {0} group lookup backend." )
+  void configuredGroupLookupBackend(String backend);
+
+  @Message( level = MessageLevel.WARN, text = "Failed to look up the groups of {0}: {1}" )
+  void failedToLookupGroups(String principal, @StackTrace( level = MessageLevel.DEBUG ) Exception e);
+
+  @Message( level = MessageLevel.INFO, text = "Revoked token {0}." )
+  void revokedToken(String tokenId);
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to load the token state from {0}: {1}" )
+  void failedToLoadTokenState(String file, @StackTrace( level = MessageLevel.DEBUG ) Exception e);
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to save the token state to {0}: {1}" )
+  void failedToSaveTokenState(String file, @StackTrace( level = MessageLevel.DEBUG ) Exception e);
+
 }
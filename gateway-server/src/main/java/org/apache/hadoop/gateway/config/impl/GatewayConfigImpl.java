@@ -36,9 +36,11 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 /**
  * The configuration for the Gateway.
@@ -209,10 +211,36 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   private static final String CRYPTO_ALGORITHM = GATEWAY_CONFIG_FILE_PREFIX + ".crypto.algorithm";
   private static final String CRYPTO_PBE_ALGORITHM = GATEWAY_CONFIG_FILE_PREFIX + ".crypto.pbe.algorithm";
   private static final String CRYPTO_TRANSFORMATION = GATEWAY_CONFIG_FILE_PREFIX + ".crypto.transformation";
+  private static final String CRYPTO_LEGACY_TRANSFORMATION = GATEWAY_CONFIG_FILE_PREFIX + ".crypto.legacy.transformation";
   private static final String CRYPTO_SALTSIZE = GATEWAY_CONFIG_FILE_PREFIX + ".crypto.salt.size";
   private static final String CRYPTO_ITERATION_COUNT = GATEWAY_CONFIG_FILE_PREFIX + ".crypto.iteration.count";
   private static final String CRYPTO_KEY_LENGTH = GATEWAY_CONFIG_FILE_PREFIX + ".crypto.key.length";
   public static final String SERVER_HEADER_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".server.header.enabled";
+  public static final String LOCAL_HOSTNAME_REFRESH_INTERVAL = GATEWAY_CONFIG_FILE_PREFIX + ".local.hostname.refresh.interval";
+  public static final long DEFAULT_LOCAL_HOSTNAME_REFRESH_INTERVAL = 300L;
+  public static final String STATIC_ASSET_CACHE_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".static.asset.cache.enabled";
+  public static final boolean DEFAULT_STATIC_ASSET_CACHE_ENABLED = false;
+  public static final String STATIC_ASSET_CACHE_MAX_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".static.asset.cache.max.size";
+  public static final long DEFAULT_STATIC_ASSET_CACHE_MAX_SIZE = 64L * 1024L * 1024L;
+  public static final String GROUP_LOOKUP_BACKEND = GATEWAY_CONFIG_FILE_PREFIX + ".group.lookup.backend";
+  public static final String DEFAULT_GROUP_LOOKUP_BACKEND = "none";
+  public static final String GROUP_LOOKUP_BACKEND_PROPERTY_PREFIX = GATEWAY_CONFIG_FILE_PREFIX + ".group.lookup.config.";
+  public static final String GROUP_LOOKUP_CACHE_TTL = GATEWAY_CONFIG_FILE_PREFIX + ".group.lookup.cache.ttl";
+  public static final long DEFAULT_GROUP_LOOKUP_CACHE_TTL = 300L;
+  public static final String GROUP_LOOKUP_NEGATIVE_CACHE_TTL = GATEWAY_CONFIG_FILE_PREFIX + ".group.lookup.negative.cache.ttl";
+  public static final long DEFAULT_GROUP_LOOKUP_NEGATIVE_CACHE_TTL = 30L;
+  public static final String GROUP_LOOKUP_CACHE_MAX_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".group.lookup.cache.max.size";
+  public static final int DEFAULT_GROUP_LOOKUP_CACHE_MAX_SIZE = 10000;
+  public static final String NON_EXPIRING_TOKEN_RETENTION = GATEWAY_CONFIG_FILE_PREFIX + ".token.state.nonexpiring.retention";
+  public static final long DEFAULT_NON_EXPIRING_TOKEN_RETENTION = 30L * 24 * 60 * 60;
+  public static final String SSL_SESSION_CACHING_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".ssl.session.caching.enabled";
+  public static final boolean DEFAULT_SSL_SESSION_CACHING_ENABLED = true;
+  public static final String SSL_SESSION_CACHE_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".ssl.session.cache.size";
+  public static final int DEFAULT_SSL_SESSION_CACHE_SIZE = 20480;
+  public static final String SSL_SESSION_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".ssl.session.timeout";
+  public static final int DEFAULT_SSL_SESSION_TIMEOUT = 86400;
+  public static final String SSL_SERVER_CIPHER_ORDER_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".ssl.server.cipher.order.enabled";
+  public static final boolean DEFAULT_SSL_SERVER_CIPHER_ORDER_ENABLED = true;
 
   private static List<String> DEFAULT_GLOBAL_RULES_SERVICES;
 
@@ -904,6 +932,11 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
 	return getVar(CRYPTO_TRANSFORMATION, null);
   }
 
+  @Override
+  public String getLegacyTransformation() {
+	return getVar(CRYPTO_LEGACY_TRANSFORMATION, null);
+  }
+
   @Override
   public String getSaltSize() {
 	return getVar(CRYPTO_SALTSIZE, null);
@@ -923,4 +956,73 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public boolean isGatewayServerHeaderEnabled() {
     return Boolean.parseBoolean(getVar(SERVER_HEADER_ENABLED, "true"));
   }
+
+  @Override
+  public long getLocalHostNameRefreshInterval() {
+    return getLong(LOCAL_HOSTNAME_REFRESH_INTERVAL, DEFAULT_LOCAL_HOSTNAME_REFRESH_INTERVAL);
+  }
+
+  @Override
+  public boolean isStaticAssetCacheEnabled() {
+    return Boolean.parseBoolean(get(STATIC_ASSET_CACHE_ENABLED, Boolean.toString(DEFAULT_STATIC_ASSET_CACHE_ENABLED)));
+  }
+
+  @Override
+  public long getStaticAssetCacheMaxSize() {
+    return getLong(STATIC_ASSET_CACHE_MAX_SIZE, DEFAULT_STATIC_ASSET_CACHE_MAX_SIZE);
+  }
+
+  @Override
+  public String getGroupLookupBackend() {
+    return get(GROUP_LOOKUP_BACKEND, DEFAULT_GROUP_LOOKUP_BACKEND).trim();
+  }
+
+  @Override
+  public Map<String, String> getGroupLookupBackendProperties() {
+    Map<String, String> properties = new HashMap<>();
+    for (Map.Entry<String, String> entry : getValByRegex(Pattern.quote(GROUP_LOOKUP_BACKEND_PROPERTY_PREFIX) + ".+").entrySet()) {
+      properties.put(entry.getKey().substring(GROUP_LOOKUP_BACKEND_PROPERTY_PREFIX.length()), entry.getValue());
+    }
+    return properties;
+  }
+
+  @Override
+  public long getGroupLookupCacheTtl() {
+    return getLong(GROUP_LOOKUP_CACHE_TTL, DEFAULT_GROUP_LOOKUP_CACHE_TTL);
+  }
+
+  @Override
+  public long getGroupLookupNegativeCacheTtl() {
+    return getLong(GROUP_LOOKUP_NEGATIVE_CACHE_TTL, DEFAULT_GROUP_LOOKUP_NEGATIVE_CACHE_TTL);
+  }
+
+  @Override
+  public int getGroupLookupCacheMaxSize() {
+    return getInt(GROUP_LOOKUP_CACHE_MAX_SIZE, DEFAULT_GROUP_LOOKUP_CACHE_MAX_SIZE);
+  }
+
+  @Override
+  public boolean isSSLSessionCachingEnabled() {
+    return Boolean.parseBoolean(get(SSL_SESSION_CACHING_ENABLED, Boolean.toString(DEFAULT_SSL_SESSION_CACHING_ENABLED)));
+  }
+
+  @Override
+  public int getSSLSessionCacheSize() {
+    return getInt(SSL_SESSION_CACHE_SIZE, DEFAULT_SSL_SESSION_CACHE_SIZE);
+  }
+
+  @Override
+  public int getSSLSessionTimeout() {
+    return getInt(SSL_SESSION_TIMEOUT, DEFAULT_SSL_SESSION_TIMEOUT);
+  }
+
+  @Override
+  public boolean isSSLServerCipherOrderEnabled() {
+    return Boolean.parseBoolean(get(SSL_SERVER_CIPHER_ORDER_ENABLED, Boolean.toString(DEFAULT_SSL_SERVER_CIPHER_ORDER_ENABLED)));
+  }
+
+  @Override
+  public long getNonExpiringTokenRetention() {
+    return getLong(NON_EXPIRING_TOKEN_RETENTION, DEFAULT_NON_EXPIRING_TOKEN_RETENTION);
+  }
 }
@@ -24,6 +24,7 @@ import org.apache.hadoop.gateway.descriptor.FilterParamDescriptor;
 import org.apache.hadoop.gateway.descriptor.ResourceDescriptor;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.services.topology.impl.DefaultTopologyService;
+import org.apache.hadoop.gateway.services.token.impl.DefaultTokenStateService;
 import org.apache.hadoop.gateway.services.security.impl.DefaultAliasService;
 import org.apache.hadoop.gateway.services.security.impl.DefaultCryptoService;
 import org.apache.hadoop.gateway.services.security.impl.DefaultKeystoreService;
@@ -68,6 +69,10 @@ public class CLIGatewayServices implements GatewayServices {
     crypto.init(config, options);
     services.put(CRYPTO_SERVICE, crypto);
 
+    DefaultTokenStateService tokenState = new DefaultTokenStateService();
+    tokenState.init(config, options);
+    services.put(TOKEN_STATE_SERVICE, tokenState);
+
     DefaultTopologyService tops = new DefaultTopologyService();
     tops.init(  config, options  );
     services.put(TOPOLOGY_SERVICE, tops);
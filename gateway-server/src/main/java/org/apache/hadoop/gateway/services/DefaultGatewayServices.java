@@ -26,7 +26,9 @@ import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.services.registry.impl.DefaultServiceDefinitionRegistry;
 import org.apache.hadoop.gateway.services.metrics.impl.DefaultMetricsService;
 import org.apache.hadoop.gateway.services.topology.impl.DefaultTopologyService;
+import org.apache.hadoop.gateway.services.group.impl.DefaultGroupLookupService;
 import org.apache.hadoop.gateway.services.hostmap.impl.DefaultHostMapperService;
+import org.apache.hadoop.gateway.services.hostname.impl.DefaultLocalHostNameService;
 import org.apache.hadoop.gateway.services.registry.impl.DefaultServiceRegistryService;
 import org.apache.hadoop.gateway.services.security.KeystoreServiceException;
 import org.apache.hadoop.gateway.services.security.SSLService;
@@ -35,7 +37,9 @@ import org.apache.hadoop.gateway.services.security.impl.DefaultCryptoService;
 import org.apache.hadoop.gateway.services.security.impl.DefaultKeystoreService;
 import org.apache.hadoop.gateway.services.security.impl.DefaultMasterService;
 import org.apache.hadoop.gateway.services.security.impl.JettySSLService;
+import org.apache.hadoop.gateway.services.security.token.TokenStateService;
 import org.apache.hadoop.gateway.services.token.impl.DefaultTokenAuthorityService;
+import org.apache.hadoop.gateway.services.token.impl.DefaultTokenStateService;
 import org.apache.hadoop.gateway.topology.Provider;
 
 import java.util.Collection;
@@ -104,6 +108,19 @@ public class DefaultGatewayServices implements GatewayServices {
     sis.init( config, options );
     services.put( SERVER_INFO_SERVICE, sis );
 
+    DefaultLocalHostNameService lhn = new DefaultLocalHostNameService();
+    lhn.init( config, options );
+    services.put( LOCAL_HOSTNAME_SERVICE, lhn );
+
+    DefaultGroupLookupService groups = new DefaultGroupLookupService();
+    groups.setAliasService( alias );
+    groups.init( config, options );
+    services.put( GROUP_LOOKUP_SERVICE, groups );
+
+    DefaultTokenStateService tokenState = new DefaultTokenStateService();
+    tokenState.init( config, options );
+    services.put( TOKEN_STATE_SERVICE, tokenState );
+
     DefaultTopologyService tops = new DefaultTopologyService();
     tops.setAliasService(alias);
     tops.init(  config, options  );
@@ -132,6 +149,15 @@ public class DefaultGatewayServices implements GatewayServices {
     ServerInfoService sis = (ServerInfoService) services.get(SERVER_INFO_SERVICE);
     sis.start();
 
+    LocalHostNameService lhn = (LocalHostNameService) services.get(LOCAL_HOSTNAME_SERVICE);
+    lhn.start();
+
+    GroupLookupService groups = (GroupLookupService) services.get(GROUP_LOOKUP_SERVICE);
+    groups.start();
+
+    TokenStateService tokenState = (TokenStateService) services.get(TOKEN_STATE_SERVICE);
+    tokenState.start();
+
     DefaultTopologyService tops = (DefaultTopologyService)services.get(TOPOLOGY_SERVICE);
     tops.start();
 
@@ -153,6 +179,15 @@ public class DefaultGatewayServices implements GatewayServices {
     ServerInfoService sis = (ServerInfoService) services.get(SERVER_INFO_SERVICE);
     sis.stop();
 
+    LocalHostNameService lhn = (LocalHostNameService) services.get(LOCAL_HOSTNAME_SERVICE);
+    lhn.stop();
+
+    GroupLookupService groups = (GroupLookupService) services.get(GROUP_LOOKUP_SERVICE);
+    groups.stop();
+
+    TokenStateService tokenState = (TokenStateService) services.get(TOKEN_STATE_SERVICE);
+    tokenState.stop();
+
     DefaultTopologyService tops = (DefaultTopologyService)services.get(TOPOLOGY_SERVICE);
     tops.stop();
 
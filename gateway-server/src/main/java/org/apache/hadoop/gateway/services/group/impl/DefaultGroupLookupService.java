@@ -0,0 +1,285 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.group.impl;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.hadoop.gateway.GatewayMessages;
+import org.apache.hadoop.gateway.config.GatewayConfig;
+import org.apache.hadoop.gateway.config.impl.GatewayConfigImpl;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.GroupLookupBackend;
+import org.apache.hadoop.gateway.services.GroupLookupService;
+import org.apache.hadoop.gateway.services.ServiceLifecycleException;
+import org.apache.hadoop.gateway.services.metrics.impl.DefaultMetricsService;
+import org.apache.hadoop.gateway.services.security.AliasService;
+import org.apache.hadoop.gateway.services.security.AliasServiceException;
+import org.apache.hadoop.gateway.util.BoundedCache;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Looks up groups with the configured backend and caches them for the whole gateway.
+ * Principals without groups are cached for the shorter negative time to live.  Concurrent
+ * lookups of the same principal share a single backend call.  When a lookup fails the last
+ * known groups of the principal are returned, if any, and nothing is cached.  The least recently
+ * used principals are dropped once the cache is full; expired entries are kept until then so that
+ * they can still serve as last known groups.
+ * <p>
+ * Backend property values of the form S{ALIAS=name} are resolved from the gateway's
+ * credential store.
+ */
+public class DefaultGroupLookupService implements GroupLookupService {
+
+  private static GatewayMessages log = MessagesFactory.get( GatewayMessages.class );
+
+  private static final String ALIAS_PREFIX = "S{ALIAS=";
+
+  private static final Map<String, String> BACKENDS = new HashMap<>();
+  static {
+    BACKENDS.put( "static", StaticGroupLookupBackend.class.getName() );
+    BACKENDS.put( "ldap", LdapGroupLookupBackend.class.getName() );
+    BACKENDS.put( "hadoop", HadoopGroupLookupBackend.class.getName() );
+  }
+
+  private volatile BoundedCache<String, Entry> entries =
+      new BoundedCache<>( GatewayConfigImpl.DEFAULT_GROUP_LOOKUP_CACHE_MAX_SIZE, 0 );
+  private final ConcurrentMap<String, FutureTask<Set<String>>> pending = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong negativeHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+
+  private AliasService aliasService;
+  private GroupLookupBackend backend;
+  private long ttl;
+  private long negativeTtl;
+
+  public void setAliasService( AliasService aliasService ) {
+    this.aliasService = aliasService;
+  }
+
+  @Override
+  public void init( GatewayConfig config, Map<String, String> options ) throws ServiceLifecycleException {
+    ttl = TimeUnit.SECONDS.toMillis( config.getGroupLookupCacheTtl() );
+    negativeTtl = TimeUnit.SECONDS.toMillis( config.getGroupLookupNegativeCacheTtl() );
+    entries = new BoundedCache<>( Math.max( 1, config.getGroupLookupCacheMaxSize() ), 0 );
+    String name = config.getGroupLookupBackend();
+    if( name != null && !name.isEmpty() && !"none".equalsIgnoreCase( name ) ) {
+      setBackend( createBackend( name ), resolveAliases( config.getGroupLookupBackendProperties() ) );
+      log.configuredGroupLookupBackend( name );
+    }
+    registerMetrics();
+  }
+
+  void setBackend( GroupLookupBackend backend, Map<String, String> properties ) throws ServiceLifecycleException {
+    backend.init( properties );
+    this.backend = backend;
+  }
+
+  @Override
+  public void start() throws ServiceLifecycleException {
+  }
+
+  @Override
+  public void stop() throws ServiceLifecycleException {
+    clear();
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return backend != null;
+  }
+
+  @Override
+  public Set<String> getGroups( final String principal ) {
+    if( backend == null || principal == null ) {
+      return Collections.emptySet();
+    }
+    Entry entry = entries.get( principal );
+    if( entry != null && System.currentTimeMillis() < entry.expires ) {
+      if( entry.groups.isEmpty() ) {
+        negativeHits.incrementAndGet();
+      } else {
+        hits.incrementAndGet();
+      }
+      return entry.groups;
+    }
+    misses.incrementAndGet();
+    FutureTask<Set<String>> task = new FutureTask<>( new Callable<Set<String>>() {
+      @Override
+      public Set<String> call() throws IOException {
+        return load( principal );
+      }
+    } );
+    FutureTask<Set<String>> existing = pending.putIfAbsent( principal, task );
+    if( existing == null ) {
+      try {
+        task.run();
+      } finally {
+        pending.remove( principal, task );
+      }
+    } else {
+      task = existing;
+    }
+    try {
+      return task.get();
+    } catch( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    } catch( ExecutionException e ) {
+      if( existing == null ) {
+        failures.incrementAndGet();
+        log.failedToLookupGroups( principal, e.getCause() instanceof Exception ? (Exception)e.getCause() : e );
+      }
+    }
+    return entry != null ? entry.groups : Collections.<String>emptySet();
+  }
+
+  private Set<String> load( String principal ) throws IOException {
+    Set<String> groups = backend.getGroups( principal );
+    groups = groups == null || groups.isEmpty()
+        ? Collections.<String>emptySet()
+        : Collections.unmodifiableSet( new LinkedHashSet<>( groups ) );
+    long expires = System.currentTimeMillis() + ( groups.isEmpty() ? negativeTtl : ttl );
+    entries.put( principal, new Entry( groups, expires ) );
+    return groups;
+  }
+
+  @Override
+  public void invalidate( String principal ) {
+    if( principal != null ) {
+      entries.remove( principal );
+    }
+  }
+
+  @Override
+  public void clear() {
+    entries.clear();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getNegativeHitCount() {
+    return negativeHits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public long getFailureCount() {
+    return failures.get();
+  }
+
+  private GroupLookupBackend createBackend( String name ) throws ServiceLifecycleException {
+    String className = BACKENDS.containsKey( name.toLowerCase() ) ? BACKENDS.get( name.toLowerCase() ) : name;
+    try {
+      return (GroupLookupBackend)Class.forName( className ).newInstance();
+    } catch( ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e ) {
+      throw new ServiceLifecycleException( "Invalid group lookup backend: " + name, e );
+    }
+  }
+
+  private Map<String, String> resolveAliases( Map<String, String> properties ) throws ServiceLifecycleException {
+    Map<String, String> resolved = new HashMap<>();
+    for( Map.Entry<String, String> property : properties.entrySet() ) {
+      String value = property.getValue();
+      if( value != null && value.startsWith( ALIAS_PREFIX ) && value.endsWith( "}" ) && aliasService != null ) {
+        String alias = value.substring( ALIAS_PREFIX.length(), value.length() - 1 );
+        try {
+          char[] password = aliasService.getPasswordFromAliasForGateway( alias );
+          value = password == null ? null : new String( password );
+        } catch( AliasServiceException e ) {
+          throw new ServiceLifecycleException( "Unable to resolve alias " + alias, e );
+        }
+      }
+      resolved.put( property.getKey(), value );
+    }
+    return resolved;
+  }
+
+  private void registerMetrics() {
+    MetricRegistry registry = DefaultMetricsService.getMetricRegistry();
+    Map<String, Gauge<?>> gauges = new HashMap<>();
+    gauges.put( "size", new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return size();
+      }
+    } );
+    gauges.put( "hits", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return getHitCount();
+      }
+    } );
+    gauges.put( "negative.hits", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return getNegativeHitCount();
+      }
+    } );
+    gauges.put( "misses", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return getMissCount();
+      }
+    } );
+    gauges.put( "failures", new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return getFailureCount();
+      }
+    } );
+    for( Map.Entry<String, Gauge<?>> gauge : gauges.entrySet() ) {
+      String name = MetricRegistry.name( "group.lookup", gauge.getKey() );
+      registry.remove( name );
+      registry.register( name, gauge.getValue() );
+    }
+  }
+
+  private static class Entry {
+    private final Set<String> groups;
+    private final long expires;
+
+    private Entry( Set<String> groups, long expires ) {
+      this.groups = groups;
+      this.expires = expires;
+    }
+  }
+
+}
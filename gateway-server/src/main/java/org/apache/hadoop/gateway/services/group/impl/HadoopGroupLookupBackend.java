@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.group.impl;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.gateway.services.GroupLookupBackend;
+import org.apache.hadoop.gateway.services.ServiceLifecycleException;
+import org.apache.hadoop.security.Groups;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Looks up groups with Hadoop's group mapping.  The backend properties are passed to
+ * Hadoop as is, for example hadoop.security.group.mapping.
+ */
+public class HadoopGroupLookupBackend implements GroupLookupBackend {
+
+  private Groups groups;
+
+  @Override
+  public void init( Map<String, String> properties ) throws ServiceLifecycleException {
+    Configuration config = new Configuration( false );
+    for( Map.Entry<String, String> property : properties.entrySet() ) {
+      if( property.getValue() != null ) {
+        config.set( property.getKey(), property.getValue() );
+      }
+    }
+    try {
+      groups = new Groups( config );
+    } catch( RuntimeException e ) {
+      throw new ServiceLifecycleException( "Unable to create the Hadoop group mapping.", e );
+    }
+  }
+
+  @Override
+  public Set<String> getGroups( String principal ) throws IOException {
+    try {
+      return new LinkedHashSet<>( groups.getGroups( principal ) );
+    } catch( IOException e ) {
+      if( e.toString().contains( "No groups found for user" ) ) {
+        return Collections.emptySet();
+      }
+      throw e;
+    }
+  }
+
+}
@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.group.impl;
+
+import org.apache.hadoop.gateway.services.GroupLookupBackend;
+import org.apache.hadoop.gateway.services.ServiceLifecycleException;
+
+import javax.naming.Context;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.InitialLdapContext;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsControl;
+import javax.naming.ldap.PagedResultsResponseControl;
+import javax.naming.ldap.Rdn;
+import java.io.IOException;
+import java.util.Hashtable;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Looks up groups by searching an LDAP directory for the groups whose member attribute
+ * contains the principal's DN.  Connections use the JDK LDAP connection pool and large
+ * result sets are read with the paged results control.
+ * <pre>
+ * gateway.group.lookup.backend=ldap
+ * gateway.group.lookup.config.url=ldap://localhost:33389
+ * gateway.group.lookup.config.system.username=uid=guest,ou=people,dc=hadoop,dc=apache,dc=org
+ * gateway.group.lookup.config.system.password=S{ALIAS=ldapGroupLookupPassword}
+ * gateway.group.lookup.config.user.dn.template=uid={0},ou=people,dc=hadoop,dc=apache,dc=org
+ * gateway.group.lookup.config.group.search.base=ou=groups,dc=hadoop,dc=apache,dc=org
+ * gateway.group.lookup.config.group.object.class=groupOfNames
+ * gateway.group.lookup.config.group.member.attribute=member
+ * gateway.group.lookup.config.group.id.attribute=cn
+ * </pre>
+ */
+public class LdapGroupLookupBackend implements GroupLookupBackend {
+
+  public static final String URL = "url";
+  public static final String SYSTEM_USERNAME = "system.username";
+  public static final String SYSTEM_PASSWORD = "system.password";
+  public static final String USER_DN_TEMPLATE = "user.dn.template";
+  public static final String GROUP_SEARCH_BASE = "group.search.base";
+  public static final String GROUP_OBJECT_CLASS = "group.object.class";
+  public static final String GROUP_MEMBER_ATTRIBUTE = "group.member.attribute";
+  public static final String GROUP_ID_ATTRIBUTE = "group.id.attribute";
+  public static final String PAGE_SIZE = "page.size";
+
+  private static final String CONNECTION_POOLING = "com.sun.jndi.ldap.connect.pool";
+
+  private Hashtable<String, String> environment;
+  private String userDnTemplate;
+  private String groupSearchBase;
+  private String groupObjectClass;
+  private String memberAttribute;
+  private String groupIdAttribute;
+  private int pageSize;
+
+  @Override
+  public void init( Map<String, String> properties ) throws ServiceLifecycleException {
+    String url = properties.get( URL );
+    groupSearchBase = properties.get( GROUP_SEARCH_BASE );
+    if( url == null || groupSearchBase == null ) {
+      throw new ServiceLifecycleException(
+          "The ldap group lookup backend requires the " + URL + " and " + GROUP_SEARCH_BASE + " properties." );
+    }
+    environment = new Hashtable<>();
+    environment.put( Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory" );
+    environment.put( Context.PROVIDER_URL, url );
+    environment.put( Context.REFERRAL, "ignore" );
+    environment.put( CONNECTION_POOLING, "true" );
+    String username = properties.get( SYSTEM_USERNAME );
+    if( username != null ) {
+      environment.put( Context.SECURITY_AUTHENTICATION, "simple" );
+      environment.put( Context.SECURITY_PRINCIPAL, username );
+      String password = properties.get( SYSTEM_PASSWORD );
+      if( password != null ) {
+        environment.put( Context.SECURITY_CREDENTIALS, password );
+      }
+    }
+    userDnTemplate = get( properties, USER_DN_TEMPLATE, "{0}" );
+    groupObjectClass = get( properties, GROUP_OBJECT_CLASS, "groupOfNames" );
+    memberAttribute = get( properties, GROUP_MEMBER_ATTRIBUTE, "member" );
+    groupIdAttribute = get( properties, GROUP_ID_ATTRIBUTE, "cn" );
+    try {
+      pageSize = Integer.parseInt( get( properties, PAGE_SIZE, "100" ) );
+    } catch( NumberFormatException e ) {
+      throw new ServiceLifecycleException( "Invalid " + PAGE_SIZE + " for the ldap group lookup backend.", e );
+    }
+  }
+
+  @Override
+  public Set<String> getGroups( String principal ) throws IOException {
+    String userDn = userDnTemplate.replace( "{0}", Rdn.escapeValue( principal ) );
+    Set<String> groups = new LinkedHashSet<>();
+    SearchControls controls = new SearchControls();
+    controls.setSearchScope( SearchControls.SUBTREE_SCOPE );
+    controls.setReturningAttributes( new String[]{ groupIdAttribute } );
+    LdapContext context = null;
+    try {
+      context = new InitialLdapContext( environment, null );
+      byte[] cookie = null;
+      context.setRequestControls( new Control[]{ new PagedResultsControl( pageSize, Control.NONCRITICAL ) } );
+      do {
+        NamingEnumeration<SearchResult> results = context.search( groupSearchBase,
+            "(&(objectClass={0})(" + memberAttribute + "={1}))",
+            new Object[]{ groupObjectClass, userDn }, controls );
+        try {
+          while( results.hasMore() ) {
+            Attribute id = results.next().getAttributes().get( groupIdAttribute );
+            if( id != null && id.get() != null ) {
+              groups.add( id.get().toString() );
+            }
+          }
+        } finally {
+          results.close();
+        }
+        cookie = null;
+        Control[] responseControls = context.getResponseControls();
+        if( responseControls != null ) {
+          for( Control control : responseControls ) {
+            if( control instanceof PagedResultsResponseControl ) {
+              cookie = ( (PagedResultsResponseControl)control ).getCookie();
+            }
+          }
+        }
+        if( cookie != null ) {
+          context.setRequestControls( new Control[]{ new PagedResultsControl( pageSize, cookie, Control.CRITICAL ) } );
+        }
+      } while( cookie != null );
+    } catch( NamingException e ) {
+      throw new IOException( "Failed to look up the groups of " + principal, e );
+    } finally {
+      if( context != null ) {
+        try {
+          context.close();
+        } catch( NamingException e ) {
+          // Ignore exception on close.
+        }
+      }
+    }
+    return groups;
+  }
+
+  private static String get( Map<String, String> properties, String name, String defaultValue ) {
+    String value = properties.get( name );
+    return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+  }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.group.impl;
+
+import org.apache.hadoop.gateway.services.GroupLookupBackend;
+import org.apache.hadoop.gateway.services.ServiceLifecycleException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Reads group memberships from a properties file with one principal per line followed
+ * by a comma separated list of groups, for example {@code guest=users,analysts}.  The file
+ * is reloaded when it changes.
+ */
+public class StaticGroupLookupBackend implements GroupLookupBackend {
+
+  public static final String FILE = "file";
+
+  private File file;
+  private long lastModified = -1;
+  private volatile Map<String, Set<String>> groups = Collections.emptyMap();
+
+  @Override
+  public void init( Map<String, String> properties ) throws ServiceLifecycleException {
+    String path = properties.get( FILE );
+    if( path == null || path.trim().isEmpty() ) {
+      throw new ServiceLifecycleException( "The static group lookup backend requires the " + FILE + " property." );
+    }
+    file = new File( path.trim() );
+    try {
+      reload();
+    } catch( IOException e ) {
+      throw new ServiceLifecycleException( "Unable to read group file " + file, e );
+    }
+  }
+
+  @Override
+  public Set<String> getGroups( String principal ) throws IOException {
+    reload();
+    Set<String> result = groups.get( principal );
+    return result == null ? Collections.<String>emptySet() : result;
+  }
+
+  private synchronized void reload() throws IOException {
+    long modified = file.lastModified();
+    if( modified == lastModified ) {
+      return;
+    }
+    Properties properties = new Properties();
+    try( InputStream input = new FileInputStream( file ) ) {
+      properties.load( input );
+    }
+    Map<String, Set<String>> loaded = new HashMap<>();
+    for( String principal : properties.stringPropertyNames() ) {
+      Set<String> names = new LinkedHashSet<>();
+      for( String group : properties.getProperty( principal ).split( "," ) ) {
+        if( !group.trim().isEmpty() ) {
+          names.add( group.trim() );
+        }
+      }
+      loaded.put( principal, Collections.unmodifiableSet( names ) );
+    }
+    groups = loaded;
+    lastModified = modified;
+  }
+
+}
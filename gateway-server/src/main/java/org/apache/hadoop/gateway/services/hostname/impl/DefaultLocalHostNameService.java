@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.hostname.impl;
+
+import org.apache.hadoop.gateway.GatewayMessages;
+import org.apache.hadoop.gateway.config.GatewayConfig;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.LocalHostNameService;
+import org.apache.hadoop.gateway.services.ServiceLifecycleException;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the host names of the local connector addresses once and keeps
+ * them in memory.  The names are refreshed on a background thread at the
+ * configured interval and any address not seen before is resolved
+ * asynchronously the first time it is requested.
+ */
+public class DefaultLocalHostNameService implements LocalHostNameService {
+
+  private static GatewayMessages log = MessagesFactory.get( GatewayMessages.class );
+
+  private final Map<String, String> hostNames = new ConcurrentHashMap<>();
+  private final Map<String, Boolean> pending = new ConcurrentHashMap<>();
+  private ScheduledExecutorService executor;
+  private long refreshInterval;
+  private String gatewayHost;
+
+  @Override
+  public void init( GatewayConfig config, Map<String, String> options ) throws ServiceLifecycleException {
+    refreshInterval = config.getLocalHostNameRefreshInterval();
+    gatewayHost = config.getGatewayHost();
+    executor = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+      @Override
+      public Thread newThread( Runnable runnable ) {
+        Thread thread = new Thread( runnable, "local-hostname-resolver" );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+  }
+
+  @Override
+  public void start() throws ServiceLifecycleException {
+    // Prime the cache with the addresses the connectors may be bound to.
+    if( gatewayHost != null && !"0.0.0.0".equals( gatewayHost ) ) {
+      resolveGatewayHost();
+    } else {
+      resolveNetworkInterfaces();
+    }
+    if( refreshInterval > 0 ) {
+      executor.scheduleWithFixedDelay( new Runnable() {
+        @Override
+        public void run() {
+          refresh();
+        }
+      }, refreshInterval, refreshInterval, TimeUnit.SECONDS );
+    }
+  }
+
+  @Override
+  public void stop() throws ServiceLifecycleException {
+    if( executor != null ) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Override
+  public String getHostName( String address ) {
+    if( address == null ) {
+      return null;
+    }
+    String hostName = hostNames.get( address );
+    if( hostName == null ) {
+      hostName = address;
+      scheduleResolve( address );
+    }
+    return hostName;
+  }
+
+  @Override
+  public void refresh() {
+    for( String address : hostNames.keySet() ) {
+      resolve( address );
+    }
+  }
+
+  private void scheduleResolve( final String address ) {
+    if( executor != null && pending.putIfAbsent( address, Boolean.TRUE ) == null ) {
+      try {
+        executor.execute( new Runnable() {
+          @Override
+          public void run() {
+            try {
+              resolve( address );
+            } finally {
+              pending.remove( address );
+            }
+          }
+        } );
+      } catch( RejectedExecutionException e ) {
+        pending.remove( address );
+      }
+    }
+  }
+
+  private void resolve( String address ) {
+    String hostName = address;
+    try {
+      hostName = InetAddress.getByName( address ).getHostName();
+    } catch( UnknownHostException e ) {
+      // Ignore it and use the original address.
+    }
+    hostNames.put( address, hostName );
+    log.resolvedLocalHostName( address, hostName );
+  }
+
+  // The connectors report the address they are bound to, so a host name is primed under each
+  // of its addresses as well as under the name itself.
+  private void resolveGatewayHost() {
+    resolve( gatewayHost );
+    try {
+      for( InetAddress address : InetAddress.getAllByName( gatewayHost ) ) {
+        String hostAddress = address.getHostAddress();
+        if( !hostNames.containsKey( hostAddress ) ) {
+          resolve( hostAddress );
+        }
+      }
+    } catch( UnknownHostException e ) {
+      // Ignore it, the addresses are resolved when they are first requested.
+    }
+  }
+
+  private void resolveNetworkInterfaces() {
+    try {
+      Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+      while( interfaces != null && interfaces.hasMoreElements() ) {
+        Enumeration<InetAddress> addresses = interfaces.nextElement().getInetAddresses();
+        while( addresses.hasMoreElements() ) {
+          InetAddress address = addresses.nextElement();
+          String hostAddress = address.getHostAddress();
+          hostNames.put( hostAddress, address.getHostName() );
+          log.resolvedLocalHostName( hostAddress, hostNames.get( hostAddress ) );
+        }
+      }
+    } catch( SocketException e ) {
+      log.failedToEnumerateNetworkInterfaces( e );
+    }
+  }
+
+}
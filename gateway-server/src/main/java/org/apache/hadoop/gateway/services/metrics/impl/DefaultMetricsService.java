@@ -18,6 +18,7 @@
 package org.apache.hadoop.gateway.services.metrics.impl;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
 import org.apache.hadoop.gateway.GatewayMessages;
 import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
@@ -38,7 +39,7 @@ import java.util.ServiceLoader;
 public class DefaultMetricsService implements MetricsService {
   private static GatewayMessages LOG = MessagesFactory.get( GatewayMessages.class );
 
-  private static final MetricRegistry metrics = new MetricRegistry();
+  private static final MetricRegistry metrics = SharedMetricRegistries.getOrCreate( METRIC_REGISTRY_NAME );
 
   public static final String METRICS_REGISTRY = "metrics-registry";
 
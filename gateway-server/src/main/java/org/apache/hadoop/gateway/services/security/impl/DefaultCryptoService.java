@@ -19,13 +19,18 @@ package org.apache.hadoop.gateway.services.security.impl;
 
 import java.io.UnsupportedEncodingException;
 import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.security.Signature;
 import java.security.SignatureException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 import org.apache.hadoop.gateway.GatewayMessages;
 import org.apache.hadoop.gateway.config.GatewayConfig;
@@ -43,8 +48,10 @@ public class DefaultCryptoService implements CryptoService {
 
   private AliasService as = null;
   private KeystoreService ks = null;
-  private HashMap<String,ConfigurableEncryptor> encryptorCache =
-		  new HashMap<String,ConfigurableEncryptor>();
+  private final ConcurrentMap<String,ConfigurableEncryptor> encryptorCache =
+      new ConcurrentHashMap<String,ConfigurableEncryptor>();
+  private final ConcurrentMap<String,LoadedKey> verificationKeys = new ConcurrentHashMap<String,LoadedKey>();
+  private final ConcurrentMap<String,LoadedKey> signingKeys = new ConcurrentHashMap<String,LoadedKey>();
   private GatewayConfig config = null;
 
   public void setKeystoreService(KeystoreService ks) {
@@ -97,7 +104,7 @@ public class DefaultCryptoService implements CryptoService {
     }
     if (password != null) {
       try {
-        return getEncryptor(clusterName,password).encrypt( clear );
+        return getEncryptor(clusterName, alias, password).encrypt( clear );
       } catch (NoSuchAlgorithmException e1) {
         LOG.failedToEncryptPasswordForCluster( clusterName, e1 );
       } catch (InvalidKeyException e) {
@@ -125,7 +132,7 @@ public class DefaultCryptoService implements CryptoService {
       final char[] password = as.getPasswordFromAliasForCluster(clusterName, alias);
       if (password != null) {
         try {
-          return getEncryptor(clusterName,password ).decrypt( salt, iv, cipherText);
+          return getEncryptor(clusterName, alias, password ).decrypt( salt, iv, cipherText);
         } catch (Exception e) {
           LOG.failedToDecryptPasswordForCluster( clusterName, e );
         }
@@ -144,7 +151,7 @@ public class DefaultCryptoService implements CryptoService {
     boolean verified = false;
     try {
       Signature sig=Signature.getInstance(algorithm);
-      sig.initVerify(ks.getKeystoreForGateway().getCertificate(alias).getPublicKey());
+      sig.initVerify(getVerificationKey(alias));
       sig.update(signed.getBytes("UTF-8"));
       verified = sig.verify(signature);
     } catch (SignatureException e) {
@@ -167,8 +174,7 @@ public class DefaultCryptoService implements CryptoService {
   @Override
   public byte[] sign(String algorithm, String alias, String payloadToSign) {
     try {
-      char[] passphrase = as.getGatewayIdentityPassphrase();
-      PrivateKey privateKey = (PrivateKey) ks.getKeyForGateway(alias, passphrase);
+      PrivateKey privateKey = getSigningKey(alias);
       Signature signature = Signature.getInstance(algorithm);
       signature.initSign(privateKey);
       signature.update(payloadToSign.getBytes("UTF-8"));
@@ -189,18 +195,58 @@ public class DefaultCryptoService implements CryptoService {
     return null;
   }
 
-  // The assumption here is that lock contention will be less of a performance issue than the cost of object creation.
-  // We have seen via profiling that AESEncryptor instantiation is very expensive.
-  private final ConfigurableEncryptor getEncryptor( final String clusterName, final char[] password ) {
-    synchronized( encryptorCache ) {
-    	ConfigurableEncryptor encryptor = encryptorCache.get( clusterName );
-      if( encryptor == null ) {
-        encryptor = new ConfigurableEncryptor( String.valueOf( password ) );
-        encryptor.init(config);
-        encryptorCache.put( clusterName, encryptor );
+  // Loading the keys from the keystore on every call is expensive so they are kept once loaded.
+  // They are reloaded when the keystore service reloads the gateway keystore.
+  private PublicKey getVerificationKey(String alias) throws KeyStoreException, KeystoreServiceException {
+    KeyStore keyStore = ks.getKeystoreForGateway();
+    LoadedKey loaded = verificationKeys.get(alias);
+    if (loaded == null || loaded.keyStore != keyStore) {
+      loaded = new LoadedKey(keyStore, keyStore.getCertificate(alias).getPublicKey());
+      verificationKeys.put(alias, loaded);
+    }
+    return (PublicKey) loaded.key;
+  }
+
+  private PrivateKey getSigningKey(String alias) throws KeystoreServiceException, AliasServiceException {
+    KeyStore keyStore = ks.getKeystoreForGateway();
+    LoadedKey loaded = signingKeys.get(alias);
+    if (loaded == null || loaded.keyStore != keyStore) {
+      char[] passphrase = as.getGatewayIdentityPassphrase();
+      PrivateKey key = (PrivateKey) ks.getKeyForGateway(alias, passphrase);
+      if (key == null) {
+        return null;
       }
-      return encryptor;
+      loaded = new LoadedKey(keyStore, key);
+      signingKeys.put(alias, loaded);
+    }
+    return (PrivateKey) loaded.key;
+  }
+
+  // We have seen via profiling that AESEncryptor instantiation is very expensive, so encryptors
+  // are kept per cluster and alias.  Lookups don't lock and the encryptors are thread safe.
+  private final ConfigurableEncryptor getEncryptor( final String clusterName, final String alias, final char[] password ) {
+    String key = clusterName + "/" + alias;
+    ConfigurableEncryptor encryptor = encryptorCache.get( key );
+    if( encryptor == null ) {
+      encryptor = encryptorCache.computeIfAbsent( key, new Function<String,ConfigurableEncryptor>() {
+        @Override
+        public ConfigurableEncryptor apply( String k ) {
+          ConfigurableEncryptor created = new ConfigurableEncryptor( String.valueOf( password ) );
+          created.init( config );
+          return created;
+        }
+      } );
     }
+    return encryptor;
   }
 
+  private static class LoadedKey {
+    private final KeyStore keyStore;
+    private final Key key;
+
+    private LoadedKey(KeyStore keyStore, Key key) {
+      this.keyStore = keyStore;
+      this.key = key;
+    }
+  }
 }
@@ -43,6 +43,8 @@ import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.text.MessageFormat;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DefaultKeystoreService extends BaseKeystoreService implements KeystoreService, Service {
 
@@ -58,6 +60,10 @@ public class DefaultKeystoreService extends BaseKeystoreService implements Keyst
   private String signingKeystoreName = null;
   private String signingKeyAlias = null;
 
+  // Aliases are resolved on request paths, so decrypted values are kept along with the credential
+  // store they were read from.  A reloaded store, after a write or a change on disk, misses.
+  private final ConcurrentMap<String, CachedCredential> credentials = new ConcurrentHashMap<String, CachedCredential>();
+
   @Override
   public void init(GatewayConfig config, Map<String, String> options)
       throws ServiceLifecycleException {
@@ -294,6 +300,11 @@ public class DefaultKeystoreService extends BaseKeystoreService implements Keyst
       throws KeystoreServiceException {
     char[] credential = null;
     KeyStore ks = getCredentialStoreForCluster(clusterName);
+    String cacheKey = clusterName + "/" + alias;
+    CachedCredential cached = credentials.get(cacheKey);
+    if (cached != null && cached.keyStore == ks) {
+      return cached.credential == null ? null : cached.credential.clone();
+    }
     if (ks != null) {
       try {
         char[] masterSecret = masterService.getMasterSecret();
@@ -303,6 +314,7 @@ public class DefaultKeystoreService extends BaseKeystoreService implements Keyst
           String credentialString = new String( credentialBytes );
           credential = credentialString.toCharArray();
         }
+        credentials.put(cacheKey, new CachedCredential(ks, credential == null ? null : credential.clone()));
       } catch (UnrecoverableKeyException e) {
         LOG.failedToGetCredentialForCluster( clusterName, e );
       } catch (KeyStoreException e) {
@@ -337,4 +349,14 @@ public class DefaultKeystoreService extends BaseKeystoreService implements Keyst
   public String getKeystorePath() {
     return keyStoreDir + GATEWAY_KEYSTORE;
   }
+
+  private static class CachedCredential {
+    private final KeyStore keyStore;
+    private final char[] credential;
+
+    private CachedCredential(KeyStore keyStore, char[] credential) {
+      this.keyStore = keyStore;
+      this.credential = credential;
+    }
+  }
 }
@@ -31,6 +31,8 @@ import java.security.cert.X509Certificate;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
 import javax.security.auth.x500.X500Principal;
 
 import org.apache.hadoop.gateway.GatewayMessages;
@@ -64,6 +66,10 @@ public class JettySSLService implements SSLService {
   private String keystoreType;
   private String trustStoreType;
   private boolean clientAuthWanted;
+  private boolean sslSessionCachingEnabled;
+  private int sslSessionCacheSize;
+  private int sslSessionTimeout;
+  private boolean sslServerCipherOrder;
 
   public void setMasterService(MasterService ms) {
     this.ms = ms;
@@ -131,6 +137,10 @@ public class JettySSLService implements SSLService {
     truststorePath = config.getTruststorePath();
     trustAllCerts = config.getTrustAllCerts();
     trustStoreType = config.getTruststoreType();
+    sslSessionCachingEnabled = config.isSSLSessionCachingEnabled();
+    sslSessionCacheSize = config.getSSLSessionCacheSize();
+    sslSessionTimeout = config.getSSLSessionTimeout();
+    sslServerCipherOrder = config.isSSLServerCipherOrderEnabled();
   }
 
   private void logAndValidateCertificate() throws ServiceLifecycleException {
@@ -169,7 +179,17 @@ public class JettySSLService implements SSLService {
   }
 
   public Object buildSslContextFactory( String keystoreFileName ) throws KeyStoreException, IOException, CertificateException, NoSuchAlgorithmException {
-    SslContextFactory sslContextFactory = new SslContextFactory( true );
+    SslContextFactory sslContextFactory = new SslContextFactory( true ) {
+      @Override
+      public void customize( SSLEngine sslEngine ) {
+        super.customize( sslEngine );
+        if( sslServerCipherOrder ) {
+          SSLParameters parameters = sslEngine.getSSLParameters();
+          parameters.setUseCipherSuitesOrder( true );
+          sslEngine.setSSLParameters( parameters );
+        }
+      }
+    };
     sslContextFactory.setCertAlias( "gateway-identity" );
     sslContextFactory.setKeyStoreType(keystoreType);
     sslContextFactory.setKeyStorePath(keystoreFileName);
@@ -230,6 +250,13 @@ public class JettySSLService implements SSLService {
     if (sslExcludeProtocols != null && !sslExcludeProtocols.isEmpty()) {
       sslContextFactory.setExcludeProtocols( sslExcludeProtocols.toArray(new String[sslExcludeProtocols.size()]) );
     }
+    // Resumed sessions skip the full handshake for clients that reconnect, such as browsers
+    // opening parallel connections for a UI or API clients coming back after an idle period.
+    sslContextFactory.setSessionCachingEnabled( sslSessionCachingEnabled );
+    if (sslSessionCachingEnabled) {
+      sslContextFactory.setSslSessionCacheSize( sslSessionCacheSize );
+      sslContextFactory.setSslSessionTimeout( sslSessionTimeout );
+    }
     return sslContextFactory;
   }
   
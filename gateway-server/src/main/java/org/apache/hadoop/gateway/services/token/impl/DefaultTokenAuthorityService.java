@@ -17,11 +17,19 @@
  */
 package org.apache.hadoop.gateway.services.token.impl;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyStoreException;
+import java.security.Key;
 import java.security.Principal;
 import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.List;
@@ -30,7 +38,9 @@ import java.util.HashSet;
 
 import javax.security.auth.Subject;
 
+import org.apache.hadoop.gateway.GatewayMessages;
 import org.apache.hadoop.gateway.config.GatewayConfig;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.services.Service;
 import org.apache.hadoop.gateway.services.ServiceLifecycleException;
 import org.apache.hadoop.gateway.services.security.AliasService;
@@ -42,21 +52,47 @@ import org.apache.hadoop.gateway.services.security.token.TokenServiceException;
 import org.apache.hadoop.gateway.services.security.token.impl.JWT;
 import org.apache.hadoop.gateway.services.security.token.impl.JWTToken;
 
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jose.crypto.RSASSASigner;
 import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.RSAKey;
 
 public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
 
+  private static final GatewayMessages LOG = MessagesFactory.get( GatewayMessages.class );
+
   private static final String SIGNING_KEY_PASSPHRASE = "signing.key.passphrase";
+  // The alias of the shared secret used for the HMAC (HS256/384/512) algorithms.
+  static final String SIGNING_HMAC_SECRET = "signing.hmac.secret";
   private static final Set<String> SUPPORTED_SIG_ALGS = new HashSet<>();
+
+  // The number of keys replaced by a rotation that are still accepted for verification.
+  static final int MAX_PREVIOUS_KEYS = 3;
+  // How often the signing keystore is checked for modification, in milliseconds.
+  static final long KEYSTORE_CHECK_INTERVAL = 60000L;
+
   private AliasService as = null;
   private KeystoreService ks = null;
   String signingKeyAlias = null;
+  private File signingKeystoreFile = null;
+
+  // The signing key and the verification key set are loaded once per keystore change.
+  // The key set maps each kid to its key with the current key first and is replaced, never modified.
+  private volatile SigningKey signingKey = null;
+  private volatile Map<String, SigningKey> verificationKeys = Collections.emptyMap();
+  private volatile long nextKeystoreCheck = 0;
+  private long keystoreLastModified = 0;
 
   static {
-      // Only standard RSA signature algorithms are accepted
+      // Only standard RSA, EC and HMAC signature algorithms are accepted
       // https://tools.ietf.org/html/rfc7518
       SUPPORTED_SIG_ALGS.add("RS256");
       SUPPORTED_SIG_ALGS.add("RS384");
@@ -64,6 +100,12 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
       SUPPORTED_SIG_ALGS.add("PS256");
       SUPPORTED_SIG_ALGS.add("PS384");
       SUPPORTED_SIG_ALGS.add("PS512");
+      SUPPORTED_SIG_ALGS.add("ES256");
+      SUPPORTED_SIG_ALGS.add("ES384");
+      SUPPORTED_SIG_ALGS.add("ES512");
+      SUPPORTED_SIG_ALGS.add("HS256");
+      SUPPORTED_SIG_ALGS.add("HS384");
+      SUPPORTED_SIG_ALGS.add("HS512");
   }
 
   public void setKeystoreService(KeystoreService ks) {
@@ -134,22 +176,28 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
 
     JWT token = null;
     if (SUPPORTED_SIG_ALGS.contains(algorithm)) {
-      token = new JWTToken(algorithm, claimArray, audiences);
-      RSAPrivateKey key;
-      char[] passphrase = null;
-      try {
-        passphrase = getSigningKeyPassphrase();
-      } catch (AliasServiceException e) {
-        throw new TokenServiceException(e);
+      JWSAlgorithm alg = JWSAlgorithm.parse(algorithm);
+      SigningKey key = getSigningKey();
+      JWSSigner signer;
+      String kid = null;
+      if (JWSAlgorithm.Family.HMAC_SHA.contains(alg)) {
+        signer = key.macSigner;
+        if (signer == null) {
+          throw new TokenServiceException("Cannot issue token - No HMAC secret has been provisioned as " + SIGNING_HMAC_SECRET);
+        }
       }
-      try {
-        key = (RSAPrivateKey) ks.getSigningKey(getSigningKeyAlias(),
-            passphrase);
-        JWSSigner signer = new RSASSASigner(key);
-        token.sign(signer);
-      } catch (KeystoreServiceException e) {
-        throw new TokenServiceException(e);
+      else {
+        if (key.signer == null) {
+          throw new TokenServiceException(key.signerError.getMessage(), key.signerError);
+        }
+        signer = key.signer;
+        kid = key.kid;
+      }
+      if (!signer.supportedJWSAlgorithms().contains(alg)) {
+        throw new TokenServiceException("Cannot issue token - The signing key does not support " + algorithm);
       }
+      token = new JWTToken(algorithm, claimArray, audiences, kid);
+      token.sign(signer);
     }
     else {
       throw new TokenServiceException("Cannot issue token - Unsupported algorithm");
@@ -183,26 +231,154 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
   public boolean verifyToken(JWT token, RSAPublicKey publicKey)
       throws TokenServiceException {
     boolean rc = false;
-    PublicKey key;
-    try {
-      if (publicKey == null) {
-        key = ks.getSigningKeystore().getCertificate(getSigningKeyAlias()).getPublicKey();
+    if (publicKey != null) {
+      JWSVerifier verifier = new RSASSAVerifier(publicKey);
+      rc = token.verify(verifier);
+    }
+    else {
+      SigningKey signing = getSigningKey();
+      JWSAlgorithm alg = JWSAlgorithm.parse(token.getSignatureAlgorithm());
+      if (JWSAlgorithm.Family.HMAC_SHA.contains(alg)) {
+        rc = signing.macVerifier != null && token.verify(signing.macVerifier);
       }
       else {
-        key = publicKey;
+        Map<String, SigningKey> keys = verificationKeys;
+        SigningKey key = null;
+        String kid = token.getKeyId();
+        if (kid != null) {
+          key = keys.get(kid);
+        }
+        if (key != null) {
+          rc = supports(key.verifier, alg) && token.verify(key.verifier);
+        }
+        else {
+          // Tokens without a known kid were issued before kids were attached or by a
+          // different signer so try each of the current and previous keys in turn.
+          for (SigningKey candidate : keys.values()) {
+            if (supports(candidate.verifier, alg) && token.verify(candidate.verifier)) {
+              rc = true;
+              break;
+            }
+          }
+        }
       }
-      JWSVerifier verifier = new RSASSAVerifier((RSAPublicKey) key);
-      // TODO: interrogate the token for issuer claim in order to determine the public key to use for verification
-      // consider jwk for specifying the key too
-      rc = token.verify(verifier);
-    } catch (KeyStoreException e) {
-      throw new TokenServiceException("Cannot verify token.", e);
-    } catch (KeystoreServiceException e) {
-      throw new TokenServiceException("Cannot verify token.", e);
     }
     return rc;
   }
 
+  private static boolean supports(JWSVerifier verifier, JWSAlgorithm alg) {
+    return verifier.supportedJWSAlgorithms().contains(alg);
+  }
+
+  /**
+   * Returns the current signing key, reloading it if the signing keystore has been
+   * modified.  The keystore is only examined once every KEYSTORE_CHECK_INTERVAL.
+   */
+  SigningKey getSigningKey() throws TokenServiceException {
+    SigningKey key = signingKey;
+    if (key == null || System.currentTimeMillis() >= nextKeystoreCheck) {
+      key = refreshSigningKey(false);
+    }
+    return key;
+  }
+
+  synchronized SigningKey refreshSigningKey(boolean force) throws TokenServiceException {
+    long now = System.currentTimeMillis();
+    if (!force && signingKey != null && now < nextKeystoreCheck) {
+      // Another thread has already checked the keystore.
+      return signingKey;
+    }
+    nextKeystoreCheck = now + KEYSTORE_CHECK_INTERVAL;
+    long lastModified = signingKeystoreFile == null ? 0 : signingKeystoreFile.lastModified();
+    if (!force && signingKey != null && lastModified == keystoreLastModified) {
+      return signingKey;
+    }
+    try {
+      SigningKey loaded = loadSigningKey();
+      keystoreLastModified = lastModified;
+      if (signingKey == null || !signingKey.kid.equals(loaded.kid)) {
+        Map<String, SigningKey> keys = new LinkedHashMap<>();
+        keys.put(loaded.kid, loaded);
+        for (SigningKey previous : verificationKeys.values()) {
+          if (keys.size() > MAX_PREVIOUS_KEYS) {
+            break;
+          }
+          if (!keys.containsKey(previous.kid)) {
+            keys.put(previous.kid, previous);
+          }
+        }
+        verificationKeys = Collections.unmodifiableMap(keys);
+        LOG.loadedTokenSigningKey(loaded.alias, loaded.kid);
+      }
+      signingKey = loaded;
+    } catch (TokenServiceException e) {
+      if (signingKey == null) {
+        throw e;
+      }
+      LOG.failedToReloadTokenSigningKey(e);
+    }
+    return signingKey;
+  }
+
+  private SigningKey loadSigningKey() throws TokenServiceException {
+    String alias = getSigningKeyAlias();
+    PublicKey publicKey;
+    JWSVerifier verifier;
+    String kid;
+    try {
+      Certificate cert = ks.getSigningKeystore().getCertificate(alias);
+      if (cert == null) {
+        throw new TokenServiceException("Cannot find the signing certificate " + alias);
+      }
+      publicKey = cert.getPublicKey();
+      if (publicKey instanceof RSAPublicKey) {
+        verifier = new RSASSAVerifier((RSAPublicKey) publicKey);
+        kid = new RSAKey.Builder((RSAPublicKey) publicKey).build().computeThumbprint().toString();
+      }
+      else if (publicKey instanceof ECPublicKey) {
+        ECPublicKey ecKey = (ECPublicKey) publicKey;
+        verifier = new ECDSAVerifier(ecKey);
+        kid = new ECKey.Builder(ECKey.Curve.forECParameterSpec(ecKey.getParams()), ecKey).build().computeThumbprint().toString();
+      }
+      else {
+        throw new TokenServiceException("Unsupported signing key type " + publicKey.getAlgorithm());
+      }
+    } catch (KeyStoreException | KeystoreServiceException | JOSEException e) {
+      throw new TokenServiceException("Cannot load the signing certificate.", e);
+    }
+
+    // The private key is only needed to issue tokens so a failure to acquire it is
+    // recorded and reported when a token is issued rather than preventing verification.
+    JWSSigner signer = null;
+    TokenServiceException signerError = null;
+    try {
+      Key privateKey = ks.getSigningKey(alias, getSigningKeyPassphrase());
+      if (privateKey instanceof RSAPrivateKey) {
+        signer = new RSASSASigner((RSAPrivateKey) privateKey);
+      } else if (privateKey instanceof ECPrivateKey) {
+        signer = new ECDSASigner((ECPrivateKey) privateKey);
+      } else {
+        signerError = new TokenServiceException("Cannot find a usable signing key " + alias);
+      }
+    } catch (AliasServiceException | KeystoreServiceException | JOSEException e) {
+      signerError = new TokenServiceException(e);
+    }
+
+    JWSSigner macSigner = null;
+    JWSVerifier macVerifier = null;
+    try {
+      char[] secret = as.getPasswordFromAliasForGateway(SIGNING_HMAC_SECRET);
+      if (secret != null) {
+        byte[] bytes = new String(secret).getBytes(StandardCharsets.UTF_8);
+        macSigner = new MACSigner(bytes);
+        macVerifier = new MACVerifier(bytes);
+      }
+    } catch (AliasServiceException | JOSEException e) {
+      LOG.failedToLoadTokenHmacSecret(e);
+    }
+    return new SigningKey(alias, kid, signer, signerError, verifier, macSigner, macVerifier);
+  }
+
   @Override
   public void init(GatewayConfig config, Map<String, String> options)
       throws ServiceLifecycleException {
@@ -210,14 +386,21 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
       throw new ServiceLifecycleException("Alias or Keystore service is not set");
     }
     signingKeyAlias = config.getSigningKeyAlias();
+    String signingKeystoreName = config.getSigningKeystoreName();
+    if (signingKeystoreName == null) {
+      String keystorePath = ks.getKeystorePath();
+      signingKeystoreFile = keystorePath == null ? null : new File(keystorePath);
+    } else {
+      signingKeystoreFile = new File(new File(config.getGatewaySecurityDir(), "keystores"), signingKeystoreName);
+    }
 
     @SuppressWarnings("unused")
-    RSAPrivateKey key;
+    Key key;
     char[] passphrase = null;
     try {
       passphrase = as.getPasswordFromAliasForGateway(SIGNING_KEY_PASSPHRASE);
       if (passphrase != null) {
-        key = (RSAPrivateKey) ks.getSigningKey(getSigningKeyAlias(),
+        key = ks.getSigningKey(getSigningKeyAlias(),
             passphrase);
         if (key == null) {
           throw new ServiceLifecycleException("Provisioned passphrase cannot be used to acquire signing key.");
@@ -237,4 +420,25 @@ public class DefaultTokenAuthorityService implements JWTokenAuthority, Service {
   @Override
   public void stop() throws ServiceLifecycleException {
   }
+
+  static class SigningKey {
+    final String alias;
+    final String kid;
+    final JWSSigner signer;
+    final TokenServiceException signerError;
+    final JWSVerifier verifier;
+    final JWSSigner macSigner;
+    final JWSVerifier macVerifier;
+
+    SigningKey(String alias, String kid, JWSSigner signer, TokenServiceException signerError, JWSVerifier verifier,
+               JWSSigner macSigner, JWSVerifier macVerifier) {
+      this.alias = alias;
+      this.kid = kid;
+      this.signer = signer;
+      this.signerError = signerError;
+      this.verifier = verifier;
+      this.macSigner = macSigner;
+      this.macVerifier = macVerifier;
+    }
+  }
 }
@@ -0,0 +1,413 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.token.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.gateway.GatewayMessages;
+import org.apache.hadoop.gateway.config.GatewayConfig;
+import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
+import org.apache.hadoop.gateway.services.ServiceLifecycleException;
+import org.apache.hadoop.gateway.services.security.token.TokenStateService;
+import org.apache.hadoop.gateway.services.security.token.impl.JWT;
+
+/**
+ * Records issued and revoked tokens in two append only files under the gateway's data
+ * directory, one line per token.  Revocation checks only read the current
+ * {@link RevokedTokenIndex}, which is replaced whenever a token is revoked.
+ * <p>
+ * Other processes, such as the KnoxCLI, update the same files, so every append and every
+ * read and rewrite holds an exclusive lock on a lock file next to them.  The lines appended to
+ * the revoked tokens file by others are read from where this service stopped reading, and
+ * the whole file is only read again after it has been rewritten.  Tokens are dropped from
+ * both files once they have expired.  A revoked token without an expiry is never dropped, while
+ * the record of an issued token without an expiry is only kept for the configured retention,
+ * if any, after it was issued.
+ */
+public class DefaultTokenStateService implements TokenStateService {
+
+  private static GatewayMessages log = MessagesFactory.get( GatewayMessages.class );
+
+  static final String TOKENS_DIR = "tokens";
+  static final String ISSUED_TOKENS_FILE = "issued";
+  static final String REVOKED_TOKENS_FILE = "revoked";
+  static final String LOCK_FILE = ".lock";
+
+  private static final long REFRESH_INTERVAL = TimeUnit.SECONDS.toMillis( 10 );
+
+  private final ConcurrentMap<String, IssuedToken> issued = new ConcurrentHashMap<>();
+  private volatile RevokedTokenIndex revoked = RevokedTokenIndex.EMPTY;
+  // also keeps the service instances of one JVM from requesting the file lock twice
+  private static final Object lock = new Object();
+
+  private File issuedFile;
+  private File revokedFile;
+  private File lockFile;
+  private Object revokedFileKey;
+  private long revokedFileOffset;
+  private long retention;
+  private ScheduledExecutorService refresher;
+
+  @Override
+  public void init( GatewayConfig config, Map<String, String> options ) throws ServiceLifecycleException {
+    File dir = new File( config.getGatewayDataDir(), TOKENS_DIR );
+    issuedFile = new File( dir, ISSUED_TOKENS_FILE );
+    revokedFile = new File( dir, REVOKED_TOKENS_FILE );
+    lockFile = new File( dir, LOCK_FILE );
+    retention = TimeUnit.SECONDS.toMillis( config.getNonExpiringTokenRetention() );
+    synchronized( lock ) {
+      try( FileChannel ignored = lockFiles() ) {
+        for( Map.Entry<String, String[]> entry : read( issuedFile ).entrySet() ) {
+          String[] fields = entry.getValue();
+          String subject = fields.length > 2 && !fields[ 2 ].isEmpty() ? fields[ 2 ] : null;
+          issued.put( entry.getKey(), new IssuedToken( subject, parseExpiry( fields ), parseIssued( fields ) ) );
+        }
+        readRevoked();
+      } catch( IOException e ) {
+        throw new ServiceLifecycleException( "Failed to load the token state from " + dir.getAbsolutePath(), e );
+      }
+    }
+  }
+
+  @Override
+  public void start() throws ServiceLifecycleException {
+    refresher = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+      @Override
+      public Thread newThread( Runnable runnable ) {
+        Thread thread = new Thread( runnable, "token-state-refresher" );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+    refresher.scheduleWithFixedDelay( new Runnable() {
+      @Override
+      public void run() {
+        refresh();
+      }
+    }, REFRESH_INTERVAL, REFRESH_INTERVAL, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public void stop() throws ServiceLifecycleException {
+    if( refresher != null ) {
+      refresher.shutdownNow();
+      refresher = null;
+    }
+  }
+
+  @Override
+  public void addToken( String tokenId, String subject, long expires ) {
+    if( tokenId == null ) {
+      return;
+    }
+    IssuedToken token = new IssuedToken( subject, expires, System.currentTimeMillis() );
+    synchronized( lock ) {
+      issued.put( tokenId, token );
+      try( FileChannel ignored = lockFiles() ) {
+        append( issuedFile, token.toLine( tokenId ) );
+      } catch( IOException e ) {
+        log.failedToSaveTokenState( issuedFile.getAbsolutePath(), e );
+      }
+    }
+  }
+
+  @Override
+  public boolean revokeToken( String tokenId ) {
+    if( tokenId == null ) {
+      return false;
+    }
+    // The record of a token without an expiry may have been dropped, so unknown ids are
+    // revoked for good.
+    IssuedToken token = issued.get( tokenId );
+    revoke( tokenId, token == null ? -1 : token.expires );
+    return true;
+  }
+
+  @Override
+  public boolean revokeToken( JWT token ) {
+    String tokenId = token.getClaim( JWT.JWT_ID );
+    if( tokenId == null ) {
+      return false;
+    }
+    Date expires = token.getExpiresDate();
+    revoke( tokenId, expires == null ? -1 : expires.getTime() );
+    return true;
+  }
+
+  @Override
+  public boolean isRevoked( String tokenId ) {
+    return revoked.contains( tokenId );
+  }
+
+  @Override
+  public boolean isRevoked( JWT token ) {
+    RevokedTokenIndex index = revoked;
+    // Nothing needs to be read from the token unless something has been revoked.
+    return !index.isEmpty() && index.contains( token.getClaim( JWT.JWT_ID ) );
+  }
+
+  int getRevokedTokenCount() {
+    return revoked.size();
+  }
+
+  int getIssuedTokenCount() {
+    return issued.size();
+  }
+
+  private void revoke( String tokenId, long expires ) {
+    synchronized( lock ) {
+      try( FileChannel ignored = lockFiles() ) {
+        // revocations appended by others since the last refresh must be read before ours
+        readRevoked();
+        if( !revoked.contains( tokenId ) ) {
+          revoked = revoked.with( tokenId, expires );
+          append( revokedFile, tokenId + "\t" + expires );
+          markRevokedFileRead();
+        }
+      } catch( IOException e ) {
+        log.failedToSaveTokenState( revokedFile.getAbsolutePath(), e );
+        if( !revoked.contains( tokenId ) ) {
+          revoked = revoked.with( tokenId, expires );
+        }
+      }
+    }
+    log.revokedToken( tokenId );
+  }
+
+  /**
+   * Reads the revocations made by other processes and drops the tokens that have expired.
+   */
+  void refresh() {
+    synchronized( lock ) {
+      try( FileChannel ignored = lockFiles() ) {
+        readRevoked();
+        long now = System.currentTimeMillis();
+        RevokedTokenIndex current = revoked.withoutExpired( now );
+        if( current != revoked ) {
+          revoked = current;
+          Map<String, String> lines = new HashMap<>();
+          for( Map.Entry<String, Long> entry : current.getTokens().entrySet() ) {
+            lines.put( entry.getKey(), entry.getKey() + "\t" + entry.getValue() );
+          }
+          rewrite( revokedFile, lines );
+          markRevokedFileRead();
+        }
+        boolean expired = false;
+        for( Iterator<IssuedToken> iterator = issued.values().iterator(); iterator.hasNext(); ) {
+          if( isExpired( iterator.next(), now ) ) {
+            iterator.remove();
+            expired = true;
+          }
+        }
+        if( expired ) {
+          Map<String, String> lines = new HashMap<>();
+          for( Map.Entry<String, IssuedToken> entry : issued.entrySet() ) {
+            lines.put( entry.getKey(), entry.getValue().toLine( entry.getKey() ) );
+          }
+          rewrite( issuedFile, lines );
+        }
+      } catch( IOException e ) {
+        log.failedToSaveTokenState( lockFile.getParentFile().getAbsolutePath(), e );
+      }
+    }
+  }
+
+  // Reads the lines appended to the revoked tokens file since it was last read, or the whole
+  // file if it has been replaced since.  Only complete lines are read.
+  private void readRevoked() throws IOException {
+    if( !revokedFile.exists() ) {
+      revoked = RevokedTokenIndex.EMPTY;
+      revokedFileKey = null;
+      revokedFileOffset = 0;
+      return;
+    }
+    BasicFileAttributes attributes = Files.readAttributes( revokedFile.toPath(), BasicFileAttributes.class );
+    Map<String, Long> tokens;
+    long offset;
+    if( revokedFileOffset == 0 || attributes.size() < revokedFileOffset
+        || attributes.fileKey() == null || !attributes.fileKey().equals( revokedFileKey ) ) {
+      tokens = new HashMap<>();
+      offset = 0;
+    } else if( attributes.size() == revokedFileOffset ) {
+      return;
+    } else {
+      tokens = new HashMap<>( revoked.getTokens() );
+      offset = revokedFileOffset;
+    }
+    byte[] bytes;
+    try( RandomAccessFile file = new RandomAccessFile( revokedFile, "r" ) ) {
+      bytes = new byte[ (int)( file.length() - offset ) ];
+      file.seek( offset );
+      file.readFully( bytes );
+    }
+    int end = bytes.length;
+    while( end > 0 && bytes[ end - 1 ] != '\n' ) {
+      end--;
+    }
+    for( Map.Entry<String, String[]> entry : parse( new String( bytes, 0, end, StandardCharsets.UTF_8 ) ).entrySet() ) {
+      tokens.put( entry.getKey(), parseExpiry( entry.getValue() ) );
+    }
+    revoked = new RevokedTokenIndex( tokens );
+    revokedFileKey = attributes.fileKey();
+    revokedFileOffset = offset + end;
+  }
+
+  // Only valid while the file lock is held and this service wrote the last line.
+  private void markRevokedFileRead() throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes( revokedFile.toPath(), BasicFileAttributes.class );
+    revokedFileKey = attributes.fileKey();
+    revokedFileOffset = attributes.size();
+  }
+
+  // The record of an issued token without an expiry is kept for the retention after it was issued.
+  private boolean isExpired( IssuedToken token, long now ) {
+    if( token.expires < 0 ) {
+      return retention > 0 && token.issued + retention < now;
+    }
+    return RevokedTokenIndex.isExpired( token.expires, now );
+  }
+
+  // Holds the lock shared with other processes updating the token files until it is closed.
+  private FileChannel lockFiles() throws IOException {
+    ensureDirectory( lockFile );
+    FileChannel channel = FileChannel.open( lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+    try {
+      channel.lock();
+    } catch( IOException | RuntimeException e ) {
+      channel.close();
+      throw e;
+    }
+    return channel;
+  }
+
+  private static long parseExpiry( String[] fields ) {
+    try {
+      return fields.length > 1 ? Long.parseLong( fields[ 1 ].trim() ) : -1;
+    } catch( NumberFormatException e ) {
+      return -1;
+    }
+  }
+
+  // Records written without the time the token was issued are treated as issued now.
+  private static long parseIssued( String[] fields ) {
+    try {
+      return fields.length > 3 ? Long.parseLong( fields[ 3 ].trim() ) : System.currentTimeMillis();
+    } catch( NumberFormatException e ) {
+      return System.currentTimeMillis();
+    }
+  }
+
+  private static Map<String, String[]> read( File file ) {
+    Map<String, String[]> entries = new HashMap<>();
+    if( file.exists() ) {
+      try( BufferedReader reader = new BufferedReader(
+          new InputStreamReader( new FileInputStream( file ), StandardCharsets.UTF_8 ) ) ) {
+        String line;
+        while( ( line = reader.readLine() ) != null ) {
+          parseLine( line, entries );
+        }
+      } catch( IOException e ) {
+        log.failedToLoadTokenState( file.getAbsolutePath(), e );
+      }
+    }
+    return entries;
+  }
+
+  private static Map<String, String[]> parse( String text ) {
+    Map<String, String[]> entries = new HashMap<>();
+    for( String line : text.split( "\n" ) ) {
+      parseLine( line, entries );
+    }
+    return entries;
+  }
+
+  private static void parseLine( String line, Map<String, String[]> entries ) {
+    if( !line.trim().isEmpty() ) {
+      String[] fields = line.split( "\t" );
+      entries.put( fields[ 0 ].trim(), fields );
+    }
+  }
+
+  private static void append( File file, String line ) throws IOException {
+    ensureDirectory( file );
+    try( Writer writer = new OutputStreamWriter( new FileOutputStream( file, true ), StandardCharsets.UTF_8 ) ) {
+      writer.write( line );
+      writer.write( "\n" );
+    }
+  }
+
+  private static void rewrite( File file, Map<String, String> lines ) throws IOException {
+    ensureDirectory( file );
+    File temp = new File( file.getParentFile(), file.getName() + ".tmp" );
+    try( Writer writer = new OutputStreamWriter( new FileOutputStream( temp ), StandardCharsets.UTF_8 ) ) {
+      for( String line : lines.values() ) {
+        writer.write( line );
+        writer.write( "\n" );
+      }
+    }
+    Files.move( temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+  }
+
+  private static void ensureDirectory( File file ) throws IOException {
+    File dir = file.getParentFile();
+    if( !dir.exists() && !dir.mkdirs() ) {
+      throw new IOException( dir.getAbsolutePath() );
+    }
+  }
+
+  private static class IssuedToken {
+    private final String subject;
+    private final long expires;
+    private final long issued;
+
+    private IssuedToken( String subject, long expires, long issued ) {
+      this.subject = subject;
+      this.expires = expires;
+      this.issued = issued;
+    }
+
+    private String toLine( String tokenId ) {
+      return tokenId + "\t" + expires + "\t" + ( subject == null ? "" : subject ) + "\t" + issued;
+    }
+  }
+
+}
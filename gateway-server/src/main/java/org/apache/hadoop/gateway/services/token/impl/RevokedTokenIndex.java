@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.token.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable set of revoked token ids, each with the expiration time of its token.  Lookups
+ * are fronted by a small Bloom filter built from the ids' string hashes so that tokens which
+ * haven't been revoked are usually rejected without touching the map, and without allocating.
+ * Revocations are rare, so changes copy the index and the service publishes the new copy.
+ */
+final class RevokedTokenIndex {
+
+  static final RevokedTokenIndex EMPTY = new RevokedTokenIndex( Collections.<String, Long>emptyMap() );
+
+  private static final int BITS_PER_TOKEN = 16;
+  private static final int MIN_BITS = 64;
+
+  private final Map<String, Long> tokens;
+  private final long[] bits;
+  private final int mask;
+
+  RevokedTokenIndex( Map<String, Long> tokens ) {
+    this.tokens = new HashMap<>( tokens );
+    int size = MIN_BITS;
+    while( size < tokens.size() * BITS_PER_TOKEN && size < ( 1 << 30 ) ) {
+      size <<= 1;
+    }
+    bits = new long[ size / 64 ];
+    mask = size - 1;
+    for( String tokenId : tokens.keySet() ) {
+      int hash = tokenId.hashCode();
+      set( hash );
+      set( rehash( hash ) );
+    }
+  }
+
+  boolean isEmpty() {
+    return tokens.isEmpty();
+  }
+
+  int size() {
+    return tokens.size();
+  }
+
+  boolean contains( String tokenId ) {
+    if( tokenId == null || tokens.isEmpty() ) {
+      return false;
+    }
+    int hash = tokenId.hashCode();
+    if( !isSet( hash ) || !isSet( rehash( hash ) ) ) {
+      return false;
+    }
+    return tokens.containsKey( tokenId );
+  }
+
+  RevokedTokenIndex with( String tokenId, long expires ) {
+    Map<String, Long> copy = new HashMap<>( tokens );
+    copy.put( tokenId, expires );
+    return new RevokedTokenIndex( copy );
+  }
+
+  /**
+   * Returns an index without the tokens that expired before the given time, or this index if
+   * none have.
+   */
+  RevokedTokenIndex withoutExpired( long now ) {
+    Map<String, Long> copy = null;
+    for( Map.Entry<String, Long> entry : tokens.entrySet() ) {
+      if( isExpired( entry.getValue(), now ) ) {
+        if( copy == null ) {
+          copy = new HashMap<>( tokens );
+        }
+        copy.remove( entry.getKey() );
+      }
+    }
+    return copy == null ? this : new RevokedTokenIndex( copy );
+  }
+
+  Map<String, Long> getTokens() {
+    return Collections.unmodifiableMap( tokens );
+  }
+
+  static boolean isExpired( long expires, long now ) {
+    return expires >= 0 && expires < now;
+  }
+
+  private void set( int hash ) {
+    int bit = hash & mask;
+    bits[ bit >>> 6 ] |= 1L << bit;
+  }
+
+  private boolean isSet( int hash ) {
+    int bit = hash & mask;
+    return ( bits[ bit >>> 6 ] & ( 1L << bit ) ) != 0;
+  }
+
+  private static int rehash( int hash ) {
+    hash *= 0x9E3779B9;
+    return hash ^ ( hash >>> 16 );
+  }
+
+}
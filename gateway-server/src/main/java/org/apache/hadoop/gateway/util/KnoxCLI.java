@@ -56,6 +56,8 @@ import org.apache.hadoop.gateway.services.security.KeystoreService;
 import org.apache.hadoop.gateway.services.security.KeystoreServiceException;
 import org.apache.hadoop.gateway.services.security.MasterService;
 import org.apache.hadoop.gateway.services.security.impl.X509CertificateUtil;
+import org.apache.hadoop.gateway.services.security.token.TokenStateService;
+import org.apache.hadoop.gateway.services.security.token.impl.JWTToken;
 import org.apache.hadoop.gateway.services.topology.TopologyService;
 import org.apache.hadoop.gateway.topology.Provider;
 import org.apache.hadoop.gateway.topology.Topology;
@@ -97,6 +99,7 @@ public class KnoxCLI extends Configured implements Tool {
       "   [" + AliasCreateCommand.USAGE + "]\n" +
       "   [" + AliasDeleteCommand.USAGE + "]\n" +
       "   [" + AliasListCommand.USAGE + "]\n" +
+      "   [" + TokenRevokeCommand.USAGE + "]\n" +
       "   [" + RedeployCommand.USAGE + "]\n" +
       "   [" + ListTopologiesCommand.USAGE + "]\n" +
       "   [" + ValidateTopologyCommand.USAGE + "]\n" +
@@ -181,6 +184,7 @@ public class KnoxCLI extends Configured implements Tool {
    * % knoxcli create-alias alias [--cluster clustername] [--generate] [--value v]
    * % knoxcli list-alias [--cluster clustername]
    * % knoxcli delete=alias alias [--cluster clustername]
+   * % knoxcli revoke-token token|tokenid
    * % knoxcli create-cert alias [--hostname h]
    * % knoxcli redeploy [--cluster clustername]
    * % knoxcli validate-topology [--cluster clustername] | [--path <path/to/file>]
@@ -225,6 +229,16 @@ public class KnoxCLI extends Configured implements Tool {
           printKnoxShellUsage();
           return -1;
         }
+      } else if (args[i].equals("revoke-token")) {
+        String token = null;
+        if (args.length >= 2) {
+          token = args[++i];
+        }
+        command = new TokenRevokeCommand(token);
+        if (token == null || token.equals("--help")) {
+          printKnoxShellUsage();
+          return -1;
+        }
       } else if (args[i].equals("create-cert")) {
         command = new CertCreateCommand();
         if ((args.length > i + 1) && args[i + 1].equals("--help")) {
@@ -388,6 +402,9 @@ public class KnoxCLI extends Configured implements Tool {
       out.println( AliasListCommand.USAGE + "\n\n" + AliasListCommand.DESC );
       out.println();
       out.println( div );
+      out.println( TokenRevokeCommand.USAGE + "\n\n" + TokenRevokeCommand.DESC );
+      out.println();
+      out.println( div );
       out.println( RedeployCommand.USAGE + "\n\n" + RedeployCommand.DESC );
       out.println();
       out.println( div );
@@ -767,6 +784,46 @@ public class KnoxCLI extends Configured implements Tool {
 
  }
 
+ /**
+  *
+  */
+ public class TokenRevokeCommand extends Command {
+  public static final String USAGE = "revoke-token token|tokenid";
+  public static final String DESC = "The revoke-token command revokes the given\n" +
+                                    "access token, or the token with the given\n" +
+                                    "id, before it expires. A running gateway\n" +
+                                    "rejects the token within seconds.";
+
+  private String token = null;
+
+   public TokenRevokeCommand(String token) {
+     this.token = token;
+   }
+
+   @Override
+   public void execute() throws Exception {
+     TokenStateService tokenStateService = services.getService(GatewayServices.TOKEN_STATE_SERVICE);
+     boolean revoked;
+     if (token.indexOf('.') > 0) {
+       revoked = tokenStateService.revokeToken(new JWTToken(token));
+     } else {
+       revoked = tokenStateService.revokeToken(token);
+     }
+     if (revoked) {
+       out.println("Token has been revoked.");
+     } else {
+       out.println("Revocation of token: " + token + " Failed. "
+           + "\n" + "The token has no id.");
+     }
+   }
+
+   @Override
+   public String getUsage() {
+     return USAGE + ":\n\n" + DESC;
+   }
+
+ }
+
  /**
   *
   */
@@ -217,4 +217,21 @@ public class GatewayConfigImplTest {
     assertThat( serverHeaderEnabled, is(false));
   }
 
+  @Test( timeout = TestUtils.SHORT_TIMEOUT )
+  public void testSSLSessionCaching() {
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    assertThat( config.isSSLSessionCachingEnabled(), is(true));
+    assertThat( config.getSSLSessionCacheSize(), is(20480));
+    assertThat( config.getSSLSessionTimeout(), is(86400));
+    assertThat( config.isSSLServerCipherOrderEnabled(), is(true));
+
+    config.set( GatewayConfigImpl.SSL_SESSION_CACHING_ENABLED, "false" );
+    config.set( GatewayConfigImpl.SSL_SESSION_CACHE_SIZE, "500" );
+    config.set( GatewayConfigImpl.SSL_SESSION_TIMEOUT, "600" );
+    config.set( GatewayConfigImpl.SSL_SERVER_CIPHER_ORDER_ENABLED, "false" );
+    assertThat( config.isSSLSessionCachingEnabled(), is(false));
+    assertThat( config.getSSLSessionCacheSize(), is(500));
+    assertThat( config.getSSLSessionTimeout(), is(600));
+    assertThat( config.isSSLServerCipherOrderEnabled(), is(false));
+  }
 }
@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.group.impl;
+
+import org.apache.hadoop.gateway.config.impl.GatewayConfigImpl;
+import org.apache.hadoop.gateway.services.GroupLookupBackend;
+import org.apache.hadoop.gateway.services.ServiceLifecycleException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DefaultGroupLookupServiceTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static class CountingBackend implements GroupLookupBackend {
+    AtomicInteger count = new AtomicInteger();
+    volatile boolean fail = false;
+
+    @Override
+    public void init(Map<String, String> properties) {
+    }
+
+    @Override
+    public Set<String> getGroups(String principal) throws IOException {
+      count.incrementAndGet();
+      if (fail) {
+        throw new IOException("Backend unavailable");
+      }
+      return "guest".equals(principal) ? new HashSet<>(Arrays.asList("users", "analysts")) : null;
+    }
+  }
+
+  private static DefaultGroupLookupService createService(GatewayConfigImpl config) throws ServiceLifecycleException {
+    DefaultGroupLookupService service = new DefaultGroupLookupService();
+    service.init(config, null);
+    return service;
+  }
+
+  @Test
+  public void disabledByDefault() throws Exception {
+    DefaultGroupLookupService service = createService(new GatewayConfigImpl());
+    Assert.assertFalse(service.isEnabled());
+    Assert.assertTrue(service.getGroups("guest").isEmpty());
+  }
+
+  @Test
+  public void groupsAreCachedIncludingNegativeResults() throws Exception {
+    DefaultGroupLookupService service = createService(new GatewayConfigImpl());
+    CountingBackend backend = new CountingBackend();
+    service.setBackend(backend, Collections.<String, String>emptyMap());
+    Assert.assertTrue(service.isEnabled());
+
+    Assert.assertEquals(new HashSet<>(Arrays.asList("users", "analysts")), service.getGroups("guest"));
+    Assert.assertEquals(new HashSet<>(Arrays.asList("users", "analysts")), service.getGroups("guest"));
+    Assert.assertTrue(service.getGroups("nobody").isEmpty());
+    Assert.assertTrue(service.getGroups("nobody").isEmpty());
+    Assert.assertEquals(2, backend.count.get());
+    Assert.assertEquals(1, service.getHitCount());
+    Assert.assertEquals(1, service.getNegativeHitCount());
+    Assert.assertEquals(2, service.getMissCount());
+
+    service.invalidate("guest");
+    service.getGroups("guest");
+    Assert.assertEquals(3, backend.count.get());
+  }
+
+  @Test
+  public void failuresReturnLastKnownGroups() throws Exception {
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    config.set(GatewayConfigImpl.GROUP_LOOKUP_CACHE_TTL, "0");
+    DefaultGroupLookupService service = createService(config);
+    CountingBackend backend = new CountingBackend();
+    service.setBackend(backend, Collections.<String, String>emptyMap());
+
+    Assert.assertEquals(2, service.getGroups("guest").size());
+    backend.fail = true;
+    Assert.assertEquals(2, service.getGroups("guest").size());
+    Assert.assertTrue(service.getGroups("other").isEmpty());
+    Assert.assertEquals(2, service.getFailureCount());
+  }
+
+  @Test
+  public void leastRecentlyUsedPrincipalsAreDropped() throws Exception {
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    config.set(GatewayConfigImpl.GROUP_LOOKUP_CACHE_MAX_SIZE, "2");
+    DefaultGroupLookupService service = createService(config);
+    CountingBackend backend = new CountingBackend();
+    service.setBackend(backend, Collections.<String, String>emptyMap());
+
+    service.getGroups("guest");
+    service.getGroups("one");
+    service.getGroups("guest");
+    service.getGroups("two");
+    Assert.assertEquals(2, service.size());
+    Assert.assertEquals(3, backend.count.get());
+    service.getGroups("guest");
+    Assert.assertEquals(3, backend.count.get());
+    service.getGroups("one");
+    Assert.assertEquals(4, backend.count.get());
+  }
+
+  @Test
+  public void staticBackendFromConfig() throws Exception {
+    File file = folder.newFile("groups.properties");
+    Files.write(file.toPath(), "guest=users, analysts\nadmin=admins\n".getBytes(StandardCharsets.UTF_8));
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    config.set(GatewayConfigImpl.GROUP_LOOKUP_BACKEND, "static");
+    config.set(GatewayConfigImpl.GROUP_LOOKUP_BACKEND_PROPERTY_PREFIX + StaticGroupLookupBackend.FILE, file.getAbsolutePath());
+    DefaultGroupLookupService service = createService(config);
+
+    Assert.assertTrue(service.isEnabled());
+    Assert.assertEquals(new HashSet<>(Arrays.asList("users", "analysts")), service.getGroups("guest"));
+    Assert.assertEquals(Collections.singleton("admins"), service.getGroups("admin"));
+    Assert.assertTrue(service.getGroups("nobody").isEmpty());
+  }
+
+  @Test(expected = ServiceLifecycleException.class)
+  public void invalidBackend() throws Exception {
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    config.set(GatewayConfigImpl.GROUP_LOOKUP_BACKEND, "org.example.DoesNotExist");
+    createService(config);
+  }
+
+}
@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.hostname.impl;
+
+import org.apache.hadoop.gateway.config.impl.GatewayConfigImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetAddress;
+
+public class DefaultLocalHostNameServiceTest {
+
+  @Test
+  public void unknownAddressIsReturnedUntilResolved() throws Exception {
+    DefaultLocalHostNameService service = new DefaultLocalHostNameService();
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    config.set(GatewayConfigImpl.HTTP_HOST, "127.0.0.1");
+    service.init(config, null);
+    service.start();
+    try {
+      Assert.assertEquals(InetAddress.getByName("127.0.0.1").getHostName(), service.getHostName("127.0.0.1"));
+
+      // The first lookup of an unknown address never blocks.
+      Assert.assertEquals("127.0.0.2", service.getHostName("127.0.0.2"));
+      String expected = InetAddress.getByName("127.0.0.2").getHostName();
+      long deadline = System.currentTimeMillis() + 10000;
+      String resolved = service.getHostName("127.0.0.2");
+      while (!expected.equals(resolved) && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+        resolved = service.getHostName("127.0.0.2");
+      }
+      Assert.assertEquals(expected, resolved);
+      Assert.assertNull(service.getHostName(null));
+    } finally {
+      service.stop();
+    }
+  }
+
+  @Test
+  public void hostNameIsPrimedUnderItsAddresses() throws Exception {
+    DefaultLocalHostNameService service = new DefaultLocalHostNameService();
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    config.set(GatewayConfigImpl.HTTP_HOST, "localhost");
+    service.init(config, null);
+    service.start();
+    try {
+      for (InetAddress address : InetAddress.getAllByName("localhost")) {
+        String hostAddress = address.getHostAddress();
+        Assert.assertEquals(InetAddress.getByName(hostAddress).getHostName(), service.getHostName(hostAddress));
+      }
+      Assert.assertEquals(InetAddress.getByName("localhost").getHostName(), service.getHostName("localhost"));
+    } finally {
+      service.stop();
+    }
+  }
+
+}
@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.security.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.Collections;
+
+import javax.net.ssl.SSLEngine;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.gateway.config.GatewayConfig;
+import org.apache.hadoop.gateway.services.security.AliasService;
+import org.apache.hadoop.gateway.services.security.KeystoreService;
+import org.apache.hadoop.gateway.services.security.MasterService;
+import org.apache.hadoop.test.TestUtils;
+import org.easymock.EasyMock;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JettySSLServiceTest {
+
+  private static final String MASTER = "master";
+
+  private File dir;
+  private File keystoreFile;
+  private Certificate cert;
+  private String ephemeralDHKeySize;
+
+  @Before
+  public void setup() throws Exception {
+    ephemeralDHKeySize = System.getProperty("jdk.tls.ephemeralDHKeySize");
+    dir = TestUtils.createTempDir(getClass().getSimpleName());
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+    kpg.initialize(2048);
+    KeyPair keyPair = kpg.generateKeyPair();
+    cert = X509CertificateUtil.generateCertificate(
+        "CN=localhost,OU=Test,O=Hadoop,L=Test,ST=Test,C=US", keyPair, 1, "SHA256withRSA");
+    KeyStore keystore = KeyStore.getInstance("JKS");
+    keystore.load(null, null);
+    keystore.setKeyEntry("gateway-identity", keyPair.getPrivate(), MASTER.toCharArray(), new Certificate[] {cert});
+    keystoreFile = new File(dir, "gateway.jks");
+    try (OutputStream out = new FileOutputStream(keystoreFile)) {
+      keystore.store(out, MASTER.toCharArray());
+    }
+  }
+
+  @After
+  public void cleanup() {
+    if (ephemeralDHKeySize == null) {
+      System.clearProperty("jdk.tls.ephemeralDHKeySize");
+    } else {
+      System.setProperty("jdk.tls.ephemeralDHKeySize", ephemeralDHKeySize);
+    }
+    FileUtils.deleteQuietly(dir);
+  }
+
+  private JettySSLService createService(boolean sessionCaching, boolean cipherOrder) throws Exception {
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getEphemeralDHKeySize()).andReturn("2048").anyTimes();
+    EasyMock.expect(config.getKeystoreType()).andReturn("JKS").anyTimes();
+    EasyMock.expect(config.isSSLSessionCachingEnabled()).andReturn(sessionCaching).anyTimes();
+    EasyMock.expect(config.getSSLSessionCacheSize()).andReturn(1024).anyTimes();
+    EasyMock.expect(config.getSSLSessionTimeout()).andReturn(600).anyTimes();
+    EasyMock.expect(config.isSSLServerCipherOrderEnabled()).andReturn(cipherOrder).anyTimes();
+
+    KeystoreService ks = EasyMock.createNiceMock(KeystoreService.class);
+    EasyMock.expect(ks.isCredentialStoreForClusterAvailable("__gateway")).andReturn(true).anyTimes();
+    EasyMock.expect(ks.isKeystoreForGatewayAvailable()).andReturn(true).anyTimes();
+
+    AliasService as = EasyMock.createNiceMock(AliasService.class);
+    EasyMock.expect(as.getCertificateForGateway("gateway-identity")).andReturn(cert).anyTimes();
+
+    MasterService ms = EasyMock.createNiceMock(MasterService.class);
+    EasyMock.expect(ms.getMasterSecret()).andReturn(MASTER.toCharArray()).anyTimes();
+
+    EasyMock.replay(config, ks, as, ms);
+
+    JettySSLService service = new JettySSLService();
+    service.setKeystoreService(ks);
+    service.setAliasService(as);
+    service.setMasterService(ms);
+    service.init(config, Collections.<String, String>emptyMap());
+    return service;
+  }
+
+  @Test
+  public void testSessionCacheAndCipherOrder() throws Exception {
+    JettySSLService service = createService(true, true);
+    SslContextFactory factory = (SslContextFactory) service.buildSslContextFactory(keystoreFile.getAbsolutePath());
+    assertTrue(factory.isSessionCachingEnabled());
+    assertEquals(1024, factory.getSslSessionCacheSize());
+    assertEquals(600, factory.getSslSessionTimeout());
+
+    factory.start();
+    try {
+      SSLEngine engine = factory.newSSLEngine();
+      assertTrue(engine.getSSLParameters().getUseCipherSuitesOrder());
+    } finally {
+      factory.stop();
+    }
+  }
+
+  @Test
+  public void testSessionCacheAndCipherOrderDisabled() throws Exception {
+    JettySSLService service = createService(false, false);
+    SslContextFactory factory = (SslContextFactory) service.buildSslContextFactory(keystoreFile.getAbsolutePath());
+    assertFalse(factory.isSessionCachingEnabled());
+    // The configured cache settings are only applied when caching is enabled.
+    assertEquals(new SslContextFactory().getSslSessionCacheSize(), factory.getSslSessionCacheSize());
+    assertEquals(new SslContextFactory().getSslSessionTimeout(), factory.getSslSessionTimeout());
+
+    factory.start();
+    try {
+      SSLEngine engine = factory.newSSLEngine();
+      assertFalse(engine.getSSLParameters().getUseCipherSuitesOrder());
+    } finally {
+      factory.stop();
+    }
+  }
+
+}
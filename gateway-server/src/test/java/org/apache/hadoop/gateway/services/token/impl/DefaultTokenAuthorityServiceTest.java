@@ -18,14 +18,22 @@
 package org.apache.hadoop.gateway.services.token.impl;
 
 import java.io.File;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
 import java.security.Principal;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.gateway.config.GatewayConfig;
 import org.apache.hadoop.gateway.services.security.AliasService;
 import org.apache.hadoop.gateway.services.security.KeystoreService;
 import org.apache.hadoop.gateway.services.security.MasterService;
 import org.apache.hadoop.gateway.services.security.impl.DefaultKeystoreService;
+import org.apache.hadoop.gateway.services.security.impl.X509CertificateUtil;
 import org.apache.hadoop.gateway.services.security.token.JWTokenAuthority;
 import org.apache.hadoop.gateway.services.security.token.TokenServiceException;
 import org.apache.hadoop.gateway.services.security.token.impl.JWT;
@@ -250,4 +258,278 @@ public class DefaultTokenAuthorityServiceTest extends org.junit.Assert {
     }
   }
 
+  @Test
+  public void testTokenHasKeyId() throws Exception {
+    Principal principal = EasyMock.createNiceMock(Principal.class);
+    EasyMock.expect(principal.getName()).andReturn("john.doe@example.com").anyTimes();
+
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    String basedir = System.getProperty("basedir");
+    if (basedir == null) {
+      basedir = new File(".").getCanonicalPath();
+    }
+
+    EasyMock.expect(config.getGatewaySecurityDir()).andReturn(basedir + "/target/test-classes");
+    EasyMock.expect(config.getSigningKeystoreName()).andReturn("server-keystore.jks");
+    EasyMock.expect(config.getSigningKeyAlias()).andReturn("server").anyTimes();
+
+    MasterService ms = EasyMock.createNiceMock(MasterService.class);
+    EasyMock.expect(ms.getMasterSecret()).andReturn("horton".toCharArray());
+
+    AliasService as = EasyMock.createNiceMock(AliasService.class);
+    EasyMock.expect(as.getGatewayIdentityPassphrase()).andReturn("horton".toCharArray()).anyTimes();
+
+    EasyMock.replay(principal, config, ms, as);
+
+    KeystoreService ks = new DefaultKeystoreService();
+    ((DefaultKeystoreService)ks).setMasterService(ms);
+
+    ((DefaultKeystoreService)ks).init(config, new HashMap<String, String>());
+
+    JWTokenAuthority ta = new DefaultTokenAuthorityService();
+    ((DefaultTokenAuthorityService)ta).setAliasService(as);
+    ((DefaultTokenAuthorityService)ta).setKeystoreService(ks);
+
+    ((DefaultTokenAuthorityService)ta).init(config, new HashMap<String, String>());
+
+    JWT first = ta.issueToken(principal, "RS256");
+    JWT second = ta.issueToken(principal, "RS256");
+    assertNotNull(first.getKeyId());
+    assertEquals(first.getKeyId(), second.getKeyId());
+    assertTrue(ta.verifyToken(first));
+    assertTrue(ta.verifyToken(second));
+  }
+
+  @Test
+  public void testSigningKeyRotation() throws Exception {
+    Principal principal = EasyMock.createNiceMock(Principal.class);
+    EasyMock.expect(principal.getName()).andReturn("john.doe@example.com").anyTimes();
+
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getSigningKeyAlias()).andReturn("server").anyTimes();
+
+    AliasService as = EasyMock.createNiceMock(AliasService.class);
+    EasyMock.expect(as.getGatewayIdentityPassphrase()).andReturn("horton".toCharArray()).anyTimes();
+
+    // The keystore service always returns the key pair at the end of the list.
+    final List<KeyPair> keyPairs = new ArrayList<>();
+    final AtomicInteger keystoreLoads = new AtomicInteger();
+    KeystoreService ks = EasyMock.createNiceMock(KeystoreService.class);
+    EasyMock.expect(ks.getSigningKeystore()).andAnswer(() -> {
+      keystoreLoads.incrementAndGet();
+      return createKeystore(keyPairs.get(keyPairs.size() - 1));
+    }).anyTimes();
+    EasyMock.expect(ks.getSigningKey(EasyMock.anyObject(String.class), EasyMock.anyObject(char[].class)))
+        .andAnswer(() -> keyPairs.get(keyPairs.size() - 1).getPrivate()).anyTimes();
+
+    EasyMock.replay(principal, config, as, ks);
+
+    DefaultTokenAuthorityService ta = new DefaultTokenAuthorityService();
+    ta.setAliasService(as);
+    ta.setKeystoreService(ks);
+    ta.init(config, new HashMap<String, String>());
+
+    keyPairs.add(generateKeyPair());
+    JWT original = ta.issueToken(principal, "RS256");
+    for (int i = 0; i < 10; i++) {
+      assertTrue(ta.verifyToken(ta.issueToken(principal, "RS256")));
+    }
+    // The keystore is only read once regardless of the number of tokens issued and verified.
+    assertEquals(1, keystoreLoads.get());
+
+    keyPairs.add(generateKeyPair());
+    ta.refreshSigningKey(true);
+    JWT rotated = ta.issueToken(principal, "RS256");
+    assertNotEquals(original.getKeyId(), rotated.getKeyId());
+    assertTrue(ta.verifyToken(rotated));
+    // Tokens signed with the previous key remain valid after the rotation.
+    assertTrue(ta.verifyToken(original));
+
+    for (int i = 0; i < DefaultTokenAuthorityService.MAX_PREVIOUS_KEYS; i++) {
+      keyPairs.add(generateKeyPair());
+      ta.refreshSigningKey(true);
+    }
+    // Eventually keys that have been rotated out are no longer accepted.
+    assertFalse(ta.verifyToken(original));
+  }
+
+  @Test
+  public void testECSignatureAlgorithms() throws Exception {
+    Principal principal = EasyMock.createNiceMock(Principal.class);
+    EasyMock.expect(principal.getName()).andReturn("john.doe@example.com").anyTimes();
+
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getSigningKeyAlias()).andReturn("server").anyTimes();
+
+    AliasService as = EasyMock.createNiceMock(AliasService.class);
+    EasyMock.expect(as.getGatewayIdentityPassphrase()).andReturn("horton".toCharArray()).anyTimes();
+
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance("EC");
+    kpg.initialize(256);
+    KeyPair keyPair = kpg.generateKeyPair();
+    KeyStore keystore = createKeystore(keyPair, "SHA256withECDSA");
+
+    KeystoreService ks = EasyMock.createNiceMock(KeystoreService.class);
+    EasyMock.expect(ks.getSigningKeystore()).andReturn(keystore).anyTimes();
+    EasyMock.expect(ks.getSigningKey(EasyMock.anyObject(String.class), EasyMock.anyObject(char[].class)))
+        .andReturn(keyPair.getPrivate()).anyTimes();
+
+    EasyMock.replay(principal, config, as, ks);
+
+    DefaultTokenAuthorityService ta = new DefaultTokenAuthorityService();
+    ta.setAliasService(as);
+    ta.setKeystoreService(ks);
+    ta.init(config, new HashMap<String, String>());
+
+    JWT token = ta.issueToken(principal, "ES256");
+    assertEquals("ES256", token.getSignatureAlgorithm());
+    assertNotNull(token.getKeyId());
+    assertTrue(ta.verifyToken(token));
+
+    // A P-256 key can't be used for the other curves.
+    try {
+      ta.issueToken(principal, "ES512");
+      fail("Failure expected on a signature algorithm that doesn't match the key");
+    } catch (TokenServiceException ex) {
+      // expected
+    }
+    // Nor can an EC key issue RSA signed tokens.
+    try {
+      ta.issueToken(principal, "RS256");
+      fail("Failure expected on a signature algorithm that doesn't match the key");
+    } catch (TokenServiceException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testHMACSignatureAlgorithms() throws Exception {
+    Principal principal = EasyMock.createNiceMock(Principal.class);
+    EasyMock.expect(principal.getName()).andReturn("john.doe@example.com").anyTimes();
+
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getSigningKeyAlias()).andReturn("server").anyTimes();
+
+    KeyPair keyPair = generateKeyPair();
+    KeystoreService ks = EasyMock.createNiceMock(KeystoreService.class);
+    EasyMock.expect(ks.getSigningKeystore()).andReturn(createKeystore(keyPair, "SHA256withRSA")).anyTimes();
+    EasyMock.expect(ks.getSigningKey(EasyMock.anyObject(String.class), EasyMock.anyObject(char[].class)))
+        .andReturn(keyPair.getPrivate()).anyTimes();
+
+    // 48 bytes is long enough for HS256 and HS384 but not HS512.
+    AliasService as = EasyMock.createNiceMock(AliasService.class);
+    EasyMock.expect(as.getGatewayIdentityPassphrase()).andReturn("horton".toCharArray()).anyTimes();
+    EasyMock.expect(as.getPasswordFromAliasForGateway(DefaultTokenAuthorityService.SIGNING_HMAC_SECRET))
+        .andReturn("0123456789abcdef0123456789abcdef0123456789abcdef".toCharArray()).anyTimes();
+
+    EasyMock.replay(principal, config, as, ks);
+
+    DefaultTokenAuthorityService ta = new DefaultTokenAuthorityService();
+    ta.setAliasService(as);
+    ta.setKeystoreService(ks);
+    ta.init(config, new HashMap<String, String>());
+
+    for (String algorithm : new String[]{"HS256", "HS384"}) {
+      JWT token = ta.issueToken(principal, algorithm);
+      assertEquals(algorithm, token.getSignatureAlgorithm());
+      assertNull(token.getKeyId());
+      assertTrue(ta.verifyToken(token));
+    }
+    try {
+      ta.issueToken(principal, "HS512");
+      fail("Failure expected on a secret that is too short for the signature algorithm");
+    } catch (TokenServiceException ex) {
+      // expected
+    }
+
+    // RSA signing continues to work alongside HMAC.
+    assertTrue(ta.verifyToken(ta.issueToken(principal, "RS256")));
+  }
+
+  @Test
+  public void testHMACWithoutSecret() throws Exception {
+    Principal principal = EasyMock.createNiceMock(Principal.class);
+    EasyMock.expect(principal.getName()).andReturn("john.doe@example.com").anyTimes();
+
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getSigningKeyAlias()).andReturn("server").anyTimes();
+
+    KeyPair keyPair = generateKeyPair();
+    KeystoreService ks = EasyMock.createNiceMock(KeystoreService.class);
+    EasyMock.expect(ks.getSigningKeystore()).andReturn(createKeystore(keyPair, "SHA256withRSA")).anyTimes();
+
+    AliasService as = EasyMock.createNiceMock(AliasService.class);
+
+    EasyMock.replay(principal, config, as, ks);
+
+    DefaultTokenAuthorityService ta = new DefaultTokenAuthorityService();
+    ta.setAliasService(as);
+    ta.setKeystoreService(ks);
+    ta.init(config, new HashMap<String, String>());
+
+    try {
+      ta.issueToken(principal, "HS256");
+      fail("Failure expected when no HMAC secret is provisioned");
+    } catch (TokenServiceException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testMissingSigningKeyFailsEachIssue() throws Exception {
+    Principal principal = EasyMock.createNiceMock(Principal.class);
+    EasyMock.expect(principal.getName()).andReturn("john.doe@example.com").anyTimes();
+
+    GatewayConfig config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getSigningKeyAlias()).andReturn("server").anyTimes();
+
+    KeystoreService ks = EasyMock.createNiceMock(KeystoreService.class);
+    EasyMock.expect(ks.getSigningKeystore()).andReturn(createKeystore(generateKeyPair(), "SHA256withRSA")).anyTimes();
+
+    AliasService as = EasyMock.createNiceMock(AliasService.class);
+
+    EasyMock.replay(principal, config, as, ks);
+
+    DefaultTokenAuthorityService ta = new DefaultTokenAuthorityService();
+    ta.setAliasService(as);
+    ta.setKeystoreService(ks);
+    ta.init(config, new HashMap<String, String>());
+
+    TokenServiceException first = null;
+    try {
+      ta.issueToken(principal, "RS256");
+      fail("Failure expected when the signing key can't be loaded");
+    } catch (TokenServiceException ex) {
+      first = ex;
+    }
+    try {
+      ta.issueToken(principal, "RS256");
+      fail("Failure expected when the signing key can't be loaded");
+    } catch (TokenServiceException ex) {
+      // Each issue gets its own exception with the load failure as the cause.
+      assertNotSame(first, ex);
+      assertNotNull(ex.getCause());
+      assertSame(first.getCause(), ex.getCause());
+    }
+  }
+
+  private static KeyPair generateKeyPair() throws Exception {
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+    kpg.initialize(1024);
+    return kpg.generateKeyPair();
+  }
+
+  private static KeyStore createKeystore(KeyPair keyPair) throws Exception {
+    return createKeystore(keyPair, "SHA256withRSA");
+  }
+
+  private static KeyStore createKeystore(KeyPair keyPair, String algorithm) throws Exception {
+    Certificate cert = X509CertificateUtil.generateCertificate(
+        "CN=localhost,OU=Test,O=Hadoop,L=Test,ST=Test,C=US", keyPair, 1, algorithm);
+    KeyStore keystore = KeyStore.getInstance("JKS");
+    keystore.load(null, null);
+    keystore.setCertificateEntry("server", cert);
+    return keystore;
+  }
+
 }
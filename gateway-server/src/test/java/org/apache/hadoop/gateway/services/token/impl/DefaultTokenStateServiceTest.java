@@ -0,0 +1,289 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.token.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.gateway.config.GatewayConfig;
+import org.apache.hadoop.gateway.services.security.token.impl.JWT;
+import org.apache.hadoop.gateway.services.security.token.impl.JWTToken;
+import org.apache.hadoop.test.TestUtils;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultTokenStateServiceTest {
+
+  private File dataDir;
+  private GatewayConfig config;
+
+  @Before
+  public void setUp() throws Exception {
+    dataDir = TestUtils.createTempDir( getClass().getSimpleName() );
+    config = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( config.getGatewayDataDir() ).andReturn( dataDir.getAbsolutePath() ).anyTimes();
+    EasyMock.replay( config );
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    FileUtils.deleteQuietly( dataDir );
+  }
+
+  @Test
+  public void testRevokeIssuedToken() throws Exception {
+    DefaultTokenStateService service = createService();
+    long expires = System.currentTimeMillis() + 60000;
+    service.addToken( "token-1", "alice", expires );
+    service.addToken( "token-2", "bob", expires );
+
+    assertFalse( service.isRevoked( "token-1" ) );
+    assertTrue( service.revokeToken( "token-1" ) );
+    assertTrue( service.isRevoked( "token-1" ) );
+    assertFalse( service.isRevoked( "token-2" ) );
+
+    assertFalse( service.revokeToken( (String)null ) );
+  }
+
+  @Test
+  public void testRevokeToken() throws Exception {
+    DefaultTokenStateService service = createService();
+    JWT token = new JWTToken( "RS256", new String[] { "KNOXSSO", "alice", null, null } );
+    JWT other = new JWTToken( "RS256", new String[] { "KNOXSSO", "alice", null, null } );
+
+    assertFalse( service.isRevoked( token ) );
+    assertTrue( service.revokeToken( token ) );
+    assertTrue( service.isRevoked( token ) );
+    assertTrue( service.isRevoked( token.getClaim( JWT.JWT_ID ) ) );
+    assertFalse( service.isRevoked( other ) );
+  }
+
+  @Test
+  public void testStateIsPersisted() throws Exception {
+    DefaultTokenStateService service = createService();
+    long expires = System.currentTimeMillis() + 60000;
+    service.addToken( "token-1", "alice", expires );
+    service.addToken( "token-2", "bob", -1 );
+    service.revokeToken( "token-2" );
+
+    DefaultTokenStateService reloaded = createService();
+    assertEquals( 2, reloaded.getIssuedTokenCount() );
+    assertTrue( reloaded.isRevoked( "token-2" ) );
+    assertFalse( reloaded.isRevoked( "token-1" ) );
+    assertTrue( reloaded.revokeToken( "token-1" ) );
+  }
+
+  @Test
+  public void testRevocationByAnotherProcessIsPickedUp() throws Exception {
+    DefaultTokenStateService gateway = createService();
+    gateway.addToken( "token-1", "alice", System.currentTimeMillis() + 60000 );
+
+    // The CLI loads the state when it starts and appends the revocation.
+    DefaultTokenStateService cli = createService();
+    assertTrue( cli.revokeToken( "token-1" ) );
+
+    assertFalse( gateway.isRevoked( "token-1" ) );
+    gateway.refresh();
+    assertTrue( gateway.isRevoked( "token-1" ) );
+  }
+
+  @Test
+  public void testExpiredTokensAreDropped() throws Exception {
+    DefaultTokenStateService service = createService();
+    service.addToken( "expired", "alice", System.currentTimeMillis() - 1000 );
+    service.addToken( "valid", "bob", System.currentTimeMillis() + 60000 );
+    service.revokeToken( "expired" );
+    service.revokeToken( "valid" );
+    assertEquals( 2, service.getRevokedTokenCount() );
+
+    service.refresh();
+    assertEquals( 1, service.getIssuedTokenCount() );
+    assertEquals( 1, service.getRevokedTokenCount() );
+    assertTrue( service.isRevoked( "valid" ) );
+
+    DefaultTokenStateService reloaded = createService();
+    assertEquals( 1, reloaded.getIssuedTokenCount() );
+    assertEquals( 1, reloaded.getRevokedTokenCount() );
+  }
+
+  @Test
+  public void testRevocationByAnotherProcessIsKeptWhenRevoking() throws Exception {
+    DefaultTokenStateService gateway = createService();
+    long expires = System.currentTimeMillis() + 60000;
+    gateway.addToken( "token-1", "alice", expires );
+    gateway.addToken( "token-2", "bob", expires );
+    DefaultTokenStateService cli = createService();
+
+    // The CLI appends a revocation just before the gateway appends its own.
+    assertTrue( cli.revokeToken( "token-1" ) );
+    assertTrue( gateway.revokeToken( "token-2" ) );
+    assertTrue( gateway.isRevoked( "token-1" ) );
+
+    gateway.refresh();
+    assertTrue( gateway.isRevoked( "token-1" ) );
+    assertTrue( gateway.isRevoked( "token-2" ) );
+    assertEquals( 2, createService().getRevokedTokenCount() );
+  }
+
+  @Test
+  public void testRevocationByAnotherProcessIsKeptWhenRewriting() throws Exception {
+    DefaultTokenStateService gateway = createService();
+    gateway.addToken( "expired", "alice", System.currentTimeMillis() - 1000 );
+    gateway.addToken( "valid", "bob", System.currentTimeMillis() + 60000 );
+    gateway.revokeToken( "expired" );
+
+    // The gateway drops the expired token from the file after the CLI appended to it.
+    DefaultTokenStateService cli = createService();
+    assertTrue( cli.revokeToken( "valid" ) );
+    gateway.refresh();
+    assertTrue( gateway.isRevoked( "valid" ) );
+    assertFalse( gateway.isRevoked( "expired" ) );
+
+    // Revocations appended after the rewrite are still picked up.
+    JWT token = new JWTToken( "RS256", new String[] { "KNOXSSO", "alice", null, null } );
+    assertTrue( cli.revokeToken( token ) );
+    gateway.refresh();
+    assertTrue( gateway.isRevoked( token ) );
+    assertEquals( 2, createService().getRevokedTokenCount() );
+  }
+
+  @Test
+  public void testConcurrentRevocationsByTwoProcesses() throws Exception {
+    final DefaultTokenStateService gateway = createService();
+    final DefaultTokenStateService cli = createService();
+    Thread[] threads = new Thread[ 2 ];
+    for( int t = 0; t < threads.length; t++ ) {
+      final DefaultTokenStateService service = t == 0 ? gateway : cli;
+      final String prefix = "token-" + t + "-";
+      threads[ t ] = new Thread() {
+        @Override
+        public void run() {
+          for( int i = 0; i < 100; i++ ) {
+            service.revokeToken( new JWTToken( "RS256", new String[] { "KNOXSSO", prefix + i, null, null } ) );
+            if( i % 10 == 0 ) {
+              service.refresh();
+            }
+          }
+        }
+      };
+      threads[ t ].start();
+    }
+    for( Thread thread : threads ) {
+      thread.join();
+    }
+    gateway.refresh();
+    assertEquals( 200, gateway.getRevokedTokenCount() );
+    assertEquals( 200, createService().getRevokedTokenCount() );
+  }
+
+  @Test
+  public void testRevocationOfNonExpiringTokenIsKept() throws Exception {
+    DefaultTokenStateService service = createRetentionService();
+    long issued = System.currentTimeMillis() - TimeUnit.DAYS.toMillis( 2 );
+    writeIssuedTokens( "token-1\t-1\talice\t" + issued, "token-2\t-1\tbob\t" + System.currentTimeMillis() );
+    service = createRetentionService();
+    assertEquals( 2, service.getIssuedTokenCount() );
+
+    // The revocation doesn't inherit the retention of the issued token's record.
+    assertTrue( service.revokeToken( "token-1" ) );
+    service.refresh();
+    assertEquals( 1, service.getIssuedTokenCount() );
+    assertEquals( 1, service.getRevokedTokenCount() );
+    assertTrue( service.isRevoked( "token-1" ) );
+    assertEquals( "token-1\t-1\n", readRevokedTokens() );
+
+    DefaultTokenStateService reloaded = createRetentionService();
+    reloaded.refresh();
+    assertTrue( reloaded.isRevoked( "token-1" ) );
+    assertFalse( reloaded.isRevoked( "token-2" ) );
+  }
+
+  @Test
+  public void testNonExpiringTokenCanBeRevokedAfterItsRecordIsDropped() throws Exception {
+    long issued = System.currentTimeMillis() - TimeUnit.DAYS.toMillis( 2 );
+    writeIssuedTokens( "token-1\t-1\talice\t" + issued );
+    DefaultTokenStateService service = createRetentionService();
+    service.refresh();
+    assertEquals( 0, service.getIssuedTokenCount() );
+
+    assertTrue( service.revokeToken( "token-1" ) );
+    service.refresh();
+    assertTrue( service.isRevoked( "token-1" ) );
+    assertTrue( createRetentionService().isRevoked( "token-1" ) );
+  }
+
+  @Test
+  public void testIndexHasNoFalseNegatives() {
+    Map<String, Long> tokens = new HashMap<>();
+    List<String> others = new ArrayList<>();
+    for( int i = 0; i < 1000; i++ ) {
+      tokens.put( UUID.randomUUID().toString(), -1L );
+      others.add( UUID.randomUUID().toString() );
+    }
+    RevokedTokenIndex index = new RevokedTokenIndex( tokens );
+    for( String tokenId : tokens.keySet() ) {
+      assertTrue( index.contains( tokenId ) );
+    }
+    for( String tokenId : others ) {
+      assertFalse( index.contains( tokenId ) );
+    }
+    assertFalse( RevokedTokenIndex.EMPTY.contains( "token" ) );
+    assertFalse( index.contains( null ) );
+  }
+
+  // A service that keeps the records of issued tokens without an expiry for a day.
+  private DefaultTokenStateService createRetentionService() throws Exception {
+    GatewayConfig retentionConfig = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( retentionConfig.getGatewayDataDir() ).andReturn( dataDir.getAbsolutePath() ).anyTimes();
+    EasyMock.expect( retentionConfig.getNonExpiringTokenRetention() ).andReturn( TimeUnit.DAYS.toSeconds( 1 ) ).anyTimes();
+    EasyMock.replay( retentionConfig );
+    DefaultTokenStateService service = new DefaultTokenStateService();
+    service.init( retentionConfig, new HashMap<String, String>() );
+    return service;
+  }
+
+  private void writeIssuedTokens( String... lines ) throws Exception {
+    File file = new File( new File( dataDir, DefaultTokenStateService.TOKENS_DIR ), DefaultTokenStateService.ISSUED_TOKENS_FILE );
+    FileUtils.writeLines( file, "UTF-8", Arrays.asList( lines ) );
+  }
+
+  private String readRevokedTokens() throws Exception {
+    File file = new File( new File( dataDir, DefaultTokenStateService.TOKENS_DIR ), DefaultTokenStateService.REVOKED_TOKENS_FILE );
+    return FileUtils.readFileToString( file, "UTF-8" );
+  }
+
+  private DefaultTokenStateService createService() throws Exception {
+    DefaultTokenStateService service = new DefaultTokenStateService();
+    service.init( config, new HashMap<String, String>() );
+    return service;
+  }
+
+}
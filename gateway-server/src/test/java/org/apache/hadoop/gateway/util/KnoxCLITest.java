@@ -24,6 +24,8 @@ import org.apache.hadoop.gateway.config.impl.GatewayConfigImpl;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.security.AliasService;
 import org.apache.hadoop.gateway.services.security.MasterService;
+import org.apache.hadoop.gateway.services.security.token.TokenStateService;
+import org.apache.hadoop.test.TestUtils;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -219,6 +221,40 @@ public class KnoxCLITest {
 
   }
 
+  @Test
+  public void testRevokeToken() throws Exception {
+    File dataDir = TestUtils.createTempDir( getClass().getSimpleName() );
+    try {
+      GatewayConfigImpl config = new GatewayConfigImpl();
+      config.set( GatewayConfigImpl.DATA_DIR, dataDir.getAbsolutePath() );
+      String tokenId = UUID.randomUUID().toString();
+      String[] args = {"revoke-token", tokenId, "--master", "master"};
+
+      // The id needn't be recorded, as the record of a token may have been dropped.
+      outContent.reset();
+      KnoxCLI cli = new KnoxCLI();
+      cli.setConf( config );
+      int rc = cli.run(args);
+      assertEquals(0, rc);
+      assertTrue(outContent.toString(), outContent.toString().contains("Token has been revoked."));
+      TokenStateService tokenStateService = cli.getGatewayServices().getService(GatewayServices.TOKEN_STATE_SERVICE);
+      assertTrue(tokenStateService.isRevoked(tokenId));
+
+      String issuedTokenId = UUID.randomUUID().toString();
+      tokenStateService.addToken(issuedTokenId, "alice", System.currentTimeMillis() + 60000);
+      outContent.reset();
+      cli = new KnoxCLI();
+      cli.setConf( config );
+      rc = cli.run(new String[] {"revoke-token", issuedTokenId, "--master", "master"});
+      assertEquals(0, rc);
+      assertTrue(outContent.toString(), outContent.toString().contains("Token has been revoked."));
+      tokenStateService = cli.getGatewayServices().getService(GatewayServices.TOKEN_STATE_SERVICE);
+      assertTrue(tokenStateService.isRevoked(issuedTokenId));
+    } finally {
+      FileUtils.deleteQuietly( dataDir );
+    }
+  }
+
   @Test
   public void testGatewayAndClusterStores() throws Exception {
     GatewayConfigImpl config = new GatewayConfigImpl();
@@ -214,6 +214,9 @@ public class BadUrlTest {
     EasyMock.expect(gatewayConfig.getGatewaySecurityDir())
         .andReturn(topoDir.toString()).anyTimes();
 
+    EasyMock.expect(gatewayConfig.getGatewayDataDir())
+        .andReturn(topoDir.toString()).anyTimes();
+
     /* Websocket configs */
     EasyMock.expect(gatewayConfig.isWebsocketEnabled()).andReturn(true)
         .anyTimes();
@@ -299,6 +299,9 @@ public class WebsocketEchoTest {
     EasyMock.expect(gatewayConfig.getGatewaySecurityDir())
         .andReturn(topoDir.toString()).anyTimes();
 
+    EasyMock.expect(gatewayConfig.getGatewayDataDir())
+        .andReturn(topoDir.toString()).anyTimes();
+
     /* Websocket configs */
     EasyMock.expect(gatewayConfig.isWebsocketEnabled()).andReturn(true)
         .anyTimes();
@@ -292,6 +292,9 @@ public class WebsocketMultipleConnectionTest {
     EasyMock.expect(gatewayConfig.getGatewaySecurityDir())
         .andReturn(topoDir.toString()).anyTimes();
 
+    EasyMock.expect(gatewayConfig.getGatewayDataDir())
+        .andReturn(topoDir.toString()).anyTimes();
+
     /* Websocket configs */
     EasyMock.expect(gatewayConfig.isWebsocketEnabled()).andReturn(true)
         .anyTimes();
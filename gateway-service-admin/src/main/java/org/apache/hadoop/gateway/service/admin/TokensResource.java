@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.service.admin;
+
+import java.text.ParseException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.security.token.TokenStateService;
+import org.apache.hadoop.gateway.services.security.token.impl.JWTToken;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.Response.ok;
+import static javax.ws.rs.core.Response.status;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+
+@Path( "/api/v1" )
+public class TokensResource {
+  private static final String SINGLE_TOKEN_API_PATH = "tokens/{id}";
+  private static final String REVOKE_TOKEN_API_PATH = "tokens/revoke";
+
+  @Context
+  private HttpServletRequest request;
+
+  /**
+   * Revokes the token with the given id.
+   */
+  @DELETE
+  @Produces(APPLICATION_JSON)
+  @Path(SINGLE_TOKEN_API_PATH)
+  public Response revokeTokenById(@PathParam("id") String id) {
+    TokenStateService tokenStateService = getTokenStateService();
+    if (tokenStateService == null || !tokenStateService.revokeToken(id)) {
+      return status(NOT_FOUND).entity("{ \"revoked\" : false }").build();
+    }
+    return ok().entity("{ \"revoked\" : true }").build();
+  }
+
+  /**
+   * Revokes the serialized token in the request body, which needn't have been issued by
+   * the knoxtoken service.
+   */
+  @POST
+  @Produces(APPLICATION_JSON)
+  @Path(REVOKE_TOKEN_API_PATH)
+  public Response revokeToken(String token) {
+    TokenStateService tokenStateService = getTokenStateService();
+    if (tokenStateService == null) {
+      return status(NOT_FOUND).entity("{ \"revoked\" : false }").build();
+    }
+    try {
+      if (!tokenStateService.revokeToken(new JWTToken(token.trim()))) {
+        return status(BAD_REQUEST).entity("{ \"revoked\" : false }").build();
+      }
+    } catch (ParseException e) {
+      return status(BAD_REQUEST).entity("{ \"revoked\" : false }").build();
+    }
+    return ok().entity("{ \"revoked\" : true }").build();
+  }
+
+  private TokenStateService getTokenStateService() {
+    GatewayServices services = (GatewayServices) request.getServletContext()
+        .getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
+    return services.getService(GatewayServices.TOKEN_STATE_SERVICE);
+  }
+}
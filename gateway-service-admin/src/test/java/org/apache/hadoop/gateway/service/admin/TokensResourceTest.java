@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.service.admin;
+
+import java.lang.reflect.Field;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.Response;
+
+import org.apache.hadoop.gateway.services.GatewayServices;
+import org.apache.hadoop.gateway.services.security.token.TokenStateService;
+import org.apache.hadoop.gateway.services.security.token.impl.JWT;
+import org.apache.hadoop.gateway.services.security.token.impl.JWTToken;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.nimbusds.jose.crypto.RSASSASigner;
+
+import static org.junit.Assert.assertEquals;
+
+public class TokensResourceTest {
+
+  @Test
+  public void testRevokeTokenById() throws Exception {
+    TokenStateService tokenStateService = EasyMock.createMock( TokenStateService.class );
+    EasyMock.expect( tokenStateService.revokeToken( "token-1" ) ).andReturn( true );
+    EasyMock.replay( tokenStateService );
+
+    Response response = createResource( tokenStateService ).revokeTokenById( "token-1" );
+    assertEquals( 200, response.getStatus() );
+    assertEquals( "{ \"revoked\" : true }", response.getEntity() );
+    EasyMock.verify( tokenStateService );
+  }
+
+  @Test
+  public void testRevokeTokenByIdWithoutTokenStateService() throws Exception {
+    Response response = createResource( null ).revokeTokenById( "token-1" );
+    assertEquals( 404, response.getStatus() );
+    assertEquals( "{ \"revoked\" : false }", response.getEntity() );
+  }
+
+  @Test
+  public void testRevokeToken() throws Exception {
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance( "RSA" );
+    kpg.initialize( 1024 );
+    JWTToken token = new JWTToken( "RS256", new String[] { "KNOXSSO", "alice", null, null } );
+    token.sign( new RSASSASigner( (RSAPrivateKey)kpg.generateKeyPair().getPrivate() ) );
+
+    TokenStateService tokenStateService = EasyMock.createMock( TokenStateService.class );
+    Capture<JWT> revoked = new Capture<>();
+    EasyMock.expect( tokenStateService.revokeToken( EasyMock.capture( revoked ) ) ).andReturn( true );
+    EasyMock.replay( tokenStateService );
+
+    Response response = createResource( tokenStateService ).revokeToken( token.toString() + "\n" );
+    assertEquals( 200, response.getStatus() );
+    assertEquals( "{ \"revoked\" : true }", response.getEntity() );
+    assertEquals( token.getClaim( JWT.JWT_ID ), revoked.getValue().getClaim( JWT.JWT_ID ) );
+    EasyMock.verify( tokenStateService );
+  }
+
+  @Test
+  public void testRevokeTokenThatCannotBeRevoked() throws Exception {
+    TokenStateService tokenStateService = EasyMock.createMock( TokenStateService.class );
+    EasyMock.expect( tokenStateService.revokeToken( EasyMock.anyObject( JWT.class ) ) ).andReturn( false );
+    EasyMock.replay( tokenStateService );
+    TokensResource resource = createResource( tokenStateService );
+
+    KeyPairGenerator kpg = KeyPairGenerator.getInstance( "RSA" );
+    kpg.initialize( 1024 );
+    JWTToken token = new JWTToken( "RS256", new String[] { "KNOXSSO", "alice", null, null } );
+    token.sign( new RSASSASigner( (RSAPrivateKey)kpg.generateKeyPair().getPrivate() ) );
+    Response response = resource.revokeToken( token.toString() );
+    assertEquals( 400, response.getStatus() );
+    assertEquals( "{ \"revoked\" : false }", response.getEntity() );
+
+    // The body isn't a token at all.
+    response = resource.revokeToken( "not-a-token" );
+    assertEquals( 400, response.getStatus() );
+    EasyMock.verify( tokenStateService );
+  }
+
+  @Test
+  public void testRevokeTokenWithoutTokenStateService() throws Exception {
+    Response response = createResource( null ).revokeToken( "not-a-token" );
+    assertEquals( 404, response.getStatus() );
+  }
+
+  private static TokensResource createResource( TokenStateService tokenStateService ) throws Exception {
+    GatewayServices services = EasyMock.createNiceMock( GatewayServices.class );
+    EasyMock.expect( services.getService( GatewayServices.TOKEN_STATE_SERVICE ) ).andReturn( tokenStateService ).anyTimes();
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    EasyMock.expect( context.getAttribute( GatewayServices.GATEWAY_SERVICES_ATTRIBUTE ) ).andReturn( services ).anyTimes();
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    EasyMock.expect( request.getServletContext() ).andReturn( context ).anyTimes();
+    EasyMock.replay( services, context, request );
+
+    TokensResource resource = new TokensResource();
+    // The request is injected by Jersey.
+    Field field = TokensResource.class.getDeclaredField( "request" );
+    field.setAccessible( true );
+    field.set( resource, request );
+    return resource;
+  }
+
+}
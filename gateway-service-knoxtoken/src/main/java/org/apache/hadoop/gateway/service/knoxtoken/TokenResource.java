@@ -39,6 +39,7 @@ import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.security.token.JWTokenAuthority;
 import org.apache.hadoop.gateway.services.security.token.TokenServiceException;
+import org.apache.hadoop.gateway.services.security.token.TokenStateService;
 import org.apache.hadoop.gateway.services.security.token.impl.JWT;
 import org.apache.hadoop.gateway.util.JsonUtils;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
@@ -177,6 +178,10 @@ public class TokenResource {
       }
 
       if (token != null) {
+        TokenStateService tokenStateService = services.getService(GatewayServices.TOKEN_STATE_SERVICE);
+        if (tokenStateService != null) {
+          tokenStateService.addToken(token.getClaim(JWT.JWT_ID), p.getName(), expires);
+        }
         String accessToken = token.toString();
 
         HashMap<String, Object> map = new HashMap<>();
@@ -21,9 +21,11 @@ import org.apache.hadoop.gateway.security.PrimaryPrincipal;
 import org.apache.hadoop.gateway.service.knoxtoken.TokenResource;
 import org.apache.hadoop.gateway.services.GatewayServices;
 import org.apache.hadoop.gateway.services.security.token.JWTokenAuthority;
+import org.apache.hadoop.gateway.services.security.token.TokenStateService;
 import org.apache.hadoop.gateway.services.security.token.TokenServiceException;
 import org.apache.hadoop.gateway.services.security.token.impl.JWT;
 import org.apache.hadoop.gateway.services.security.token.impl.JWTToken;
+import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -146,6 +148,53 @@ public class TokenServiceResourceTest {
     assertTrue(authority.verifyToken(parsedToken));
   }
 
+  @Test
+  public void testIssuedTokenIsRecorded() throws Exception {
+
+    ServletContext context = EasyMock.createNiceMock(ServletContext.class);
+
+    HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    EasyMock.expect(request.getServletContext()).andReturn(context).anyTimes();
+    Principal principal = EasyMock.createNiceMock(Principal.class);
+    EasyMock.expect(principal.getName()).andReturn("alice").anyTimes();
+    EasyMock.expect(request.getUserPrincipal()).andReturn(principal).anyTimes();
+
+    GatewayServices services = EasyMock.createNiceMock(GatewayServices.class);
+    EasyMock.expect(context.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE)).andReturn(services);
+
+    JWTokenAuthority authority = new TestJWTokenAuthority(publicKey, privateKey);
+    EasyMock.expect(services.getService(GatewayServices.TOKEN_SERVICE)).andReturn(authority);
+
+    TokenStateService tokenStateService = EasyMock.createMock(TokenStateService.class);
+    Capture<String> tokenId = EasyMock.newCapture();
+    tokenStateService.addToken(EasyMock.capture(tokenId), EasyMock.eq("alice"), EasyMock.anyLong());
+    EasyMock.expectLastCall();
+    EasyMock.expect(services.getService(GatewayServices.TOKEN_STATE_SERVICE)).andReturn(tokenStateService);
+
+    StringWriter writer = new StringWriter();
+    PrintWriter printWriter = new PrintWriter(writer);
+    HttpServletResponse response = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.expect(response.getWriter()).andReturn(printWriter);
+
+    EasyMock.replay(principal, services, context, request, response, tokenStateService);
+
+    TokenResource tr = new TokenResource();
+    tr.request = request;
+    tr.response = response;
+
+    // Issue a token
+    Response retResponse = tr.doGet();
+
+    assertEquals(200, retResponse.getStatus());
+    EasyMock.verify(tokenStateService);
+
+    // The recorded id is the one carried by the token
+    String accessToken = getTagValue(writer.toString(), "access_token");
+    JWT parsedToken = new JWTToken(accessToken);
+    assertNotNull(parsedToken.getClaim(JWT.JWT_ID));
+    assertEquals(parsedToken.getClaim(JWT.JWT_ID), tokenId.getValue());
+  }
+
   @Test
   public void testAudiences() throws Exception {
 
@@ -260,6 +260,14 @@ public interface GatewayConfig {
    */
   String getTransformation();
 
+  /**
+   * Transformation used to decrypt cipher texts that were written before an
+   * authenticated transformation was configured and so carry no format marker.
+   * Null, the default, rejects such cipher texts.
+   * @return
+   */
+  String getLegacyTransformation();
+
   /**
    * Configured SaltSize to be used by the CryptoService
    * and MasterService implementations
@@ -299,4 +307,88 @@ public interface GatewayConfig {
    * @return
    */
   boolean isGatewayServerHeaderEnabled();
+
+  /**
+   * Interval in seconds at which the resolved host names of the local
+   * connector addresses are refreshed.
+   * @return
+   */
+  long getLocalHostNameRefreshInterval();
+
+  /**
+   * Is the cache of rewritten static UI assets (.js, .css, .html) enabled
+   * @return
+   */
+  boolean isStaticAssetCacheEnabled();
+
+  /**
+   * Maximum total size in bytes of the rewritten static UI asset cache
+   * @return
+   */
+  long getStaticAssetCacheMaxSize();
+
+  /**
+   * The backend used by the gateway wide group lookup service: none, static, ldap,
+   * hadoop or the class name of a GroupLookupBackend implementation
+   * @return
+   */
+  String getGroupLookupBackend();
+
+  /**
+   * Backend specific properties of the group lookup service, with the
+   * configuration prefix removed
+   * @return
+   */
+  Map<String, String> getGroupLookupBackendProperties();
+
+  /**
+   * Seconds for which looked up groups are cached
+   * @return
+   */
+  long getGroupLookupCacheTtl();
+
+  /**
+   * Seconds for which a principal without groups is cached
+   * @return
+   */
+  long getGroupLookupNegativeCacheTtl();
+
+  /**
+   * Maximum number of principals whose groups are cached
+   * @return
+   */
+  int getGroupLookupCacheMaxSize();
+
+  /**
+   * Is the TLS session cache of the gateway connector enabled
+   * @return
+   */
+  boolean isSSLSessionCachingEnabled();
+
+  /**
+   * Maximum number of TLS sessions kept for resumption, 0 for no limit
+   * @return
+   */
+  int getSSLSessionCacheSize();
+
+  /**
+   * Seconds for which a cached TLS session can be resumed
+   * @return
+   */
+  int getSSLSessionTimeout();
+
+  /**
+   * Are cipher suites negotiated in the order the gateway lists them rather
+   * than in the order preferred by the client
+   * @return
+   */
+  boolean isSSLServerCipherOrderEnabled();
+
+  /**
+   * Number of seconds the token state service keeps the record of an issued token that has
+   * no expiry.  The revocation of such a token is kept forever.  Zero or less keeps the
+   * records forever too.
+   * @return
+   */
+  long getNonExpiringTokenRetention();
 }
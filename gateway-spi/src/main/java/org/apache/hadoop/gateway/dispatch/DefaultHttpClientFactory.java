@@ -34,7 +34,9 @@ import org.apache.hadoop.gateway.services.security.AliasService;
 import org.apache.hadoop.gateway.services.security.AliasServiceException;
 import org.apache.hadoop.gateway.services.security.KeystoreService;
 import org.apache.hadoop.gateway.services.security.MasterService;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.HttpResponse;
 import org.apache.http.ProtocolException;
 import org.apache.http.auth.AuthSchemeProvider;
@@ -48,8 +50,10 @@ import org.apache.http.client.RedirectStrategy;
 import org.apache.http.client.config.AuthSchemes;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.RouteInfo;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
 import org.apache.http.cookie.Cookie;
@@ -115,6 +119,7 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
 
       builder = builder.setDefaultAuthSchemeRegistry(authSchemeRegistry)
           .setDefaultCookieStore(new HadoopAuthCookieStore())
+          .addInterceptorFirst(new SharedCookieStoreInterceptor())
           .setDefaultCredentialsProvider(credentialsProvider);
     } else {
       builder = builder.setDefaultCookieStore(new NoCookieStore());
@@ -171,6 +176,21 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
     }
   }
 
+  /**
+   * Makes the request use the authentication cookies shared by all the dispatches
+   * to its backend, see {@link HadoopAuthCookieStore#getStore(HttpHost)}.
+   */
+  private static class SharedCookieStoreInterceptor implements HttpRequestInterceptor {
+    @Override
+    public void process( HttpRequest request, HttpContext context ) {
+      HttpClientContext clientContext = HttpClientContext.adapt( context );
+      RouteInfo route = clientContext.getHttpRoute();
+      if( route != null ) {
+        clientContext.setCookieStore( HadoopAuthCookieStore.getStore( route.getTargetHost() ) );
+      }
+    }
+  }
+
   private static class NeverRedirectStrategy implements RedirectStrategy {
     @Override
     public boolean isRedirected( HttpRequest request, HttpResponse response, HttpContext context )
@@ -17,15 +17,151 @@
  */
 package org.apache.hadoop.gateway.dispatch;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.CookieStore;
 import org.apache.http.cookie.Cookie;
-import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.cookie.SetCookie;
+
+/**
+ * Keeps the authentication cookies returned by Kerberos secured backends.
+ * <p>
+ * The gateway authenticates to the backends with its own principal, so a cookie obtained
+ * by the dispatch of one service or topology is valid for every other dispatch to the same
+ * backend. {@link #getStore(HttpHost)} returns a store shared by all the dispatches to a
+ * backend, which lets SPNEGO be negotiated once per backend for the lifetime of the cookie
+ * rather than once per HttpClient and connection route. The stores are kept per host and
+ * port because two services on the same host do not necessarily accept each other's cookies.
+ * <p>
+ * A hadoop.auth cookie is given the expiry of the token it carries, so that it stops being
+ * sent just before the backend would reject it.
+ */
+public class HadoopAuthCookieStore implements CookieStore {
+
+  static final String HADOOP_AUTH_COOKIE = "hadoop.auth";
+  static final String HIVE_SERVER2_AUTH_COOKIE = "hive.server2.auth";
+
+  /**
+   * A token is considered expired this long before its actual expiry, to allow for the
+   * time the request takes to reach the backend and for small clock differences.
+   */
+  static final long EXPIRY_MARGIN = 5000L;
+
+  private static final ConcurrentMap<String, HadoopAuthCookieStore> STORES = new ConcurrentHashMap<>();
 
-public class HadoopAuthCookieStore extends BasicCookieStore {
+  private final Map<String, Cookie> cookiesByKey = new LinkedHashMap<>();
+  private volatile List<Cookie> cookies = Collections.emptyList();
+
+  /**
+   * Returns the store shared by all the dispatches to the given backend.
+   */
+  public static HadoopAuthCookieStore getStore(HttpHost target) {
+    String key = target.toURI().toLowerCase();
+    HadoopAuthCookieStore store = STORES.get(key);
+    if (store == null) {
+      store = new HadoopAuthCookieStore();
+      HadoopAuthCookieStore existing = STORES.putIfAbsent(key, store);
+      if (existing != null) {
+        store = existing;
+      }
+    }
+    return store;
+  }
 
   @Override
   public void addCookie(Cookie cookie) {
-    if (cookie.getName().equals("hadoop.auth") || cookie.getName().equals("hive.server2.auth")) {
-      super.addCookie(cookie);
+    if (cookie.getName().equals(HADOOP_AUTH_COOKIE) || cookie.getName().equals(HIVE_SERVER2_AUTH_COOKIE)) {
+      if (cookie.getName().equals(HADOOP_AUTH_COOKIE) && cookie.getExpiryDate() == null && cookie instanceof SetCookie) {
+        long expires = getTokenExpiry(cookie.getValue());
+        if (expires > 0) {
+          ((SetCookie)cookie).setExpiryDate(new Date(expires - EXPIRY_MARGIN));
+        }
+      }
+      synchronized (this) {
+        String key = getKey(cookie);
+        cookiesByKey.remove(key);
+        Date now = new Date();
+        if (!cookie.isExpired(now)) {
+          cookiesByKey.put(key, cookie);
+        }
+        update(now);
+      }
+    }
+  }
+
+  /**
+   * Returns the cookies of this store. The cookies are read for every dispatched request but
+   * only change when the backend issues a new one, so this returns an immutable snapshot
+   * without locking.
+   */
+  @Override
+  public List<Cookie> getCookies() {
+    return cookies;
+  }
+
+  @Override
+  public synchronized boolean clearExpired(Date date) {
+    int size = cookiesByKey.size();
+    update(date);
+    return cookiesByKey.size() != size;
+  }
+
+  @Override
+  public synchronized void clear() {
+    cookiesByKey.clear();
+    cookies = Collections.emptyList();
+  }
+
+  private void update(Date date) {
+    List<Cookie> snapshot = new ArrayList<>(cookiesByKey.size());
+    for (Cookie cookie : new ArrayList<>(cookiesByKey.values())) {
+      if (cookie.isExpired(date)) {
+        cookiesByKey.remove(getKey(cookie));
+      } else {
+        snapshot.add(cookie);
+      }
     }
+    cookies = Collections.unmodifiableList(snapshot);
+  }
+
+  private static String getKey(Cookie cookie) {
+    String domain = cookie.getDomain() == null ? "" : cookie.getDomain().toLowerCase();
+    String path = cookie.getPath() == null ? "/" : cookie.getPath();
+    return cookie.getName() + ";" + domain + ";" + path;
   }
+
+  /**
+   * Returns the expiry time in milliseconds of the hadoop-auth token in the given cookie
+   * value, i.e. the value of its "e" attribute, or -1 when the value carries none.
+   */
+  static long getTokenExpiry(String value) {
+    if (value != null) {
+      int start = value.startsWith("e=") ? 2 : value.startsWith("\"e=") ? 3 : -1;
+      if (start < 0) {
+        start = value.indexOf("&e=");
+        if (start >= 0) {
+          start += 3;
+        }
+      }
+      if (start >= 0) {
+        int end = start;
+        while (end < value.length() && Character.isDigit(value.charAt(end))) {
+          end++;
+        }
+        if (end > start && end - start < 19) {
+          return Long.parseLong(value.substring(start, end));
+        }
+      }
+    }
+    return -1L;
+  }
+
 }
@@ -38,6 +38,9 @@ public interface GatewayServices extends Service, ProviderDeploymentContributor
   public static final String TOPOLOGY_SERVICE = "TopologyService";
   public static final String SERVICE_DEFINITION_REGISTRY = "ServiceDefinitionRegistry";
   public static final String METRICS_SERVICE = "MetricsService";
+  public static final String LOCAL_HOSTNAME_SERVICE = "LocalHostNameService";
+  public static final String GROUP_LOOKUP_SERVICE = "GroupLookupService";
+  public static final String TOKEN_STATE_SERVICE = "TokenStateService";
 
   public abstract Collection<String> getServiceNames();
 
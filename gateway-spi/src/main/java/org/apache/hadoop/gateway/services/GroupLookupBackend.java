@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A source of group memberships used by the {@link GroupLookupService}.
+ * Implementations don't need to cache; the service caches the results.
+ */
+public interface GroupLookupBackend {
+
+  /**
+   * Initialize the backend.
+   *
+   * @param properties the backend specific configuration properties
+   * @throws ServiceLifecycleException if the backend can't be used with the configuration
+   */
+  void init( Map<String, String> properties ) throws ServiceLifecycleException;
+
+  /**
+   * Look up the groups of a principal.
+   *
+   * @param principal the principal name
+   * @return the group names, empty if the principal has no groups
+   * @throws IOException if the groups could not be looked up
+   */
+  Set<String> getGroups( String principal ) throws IOException;
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services;
+
+import java.util.Set;
+
+/**
+ * This service resolves the groups of a principal once for the whole gateway
+ * using the configured {@link GroupLookupBackend}.  Results, including principals
+ * without any groups, are cached so that the identity assertion and authorization
+ * providers of every topology share a single lookup per principal.
+ */
+public interface GroupLookupService extends Service {
+
+  /**
+   * Is a group lookup backend configured
+   *
+   * @return true if groups can be looked up
+   */
+  boolean isEnabled();
+
+  /**
+   * Get the groups of a principal.  Lookup failures are logged and result in
+   * the last known groups or an empty set being returned.
+   *
+   * @param principal the principal name
+   * @return the group names, never null
+   */
+  Set<String> getGroups( String principal );
+
+  /**
+   * Remove any cached groups of the principal.
+   *
+   * @param principal the principal name
+   */
+  void invalidate( String principal );
+
+  /**
+   * Remove all of the cached groups.
+   */
+  void clear();
+
+}
@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services;
+
+/**
+ * This service provides the resolved host names of the local addresses
+ * the gateway connectors are bound to.  Names are resolved up front and
+ * refreshed in the background so callers on the request path never block
+ * on a name service lookup.
+ */
+public interface LocalHostNameService extends Service {
+
+  /**
+   * Get the host name for a local address, typically the value of
+   * ServletRequest.getLocalName().  This never performs a blocking lookup.
+   * If the address has not been resolved yet the address itself is returned
+   * and resolution is scheduled in the background.
+   *
+   * @param address the local address
+   * @return the resolved host name or the address if not yet resolved
+   */
+  String getHostName( String address );
+
+  /**
+   * Re-resolve all of the known local addresses.
+   */
+  void refresh();
+
+}
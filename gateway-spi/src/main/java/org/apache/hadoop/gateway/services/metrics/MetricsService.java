@@ -21,6 +21,13 @@ import org.apache.hadoop.gateway.services.Service;
 
 public interface MetricsService extends Service {
 
+  /**
+   * The name the gateway's metric registry is shared under in
+   * com.codahale.metrics.SharedMetricRegistries, for modules that publish metrics
+   * but can't depend on the gateway server.
+   */
+  String METRIC_REGISTRY_NAME = "gateway";
+
   <T> T getInstrumented(T instanceClass);
 
   <T> T getInstrumented(Class<T> clazz);
@@ -38,6 +38,8 @@ import java.security.UnrecoverableKeyException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class BaseKeystoreService {
   private static GatewaySpiMessages LOG = MessagesFactory.get( GatewaySpiMessages.class );
@@ -45,6 +47,10 @@ public class BaseKeystoreService {
   protected MasterService masterService;
   protected String keyStoreDir;
 
+  // Parsing a keystore is expensive and they are read from request paths, so loaded keystores are
+  // kept until the file on disk changes.  Writes through this service drop the entry directly.
+  private final ConcurrentMap<String, LoadedKeyStore> keyStores = new ConcurrentHashMap<String, LoadedKeyStore>();
+
   private static KeyStore loadKeyStore(final File keyStoreFile, final char[] masterPassword, String storeType)
       throws CertificateException, IOException, KeyStoreException,
       NoSuchAlgorithmException {     
@@ -95,6 +101,7 @@ public class BaseKeystoreService {
       ks.load( null, null );  
       ks.store( out, masterService.getMasterSecret() );
       out.close();
+      invalidateKeystore( new File( filename ) );
     } catch (KeyStoreException e) {
       LOG.failedToCreateKeystore( filename, keystoreType, e );
       throw new KeystoreServiceException(e);
@@ -147,9 +154,17 @@ public class BaseKeystoreService {
   }
 
   protected KeyStore getKeystore(final File keyStoreFile, String storeType) throws KeystoreServiceException {
+    String key = keyStoreKey( keyStoreFile, storeType );
+    long lastModified = keyStoreFile.lastModified();
+    long length = keyStoreFile.length();
+    LoadedKeyStore loaded = keyStores.get( key );
+    if( loaded != null && loaded.lastModified == lastModified && loaded.length == length ) {
+      return loaded.keyStore;
+    }
     KeyStore credStore = null;
     try {
       credStore = loadKeyStore( keyStoreFile, masterService.getMasterSecret(), storeType);
+      keyStores.put( key, new LoadedKeyStore( credStore, lastModified, length ) );
     } catch (CertificateException e) {
       LOG.failedToLoadKeystore( keyStoreFile.getName(), storeType, e );
       throw new KeystoreServiceException(e);
@@ -166,6 +181,22 @@ public class BaseKeystoreService {
     return credStore;
   }
 
+  /**
+   * Drops any loaded copy of the keystore so that the next read goes back to the file.
+   */
+  protected void invalidateKeystore(final File keyStoreFile) {
+    String path = keyStoreFile.getAbsolutePath() + "#";
+    for( String key : keyStores.keySet() ) {
+      if( key.startsWith( path ) ) {
+        keyStores.remove( key );
+      }
+    }
+  }
+
+  private static String keyStoreKey(final File keyStoreFile, String storeType) {
+    return keyStoreFile.getAbsolutePath() + "#" + storeType;
+  }
+
   public BaseKeystoreService() {
     super();
   }
@@ -225,10 +256,24 @@ public class BaseKeystoreService {
      // TODO: backup the keystore on disk before attempting a write and restore on failure
      try( final FileOutputStream out = new FileOutputStream(file) ) {
          keyStore.store( out, masterService.getMasterSecret() );
+     } finally {
+         invalidateKeystore( file );
      }
   }
 
   public void setMasterService(MasterService ms) {
     this.masterService = ms;
   }
+
+  private static class LoadedKeyStore {
+    private final KeyStore keyStore;
+    private final long lastModified;
+    private final long length;
+
+    private LoadedKeyStore(KeyStore keyStore, long lastModified, long length) {
+      this.keyStore = keyStore;
+      this.lastModified = lastModified;
+      this.length = length;
+    }
+  }
 }
@@ -17,18 +17,20 @@
  */
 package org.apache.hadoop.gateway.services.security.impl;
 
-import java.security.InvalidAlgorithmParameterException;
-import java.security.InvalidKeyException;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
 import java.security.spec.InvalidKeySpecException;
-import java.security.spec.InvalidParameterSpecException;
 import java.security.spec.KeySpec;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.crypto.Cipher;
-import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
@@ -38,78 +40,66 @@ import org.apache.hadoop.gateway.i18n.GatewaySpiMessages;
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 import org.apache.hadoop.gateway.services.security.EncryptionResult;
 
+/**
+ * Password based encryption with keys derived using PBE.
+ * <p>
+ * Instances may be shared by threads: each thread uses its own {@link Cipher} and every
+ * encryption uses a new random IV.  Setting the transformation to <tt>AES/GCM/NoPadding</tt>
+ * authenticates the cipher texts as well.  GCM cipher texts start with a format marker and
+ * cipher texts without it are rejected, unless a legacy transformation is configured to read
+ * the cipher texts written before GCM was enabled.
+ */
 public class ConfigurableEncryptor {
   private static final GatewaySpiMessages LOG = MessagesFactory.get( GatewaySpiMessages.class );
   
   private static final int ITERATION_COUNT = 65536;
   private static final int KEY_LENGTH = 128;
+  private static final int DERIVED_KEY_CACHE_SIZE = 1000;
+  private static final String DEFAULT_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+  private static final String GCM_MODE = "GCM";
+  private static final int GCM_IV_LENGTH = 12;
+  private static final int GCM_TAG_LENGTH = 128;
+  private static final byte[] GCM_FORMAT_MARKER = { 'K', 'G', 'C', 1 };
+
+  private static final ThreadLocal<SecureRandom> RANDOM = new ThreadLocal<SecureRandom>() {
+    @Override
+    protected SecureRandom initialValue() {
+      return new SecureRandom();
+    }
+  };
   
-  private Cipher ecipher;
-  private Cipher dcipher;
+  private final DerivedKeyCache derivedKeys = new DerivedKeyCache(DERIVED_KEY_CACHE_SIZE);
+  private final ThreadLocal<Map<String,Cipher>> ciphers = new ThreadLocal<Map<String,Cipher>>() {
+    @Override
+    protected Map<String,Cipher> initialValue() {
+      return new HashMap<>();
+    }
+  };
   private SecretKey secret;
   private byte[] salt = null;
   private char[] passPhrase = null;
   private String alg = "AES";
   private String pbeAlg = "PBKDF2WithHmacSHA1";
-  private String transformation = "AES/CBC/PKCS5Padding";
+  private String transformation = DEFAULT_TRANSFORMATION;
+  private String legacyTransformation = null;
   private int saltSize = 8;
   private int iterationCount = ITERATION_COUNT;
   private int keyLength = KEY_LENGTH;
  
   public ConfigurableEncryptor(String passPhrase) {
-      try {
-        this.passPhrase = passPhrase.toCharArray();
-        salt = new byte[saltSize];
-        SecureRandom rnd = new SecureRandom();
-        rnd.nextBytes(salt);
-        
-        SecretKey tmp = getKeyFromPassword(passPhrase);
-        secret = new SecretKeySpec (tmp.getEncoded(), alg);
- 
-        ecipher = Cipher.getInstance(transformation);
-        ecipher.init(Cipher.ENCRYPT_MODE, secret);
-       
-        dcipher = Cipher.getInstance(transformation);
-        byte[] iv = ecipher.getParameters().getParameterSpec(IvParameterSpec.class).getIV();
-        dcipher.init(Cipher.DECRYPT_MODE, secret, new IvParameterSpec(iv));
-      } catch (NoSuchAlgorithmException e) {
-        LOG.failedToEncryptPassphrase( e );
-      } catch (NoSuchPaddingException e) {
-        LOG.failedToEncryptPassphrase( e );
-      } catch (InvalidKeyException e) {
-        LOG.failedToEncryptPassphrase( e );
-      } catch (InvalidParameterSpecException e) {
-        LOG.failedToEncryptPassphrase( e );
-      } catch (InvalidAlgorithmParameterException e) {
-        LOG.failedToEncryptPassphrase( e );
-      }
+    this.passPhrase = passPhrase.toCharArray();
+    salt = new byte[saltSize];
+    RANDOM.get().nextBytes(salt);
+    deriveKey();
   }
   
   ConfigurableEncryptor(SecretKey secret) {
-    try {
-      this.secret = new SecretKeySpec (secret.getEncoded(), alg);
-
-      ecipher = Cipher.getInstance(transformation);
-      ecipher.init(Cipher.ENCRYPT_MODE, secret);
-     
-      dcipher = Cipher.getInstance(transformation);
-      byte[] iv = ecipher.getParameters().getParameterSpec(IvParameterSpec.class).getIV();
-      dcipher.init(Cipher.DECRYPT_MODE, secret, new IvParameterSpec(iv));
-    } catch (NoSuchAlgorithmException e) {
-      LOG.failedToEncryptPassphrase( e );
-    } catch (NoSuchPaddingException e) {
-      LOG.failedToEncryptPassphrase( e );
-    } catch (InvalidKeyException e) {
-      LOG.failedToEncryptPassphrase( e );
-    } catch (InvalidParameterSpecException e) {
-      LOG.failedToEncryptPassphrase( e );
-    } catch (InvalidAlgorithmParameterException e) {
-      LOG.failedToEncryptPassphrase( e );
-    }
+    this.secret = new SecretKeySpec (secret.getEncoded(), alg);
   }
 
   public void init(GatewayConfig config) {
     if (config != null) {
+	    String derivation = keyDerivationSettings();
 	    String alg = config.getAlgorithm();
 	    if (alg != null) {
 		  this.alg = alg;
@@ -122,6 +112,10 @@ public class ConfigurableEncryptor {
 	    if (transformation != null) {
 		  this.transformation = transformation;
 	    }
+	    String legacyTransformation = config.getLegacyTransformation();
+	    if (legacyTransformation != null && !legacyTransformation.trim().isEmpty()) {
+		  this.legacyTransformation = legacyTransformation.trim();
+	    }
 	    String saltSize = config.getSaltSize();
 	    if (saltSize != null) {
 		  this.saltSize = Integer.parseInt(saltSize);
@@ -134,6 +128,24 @@ public class ConfigurableEncryptor {
 	    if (keyLength != null) {
 		  this.keyLength = Integer.parseInt(keyLength);
 	    }
+	    if (passPhrase != null && !derivation.equals(keyDerivationSettings())) {
+	      // The cached keys and the key used for encryption were derived with the previous settings.
+	      derivedKeys.clear();
+	      deriveKey();
+	    }
+    }
+  }
+
+  private String keyDerivationSettings() {
+    return alg + "/" + pbeAlg + "/" + saltSize + "/" + iterationCount + "/" + keyLength;
+  }
+
+  private void deriveKey() {
+    SecretKey tmp = getKeyFromPassword(new String(passPhrase), salt);
+    if (tmp != null) {
+      secret = new SecretKeySpec(tmp.getEncoded(), alg);
+      // everything this instance encrypts carries its salt so decrypting it won't derive the key again
+      derivedKeys.put(salt, secret);
     }
   }
 
@@ -164,8 +176,20 @@ public class ConfigurableEncryptor {
   }
 
   public EncryptionResult encrypt(byte[] plain) throws Exception {
-    EncryptionResult atom = new EncryptionResult(salt, ecipher.getParameters().getParameterSpec(IvParameterSpec.class).getIV(), ecipher.doFinal(plain));
-    return atom;
+    Cipher cipher = getCipher(transformation);
+    byte[] iv = new byte[0];
+    if (usesIv(transformation)) {
+      iv = new byte[isGcm(transformation) ? GCM_IV_LENGTH : cipher.getBlockSize()];
+      RANDOM.get().nextBytes(iv);
+      cipher.init(Cipher.ENCRYPT_MODE, secret, parameterSpec(transformation, iv));
+    } else {
+      cipher.init(Cipher.ENCRYPT_MODE, secret);
+    }
+    byte[] encrypted = cipher.doFinal(plain);
+    if (isGcm(transformation)) {
+      encrypted = concat(GCM_FORMAT_MARKER, encrypted);
+    }
+    return new EncryptionResult(salt, iv, encrypted);
   }
 
   public String decrypt(String salt, String iv, String cipher) throws Exception {
@@ -174,15 +198,100 @@ public class ConfigurableEncryptor {
   }
 
   public byte[] decrypt(byte[] salt, byte[] iv, byte[] encrypt) throws Exception {
-    SecretKey tmp = getKeyFromPassword(new String(passPhrase), salt);
-    secret = new SecretKeySpec(tmp.getEncoded(), alg);
-    
-    dcipher.init(Cipher.DECRYPT_MODE, secret, new IvParameterSpec(iv));
-    return dcipher.doFinal(encrypt);
+    String transformation = this.transformation;
+    if (isGcm(transformation)) {
+      if (hasGcmFormatMarker(encrypt)) {
+        encrypt = Arrays.copyOfRange(encrypt, GCM_FORMAT_MARKER.length, encrypt.length);
+      } else if (legacyTransformation != null) {
+        // written before GCM was configured, only read when a legacy transformation is configured
+        transformation = legacyTransformation;
+      } else {
+        throw new GeneralSecurityException("Cipher text is not in the format of " + transformation);
+      }
+    }
+    SecretKey key = getDerivedKey(salt);
+    Cipher cipher = getCipher(transformation);
+    if (usesIv(transformation)) {
+      cipher.init(Cipher.DECRYPT_MODE, key, parameterSpec(transformation, iv));
+    } else {
+      cipher.init(Cipher.DECRYPT_MODE, key);
+    }
+    return cipher.doFinal(encrypt);
   }
   
   public byte[] decrypt(byte[] encrypt) throws Exception {
-    dcipher.init(Cipher.DECRYPT_MODE, secret);
-    return dcipher.doFinal(encrypt);
+    Cipher cipher = getCipher(transformation);
+    cipher.init(Cipher.DECRYPT_MODE, secret);
+    return cipher.doFinal(encrypt);
+  }
+
+  // Each cipher text carries the salt of the encryptor that created it so the key derived
+  // for a salt is cached rather than derived again for every decryption.
+  private SecretKey getDerivedKey(byte[] salt) {
+    SecretKey key = derivedKeys.get(salt);
+    if (key == null) {
+      SecretKey tmp = getKeyFromPassword(new String(passPhrase), salt);
+      key = new SecretKeySpec(tmp.getEncoded(), alg);
+      derivedKeys.put(salt, key);
+    }
+    return key;
+  }
+
+  // Cipher instances aren't thread safe and creating one per call is comparatively expensive.
+  private Cipher getCipher(String transformation) throws GeneralSecurityException {
+    Map<String,Cipher> threadCiphers = ciphers.get();
+    Cipher cipher = threadCiphers.get(transformation);
+    if (cipher == null) {
+      cipher = Cipher.getInstance(transformation);
+      threadCiphers.put(transformation, cipher);
+    }
+    return cipher;
+  }
+
+  private static boolean hasGcmFormatMarker(byte[] encrypted) {
+    if (encrypted.length < GCM_FORMAT_MARKER.length) {
+      return false;
+    }
+    for (int i = 0; i < GCM_FORMAT_MARKER.length; i++) {
+      if (encrypted[i] != GCM_FORMAT_MARKER[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[] concat(byte[] first, byte[] second) {
+    byte[] result = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+
+  private static boolean isGcm(String transformation) {
+    return GCM_MODE.equalsIgnoreCase(mode(transformation));
+  }
+
+  private static boolean usesIv(String transformation) {
+    String mode = mode(transformation);
+    return mode != null && !"ECB".equalsIgnoreCase(mode);
+  }
+
+  private static String mode(String transformation) {
+    String[] parts = transformation.split("/");
+    return parts.length > 1 ? parts[1].trim() : null;
+  }
+
+  private static AlgorithmParameterSpec parameterSpec(String transformation, byte[] iv) {
+    if (isGcm(transformation)) {
+      return new GCMParameterSpec(GCM_TAG_LENGTH, iv);
+    }
+    return new IvParameterSpec(iv);
+  }
+
+  long getDerivedKeyCacheHitCount() {
+    return derivedKeys.getHitCount();
+  }
+
+  long getDerivedKeyCacheMissCount() {
+    return derivedKeys.getMissCount();
   }
 }
@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.security.impl;
+
+import java.nio.ByteBuffer;
+
+import javax.crypto.SecretKey;
+
+import org.apache.hadoop.gateway.util.BoundedCache;
+
+/**
+ * A bounded cache of the keys derived from one passphrase, keyed by the salt they were
+ * derived with.  Deriving a key is deliberately expensive so the keys for the salts that
+ * are seen repeatedly, such as the salt an encryptor uses for everything it encrypts, are
+ * only derived once.  The least recently used key is dropped when the cache is full.
+ */
+class DerivedKeyCache {
+
+  private final BoundedCache<ByteBuffer,SecretKey> keys;
+
+  DerivedKeyCache( int maxSize ) {
+    keys = new BoundedCache<>( Math.max( 1, maxSize ), 0 );
+  }
+
+  SecretKey get( byte[] salt ) {
+    return keys.get( ByteBuffer.wrap( salt ) );
+  }
+
+  void put( byte[] salt, SecretKey key ) {
+    keys.put( ByteBuffer.wrap( salt.clone() ), key );
+  }
+
+  void clear() {
+    keys.clear();
+  }
+
+  int size() {
+    return keys.size();
+  }
+
+  long getHitCount() {
+    return keys.getHitCount();
+  }
+
+  long getMissCount() {
+    return keys.getMissCount();
+  }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.security.token;
+
+import org.apache.hadoop.gateway.services.Service;
+import org.apache.hadoop.gateway.services.security.token.impl.JWT;
+
+/**
+ * This service records the access tokens issued by the gateway and the tokens
+ * that have been revoked before they expire.  A token is identified by its
+ * {@link JWT#JWT_ID} claim.  Revocation is checked for every request that
+ * presents a token so the checks are cheap, especially when nothing has been
+ * revoked.
+ */
+public interface TokenStateService extends Service {
+
+  /**
+   * Record an issued token.
+   *
+   * @param tokenId the id of the token
+   * @param subject the subject the token was issued to
+   * @param expires the expiration time in milliseconds since the epoch or -1 if it never expires
+   */
+  void addToken( String tokenId, String subject, long expires );
+
+  /**
+   * Revoke the token with the given id.  A token recorded by {@link #addToken} is revoked
+   * until it expires; any other id, such as that of a token whose record has been dropped,
+   * is revoked for good.
+   *
+   * @param tokenId the id of the token
+   * @return false if the id is null
+   */
+  boolean revokeToken( String tokenId );
+
+  /**
+   * Revoke a token whether or not it was recorded when it was issued.
+   *
+   * @param token the token
+   * @return false if the token has no id and so can't be revoked
+   */
+  boolean revokeToken( JWT token );
+
+  /**
+   * Has the token with the given id been revoked
+   *
+   * @param tokenId the id of the token
+   * @return true if the token has been revoked
+   */
+  boolean isRevoked( String tokenId );
+
+  /**
+   * Has the token been revoked.  Tokens without an id are never revoked.
+   *
+   * @param token the token
+   * @return true if the token has been revoked
+   */
+  boolean isRevoked( JWT token );
+
+}
@@ -30,6 +30,7 @@ public interface JWT {
   String AUDIENCE = "aud";
   String EXPIRES = "exp";
   String NOT_BEFORE = "nbf";
+  String JWT_ID = "jti";
 
   String getPayload();
 
@@ -57,6 +58,10 @@ public interface JWT {
 
   String getHeader();
 
+  String getKeyId();
+
+  String getSignatureAlgorithm();
+
   String getClaims();
 
   void sign(JWSSigner signer);
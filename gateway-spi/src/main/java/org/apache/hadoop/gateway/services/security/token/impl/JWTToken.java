@@ -21,6 +21,7 @@ import java.text.ParseException;
 import java.util.Date;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import org.apache.hadoop.gateway.i18n.messages.MessagesFactory;
 
@@ -57,7 +58,11 @@ public class JWTToken implements JWT {
   }
 
   public JWTToken(String alg, String[] claimsArray, List<String> audiences) {
-    JWSHeader header = new JWSHeader(new JWSAlgorithm(alg));
+    this(alg, claimsArray, audiences, null);
+  }
+
+  public JWTToken(String alg, String[] claimsArray, List<String> audiences, String kid) {
+    JWSHeader header = new JWSHeader.Builder(new JWSAlgorithm(alg)).keyID(kid).build();
 
     if (claimsArray[2] != null) {
       if (audiences == null) {
@@ -69,7 +74,8 @@ public class JWTToken implements JWT {
     JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder()
     .issuer(claimsArray[0])
     .subject(claimsArray[1])
-    .audience(audiences);
+    .audience(audiences)
+    .jwtID(UUID.randomUUID().toString());
     if(claimsArray[3] != null) {
       builder = builder.expirationTime(new Date(Long.parseLong(claimsArray[3])));
     }
@@ -88,6 +94,16 @@ public class JWTToken implements JWT {
     return header.toString();
   }
 
+  @Override
+  public String getKeyId() {
+    return jwt.getHeader().getKeyID();
+  }
+
+  @Override
+  public String getSignatureAlgorithm() {
+    return jwt.getHeader().getAlgorithm().getName();
+  }
+
   /* (non-Javadoc)
    * @see org.apache.hadoop.gateway.services.security.token.impl.JWT#getPayloadToSign()
    */
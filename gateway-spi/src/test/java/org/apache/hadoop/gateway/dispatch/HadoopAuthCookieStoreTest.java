@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.dispatch;
+
+import org.apache.http.HttpHost;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class HadoopAuthCookieStoreTest {
+
+  @Test
+  public void testStoresAreSharedPerBackend() {
+    HadoopAuthCookieStore store = HadoopAuthCookieStore.getStore( new HttpHost( "nn.example.com", 50070, "http" ) );
+    assertThat( HadoopAuthCookieStore.getStore( new HttpHost( "NN.example.com", 50070, "http" ) ), sameInstance( store ) );
+    assertThat( HadoopAuthCookieStore.getStore( new HttpHost( "nn.example.com", 8088, "http" ) ), not( sameInstance( store ) ) );
+    assertThat( HadoopAuthCookieStore.getStore( new HttpHost( "nn.example.com", 50070, "https" ) ), not( sameInstance( store ) ) );
+  }
+
+  @Test
+  public void testOnlyAuthCookiesAreKept() {
+    HadoopAuthCookieStore store = new HadoopAuthCookieStore();
+    store.addCookie( createCookie( "JSESSIONID", "1234" ) );
+    assertThat( store.getCookies().size(), is( 0 ) );
+
+    store.addCookie( createCookie( "hive.server2.auth", "cu=knox&rn=1&s=abc" ) );
+    store.addCookie( createCookie( "hadoop.auth", token( System.currentTimeMillis() + 60000L ) ) );
+    assertThat( store.getCookies().size(), is( 2 ) );
+
+    // A new cookie replaces the previous one.
+    Cookie cookie = createCookie( "hadoop.auth", token( System.currentTimeMillis() + 120000L ) );
+    store.addCookie( cookie );
+    assertThat( store.getCookies().size(), is( 2 ) );
+    assertThat( store.getCookies().contains( cookie ), is( true ) );
+  }
+
+  @Test
+  public void testCookieExpiresWithItsToken() {
+    HadoopAuthCookieStore store = new HadoopAuthCookieStore();
+    long expires = System.currentTimeMillis() + 60000L;
+    Cookie cookie = createCookie( "hadoop.auth", token( expires ) );
+    store.addCookie( cookie );
+    assertThat( cookie.getExpiryDate().getTime(), is( expires - HadoopAuthCookieStore.EXPIRY_MARGIN ) );
+    assertThat( store.getCookies().size(), is( 1 ) );
+
+    assertThat( store.clearExpired( new Date( expires ) ), is( true ) );
+    assertThat( store.getCookies().size(), is( 0 ) );
+
+    // A cookie that is about to expire is not worth keeping.
+    store.addCookie( createCookie( "hadoop.auth", token( System.currentTimeMillis() + 1000L ) ) );
+    assertThat( store.getCookies().size(), is( 0 ) );
+
+    // An explicit cookie expiry is left alone.
+    Date date = new Date( System.currentTimeMillis() + 30000L );
+    BasicClientCookie explicit = createCookie( "hadoop.auth", token( expires ) );
+    explicit.setExpiryDate( date );
+    store.addCookie( explicit );
+    assertThat( explicit.getExpiryDate(), is( date ) );
+  }
+
+  @Test
+  public void testGetTokenExpiry() {
+    assertThat( HadoopAuthCookieStore.getTokenExpiry( token( 1500000000000L ) ), is( 1500000000000L ) );
+    assertThat( HadoopAuthCookieStore.getTokenExpiry( "\"" + token( 1500000000000L ) + "\"" ), is( 1500000000000L ) );
+    assertThat( HadoopAuthCookieStore.getTokenExpiry( "e=1500000000000&s=abc" ), is( 1500000000000L ) );
+    assertThat( HadoopAuthCookieStore.getTokenExpiry( "u=knox&t=kerberos&s=abc" ), is( -1L ) );
+    assertThat( HadoopAuthCookieStore.getTokenExpiry( "u=knox&e=&s=abc" ), is( -1L ) );
+    assertThat( HadoopAuthCookieStore.getTokenExpiry( "u=knox&e=99999999999999999999&s=abc" ), is( -1L ) );
+    assertThat( HadoopAuthCookieStore.getTokenExpiry( null ), is( -1L ) );
+    assertThat( createCookie( "hive.server2.auth", "cu=knox" ).getExpiryDate(), nullValue() );
+  }
+
+  private static String token( long expires ) {
+    return "u=knox&p=knox/gateway.example.com@EXAMPLE.COM&t=kerberos&e=" + expires + "&s=abc";
+  }
+
+  private static BasicClientCookie createCookie( String name, String value ) {
+    BasicClientCookie cookie = new BasicClientCookie( name, value );
+    cookie.setDomain( "nn.example.com" );
+    cookie.setPath( "/" );
+    return cookie;
+  }
+
+}
@@ -32,6 +32,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -158,4 +161,27 @@ public class CMFKeystoreServiceTest {
       certificateFile.deleteOnExit();
     }
   }
+
+  @Test
+  public void testLoadedKeystoreIsReusedUntilItChanges() throws Exception {
+    try {
+      ks.createCredentialStore();
+      KeyStore loaded = ks.getCredentialStore();
+      assertSame("Unchanged store was reloaded", loaded, ks.getCredentialStore());
+
+      ks.addCredential(aliasName, "secretValue");
+      KeyStore written = ks.getCredentialStore();
+      assertNotSame("Store written by the service was not reloaded", loaded, written);
+      assertEquals("secretValue", new String(ks.getCredential(aliasName)));
+
+      // Another process, e.g. the CLI, changes the file behind the service's back.
+      CMFKeystoreService other = new CMFKeystoreService(".", "ambari");
+      other.setMasterService(ks.masterService);
+      other.addCredential("OtherAliasName", "otherValue");
+      assertNotSame("Store changed on disk was not reloaded", written, ks.getCredentialStore());
+      assertEquals("otherValue", new String(ks.getCredential("OtherAliasName")));
+    } finally {
+      credentialsStoreFile.deleteOnExit();
+    }
+  }
 }
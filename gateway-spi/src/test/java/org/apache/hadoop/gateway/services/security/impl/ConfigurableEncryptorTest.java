@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.services.security.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.crypto.AEADBadTagException;
+
+import org.apache.hadoop.gateway.config.GatewayConfig;
+import org.apache.hadoop.gateway.services.security.EncryptionResult;
+import org.apache.hadoop.test.category.FastTests;
+import org.apache.hadoop.test.category.UnitTests;
+import org.easymock.EasyMock;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@Category( { UnitTests.class, FastTests.class } )
+public class ConfigurableEncryptorTest {
+
+  @Test
+  public void testDerivedKeysAreCached() throws Exception {
+    ConfigurableEncryptor encryptor = new ConfigurableEncryptor( "passphrase" );
+    EncryptionResult result = encryptor.encrypt( "clear text" );
+
+    for( int i = 0; i < 3; i++ ) {
+      byte[] clear = encryptor.decrypt( result.salt, result.iv, result.cipher );
+      assertEquals( "clear text", new String( clear, StandardCharsets.UTF_8 ) );
+    }
+    assertEquals( 3, encryptor.getDerivedKeyCacheHitCount() );
+    assertEquals( 0, encryptor.getDerivedKeyCacheMissCount() );
+
+    // Cipher text from another instance, such as before a restart, carries a different salt.
+    ConfigurableEncryptor other = new ConfigurableEncryptor( "passphrase" );
+    EncryptionResult otherResult = other.encrypt( "other text" );
+    for( int i = 0; i < 2; i++ ) {
+      byte[] clear = encryptor.decrypt( otherResult.salt, otherResult.iv, otherResult.cipher );
+      assertEquals( "other text", new String( clear, StandardCharsets.UTF_8 ) );
+    }
+    assertEquals( 4, encryptor.getDerivedKeyCacheHitCount() );
+    assertEquals( 1, encryptor.getDerivedKeyCacheMissCount() );
+  }
+
+  @Test
+  public void testConfiguredKeyDerivation() throws Exception {
+    GatewayConfig config = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( config.getIterationCount() ).andReturn( "1000" ).anyTimes();
+    EasyMock.expect( config.getKeyLength() ).andReturn( "256" ).anyTimes();
+    EasyMock.replay( config );
+
+    ConfigurableEncryptor encryptor = new ConfigurableEncryptor( "passphrase" );
+    encryptor.init( config );
+    EncryptionResult result = encryptor.encrypt( "clear text" );
+
+    ConfigurableEncryptor other = new ConfigurableEncryptor( "passphrase" );
+    other.init( config );
+    byte[] clear = other.decrypt( result.salt, result.iv, result.cipher );
+    assertEquals( "clear text", new String( clear, StandardCharsets.UTF_8 ) );
+    assertEquals( "clear text", new String( encryptor.decrypt( result.salt, result.iv, result.cipher ), StandardCharsets.UTF_8 ) );
+    assertEquals( 1, encryptor.getDerivedKeyCacheHitCount() );
+  }
+
+  @Test
+  public void testGcmTransformation() throws Exception {
+    GatewayConfig config = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( config.getTransformation() ).andReturn( "AES/GCM/NoPadding" ).anyTimes();
+    EasyMock.replay( config );
+
+    ConfigurableEncryptor cbc = new ConfigurableEncryptor( "passphrase" );
+    EncryptionResult cbcResult = cbc.encrypt( "cbc text" );
+
+    ConfigurableEncryptor gcm = new ConfigurableEncryptor( "passphrase" );
+    gcm.init( config );
+    EncryptionResult first = gcm.encrypt( "clear text" );
+    EncryptionResult second = gcm.encrypt( "clear text" );
+    assertEquals( 12, first.iv.length );
+    assertFalse( Arrays.equals( first.iv, second.iv ) );
+    assertEquals( "clear text", new String( gcm.decrypt( first.salt, first.iv, first.cipher ), StandardCharsets.UTF_8 ) );
+
+    // Tampered cipher texts are rejected.
+    first.cipher[ first.cipher.length - 1 ] ^= 1;
+    try {
+      gcm.decrypt( first.salt, first.iv, first.cipher );
+      fail( "Expected AEADBadTagException" );
+    } catch( AEADBadTagException e ) {
+      // Expected.
+    }
+
+    // Cipher texts created before GCM was configured are rejected rather than decrypted with CBC.
+    assertEquals( 16, cbcResult.iv.length );
+    try {
+      gcm.decrypt( cbcResult.salt, cbcResult.iv, cbcResult.cipher );
+      fail( "Expected GeneralSecurityException" );
+    } catch( GeneralSecurityException e ) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testLegacyTransformation() throws Exception {
+    GatewayConfig config = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( config.getTransformation() ).andReturn( "AES/GCM/NoPadding" ).anyTimes();
+    EasyMock.expect( config.getLegacyTransformation() ).andReturn( "AES/CBC/PKCS5Padding" ).anyTimes();
+    EasyMock.replay( config );
+
+    ConfigurableEncryptor cbc = new ConfigurableEncryptor( "passphrase" );
+    EncryptionResult cbcResult = cbc.encrypt( "cbc text" );
+
+    ConfigurableEncryptor gcm = new ConfigurableEncryptor( "passphrase" );
+    gcm.init( config );
+    assertEquals( "cbc text", new String( gcm.decrypt( cbcResult.salt, cbcResult.iv, cbcResult.cipher ), StandardCharsets.UTF_8 ) );
+
+    // Marked cipher texts are always decrypted with GCM.
+    EncryptionResult result = gcm.encrypt( "clear text" );
+    result.cipher[ result.cipher.length - 1 ] ^= 1;
+    try {
+      gcm.decrypt( result.salt, result.iv, result.cipher );
+      fail( "Expected AEADBadTagException" );
+    } catch( AEADBadTagException e ) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testConcurrentUse() throws Exception {
+    final ConfigurableEncryptor encryptor = new ConfigurableEncryptor( "passphrase" );
+    ExecutorService executor = Executors.newFixedThreadPool( 8 );
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for( int i = 0; i < 8; i++ ) {
+        final String text = "clear text " + i;
+        results.add( executor.submit( new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws Exception {
+            for( int j = 0; j < 200; j++ ) {
+              EncryptionResult result = encryptor.encrypt( text );
+              String clear = new String( encryptor.decrypt( result.salt, result.iv, result.cipher ), StandardCharsets.UTF_8 );
+              if( !text.equals( clear ) ) {
+                return false;
+              }
+            }
+            return true;
+          }
+        } ) );
+      }
+      for( Future<Boolean> result : results ) {
+        assertTrue( result.get() );
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
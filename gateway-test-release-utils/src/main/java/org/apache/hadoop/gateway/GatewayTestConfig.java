@@ -25,6 +25,7 @@ import java.io.File;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -570,6 +571,11 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return null;
   }
 
+  @Override
+  public String getLegacyTransformation() {
+    return null;
+  }
+
   @Override
   public String getSaltSize() {
     return null;
@@ -614,4 +620,69 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
   public boolean isClientAuthWanted() {
     return false;
   }
+
+  @Override
+  public long getLocalHostNameRefreshInterval() {
+    return 300L;
+  }
+
+  @Override
+  public boolean isStaticAssetCacheEnabled() {
+    return false;
+  }
+
+  @Override
+  public long getStaticAssetCacheMaxSize() {
+    return 0L;
+  }
+
+  @Override
+  public String getGroupLookupBackend() {
+    return "none";
+  }
+
+  @Override
+  public Map<String, String> getGroupLookupBackendProperties() {
+    return Collections.emptyMap();
+  }
+
+  @Override
+  public long getGroupLookupCacheTtl() {
+    return 300L;
+  }
+
+  @Override
+  public long getGroupLookupNegativeCacheTtl() {
+    return 30L;
+  }
+
+  @Override
+  public int getGroupLookupCacheMaxSize() {
+    return 10000;
+  }
+
+  @Override
+  public boolean isSSLSessionCachingEnabled() {
+    return true;
+  }
+
+  @Override
+  public int getSSLSessionCacheSize() {
+    return 20480;
+  }
+
+  @Override
+  public int getSSLSessionTimeout() {
+    return 86400;
+  }
+
+  @Override
+  public boolean isSSLServerCipherOrderEnabled() {
+    return true;
+  }
+
+  @Override
+  public long getNonExpiringTokenRetention() {
+    return 0;
+  }
 }
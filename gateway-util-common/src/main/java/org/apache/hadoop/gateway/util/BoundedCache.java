@@ -0,0 +1,322 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.util;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread safe cache holding at most a fixed number of entries, dropping the least recently
+ * used entry when it is full.  Entries also expire a fixed time after they were added (time to
+ * live), a fixed time after they were last read (time to idle) or at a time given when they are
+ * added, whichever comes first.  A time of zero or less disables the corresponding check.
+ * <p>
+ * Large caches are split into independently locked segments, each an access ordered
+ * {@link LinkedHashMap}, so every operation is constant time and only contends with the
+ * operations on the same segment.  A full segment drops its own least recently used entry, which
+ * approximates the least recently used entry of the whole cache.  Expired entries are dropped when
+ * they are read, when they are the eldest entry of a full segment or by {@link #purge()}.
+ */
+public class BoundedCache<K,V> {
+
+  public static final long NEVER = Long.MAX_VALUE;
+
+  private static final int MAX_SEGMENTS = 16;
+  private static final int MIN_SEGMENT_SIZE = 256;
+
+  private final int maxSize;
+  private final long timeToLive;
+  private final long timeToIdle;
+  private final Clock clock;
+  private final Segment<K,V>[] segments;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong expirations = new AtomicLong();
+
+  public BoundedCache( int maxSize, long timeToLive ) {
+    this( maxSize, timeToLive, 0 );
+  }
+
+  public BoundedCache( int maxSize, long timeToLive, long timeToIdle ) {
+    this( maxSize, timeToLive, timeToIdle, Clock.systemUTC() );
+  }
+
+  @SuppressWarnings( "unchecked" )
+  public BoundedCache( int maxSize, long timeToLive, long timeToIdle, Clock clock ) {
+    this.maxSize = Math.max( 1, maxSize );
+    this.timeToLive = timeToLive;
+    this.timeToIdle = timeToIdle;
+    this.clock = clock;
+    int count = Math.max( 1, Math.min( MAX_SEGMENTS, this.maxSize / MIN_SEGMENT_SIZE ) );
+    segments = new Segment[ count ];
+    for( int i = 0; i < count; i++ ) {
+      // The first segments take the remainder so that the capacities add up to the maximum size.
+      segments[ i ] = new Segment<>( this, this.maxSize / count + ( i < this.maxSize % count ? 1 : 0 ) );
+    }
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  public long getTimeToIdle() {
+    return timeToIdle;
+  }
+
+  /**
+   * Returns the current time of the cache's clock, in milliseconds.
+   */
+  public long currentTimeMillis() {
+    return clock.millis();
+  }
+
+  /**
+   * Returns the value of the key, or null if there is none or it has expired.
+   */
+  public V get( K key ) {
+    if( key == null ) {
+      return null;
+    }
+    Segment<K,V> segment = segmentFor( key );
+    long now = clock.millis();
+    synchronized( segment ) {
+      Entry<V> entry = segment.get( key );
+      if( entry != null ) {
+        if( !isExpired( entry, now ) ) {
+          entry.accessed = now;
+          hits.incrementAndGet();
+          return entry.value;
+        }
+        segment.remove( key );
+        expirations.incrementAndGet();
+      }
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Adds the value of the key, or removes the key if the value is null.
+   *
+   * @return the previous value of the key, if any
+   */
+  public V put( K key, V value ) {
+    return put( key, value, NEVER );
+  }
+
+  /**
+   * Adds the value of the key, to expire no later than the given time in milliseconds.  A value
+   * that has already expired isn't added and removes the previous value of the key.
+   *
+   * @return the previous value of the key, if any
+   */
+  public V put( K key, V value, long expires ) {
+    if( key == null ) {
+      return null;
+    }
+    long now = clock.millis();
+    if( timeToLive > 0 ) {
+      expires = Math.min( expires, now + timeToLive );
+    }
+    if( value == null || expires <= now ) {
+      return remove( key );
+    }
+    Segment<K,V> segment = segmentFor( key );
+    synchronized( segment ) {
+      return valueOf( segment.put( key, new Entry<>( value, expires, now ) ) );
+    }
+  }
+
+  /**
+   * Removes the key.
+   *
+   * @return the previous value of the key, if any
+   */
+  public V remove( K key ) {
+    if( key == null ) {
+      return null;
+    }
+    Segment<K,V> segment = segmentFor( key );
+    synchronized( segment ) {
+      return valueOf( segment.remove( key ) );
+    }
+  }
+
+  public void clear() {
+    for( Segment<K,V> segment : segments ) {
+      synchronized( segment ) {
+        segment.clear();
+      }
+    }
+  }
+
+  /**
+   * Removes all of the entries that have expired.
+   */
+  public void purge() {
+    long now = clock.millis();
+    for( Segment<K,V> segment : segments ) {
+      synchronized( segment ) {
+        Iterator<Entry<V>> iterator = segment.values().iterator();
+        while( iterator.hasNext() ) {
+          if( isExpired( iterator.next(), now ) ) {
+            iterator.remove();
+            expirations.incrementAndGet();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of entries, including the expired entries that haven't been dropped yet.
+   */
+  public int size() {
+    int size = 0;
+    for( Segment<K,V> segment : segments ) {
+      synchronized( segment ) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns a snapshot of the keys that haven't expired.
+   */
+  public Set<K> keys() {
+    long now = clock.millis();
+    Set<K> keys = new HashSet<>();
+    for( Segment<K,V> segment : segments ) {
+      synchronized( segment ) {
+        for( Map.Entry<K,Entry<V>> entry : segment.entrySet() ) {
+          if( !isExpired( entry.getValue(), now ) ) {
+            keys.add( entry.getKey() );
+          }
+        }
+      }
+    }
+    return Collections.unmodifiableSet( keys );
+  }
+
+  /**
+   * Returns a snapshot of the values that haven't expired.
+   */
+  public Collection<V> values() {
+    long now = clock.millis();
+    List<V> values = new ArrayList<>();
+    for( Segment<K,V> segment : segments ) {
+      synchronized( segment ) {
+        for( Entry<V> entry : segment.values() ) {
+          if( !isExpired( entry, now ) ) {
+            values.add( entry.value );
+          }
+        }
+      }
+    }
+    return Collections.unmodifiableList( values );
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the number of entries dropped to make room for others before they expired.
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  public long getExpirationCount() {
+    return expirations.get();
+  }
+
+  private Segment<K,V> segmentFor( Object key ) {
+    if( segments.length == 1 ) {
+      return segments[ 0 ];
+    }
+    int hash = key.hashCode();
+    hash ^= hash >>> 16;
+    return segments[ ( hash & Integer.MAX_VALUE ) % segments.length ];
+  }
+
+  private boolean isExpired( Entry<V> entry, long now ) {
+    return now >= entry.expires || ( timeToIdle > 0 && now - entry.accessed >= timeToIdle );
+  }
+
+  private static <V> V valueOf( Entry<V> entry ) {
+    return entry == null ? null : entry.value;
+  }
+
+  private static class Segment<K,V> extends LinkedHashMap<K,Entry<V>> {
+    private final BoundedCache<K,V> cache;
+    private final int capacity;
+
+    private Segment( BoundedCache<K,V> cache, int capacity ) {
+      super( 16, 0.75f, true );
+      this.cache = cache;
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry( Map.Entry<K,Entry<V>> eldest ) {
+      if( size() <= capacity ) {
+        return false;
+      }
+      if( cache.isExpired( eldest.getValue(), cache.clock.millis() ) ) {
+        cache.expirations.incrementAndGet();
+      } else {
+        cache.evictions.incrementAndGet();
+      }
+      return true;
+    }
+  }
+
+  private static class Entry<V> {
+    private final V value;
+    private final long expires;
+    private long accessed;
+
+    private Entry( V value, long expires, long accessed ) {
+      this.value = value;
+      this.expires = expires;
+      this.accessed = accessed;
+    }
+  }
+
+}
@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * A binary prefix trie of IPv4 and IPv6 address ranges in CIDR notation.
+ * Looking up an address walks at most one node per address bit, so the cost
+ * doesn't depend on how many ranges have been added.
+ */
+public class IpAddressTrie {
+
+  private final Node ipv4 = new Node();
+  private final Node ipv6 = new Node();
+  private boolean empty = true;
+
+  /**
+   * Adds an address or range, for example 10.0.0.0/8, 192.168.1.1 or 2001:db8::/32.
+   *
+   * @return false if the value isn't an IP address or CIDR range
+   */
+  public boolean add( String cidr ) {
+    if( cidr == null ) {
+      return false;
+    }
+    String address = cidr.trim();
+    int prefixLength = -1;
+    int slash = address.indexOf( '/' );
+    if( slash >= 0 ) {
+      try {
+        prefixLength = Integer.parseInt( address.substring( slash + 1 ) );
+      } catch( NumberFormatException e ) {
+        return false;
+      }
+      address = address.substring( 0, slash );
+    }
+    byte[] bytes = parseAddress( address );
+    if( bytes == null ) {
+      return false;
+    }
+    int bits = bytes.length * 8;
+    if( prefixLength < 0 ) {
+      prefixLength = bits;
+    } else if( prefixLength > bits ) {
+      return false;
+    }
+    add( bytes, prefixLength );
+    return true;
+  }
+
+  /**
+   * Adds the range of addresses starting with the first prefixLength bits of the address.
+   */
+  public void add( byte[] address, int prefixLength ) {
+    Node node = address.length == 4 ? ipv4 : ipv6;
+    for( int i = 0; i < prefixLength && !node.terminal; i++ ) {
+      int bit = bit( address, i );
+      if( node.children[ bit ] == null ) {
+        node.children[ bit ] = new Node();
+      }
+      node = node.children[ bit ];
+    }
+    // A shorter range already covers this one, or this one covers everything below it.
+    node.terminal = true;
+    node.children[ 0 ] = null;
+    node.children[ 1 ] = null;
+    empty = false;
+  }
+
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * Determines if the address is within any of the ranges.
+   */
+  public boolean contains( String address ) {
+    return contains( parseAddress( address ) );
+  }
+
+  public boolean contains( byte[] address ) {
+    if( address == null || empty ) {
+      return false;
+    }
+    Node node = address.length == 4 ? ipv4 : ipv6;
+    int bits = address.length * 8;
+    for( int i = 0; node != null; i++ ) {
+      if( node.terminal ) {
+        return true;
+      }
+      if( i == bits ) {
+        return false;
+      }
+      node = node.children[ bit( address, i ) ];
+    }
+    return false;
+  }
+
+  /**
+   * Parses an IPv4 or IPv6 address literal without any name service lookup.
+   * IPv4 mapped IPv6 addresses are returned as IPv4 addresses.
+   *
+   * @return the address bytes or null if the value isn't an address literal
+   */
+  public static byte[] parseAddress( String address ) {
+    if( address == null || address.isEmpty() ) {
+      return null;
+    }
+    if( address.indexOf( ':' ) >= 0 ) {
+      if( address.startsWith( "[" ) && address.endsWith( "]" ) ) {
+        address = address.substring( 1, address.length() - 1 );
+      }
+      int zone = address.indexOf( '%' );
+      if( zone >= 0 ) {
+        address = address.substring( 0, zone );
+      }
+      if( address.isEmpty() ) {
+        return null;
+      }
+      // Only hex digits, colons and dots are accepted so InetAddress never attempts a name lookup.
+      for( int i = 0; i < address.length(); i++ ) {
+        char c = address.charAt( i );
+        if( Character.digit( c, 16 ) < 0 && c != ':' && c != '.' ) {
+          return null;
+        }
+      }
+      try {
+        return InetAddress.getByName( address ).getAddress();
+      } catch( UnknownHostException e ) {
+        return null;
+      }
+    }
+    return parseIpv4( address );
+  }
+
+  private static byte[] parseIpv4( String address ) {
+    byte[] bytes = new byte[ 4 ];
+    int part = 0;
+    int value = -1;
+    for( int i = 0; i < address.length(); i++ ) {
+      char c = address.charAt( i );
+      if( c >= '0' && c <= '9' ) {
+        value = ( value < 0 ? 0 : value * 10 ) + ( c - '0' );
+        if( value > 255 ) {
+          return null;
+        }
+      } else if( c == '.' && value >= 0 && part < 3 ) {
+        bytes[ part++ ] = (byte)value;
+        value = -1;
+      } else {
+        return null;
+      }
+    }
+    if( part != 3 || value < 0 ) {
+      return null;
+    }
+    bytes[ 3 ] = (byte)value;
+    return bytes;
+  }
+
+  private static int bit( byte[] address, int index ) {
+    return ( address[ index >> 3 ] >> ( 7 - ( index & 7 ) ) ) & 1;
+  }
+
+  private static class Node {
+    private final Node[] children = new Node[ 2 ];
+    private boolean terminal;
+  }
+
+}
@@ -19,9 +19,16 @@ package org.apache.hadoop.gateway.util;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Validate a given IP Address against a list of comma separated list of addresses.
+ * <p>
+ * Entries may be exact addresses, CIDR ranges such as 10.0.0.0/8 or 2001:db8::/32,
+ * or wildcards such as 192.168.* which are treated as the equivalent CIDR range.
+ * The addresses and ranges are compiled into an {@link IpAddressTrie} so validation
+ * doesn't depend on the number of entries.
  */
 public class IpAddressValidator {
   
@@ -32,8 +39,19 @@ public class IpAddressValidator {
   
   /**
    * IP addresses from the ipaddr list that contain a wildcard character '*'
+   * which don't correspond to a CIDR range, for example 19*
    */
   private ArrayList<String> wildCardIPs = new ArrayList<String>();
+
+  /**
+   * Entries that aren't IP address literals and are compared as strings
+   */
+  private Set<String> literals = new HashSet<String>();
+
+  /**
+   * The IP addresses and ranges
+   */
+  private IpAddressTrie ranges = new IpAddressTrie();
   
   /**
    * Optimization based on empty IP address list or an explicit '*' wildcard
@@ -62,14 +80,51 @@ public class IpAddressValidator {
     Collections.addAll(ipaddr, ips);
     if (!ipaddr.contains("*")) {
       anyIP = false;
-      // check whether there are any wildcarded ip's - example: 192.* or 192.168.* or 192.168.1.*
       for (String addr : ipaddr) {
+        addr = addr.trim();
+        if (addr.isEmpty()) {
+          continue;
+        }
+        // check whether there are any wildcarded ip's - example: 192.* or 192.168.* or 192.168.1.*
         if (addr.contains("*")) {
-          wildCardIPs.add(addr.substring(0, addr.lastIndexOf('*')));
+          String prefix = addr.substring(0, addr.lastIndexOf('*'));
+          if (!addWildcardRange(prefix)) {
+            wildCardIPs.add(prefix);
+          }
+        } else if (!ranges.add(addr)) {
+          literals.add(addr);
         }
       }
     }
   }
+
+  /**
+   * Adds a wildcard whose prefix ends on an IPv4 octet or IPv6 group boundary as a range.
+   */
+  private boolean addWildcardRange(String prefix) {
+    boolean ipv6 = prefix.endsWith(":");
+    if (!ipv6 && !prefix.endsWith(".") || prefix.contains("::")) {
+      return false;
+    }
+    String[] parts = prefix.substring(0, prefix.length() - 1).split(ipv6 ? ":" : "\\.", -1);
+    int total = ipv6 ? 8 : 4;
+    if (parts.length >= total) {
+      return false;
+    }
+    StringBuilder address = new StringBuilder(prefix);
+    for (int i = parts.length; i < total; i++) {
+      address.append('0');
+      if (i < total - 1) {
+        address.append(ipv6 ? ':' : '.');
+      }
+    }
+    byte[] bytes = IpAddressTrie.parseAddress(address.toString());
+    if (bytes == null || bytes.length != (ipv6 ? 16 : 4)) {
+      return false;
+    }
+    ranges.add(bytes, parts.length * (ipv6 ? 16 : 8));
+    return true;
+  }
   
   public boolean validateIpAddress(String addr) {
     boolean valid = false;
@@ -82,11 +137,11 @@ public class IpAddressValidator {
       valid = true;
     }
     else {
-      if (ipaddr.contains(addr)) {
+      if (ranges.contains(addr) || literals.contains(addr)) {
         valid = true;
       }
       else {
-        // check for wildcards if there are wildcardIP acls configured
+        // check for wildcards that aren't ranges if there are any configured
         if (!wildCardIPs.isEmpty()) {
           for (String ip : wildCardIPs) {
             if (addr.startsWith(ip)) {
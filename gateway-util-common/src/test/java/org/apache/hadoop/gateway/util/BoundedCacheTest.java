@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class BoundedCacheTest extends org.junit.Assert {
+
+  private static class TestClock extends Clock {
+    private final AtomicLong millis = new AtomicLong( 1000000L );
+
+    void advance( long delta ) {
+      millis.addAndGet( delta );
+    }
+
+    @Override
+    public long millis() {
+      return millis.get();
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli( millis() );
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone( ZoneId zone ) {
+      return this;
+    }
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntryIsEvicted() {
+    BoundedCache<String,String> cache = new BoundedCache<>( 3, 0 );
+    cache.put( "a", "A" );
+    cache.put( "b", "B" );
+    cache.put( "c", "C" );
+    assertEquals( "A", cache.get( "a" ) );
+    cache.put( "d", "D" );
+    assertEquals( 3, cache.size() );
+    assertNull( cache.get( "b" ) );
+    assertEquals( "A", cache.get( "a" ) );
+    assertEquals( "C", cache.get( "c" ) );
+    assertEquals( "D", cache.get( "d" ) );
+    assertEquals( 1, cache.getEvictionCount() );
+    assertEquals( 4, cache.getHitCount() );
+    assertEquals( 1, cache.getMissCount() );
+  }
+
+  @Test
+  public void testSegmentedCacheIsBounded() {
+    BoundedCache<Integer,Integer> cache = new BoundedCache<>( 5000, 0 );
+    for( int i = 0; i < 20000; i++ ) {
+      cache.put( i, i );
+      assertTrue( cache.size() <= 5000 );
+    }
+    assertEquals( 5000, cache.size() );
+    assertEquals( 15000, cache.getEvictionCount() );
+    assertEquals( Integer.valueOf( 19999 ), cache.get( 19999 ) );
+  }
+
+  @Test
+  public void testTimeToLive() {
+    TestClock clock = new TestClock();
+    BoundedCache<String,String> cache = new BoundedCache<>( 10, 1000, 0, clock );
+    cache.put( "a", "A" );
+    clock.advance( 999 );
+    assertEquals( "A", cache.get( "a" ) );
+    clock.advance( 1 );
+    assertNull( cache.get( "a" ) );
+    assertEquals( 0, cache.size() );
+    assertEquals( 1, cache.getExpirationCount() );
+  }
+
+  @Test
+  public void testTimeToIdle() {
+    TestClock clock = new TestClock();
+    BoundedCache<String,String> cache = new BoundedCache<>( 10, 0, 1000, clock );
+    cache.put( "a", "A" );
+    for( int i = 0; i < 5; i++ ) {
+      clock.advance( 900 );
+      assertEquals( "A", cache.get( "a" ) );
+    }
+    clock.advance( 1000 );
+    assertNull( cache.get( "a" ) );
+  }
+
+  @Test
+  public void testEntryExpiry() {
+    TestClock clock = new TestClock();
+    BoundedCache<String,String> cache = new BoundedCache<>( 10, 1000, 0, clock );
+    long now = clock.millis();
+    // The time to live still applies to entries expiring later.
+    cache.put( "later", "L", now + 5000 );
+    cache.put( "sooner", "S", now + 500 );
+    cache.put( "a", "A" );
+    assertNull( cache.put( "expired", "E", now ) );
+    assertEquals( 3, cache.size() );
+    assertEquals( "A", cache.put( "a", "B", now - 1 ) );
+    assertNull( cache.get( "a" ) );
+
+    clock.advance( 500 );
+    assertEquals( 1, cache.keys().size() );
+    assertTrue( cache.keys().contains( "later" ) );
+    assertEquals( "L", cache.get( "later" ) );
+    cache.purge();
+    assertEquals( 1, cache.size() );
+    clock.advance( 500 );
+    assertNull( cache.get( "later" ) );
+    assertTrue( cache.values().isEmpty() );
+  }
+
+  @Test
+  public void testExpiredEntriesAreDroppedFirst() {
+    TestClock clock = new TestClock();
+    BoundedCache<String,String> cache = new BoundedCache<>( 2, 0, 0, clock );
+    cache.put( "a", "A", clock.millis() + 100 );
+    cache.put( "b", "B" );
+    clock.advance( 100 );
+    cache.put( "c", "C" );
+    assertEquals( 2, cache.size() );
+    assertEquals( 0, cache.getEvictionCount() );
+    assertEquals( 1, cache.getExpirationCount() );
+  }
+
+  @Test
+  public void testRemoveAndClear() {
+    BoundedCache<String,String> cache = new BoundedCache<>( 10, 0 );
+    assertNull( cache.put( "a", "A" ) );
+    assertEquals( "A", cache.put( "a", "B" ) );
+    assertEquals( "B", cache.put( "a", null ) );
+    assertNull( cache.get( "a" ) );
+    cache.put( "a", "A" );
+    assertEquals( "A", cache.remove( "a" ) );
+    assertNull( cache.remove( "a" ) );
+    cache.put( "a", "A" );
+    cache.put( "b", "B" );
+    cache.clear();
+    assertEquals( 0, cache.size() );
+    assertNull( cache.get( null ) );
+    assertNull( cache.put( null, "A" ) );
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.gateway.util;
+
+import org.junit.Test;
+
+public class IpAddressTrieTest extends org.junit.Assert {
+
+  @Test
+  public void testParseAddress() throws Exception {
+    assertArrayEquals(new byte[]{ 127, 0, 0, 1 }, IpAddressTrie.parseAddress("127.0.0.1"));
+    assertEquals(16, IpAddressTrie.parseAddress("::1").length);
+    assertEquals(16, IpAddressTrie.parseAddress("[fe80::1%eth0]").length);
+    assertEquals(4, IpAddressTrie.parseAddress("::ffff:10.0.0.1").length);
+    assertNull(IpAddressTrie.parseAddress("256.0.0.1"));
+    assertNull(IpAddressTrie.parseAddress("1.2.3"));
+    assertNull(IpAddressTrie.parseAddress("1.2.3.4.5"));
+    assertNull(IpAddressTrie.parseAddress("localhost"));
+    assertNull(IpAddressTrie.parseAddress("example.com:8443"));
+    assertNull(IpAddressTrie.parseAddress(""));
+    assertNull(IpAddressTrie.parseAddress(null));
+  }
+
+  @Test
+  public void testRanges() throws Exception {
+    IpAddressTrie trie = new IpAddressTrie();
+    assertTrue(trie.isEmpty());
+    assertFalse(trie.contains("10.0.0.1"));
+
+    assertTrue(trie.add("10.0.0.0/8"));
+    assertTrue(trie.add("172.16.5.4"));
+    assertTrue(trie.add("fd00::/8"));
+    assertFalse(trie.add("10.0.0.0/33"));
+    assertFalse(trie.add("10.0.0.0/x"));
+    assertFalse(trie.add("somehost"));
+
+    assertTrue(trie.contains("10.255.255.255"));
+    assertFalse(trie.contains("11.0.0.0"));
+    assertTrue(trie.contains("172.16.5.4"));
+    assertFalse(trie.contains("172.16.5.5"));
+    assertTrue(trie.contains("fd12:3456::1"));
+    assertFalse(trie.contains("fe80::1"));
+    // IPv4 ranges never match IPv6 addresses of the same bits.
+    assertFalse(trie.contains("a00::1"));
+  }
+
+  @Test
+  public void testOverlappingRanges() throws Exception {
+    IpAddressTrie trie = new IpAddressTrie();
+    trie.add("192.168.1.0/24");
+    trie.add("192.168.0.0/16");
+    trie.add("192.168.1.7");
+    assertTrue(trie.contains("192.168.200.1"));
+    assertTrue(trie.contains("192.168.1.8"));
+
+    trie = new IpAddressTrie();
+    trie.add("0.0.0.0/0");
+    assertTrue(trie.contains("8.8.8.8"));
+    assertFalse(trie.contains("::1"));
+  }
+
+}
@@ -74,4 +74,41 @@ public class IpAddressValidatorTest extends org.junit.Assert {
     assertTrue("Should have validated 293.168.1.1", ipv.validateIpAddress("293.168.1.1"));
   }
 
+  @Test
+  public void testCidrRanges() throws Exception {
+    IpAddressValidator ipv = new IpAddressValidator("10.0.0.0/8, 192.168.4.0/22,2001:db8::/32");
+
+    assertTrue(ipv.validateIpAddress("10.1.2.3"));
+    assertFalse(ipv.validateIpAddress("11.1.2.3"));
+    assertTrue(ipv.validateIpAddress("192.168.7.255"));
+    assertFalse(ipv.validateIpAddress("192.168.8.1"));
+    assertTrue(ipv.validateIpAddress("2001:db8:0:0:0:0:0:1"));
+    assertTrue(ipv.validateIpAddress("2001:db8::1"));
+    assertFalse(ipv.validateIpAddress("2001:db9::1"));
+    assertFalse(ipv.validateIpAddress("not-an-address"));
+  }
+
+  @Test
+  public void testWildcardsMatchEquivalentAddressForms() throws Exception {
+    IpAddressValidator ipv = new IpAddressValidator(test);
+
+    // The IPv6 wildcard is a /96 range so compressed forms match as well.
+    assertTrue(ipv.validateIpAddress("::2"));
+    assertTrue(ipv.validateIpAddress("::1"));
+    // IPv4 mapped IPv6 addresses are treated as IPv4 addresses.
+    assertTrue(ipv.validateIpAddress("::ffff:192.168.1.20"));
+    assertFalse(ipv.validateIpAddress("::ffff:192.168.2.20"));
+  }
+
+  @Test
+  public void testManyAddresses() throws Exception {
+    StringBuilder acl = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      acl.append("10.").append(i / 256).append('.').append(i % 256).append(".1,");
+    }
+    IpAddressValidator ipv = new IpAddressValidator(acl.toString());
+    assertTrue(ipv.validateIpAddress("10.19.135.1"));
+    assertFalse(ipv.validateIpAddress("10.19.135.2"));
+  }
+
 }